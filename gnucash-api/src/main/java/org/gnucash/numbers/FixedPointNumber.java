@@ -6,7 +6,11 @@ import java.math.BigDecimal;
  * Implementation of Fixed-point numbers that knows the String-format gnucash
  * uses and returns true if 2 numbers are compared that are mathematically equal
  * even if they have a different representation (unlike BigInteger). internal
- * format: "2/100" means "0.02"
+ * format: "2/100" means "0.02"<br/>
+ * As long as it fits, the value is kept as a long unscaled value and a scale
+ * and the arithmetic is done on longs with the same results (including the
+ * scale) as BigDecimal. The BigDecimal is only created when it is asked for or
+ * when a result would overflow.
  */
 public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 
@@ -21,15 +25,18 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public Object clone() {
-		FixedPointNumber fp2 = new FixedPointNumber(getBigDecimal());
-		return fp2;
+		return copy();
 	}
 
 	/**
 	 * @see java.lang.Object#clone()
 	 */
 	public FixedPointNumber copy() {
-		FixedPointNumber fp2 = new FixedPointNumber(getBigDecimal());
+		FixedPointNumber fp2 = new FixedPointNumber();
+		fp2.value = value;
+		fp2.unscaled = unscaled;
+		fp2.scale = scale;
+		fp2.compact = compact;
 		return fp2;
 	}
 
@@ -38,7 +45,12 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public FixedPointNumber negate() {
-		return new FixedPointNumber(value.negate());
+		if (compact && unscaled != Long.MIN_VALUE) {
+			FixedPointNumber fp2 = new FixedPointNumber();
+			fp2.setCompact(-unscaled, scale);
+			return fp2;
+		}
+		return new FixedPointNumber(getBigDecimal().negate());
 	}
 
     /*    public double doubleValue() {
@@ -62,7 +74,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	public boolean equals(final Object o) {
 		if (o instanceof FixedPointNumber) {
 			FixedPointNumber n = (FixedPointNumber) o;
-			return equals(n.getBigDecimal());
+			return compare(n) == 0;
 		}
 
 		if (o instanceof BigDecimal) {
@@ -76,7 +88,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
                                                          if (otherBigDecimal.abs().compareTo(MINUSZERO) == 0)
                                                              otherBigDecimal = MINUSZERO;
                                                         //^^^^^^^^*/
-			return (otherBigDecimal).compareTo(value) == 0;
+			return (otherBigDecimal).compareTo(getBigDecimal()) == 0;
 		}
 
 		if (o instanceof Number) {
@@ -87,20 +99,156 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	}
 
 	/**
-	 * our internal value.
+	 * our internal value if it does not fit into {@link #unscaled} (else it is
+	 * only created when asked for and kept until the value changes).
 	 */
 	private BigDecimal value;
 
+	/**
+	 * our internal value is unscaled * 10^-scale (like in BigDecimal) if
+	 * {@link #compact} is set.
+	 */
+	private long unscaled;
+
+	/**
+	 * @see #unscaled
+	 */
+	private int scale;
+
+	/**
+	 * true if the value is kept in {@link #unscaled} and {@link #scale}.
+	 */
+	private boolean compact;
+
+	/**
+	 * 10^0 to 10^18.
+	 */
+	private static final long[] POWERS_OF_TEN = new long[19];
+
+	static {
+		POWERS_OF_TEN[0] = 1;
+		for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+			POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+		}
+	}
+
+	private void setCompact(final long newUnscaled, final int newScale) {
+		unscaled = newUnscaled;
+		scale = newScale;
+		compact = true;
+		value = null;
+	}
+
+	/**
+	 * @return the scale of our value
+	 */
+	private int getScale() {
+		return compact ? scale : value.scale();
+	}
+
+	private void setValue(final BigDecimal bd) {
+		value = bd;
+		compact = false;
+	}
+
+	/**
+	 * Switches to the long-representation if the value fits.
+	 *
+	 * @return true if the value is kept in {@link #unscaled} and {@link #scale}
+	 */
+	private boolean toCompact() {
+		if (!compact && value.precision() <= 18) {
+			// the BigDecimal stays valid
+			unscaled = value.unscaledValue().longValue();
+			scale = value.scale();
+			compact = true;
+		}
+		return compact;
+	}
+
+	/**
+	 * @return u * 10^digits
+	 * @throws ArithmeticException on overflow
+	 */
+	private static long scaleUp(final long u, final long digits) {
+		if (digits >= POWERS_OF_TEN.length) {
+			throw new ArithmeticException("long overflow");
+		}
+		return Math.multiplyExact(u, POWERS_OF_TEN[(int) digits]);
+	}
+
+	/**
+	 * Adds like BigDecimal.add (the scale of the sum is the bigger scale).
+	 *
+	 * @return false if the sum does not fit (nothing is changed then)
+	 */
+	private boolean addCompact(final long u, final int s) {
+		try {
+			if (scale == s) {
+				setCompact(Math.addExact(unscaled, u), s);
+			} else if (scale < s) {
+				setCompact(Math.addExact(scaleUp(unscaled, (long) s - scale), u), s);
+			} else {
+				setCompact(Math.addExact(unscaled, scaleUp(u, (long) scale - s)), scale);
+			}
+			return true;
+		}
+		catch (ArithmeticException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Multiplies like BigDecimal.multiply (the scale of the product is the sum
+	 * of the scales).
+	 *
+	 * @return false if the product does not fit (nothing is changed then)
+	 */
+	private boolean multiplyCompact(final long u, final int s) {
+		try {
+			setCompact(Math.multiplyExact(unscaled, u), Math.addExact(scale, s));
+			return true;
+		}
+		catch (ArithmeticException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param other the value to compare to
+	 * @return like BigDecimal.compareTo
+	 */
+	private int compare(final FixedPointNumber other) {
+		if (compact && other.compact) {
+			if (scale == other.scale) {
+				return Long.compare(unscaled, other.unscaled);
+			}
+			try {
+				if (scale < other.scale) {
+					return Long.compare(scaleUp(unscaled, (long) other.scale - scale), other.unscaled);
+				}
+				return Long.compare(unscaled, scaleUp(other.unscaled, (long) scale - other.scale));
+			}
+			catch (ArithmeticException e) {
+				// compare the BigDecimals
+			}
+		}
+		return getBigDecimal().compareTo(other.getBigDecimal());
+	}
+
 	/**
 	 * @return true if we are >=0
 	 */
 	public boolean isPositive() {
+		if (compact) {
+			return unscaled >= 0;
+		}
 		return value.signum() != -1;
 	}
 
 	public static FixedPointNumber max(final FixedPointNumber a,
 			final FixedPointNumber b) {
-		if (a.getBigDecimal().compareTo(b.getBigDecimal()) == -1) {
+		if (a.compare(b) < 0) {
 			return b;
 		}
 		return a;
@@ -108,7 +256,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 
 	public static FixedPointNumber min(final FixedPointNumber a,
 			final FixedPointNumber b) {
-		if (a.getBigDecimal().compareTo(b.getBigDecimal()) == -1) {
+		if (a.compare(b) < 0) {
 			return a;
 		}
 		return b;
@@ -119,7 +267,10 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber subtract(final int n) {
-		value = value.subtract(new BigDecimal(n));
+		if (toCompact() && addCompact(-(long) n, 0)) {
+			return this;
+		}
+		setValue(getBigDecimal().subtract(new BigDecimal(n)));
 		return this;
 	}
 
@@ -128,6 +279,9 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber subtract(final FixedPointNumber n) {
+		if (n.compact && n.unscaled != Long.MIN_VALUE && toCompact() && addCompact(-n.unscaled, n.scale)) {
+			return this;
+		}
 		return subtract(n.getBigDecimal());
 	}
 
@@ -145,7 +299,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public FixedPointNumber subtract(final BigDecimal n) {
-		value = value.subtract(n);
+		setValue(getBigDecimal().subtract(n));
 		return this;
 	}
 
@@ -154,7 +308,10 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber add(final int n) {
-		value = value.add(new BigDecimal(n));
+		if (toCompact() && addCompact(n, 0)) {
+			return this;
+		}
+		setValue(getBigDecimal().add(new BigDecimal(n)));
 		return this;
 	}
 
@@ -163,6 +320,9 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber add(final FixedPointNumber n) {
+		if (n.compact && toCompact() && addCompact(n.unscaled, n.scale)) {
+			return this;
+		}
 		return add(n.getBigDecimal());
 	}
 
@@ -180,7 +340,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public FixedPointNumber add(final BigDecimal n) {
-		value = value.add(n);
+		setValue(getBigDecimal().add(n));
 		return this;
 	}
 
@@ -189,7 +349,12 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public BigDecimal getBigDecimal() {
-		return value;
+		BigDecimal bd = value;
+		if (bd == null) {
+			bd = BigDecimal.valueOf(unscaled, scale);
+			value = bd;
+		}
+		return bd;
 	}
 
 	/**
@@ -198,6 +363,9 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber multiply(final FixedPointNumber n) {
+		if (n.compact && toCompact() && multiplyCompact(n.unscaled, n.scale)) {
+			return this;
+		}
 		return multiply(n.getBigDecimal());
 	}
 
@@ -208,7 +376,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public FixedPointNumber multiply(final BigDecimal n) {
-		value = value.multiply(n);
+		setValue(getBigDecimal().multiply(n));
 		return this;
 	}
 
@@ -218,7 +386,10 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber multiply(final int n) {
-		value = value.multiply(new BigDecimal(n));
+		if (toCompact() && multiplyCompact(n, 0)) {
+			return this;
+		}
+		setValue(getBigDecimal().multiply(new BigDecimal(n)));
 		return this;
 	}
 
@@ -237,16 +408,17 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	public FixedPointNumber divideBy(final BigDecimal n) {
 		BigDecimal n2 = n;
 
-		value = value.setScale(value.scale() + n.precision()); // make sure we
+		BigDecimal bd = getBigDecimal();
+		bd = bd.setScale(bd.scale() + n.precision()); // make sure we
 		// have enough
 		// digits after
 		// the comma
 
 		// workaround for a bug in BigDecimal
-		if (n.scale() < value.scale()) {
-			n2 = n.setScale(value.scale());
+		if (n.scale() < bd.scale()) {
+			n2 = n.setScale(bd.scale());
 		}
-		value = value.divide(n2, BigDecimal.ROUND_HALF_UP);
+		setValue(bd.divide(n2, BigDecimal.ROUND_HALF_UP));
 		return this;
 	}
 
@@ -255,7 +427,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return this (we are mutable) for easy operation-chaining
 	 */
 	public FixedPointNumber divideBy(final int n) {
-		value = value.divide(new BigDecimal(n), BigDecimal.ROUND_HALF_UP);
+		setValue(getBigDecimal().divide(new BigDecimal(n), BigDecimal.ROUND_HALF_UP));
 		return this;
 	}
 
@@ -263,14 +435,14 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * same as new FixedPointNumber(0).
 	 */
 	public FixedPointNumber() {
-		value = new BigDecimal("0");
+		setCompact(0, 0);
 	}
 
 	/**
 	 * @param i the new value
 	 */
 	public FixedPointNumber(final int i) {
-		value = new BigDecimal("" + i);
+		setCompact(i, 0);
 
 	}
 
@@ -278,7 +450,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @param i the new value
 	 */
 	public FixedPointNumber(final long i) {
-		value = new BigDecimal("" + i);
+		setCompact(i, 0);
 
 	}
 
@@ -302,6 +474,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 					"null BigDecimal given to create BigDecimal");
 		}
 		value = bd;
+		toCompact();
 	}
 
 	/**
@@ -311,15 +484,46 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @param gnucashString the String to parse
 	 * @throws NumberFormatException if it cannot be parsed at all
 	 */
-	public FixedPointNumber(String gnucashString) throws NumberFormatException {
+	public FixedPointNumber(final String gnucashString) throws NumberFormatException {
+		this(gnucashString, 0, gnucashString.length());
+	}
+
+	/**
+	 * Like {@link #FixedPointNumber(String)} for a part of the characters (for
+	 * example of a buffer the xml is parsed from). The formats gnucash writes
+	 * are parsed without creating any objects.
+	 *
+	 * @param chars the characters to parse
+	 * @param start the index of the first character to parse
+	 * @param end   the index behind the last character to parse
+	 * @throws NumberFormatException if it cannot be parsed at all
+	 */
+	public FixedPointNumber(final CharSequence chars, final int start, final int end) throws NumberFormatException {
+		if (start < 0 || end > chars.length() || start > end) {
+			throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + chars.length());
+		}
+
+		if (!parseCompact(chars, start, end)) {
+			parse(chars.subSequence(start, end).toString());
+		}
+	}
+
+	/**
+	 * @param gnucashString the String to parse
+	 * @throws NumberFormatException if it cannot be parsed at all
+	 * @see #FixedPointNumber(String)
+	 */
+	private void parse(String gnucashString) throws NumberFormatException {
 
 		int dividerIndex = gnucashString.indexOf('/');
 		if (dividerIndex == -1) {
 
+			// currency-symbols may come before and after the number
+			gnucashString = removeCurrency(gnucashString);
+
 			int commaIndex = gnucashString.indexOf(',');
 			if (commaIndex != -1) {
-				gnucashString = gnucashString.replaceAll("\\.", "").replaceAll(
-						"'", "");
+				gnucashString = removeGroupingSeparators(gnucashString);
 				commaIndex = gnucashString.indexOf(',');
 			}
 			if (commaIndex == -1) {
@@ -331,7 +535,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 			if (commaIndex == -1) {
 				// assume it's an integer
 
-				String rightOfComma = removeCurrency(gnucashString);
+				String rightOfComma = gnucashString;
 
 				try {
 					value = new BigDecimal(rightOfComma);
@@ -348,8 +552,6 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 				String rightOfComma = gnucashString.substring(commaIndex + 1)
 						.trim();
 
-				rightOfComma = removeCurrency(rightOfComma);
-
 				try {
 					value = new BigDecimal(leftOfComma + '.' + rightOfComma);
 				}
@@ -413,44 +615,145 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 			throw new IllegalArgumentException("value is null!!! give string='"
 					+ gnucashString + "'");
 		}
+		toCompact();
+
+	}
+
+	/**
+	 * Parses "num/denom" with a denominator of 1, 10, 100,... (what gnucash
+	 * writes) and decimals like "-123.45" or "0,5" without creating any
+	 * objects.
+	 *
+	 * @param chars the characters to parse
+	 * @param start the index of the first character to parse
+	 * @param end   the index behind the last character to parse
+	 * @return false if they are in no such format (or too long for a long),
+	 *         nothing is changed then
+	 */
+	private boolean parseCompact(final CharSequence chars, final int start, final int end) {
+		int i = start;
+		boolean negative = false;
+		if (i < end && (chars.charAt(i) == '-' || chars.charAt(i) == '+')) {
+			negative = chars.charAt(i) == '-';
+			i++;
+		}
+
+		long num = 0;
+		int digits = 0;
+		// -1 as long as there is no decimal separator
+		int fractionDigits = -1;
+		for (; i < end; i++) {
+			char c = chars.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (++digits > 18) {
+					return false;
+				}
+				num = num * 10 + (c - '0');
+				if (fractionDigits >= 0) {
+					fractionDigits++;
+				}
+			} else if ((c == '.' || c == ',') && fractionDigits < 0) {
+				fractionDigits = 0;
+			} else {
+				break;
+			}
+		}
+
+		if (digits == 0) {
+			return false;
+		}
+
+		if (i == end) {
+			setCompact(negative ? -num : num, Math.max(fractionDigits, 0));
+			return true;
+		}
+
+		// the denominator
+		if (fractionDigits >= 0 || chars.charAt(i) != '/' || i + 1 == end || chars.charAt(i + 1) != '1') {
+			return false;
+		}
+
+		for (int j = i + 2; j < end; j++) {
+			if (chars.charAt(j) != '0') {
+				return false;
+			}
+		}
 
+		setCompact(negative ? -num : num, end - (i + 2));
+		return true;
+	}
+
+	/**
+	 * @param input a number with a decimal comma
+	 * @return the number without the separators of the thousands ('.' and "'")
+	 */
+	private static String removeGroupingSeparators(final String input) {
+		StringBuilder sb = new StringBuilder(input.length());
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c != '.' && c != '\'') {
+				sb.append(c);
+			}
+		}
+
+		return sb.toString();
 	}
 
 	/**
 	 * @param input the string to remove the curency-symbol from (if it has one)
 	 * @return the String without the currency
 	 */
-	private String removeCurrency(final String input) {
-		String rightOfComma = input.replace('€', ' ').trim();
-		rightOfComma = rightOfComma.replace('$', ' ').trim();
-		rightOfComma = rightOfComma.replaceAll("&euro;", "").trim();
-		rightOfComma = rightOfComma.replaceAll("&pound;", "").trim();
-		while (rightOfComma.length() > 0) {
-			if (Character.isDigit(rightOfComma
-					.charAt(rightOfComma.length() - 1))) {
-				break;
+	private static String removeCurrency(final String input) {
+		StringBuilder sb = new StringBuilder(input.length());
+		for (int i = 0; i < input.length(); i++) {
+			char c = input.charAt(i);
+			if (c == '€' || c == '$') {
+				sb.append(' ');
+			} else if (c == '&' && input.regionMatches(true, i, "&euro;", 0, 6)) {
+				i += 5;
+			} else if (c == '&' && input.regionMatches(true, i, "&pound;", 0, 7)) {
+				i += 6;
+			} else {
+				sb.append(c);
 			}
-			rightOfComma = rightOfComma.substring(0, rightOfComma.length() - 1);
 		}
 
-		return rightOfComma;
+		// leading blanks and everything after the last digit
+		int start = 0;
+		while (start < sb.length() && Character.isWhitespace(sb.charAt(start))) {
+			start++;
+		}
+		int end = sb.length();
+		while (end > start && !Character.isDigit(sb.charAt(end - 1))) {
+			end--;
+		}
+
+		return sb.substring(start, end);
 	}
 
 	public String toGnucashString() {
 		StringBuffer sb = new StringBuffer();
 
-		if (value.scale() > 5) {
-			value = value.setScale(5, java.math.RoundingMode.HALF_UP);
+		if (!toCompact() || scale > 5) {
+			BigDecimal bd = getBigDecimal();
+			if (bd.scale() > 5) {
+				setValue(bd.setScale(5, java.math.RoundingMode.HALF_UP));
+			}
+			toCompact();
 		}
 		// try to have a divider of "100"
-		int scaleAdjust = 2 - value.scale();
+		int scaleAdjust = 2 - getScale();
 
-		sb.append(value.unscaledValue().toString());
+		if (compact) {
+			sb.append(unscaled);
+		} else {
+			sb.append(value.unscaledValue().toString());
+		}
 		for (int i = 0; i < scaleAdjust; i++) {
 			sb.append('0');
 		}
 		sb.append("/1");
-		for (int i = 0; i < value.scale(); i++) {
+		for (int i = 0; i < getScale(); i++) {
 			sb.append('0');
 		}
 		for (int i = 0; i < scaleAdjust; i++) {
@@ -473,7 +776,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return true if and only if this>other
 	 */
 	public boolean isGreaterThan(final FixedPointNumber other) {
-		return isGreaterThan(other.getBigDecimal());
+		return compare(other) > 0;
 	}
 
 	/**
@@ -489,7 +792,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return true if and only if this>other
 	 */
 	public boolean isGreaterThan(final BigDecimal other) {
-		return value.compareTo(other) > 0.0;
+		return getBigDecimal().compareTo(other) > 0.0;
 	}
 
 	/**
@@ -501,7 +804,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 			throw new IllegalArgumentException("Tolerance must be > 0.0");
 		}
 
-		BigDecimal diff = value.subtract(other);
+		BigDecimal diff = getBigDecimal().subtract(other);
 
 		if (diff.doubleValue() > tolerance) {
 			return true;
@@ -519,7 +822,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return true if and only if this&lt;other
 	 */
 	public boolean isLessThan(final FixedPointNumber other) {
-		return isLessThan(other.getBigDecimal());
+		return compare(other) < 0;
 	}
 
 	public boolean isLessThan(final FixedPointNumber other, double tolerance) {
@@ -531,7 +834,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 * @return true if and only if this&lt;other
 	 */
 	public boolean isLessThan(final BigDecimal other) {
-		return value.compareTo(other) < 0.0;
+		return getBigDecimal().compareTo(other) < 0.0;
 	}
 
 	public boolean isLessThan(final BigDecimal other, double tolerance) {
@@ -539,7 +842,7 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 			throw new IllegalArgumentException("Tolerance must be > 0.0");
 		}
 
-		BigDecimal diff = value.subtract(other);
+		BigDecimal diff = getBigDecimal().subtract(other);
 
 		if (diff.doubleValue() < -tolerance) {
 			return true;
@@ -557,6 +860,6 @@ public class FixedPointNumber extends BigDecimalWrapper implements Cloneable {
 	 */
 	@Override
 	public int hashCode() {
-		return value.hashCode();
+		return getBigDecimal().hashCode();
 	}
 }
@@ -150,6 +150,14 @@ public interface GnucashFile extends GnucashObject {
    */
   GnucashGenerInvoice getGenerInvoiceByID(String id);
 
+  /**
+   * @param lotID the post-lot of the (generic) invoice to look for
+   * @return the (posted) invoice with that lot or null if it's not found
+   * @see #getGenerInvoiceByID(String)
+   * @see GnucashGenerInvoice#getLotID()
+   */
+  GnucashGenerInvoice getGenerInvoiceByLotID(String lotID);
+
   /**
    * @param id the unique id of the (generic) invoice entry to look for
    * @return the invoice entry or null if it's not found
@@ -406,6 +414,14 @@ public interface GnucashFile extends GnucashObject {
    */
   GnucashAccount getAccountByNameEx(String name);
 
+  /**
+   * @param prefix the beginning of the qualified names to look for, e.g. "Aktiva::Giro" (may end within the name of
+   *               an account)
+   * @return all accounts whose qualified name starts with the prefix (the result is sorted)
+   * @see GnucashAccount#getQualifiedName()
+   */
+  Collection<GnucashAccount> getAccountsByQualifiedNamePrefix(String prefix);
+
   /**
    * First try to fetch the account by id, then fall back to traversing all accounts to get if by it's name.
    *
@@ -0,0 +1,108 @@
+package org.gnucash.read.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gnucash.read.GnucashAccount;
+
+/**
+ * Trie over the qualified names of the accounts of a book ("Aktiva::test::test2"), one level per part of the name.
+ * <br/>
+ * Finds an account by its qualified name and all accounts whose qualified name starts with a given prefix without
+ * traversing all accounts. The trie is immutable once built, so it may be queried from several threads at once.
+ *
+ * @see GnucashFileImpl#getAccountByName(String)
+ * @see GnucashFileImpl#getAccountsByQualifiedNamePrefix(String)
+ */
+class AccountPathTrie {
+
+  /**
+   * Separates the names of the accounts in a qualified name.
+   */
+  static final String SEPARATOR = "::";
+
+  private static final class Node {
+
+    /**
+     * The nodes of the sub-accounts by their name.
+     */
+    private final Map<String, Node> children = new HashMap<String, Node>(4);
+
+    /**
+     * The accounts with the qualified name of this node, in the order they have been added.
+     */
+    private final List<GnucashAccount> accounts = new ArrayList<GnucashAccount>(1);
+
+    private void collect(final List<GnucashAccount> result) {
+      result.addAll(accounts);
+      for (Node child : children.values()) {
+        child.collect(result);
+      }
+    }
+  }
+
+  private final Node root = new Node();
+
+  /**
+   * @param accounts the accounts to index by their qualified name
+   */
+  AccountPathTrie(final Iterable<GnucashAccount> accounts) {
+    for (GnucashAccount acct : accounts) {
+      Node node = root;
+      for (String part : acct.getQualifiedName().split(SEPARATOR, -1)) {
+        node = node.children.computeIfAbsent(part, k -> new Node());
+      }
+      node.accounts.add(acct);
+    }
+  }
+
+  /**
+   * @param qualifiedName the qualified name to look for
+   * @return the first account with that qualified name or null
+   */
+  GnucashAccount get(final String qualifiedName) {
+    Node node = root;
+    for (String part : qualifiedName.split(SEPARATOR, -1)) {
+      node = node.children.get(part);
+      if (node == null) {
+        return null;
+      }
+    }
+
+    return node.accounts.isEmpty() ? null : node.accounts.get(0);
+  }
+
+  /**
+   * @param prefix the beginning of the qualified names to look for (may end within the name of an account)
+   * @return all accounts whose qualified name starts with the prefix (unsorted)
+   */
+  List<GnucashAccount> getByPrefix(final String prefix) {
+    String[] parts = prefix.split(SEPARATOR, -1);
+
+    Node node = root;
+    for (int i = 0; i < parts.length - 1; i++) {
+      node = node.children.get(parts[i]);
+      if (node == null) {
+        return new ArrayList<GnucashAccount>();
+      }
+    }
+
+    // the last part is the beginning of the name of an account
+    String last = parts[parts.length - 1];
+    List<GnucashAccount> result = new ArrayList<GnucashAccount>();
+    for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+      if (entry.getKey().startsWith(last)) {
+        entry.getValue().collect(result);
+      } else if (last.equals(entry.getKey() + ":")) {
+        // the prefix ends within the separator: only the sub-accounts
+        for (Node child : entry.getValue().children.values()) {
+          child.collect(result);
+        }
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,73 @@
+package org.gnucash.read.impl;
+
+import java.time.LocalDate;
+import java.util.Currency;
+import java.util.Objects;
+
+/**
+ * The date and currency recursive balances are computed for, the key of the balances cached by the file.<br/>
+ * A balance in a {@link Currency} and one in a currency given by namespace and name are different keys, because
+ * {@link SimpleAccount#getBalance(LocalDate, Currency)} and
+ * {@link SimpleAccount#getBalance(LocalDate, String, String)} convert differently.
+ *
+ * @see GnucashFileImpl#getRecursiveBalanceCache(BalanceKey)
+ */
+final class BalanceKey {
+
+  private final LocalDate date;
+  private final String currencyNameSpace;
+  private final String currencyName;
+  private final Currency currency;
+
+  private BalanceKey(final LocalDate date, final String currencyNameSpace, final String currencyName,
+      final Currency currency) {
+    this.date = date;
+    this.currencyNameSpace = currencyNameSpace;
+    this.currencyName = currencyName;
+    this.currency = currency;
+  }
+
+  /**
+   * @param date              ignores transactions after the given date
+   * @param currencyNameSpace the currency the balances are in
+   * @param currencyName      the currency the balances are in
+   * @return the key of the balances
+   */
+  static BalanceKey of(final LocalDate date, final String currencyNameSpace, final String currencyName) {
+    return new BalanceKey(date, currencyNameSpace, currencyName, null);
+  }
+
+  /**
+   * @param date     ignores transactions after the given date
+   * @param currency the currency the balances are in (null for the currency of each account)
+   * @return the key of the balances
+   */
+  static BalanceKey of(final LocalDate date, final Currency currency) {
+    return new BalanceKey(date, null, null, currency);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof BalanceKey)) {
+      return false;
+    }
+
+    BalanceKey other = (BalanceKey) obj;
+    return Objects.equals(date, other.date) && Objects.equals(currencyNameSpace, other.currencyNameSpace)
+        && Objects.equals(currencyName, other.currencyName) && Objects.equals(currency, other.currency);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(date, currencyNameSpace, currencyName, currency);
+  }
+
+  @Override
+  public String toString() {
+    return "BalanceKey [date=" + date + ", currency="
+        + (currency != null ? currency : currencyNameSpace + ":" + currencyName) + "]";
+  }
+}
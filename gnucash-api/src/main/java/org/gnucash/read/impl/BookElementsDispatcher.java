@@ -0,0 +1,168 @@
+package org.gnucash.read.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gnucash.generated.GncAccount;
+import org.gnucash.generated.GncBudget;
+import org.gnucash.generated.GncCountData;
+import org.gnucash.generated.GncPricedb;
+import org.gnucash.generated.GncTransaction;
+import org.gnucash.generated.GncV2;
+
+/**
+ * Sorts the elements of a &lt;gnc:book&gt; into one bucket per type in a single walk over
+ * {@link GncV2.GncBook#getBookElements()}.<br/>
+ * The buckets are pre-sized from the &lt;gnc:count-data&gt; hints of the book, so building the ID maps of
+ * {@link GnucashFileImpl} afterwards does not need to look at the full element list again.
+ *
+ * @see GnucashFileImpl#setRootElement(GncV2)
+ */
+class BookElementsDispatcher {
+
+  /**
+   * Used if the book does not provide a count-data hint for a type.
+   */
+  private static final int DEFAULT_BUCKET_SIZE = 16;
+
+  /**
+   * The count-data of the book, indexed by their cd:type.
+   */
+  private final Map<String, Integer> countData;
+
+  final List<GncAccount> accounts;
+  final List<GncTransaction> transactions;
+  final List<GncV2.GncBook.GncGncInvoice> invoices;
+  final List<GncV2.GncBook.GncGncEntry> invoiceEntries;
+  final List<GncV2.GncBook.GncGncCustomer> customers;
+  final List<GncV2.GncBook.GncGncVendor> vendors;
+  final List<GncV2.GncBook.GncGncJob> jobs;
+  final List<GncV2.GncBook.GncGncTaxTable> taxTables;
+  final List<GncV2.GncBook.GncGncBillTerm> billTerms;
+  final List<GncPricedb> priceDBs = new ArrayList<GncPricedb>(1);
+
+  /**
+   * Number of splits in all transactions.
+   */
+  private int splitCount = 0;
+
+  /**
+   * Currency-ID of the first account that has a currency (ISO4217) as commodity.
+   *
+   * @see GnucashFileImpl#getDefaultCurrencyID()
+   */
+  private String defaultCurrencyID = null;
+
+  /**
+   * Walks the book-elements once and sorts them into the buckets.
+   *
+   * @param book the book to dispatch
+   * @throws IllegalArgumentException if the book contains an unknown element
+   */
+  BookElementsDispatcher(final GncV2.GncBook book) {
+    countData = new HashMap<String, Integer>();
+    for (GncCountData count : book.getGncCountData()) {
+      countData.put(count.getCdType(), count.getValue());
+    }
+
+    accounts = new ArrayList<GncAccount>(getCountHint("account"));
+    transactions = new ArrayList<GncTransaction>(getCountHint("transaction"));
+    invoices = new ArrayList<GncV2.GncBook.GncGncInvoice>(getCountHint("gnc:GncInvoice"));
+    invoiceEntries = new ArrayList<GncV2.GncBook.GncGncEntry>(getCountHint("gnc:GncEntry"));
+    customers = new ArrayList<GncV2.GncBook.GncGncCustomer>(getCountHint("gnc:GncCustomer"));
+    vendors = new ArrayList<GncV2.GncBook.GncGncVendor>(getCountHint("gnc:GncVendor"));
+    jobs = new ArrayList<GncV2.GncBook.GncGncJob>(getCountHint("gnc:GncJob"));
+    taxTables = new ArrayList<GncV2.GncBook.GncGncTaxTable>(getCountHint("gnc:GncTaxTable"));
+    billTerms = new ArrayList<GncV2.GncBook.GncGncBillTerm>(getCountHint("gnc:GncBillTerm"));
+
+    for (Object bookElement : book.getBookElements()) {
+      dispatch(bookElement);
+    }
+  }
+
+  /**
+   * @param bookElement the element to put into its bucket
+   */
+  private void dispatch(final Object bookElement) {
+    if (bookElement instanceof GncTransaction) {
+      GncTransaction trx = (GncTransaction) bookElement;
+      transactions.add(trx);
+      if (trx.getTrnSplits() != null) {
+        splitCount += trx.getTrnSplits().getTrnSplit().size();
+      }
+    } else if (bookElement instanceof GncAccount) {
+      GncAccount acct = (GncAccount) bookElement;
+      accounts.add(acct);
+      if (defaultCurrencyID == null && acct.getActCommodity() != null
+          && "ISO4217".equals(acct.getActCommodity().getCmdtySpace())) {
+        defaultCurrencyID = acct.getActCommodity().getCmdtyId();
+      }
+    } else if (bookElement instanceof GncV2.GncBook.GncGncEntry) {
+      invoiceEntries.add((GncV2.GncBook.GncGncEntry) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncGncInvoice) {
+      invoices.add((GncV2.GncBook.GncGncInvoice) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncGncCustomer) {
+      customers.add((GncV2.GncBook.GncGncCustomer) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncGncVendor) {
+      vendors.add((GncV2.GncBook.GncGncVendor) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncGncJob) {
+      jobs.add((GncV2.GncBook.GncGncJob) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncGncTaxTable) {
+      taxTables.add((GncV2.GncBook.GncGncTaxTable) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncGncBillTerm) {
+      billTerms.add((GncV2.GncBook.GncGncBillTerm) bookElement);
+    } else if (bookElement instanceof GncPricedb) {
+      priceDBs.add((GncPricedb) bookElement);
+    } else if (bookElement instanceof GncV2.GncBook.GncSchedxaction
+        || bookElement instanceof GncV2.GncBook.GncTemplateTransactions
+        || bookElement instanceof GncV2.GncBook.GncCommodity
+        || bookElement instanceof GncV2.GncBook.GncGncVendor.VendorTerms
+        || bookElement instanceof GncBudget) {
+      // not (yet) wrapped by a facade
+    } else if (bookElement instanceof GncV2.GncBook.GncGncEmployee) {
+      // TODO: create a Java-Class for employees like we have for customers
+    } else {
+      throw new IllegalArgumentException(
+          "<gnc:book> contains unknown element [" + bookElement.getClass().getName() + "]");
+    }
+  }
+
+  /**
+   * @param type the cd:type of the count-data
+   * @return the expected number of elements of that type
+   */
+  int getCountHint(final String type) {
+    Integer count = countData.get(type);
+    if (count == null || count < 0) {
+      return DEFAULT_BUCKET_SIZE;
+    }
+
+    return count;
+  }
+
+  /**
+   * @return number of splits in all dispatched transactions
+   */
+  int getSplitCount() {
+    return splitCount;
+  }
+
+  /**
+   * @return the currency of the first account that has a currency as commodity or null
+   */
+  String getDefaultCurrencyID() {
+    return defaultCurrencyID;
+  }
+
+  /**
+   * @param expectedSize number of entries the map will hold
+   * @return the initial capacity for a {@link HashMap} that will not need to rehash
+   *         (never below the default capacity, so small books keep their usual iteration order)
+   */
+  static int mapCapacity(final int expectedSize) {
+    return Math.max(DEFAULT_BUCKET_SIZE, (int) (expectedSize / 0.75f) + 1);
+  }
+
+}
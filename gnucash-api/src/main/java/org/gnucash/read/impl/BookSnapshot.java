@@ -0,0 +1,734 @@
+package org.gnucash.read.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.datatype.XMLGregorianCalendar;
+import javax.xml.namespace.QName;
+
+import org.gnucash.generated.GncV2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.xml.bind.JAXBElement;
+
+/**
+ * A binary copy of the loaded document, kept next to the gnucash-file so
+ * loading it again does not have to inflate and parse the xml.<br/>
+ * The snapshot encodes the tree of JAXB-objects field by field (the fields of
+ * each class are named once, strings that occur more than once are written
+ * once) and is read from a memory-mapped file. It is only used if the size,
+ * the modification-time, the file-key (the inode) and a checksum of the first
+ * and the last block of the gnucash-file are those it was written for. If the
+ * file-system only keeps whole seconds as modification-time, an edit within
+ * the same second that keeps the size could go unnoticed, so then the checksum
+ * is of the whole file.
+ * Only the classes of the generated JAXB-objects and the value-types they use
+ * are instantiated; a snapshot naming any other class is treated as invalid.
+ * <br/>
+ * The document is encoded into memory as soon as it has been parsed, before
+ * the facades or the caller may change it, and written to the disk on a thread
+ * of its own. Temporary files a write that did not finish (for example as the
+ * JVM ended) left behind are deleted by the next write.<br/>
+ * A snapshot of a streamed document (see
+ * {@link GnucashFileImpl#needsCompleteRootElement()}) only contains the
+ * book-elements wrapped by facades and is not used to load the complete
+ * document.
+ *
+ * @see LoadOptions#isSnapshotCache()
+ */
+final class BookSnapshot {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(BookSnapshot.class);
+
+  /**
+   * Appended to the name of the gnucash-file.
+   */
+  static final String SUFFIX = ".snapshot";
+
+  /**
+   * "GCSS".
+   */
+  private static final int MAGIC = 0x47435353;
+
+  /**
+   * Changes whenever the encoding changes.
+   */
+  private static final int VERSION = 3;
+
+  private static final byte TAG_NULL = 0;
+  private static final byte TAG_STRING = 1;
+  private static final byte TAG_STRING_REF = 2;
+  private static final byte TAG_INTEGER = 3;
+  private static final byte TAG_BYTE = 4;
+  private static final byte TAG_LONG = 5;
+  private static final byte TAG_BOOLEAN = 6;
+  private static final byte TAG_LIST = 7;
+  private static final byte TAG_OBJECT = 8;
+  private static final byte TAG_NEW_CLASS = 9;
+  private static final byte TAG_JAXB_ELEMENT = 10;
+  private static final byte TAG_CALENDAR = 11;
+  private static final byte TAG_ENUM = 12;
+  private static final byte TAG_BIG_INTEGER = 13;
+  private static final byte TAG_BIG_DECIMAL = 14;
+
+  /**
+   * The fields written for each class (in the order they are written).
+   */
+  private static final Map<Class<?>, Field[]> FIELDS = new HashMap<Class<?>, Field[]>();
+
+  /**
+   * The package of the generated JAXB-classes (with the trailing '.').
+   */
+  private static final String GENERATED_PACKAGE = GncV2.class.getPackage().getName() + ".";
+
+  /**
+   * The classes other than the generated ones a snapshot may name (as declared
+   * types and scopes of JAXBElements).
+   */
+  private static final Set<String> VALUE_CLASSES = new HashSet<String>(Arrays.asList(JAXBElement.class.getName(),
+      JAXBElement.GlobalScope.class.getName(), String.class.getName(), BigInteger.class.getName(),
+      BigDecimal.class.getName(), XMLGregorianCalendar.class.getName(), Boolean.class.getName(),
+      Byte.class.getName(), Short.class.getName(), Character.class.getName(), Integer.class.getName(),
+      Long.class.getName(), Float.class.getName(), Double.class.getName()));
+
+  /**
+   * Writes the snapshots, one at a time.
+   */
+  private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(new ThreadFactory() {
+    public Thread newThread(final Runnable r) {
+      Thread thread = new Thread(r, "gnucash-snapshot-writer");
+      thread.setDaemon(true);
+      thread.setPriority(Thread.MIN_PRIORITY);
+      return thread;
+    }
+  });
+
+  /**
+   * Size of the blocks at the beginning and the end of the gnucash-file the
+   * checksum is computed of.
+   */
+  private static final int CHECKSUM_BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Temporary files older than this (in milliseconds) are left over from
+   * writes that did not finish.
+   */
+  private static final long STALE_TEMP_FILE_AGE = 10 * 60 * 1000L;
+
+  private BookSnapshot() {
+  }
+
+  /**
+   * What a snapshot was written for.
+   */
+  static final class Key {
+
+    private final long size;
+
+    private final long lastModified;
+
+    /**
+     * {@link BasicFileAttributes#fileKey()} as a string ("" if the file-system
+     * has none), changes when the file is replaced.
+     */
+    private final String fileKey;
+
+    /**
+     * CRC32C of the first and the last block of the file (of the whole file if
+     * the modification-time is a whole second).
+     */
+    private final int checksum;
+
+    private Key(final long psize, final long plastModified, final String pfileKey, final int pchecksum) {
+      size = psize;
+      lastModified = plastModified;
+      fileKey = pfileKey;
+      checksum = pchecksum;
+    }
+
+    /**
+     * @param source the gnucash-file
+     * @return the key of the file as it is now
+     * @throws IOException on low level reading-errors
+     */
+    static Key of(final File source) throws IOException {
+      BasicFileAttributes attrs = Files.readAttributes(source.toPath(), BasicFileAttributes.class);
+      Object fileKey = attrs.fileKey();
+      long lastModified = attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS);
+      boolean coarseTime = lastModified % TimeUnit.SECONDS.toNanos(1) == 0;
+
+      CRC32C crc = new CRC32C();
+      try (FileChannel channel = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+        long size = channel.size();
+        if (coarseTime || size <= 2L * CHECKSUM_BLOCK_SIZE) {
+          update(crc, channel, 0, size);
+        } else {
+          update(crc, channel, 0, CHECKSUM_BLOCK_SIZE);
+          update(crc, channel, size - CHECKSUM_BLOCK_SIZE, CHECKSUM_BLOCK_SIZE);
+        }
+      }
+
+      return new Key(attrs.size(), lastModified, fileKey == null ? "" : fileKey.toString(), (int) crc.getValue());
+    }
+
+    private static void update(final CRC32C crc, final FileChannel channel, final long start, final long length)
+        throws IOException {
+      ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_BLOCK_SIZE);
+      long position = start;
+      long end = start + length;
+      while (position < end) {
+        buffer.clear();
+        buffer.limit((int) Math.min(buffer.capacity(), end - position));
+        int n = channel.read(buffer, position);
+        if (n < 0) {
+          break;
+        }
+        buffer.flip();
+        crc.update(buffer);
+        position += n;
+      }
+    }
+
+    private void write(final DataOutputStream out) throws IOException {
+      out.writeLong(size);
+      out.writeLong(lastModified);
+      out.writeUTF(fileKey);
+      out.writeInt(checksum);
+    }
+
+    private boolean matches(final ByteBuffer in) {
+      if (in.getLong() != size || in.getLong() != lastModified) {
+        return false;
+      }
+
+      byte[] bytes = new byte[in.getShort() & 0xFFFF];
+      in.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8).equals(fileKey) && in.getInt() == checksum;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+
+      Key other = (Key) obj;
+      return size == other.size && lastModified == other.lastModified && fileKey.equals(other.fileKey)
+          && checksum == other.checksum;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(size, lastModified, fileKey, checksum);
+    }
+  }
+
+  /**
+   * @param source the gnucash-file
+   * @return the file the snapshot of the gnucash-file is kept in
+   */
+  static File getSnapshotFile(final File source) {
+    return new File(source.getPath() + SUFFIX);
+  }
+
+  /**
+   * @param source   the gnucash-file
+   * @param key      the key of the gnucash-file as it is now
+   * @param complete true if the complete document is needed
+   * @return the document or null if there is no snapshot for the file as it is
+   *         now (or it can not be read)
+   */
+  static GncV2 read(final File source, final Key key, final boolean complete) {
+    File snapshot = getSnapshotFile(source);
+    if (!snapshot.isFile()) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(snapshot.toPath(), StandardOpenOption.READ)) {
+      ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (in.remaining() < 4 + 4 + 8 + 8 + 2 + 4 + 1 || in.getInt() != MAGIC || in.getInt() != VERSION) {
+        LOGGER.debug("read: '" + snapshot + "' is no snapshot of this version");
+        return null;
+      }
+
+      if (!key.matches(in)) {
+        LOGGER.debug("read: '" + snapshot + "' is outdated");
+        return null;
+      }
+
+      boolean snapshotComplete = in.get() != 0;
+      if (complete && !snapshotComplete) {
+        LOGGER.debug("read: '" + snapshot + "' does not contain the complete document");
+        return null;
+      }
+
+      return (GncV2) new Decoder(in).readValue();
+    } catch (IOException | RuntimeException | ReflectiveOperationException e) {
+      LOGGER.warn("read: cannot read snapshot '" + snapshot + "', loading the xml", e);
+      return null;
+    }
+  }
+
+  /**
+   * Encodes the document into memory, so it may be changed as soon as this
+   * returns.
+   *
+   * @param key      the key of the gnucash-file the document was loaded from
+   * @param root     the document as it was loaded
+   * @param complete true if it is the complete document
+   * @return the snapshot or null if the document can not be encoded
+   */
+  static byte[] encode(final Key key, final GncV2 root, final boolean complete) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+      try (DataOutputStream out = new DataOutputStream(bytes)) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        key.write(out);
+        out.writeByte(complete ? 1 : 0);
+        new Encoder(out).writeValue(root);
+      }
+      return bytes.toByteArray();
+    } catch (IOException | RuntimeException | ReflectiveOperationException e) {
+      LOGGER.warn("encode: cannot encode the document", e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes the snapshot on the writer-thread, if the gnucash-file has not
+   * changed by then.
+   *
+   * @param source   the gnucash-file
+   * @param key      the key of the gnucash-file as it was loaded
+   * @param snapshot the encoded snapshot
+   * @see #encode(Key, GncV2, boolean)
+   */
+  static void writeLater(final File source, final Key key, final byte[] snapshot) {
+    WRITER.execute(() -> {
+      try {
+        if (key.equals(Key.of(source))) {
+          write(source, snapshot);
+        } else {
+          LOGGER.debug("writeLater: '" + source + "' has changed since it was loaded, no snapshot written");
+        }
+      } catch (IOException | RuntimeException e) {
+        LOGGER.warn("writeLater: cannot check '" + source + "' for its snapshot", e);
+      }
+    });
+  }
+
+  /**
+   * Waits until the snapshots waiting to be written have been written.
+   *
+   * @throws InterruptedException if interrupted while waiting
+   */
+  static void awaitWrites() throws InterruptedException {
+    try {
+      WRITER.submit(() -> {
+      }).get();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Writes the snapshot to a temporary file that replaces the old one, so a
+   * snapshot is never read while it is written. Errors are only logged.
+   *
+   * @param source the gnucash-file
+   * @param bytes  the encoded snapshot
+   */
+  private static void write(final File source, final byte[] bytes) {
+    Path snapshot = getSnapshotFile(source).getAbsoluteFile().toPath();
+    String tempPrefix = "." + snapshot.getFileName();
+    deleteStaleTempFiles(snapshot.getParent(), tempPrefix);
+
+    Path temp = null;
+    try {
+      temp = Files.createTempFile(snapshot.getParent(), tempPrefix, ".tmp");
+      Files.write(temp, bytes);
+
+      try {
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING);
+      }
+      temp = null;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.warn("write: cannot write snapshot '" + snapshot + "'", e);
+    } finally {
+      if (temp != null) {
+        try {
+          Files.deleteIfExists(temp);
+        } catch (IOException e) {
+          LOGGER.debug("write: cannot delete '" + temp + "'", e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the temporary files of writes of the snapshot that did not finish.
+   */
+  private static void deleteStaleTempFiles(final Path dir, final String tempPrefix) {
+    long staleBefore = System.currentTimeMillis() - STALE_TEMP_FILE_AGE;
+    try (DirectoryStream<Path> temps = Files.newDirectoryStream(dir, tempPrefix + "*.tmp")) {
+      for (Path temp : temps) {
+        if (Files.getLastModifiedTime(temp).toMillis() < staleBefore) {
+          LOGGER.debug("deleteStaleTempFiles: deleting '" + temp + "'");
+          Files.deleteIfExists(temp);
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.debug("deleteStaleTempFiles: cannot delete the temporary files in '" + dir + "'", e);
+    }
+  }
+
+  /**
+   * @return the non-static fields of the class and its super-classes
+   */
+  private static Field[] getFields(final Class<?> clazz) {
+    synchronized (FIELDS) {
+      Field[] fields = FIELDS.get(clazz);
+      if (fields == null) {
+        List<Field> list = new ArrayList<Field>();
+        for (Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass()) {
+          for (Field field : c.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())) {
+              field.setAccessible(true);
+              list.add(field);
+            }
+          }
+        }
+        fields = list.toArray(new Field[list.size()]);
+        FIELDS.put(clazz, fields);
+      }
+      return fields;
+    }
+  }
+
+  /**
+   * @return the field of the class (or a super-class) with the name
+   */
+  private static Field getField(final Class<?> clazz, final String name) {
+    for (Field field : getFields(clazz)) {
+      if (field.getName().equals(name)) {
+        return field;
+      }
+    }
+
+    throw new IllegalStateException("class " + clazz.getName() + " has no field '" + name + "'");
+  }
+
+  /**
+   * Writes the tree of JAXB-objects.
+   */
+  private static final class Encoder {
+
+    private final DataOutputStream out;
+
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    private final Map<Class<?>, Integer> classes = new HashMap<Class<?>, Integer>();
+
+    private Encoder(final DataOutputStream pout) {
+      out = pout;
+    }
+
+    private void writeValue(final Object value) throws IOException, ReflectiveOperationException {
+      if (value == null) {
+        out.writeByte(TAG_NULL);
+      } else if (value instanceof String) {
+        writeString((String) value);
+      } else if (value instanceof Integer) {
+        out.writeByte(TAG_INTEGER);
+        writeVarInt((Integer) value);
+      } else if (value instanceof Byte) {
+        out.writeByte(TAG_BYTE);
+        out.writeByte((Byte) value);
+      } else if (value instanceof Long) {
+        out.writeByte(TAG_LONG);
+        out.writeLong((Long) value);
+      } else if (value instanceof Boolean) {
+        out.writeByte(TAG_BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (value instanceof List) {
+        List<?> list = (List<?>) value;
+        out.writeByte(TAG_LIST);
+        writeVarInt(list.size());
+        for (Object element : list) {
+          writeValue(element);
+        }
+      } else if (value instanceof JAXBElement) {
+        JAXBElement<?> element = (JAXBElement<?>) value;
+        out.writeByte(TAG_JAXB_ELEMENT);
+        writeString(element.getName().getNamespaceURI());
+        writeString(element.getName().getLocalPart());
+        writeString(element.getDeclaredType().getName());
+        writeString(element.getScope().getName());
+        out.writeBoolean(element.isNil());
+        writeValue(element.getValue());
+      } else if (value instanceof XMLGregorianCalendar) {
+        out.writeByte(TAG_CALENDAR);
+        writeString(((XMLGregorianCalendar) value).toXMLFormat());
+      } else if (value instanceof Enum) {
+        out.writeByte(TAG_ENUM);
+        writeString(((Enum<?>) value).getDeclaringClass().getName());
+        writeString(((Enum<?>) value).name());
+      } else if (value instanceof BigInteger) {
+        out.writeByte(TAG_BIG_INTEGER);
+        writeString(value.toString());
+      } else if (value instanceof BigDecimal) {
+        out.writeByte(TAG_BIG_DECIMAL);
+        writeString(value.toString());
+      } else if (value.getClass().getName().startsWith(GncV2.class.getPackage().getName() + ".")) {
+        writeObject(value);
+      } else {
+        throw new IllegalArgumentException("cannot write a " + value.getClass().getName());
+      }
+    }
+
+    private void writeObject(final Object value) throws IOException, ReflectiveOperationException {
+      Class<?> clazz = value.getClass();
+      Field[] fields = getFields(clazz);
+      Integer index = classes.get(clazz);
+      if (index == null) {
+        classes.put(clazz, classes.size());
+        out.writeByte(TAG_NEW_CLASS);
+        writeString(clazz.getName());
+        writeVarInt(fields.length);
+        for (Field field : fields) {
+          writeString(field.getName());
+        }
+      } else {
+        out.writeByte(TAG_OBJECT);
+        writeVarInt(index);
+      }
+
+      for (Field field : fields) {
+        writeValue(field.get(value));
+      }
+    }
+
+    private void writeString(final String value) throws IOException {
+      Integer index = strings.get(value);
+      if (index != null) {
+        out.writeByte(TAG_STRING_REF);
+        writeVarInt(index);
+        return;
+      }
+
+      strings.put(value, strings.size());
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      out.writeByte(TAG_STRING);
+      writeVarInt(bytes.length);
+      out.write(bytes);
+    }
+
+    /**
+     * 7 bits per byte, the highest bit set if more follow.
+     */
+    private void writeVarInt(final int value) throws IOException {
+      int rest = value;
+      while ((rest & ~0x7F) != 0) {
+        out.writeByte((rest & 0x7F) | 0x80);
+        rest >>>= 7;
+      }
+      out.writeByte(rest);
+    }
+  }
+
+  /**
+   * Reads the tree of JAXB-objects.
+   */
+  private static final class Decoder {
+
+    private final ByteBuffer in;
+
+    private final List<String> strings = new ArrayList<String>();
+
+    private final List<Class<?>> classes = new ArrayList<Class<?>>();
+
+    private final List<Field[]> classFields = new ArrayList<Field[]>();
+
+    private final ClassLoader classLoader = GncV2.class.getClassLoader();
+
+    private DatatypeFactory datatypeFactory;
+
+    private byte[] buffer = new byte[256];
+
+    private Decoder(final ByteBuffer pin) {
+      in = pin;
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private Object readValue() throws ReflectiveOperationException {
+      byte tag = in.get();
+      switch (tag) {
+      case TAG_NULL:
+        return null;
+      case TAG_STRING:
+      case TAG_STRING_REF:
+        return readString(tag);
+      case TAG_INTEGER:
+        return readVarInt();
+      case TAG_BYTE:
+        return in.get();
+      case TAG_LONG:
+        return in.getLong();
+      case TAG_BOOLEAN:
+        return in.get() != 0;
+      case TAG_LIST:
+        int size = readVarInt();
+        List<Object> list = new ArrayList<Object>(size);
+        for (int i = 0; i < size; i++) {
+          list.add(readValue());
+        }
+        return list;
+      case TAG_NEW_CLASS:
+        readClass();
+        return readObject(classes.size() - 1);
+      case TAG_OBJECT:
+        return readObject(readVarInt());
+      case TAG_JAXB_ELEMENT:
+        QName name = new QName(readString(), readString());
+        Class declaredType = loadClass(readString(), false);
+        Class scope = loadClass(readString(), false);
+        boolean nil = in.get() != 0;
+        JAXBElement element = new JAXBElement(name, declaredType, scope, readValue());
+        element.setNil(nil);
+        return element;
+      case TAG_CALENDAR:
+        return getDatatypeFactory().newXMLGregorianCalendar(readString());
+      case TAG_ENUM:
+        Class enumClass = loadClass(readString(), true);
+        if (!enumClass.isEnum()) {
+          throw new IllegalStateException(enumClass.getName() + " is no enum");
+        }
+        return Enum.valueOf(enumClass, readString());
+      case TAG_BIG_INTEGER:
+        return new BigInteger(readString());
+      case TAG_BIG_DECIMAL:
+        return new BigDecimal(readString());
+      default:
+        throw new IllegalStateException("unknown tag " + tag + " at " + (in.position() - 1));
+      }
+    }
+
+    private void readClass() throws ReflectiveOperationException {
+      Class<?> clazz = loadClass(readString(), true);
+      Field[] fields = new Field[readVarInt()];
+      for (int i = 0; i < fields.length; i++) {
+        fields[i] = getField(clazz, readString());
+      }
+      classes.add(clazz);
+      classFields.add(fields);
+    }
+
+    /**
+     * @param name      the name of the class
+     * @param generated true if it has to be one of the generated JAXB-classes
+     * @return the class if a snapshot may name it
+     * @throws IllegalStateException if a snapshot may not name it
+     */
+    private Class<?> loadClass(final String name, final boolean generated) throws ClassNotFoundException {
+      boolean isGenerated = name.startsWith(GENERATED_PACKAGE)
+          && name.indexOf('.', GENERATED_PACKAGE.length()) < 0;
+      if (!isGenerated && (generated || !VALUE_CLASSES.contains(name))) {
+        throw new IllegalStateException("class " + name + " is not allowed in a snapshot");
+      }
+
+      return Class.forName(name, false, classLoader);
+    }
+
+    private Object readObject(final int index) throws ReflectiveOperationException {
+      Object object = classes.get(index).getDeclaredConstructor().newInstance();
+      for (Field field : classFields.get(index)) {
+        field.set(object, readValue());
+      }
+      return object;
+    }
+
+    private String readString() {
+      return readString(in.get());
+    }
+
+    private String readString(final byte tag) {
+      if (tag == TAG_STRING_REF) {
+        return strings.get(readVarInt());
+      }
+      if (tag != TAG_STRING) {
+        throw new IllegalStateException("no string at " + (in.position() - 1));
+      }
+
+      int length = readVarInt();
+      if (buffer.length < length) {
+        buffer = new byte[Math.max(length, buffer.length * 2)];
+      }
+      in.get(buffer, 0, length);
+      String value = new String(buffer, 0, length, StandardCharsets.UTF_8);
+      strings.add(value);
+      return value;
+    }
+
+    private int readVarInt() {
+      int value = 0;
+      int shift = 0;
+      byte b;
+      do {
+        b = in.get();
+        value |= (b & 0x7F) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+      return value;
+    }
+
+    private DatatypeFactory getDatatypeFactory() {
+      if (datatypeFactory == null) {
+        try {
+          datatypeFactory = DatatypeFactory.newInstance();
+        } catch (DatatypeConfigurationException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return datatypeFactory;
+    }
+  }
+}
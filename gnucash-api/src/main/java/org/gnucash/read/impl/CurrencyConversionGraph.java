@@ -0,0 +1,222 @@
+package org.gnucash.read.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.gnucash.currency.ComplexCurrencyTable;
+import org.gnucash.currency.CurrencyNameSpace;
+import org.gnucash.numbers.FixedPointNumber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The latest price-quotes of a book seen as a graph of commodities.<br/>
+ * Every commodity with quotes has an edge to the currency its latest quote is given in. Starting at the
+ * default-currency the graph is walked once breadth first (using the edges in both directions), so every commodity
+ * gets the factor along its shortest conversion path into the default-currency. The factors are kept until the graph
+ * is dropped, so looking one up is a map lookup.<br/>
+ * If a commodity is quoted in the default-currency directly, that quote is always preferred.
+ *
+ * @see GnucashFileImpl#getLatestPrice(String, String)
+ */
+class CurrencyConversionGraph {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CurrencyConversionGraph.class);
+
+  /**
+   * The namespace older gnucash-files keep the currencies in (still read, not deprecated here like
+   * CurrencyNameSpace.NAMESPACE_ISO4217).
+   */
+  private static final String NAMESPACE_ISO4217 = "ISO4217";
+
+  /**
+   * A commodity in the graph.
+   */
+  private static final class Node {
+    private final String key;
+    private final String cmdtySpace;
+    private final String cmdtyId;
+
+    /**
+     * value of the latest quote or null if the commodity has no quotes.
+     */
+    private BigDecimal latestValue;
+
+    /**
+     * the currency of the latest quote or null if the commodity has no quotes.
+     */
+    private Node quoteCurrency;
+
+    /**
+     * the commodities whose latest quote is in this commodity.
+     */
+    private final List<Node> quotedIn = new ArrayList<Node>();
+
+    private Node(final String cmdtySpace, final String cmdtyId) {
+      this.key = PriceIndex.key(cmdtySpace, cmdtyId);
+      this.cmdtySpace = cmdtySpace;
+      this.cmdtyId = cmdtyId;
+    }
+  }
+
+  private final Map<String, Node> nodes = new HashMap<String, Node>();
+
+  /**
+   * The default-currency in its namespaces.
+   */
+  private final List<Node> baseNodes = new ArrayList<Node>();
+
+  /**
+   * The factor to the default-currency of every commodity that can be converted.
+   */
+  private final Map<String, FixedPointNumber> factors;
+
+  /**
+   * @param index             the price-quotes of the book
+   * @param defaultCurrencyID the currency to convert to
+   */
+  CurrencyConversionGraph(final PriceIndex index, final String defaultCurrencyID) {
+    for (PriceIndex.Series quotes : index.getAllSeries().values()) {
+      int latest = quotes.indexOfLatest();
+
+      Node node = getNode(quotes.getCmdtySpace(), quotes.getCmdtyId());
+      node.latestValue = quotes.getValue(latest).getBigDecimal();
+      node.quoteCurrency = getNode(quotes.getCurrencySpace(latest), quotes.getCurrencyId(latest));
+      node.quoteCurrency.quotedIn.add(node);
+    }
+
+    factors = new HashMap<String, FixedPointNumber>(BookElementsDispatcher.mapCapacity(nodes.size()));
+    resolveFromBaseCurrency(defaultCurrencyID);
+    resolveUnreachable();
+  }
+
+  private Node getNode(final String cmdtySpace, final String cmdtyId) {
+    String key = PriceIndex.key(cmdtySpace, cmdtyId);
+    Node node = nodes.get(key);
+    if (node == null) {
+      node = new Node(cmdtySpace, cmdtyId);
+      nodes.put(key, node);
+    }
+
+    return node;
+  }
+
+  /**
+   * Walks the graph level by level from the default-currency (in both its namespaces). On each level first the
+   * commodities quoted in an already known commodity are resolved and only then the currencies a known commodity is
+   * quoted in, so a direct quote wins over the inverse of another quote of the same path length.
+   */
+  private void resolveFromBaseCurrency(final String defaultCurrencyID) {
+    List<Node> level = new ArrayList<Node>();
+    for (String space : new String[] { NAMESPACE_ISO4217, CurrencyNameSpace.NAMESPACE_CURRENCY }) {
+      Node base = getNode(space, defaultCurrencyID);
+      factors.put(base.key, new FixedPointNumber(1));
+      baseNodes.add(base);
+      level.add(base);
+    }
+
+    while (!level.isEmpty()) {
+      List<Node> next = new ArrayList<Node>();
+
+      for (Node node : level) {
+        for (Node quoted : node.quotedIn) {
+          if (!factors.containsKey(quoted.key)) {
+            factors.put(quoted.key, new FixedPointNumber(quoted.latestValue).multiply(factors.get(node.key)));
+            next.add(quoted);
+          }
+        }
+      }
+
+      for (Node node : level) {
+        Node currency = node.quoteCurrency;
+        if (currency != null && !factors.containsKey(currency.key) && node.latestValue.signum() != 0) {
+          factors.put(currency.key, factors.get(node.key).copy().divideBy(node.latestValue));
+          next.add(currency);
+        }
+      }
+
+      level = next;
+    }
+  }
+
+  /**
+   * Commodities with quotes that have no path to the default-currency take the currency they are quoted in as the
+   * default-currency (as the recursive lookup always did).
+   */
+  private void resolveUnreachable() {
+    for (Node node : nodes.values()) {
+      if (node.latestValue != null && !factors.containsKey(node.key)) {
+        LOGGER.debug("no conversion path from '" + node.key + "' to the default-currency, using its quote as is");
+        resolveUnreachable(node, new HashSet<Node>());
+      }
+    }
+  }
+
+  /**
+   * @param node    an unreachable commodity
+   * @param visited the commodities of the path so far (to break cycles)
+   * @return the factor of the commodity or 1 if it has no quotes
+   */
+  private FixedPointNumber resolveUnreachable(final Node node, final Set<Node> visited) {
+    FixedPointNumber factor = factors.get(node.key);
+    if (factor != null) {
+      return factor;
+    }
+    if (node.latestValue == null || !visited.add(node)) {
+      return new FixedPointNumber(1);
+    }
+
+    factor = new FixedPointNumber(node.latestValue).multiply(resolveUnreachable(node.quoteCurrency, visited));
+    factors.put(node.key, factor);
+    return factor;
+  }
+
+  /**
+   * @param cmdtySpace the namespace of the commodity
+   * @param cmdtyId    the id of the commodity
+   * @return a new FixedPointNumber with the factor to the default-currency or null if there is none
+   */
+  FixedPointNumber getFactor(final String cmdtySpace, final String cmdtyId) {
+    FixedPointNumber factor = factors.get(PriceIndex.key(cmdtySpace, cmdtyId));
+    if (factor == null) {
+      return null;
+    }
+
+    return factor.copy();
+  }
+
+  /**
+   * @param cmdtySpace the namespace of the commodity
+   * @param cmdtyId    the id of the commodity
+   * @return true if it is the default-currency (in one of its namespaces)
+   */
+  boolean isDefaultCurrency(final String cmdtySpace, final String cmdtyId) {
+    String key = PriceIndex.key(cmdtySpace, cmdtyId);
+    for (Node base : baseNodes) {
+      if (base.key.equals(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Puts the factor of every commodity that can be converted into the table (except for the default-currency itself,
+   * that is up to the caller).
+   *
+   * @param table the currency-table to fill
+   */
+  void fillCurrencyTable(final ComplexCurrencyTable table) {
+    for (Node node : nodes.values()) {
+      FixedPointNumber factor = factors.get(node.key);
+      if (factor != null && !baseNodes.contains(node)) {
+        table.setConversionFactor(node.cmdtySpace, node.cmdtyId, factor.copy());
+      }
+    }
+  }
+
+}
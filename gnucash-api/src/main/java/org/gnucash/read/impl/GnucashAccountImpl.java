@@ -1,13 +1,20 @@
 package org.gnucash.read.impl;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.gnucash.currency.CurrencyNameSpace;
 import org.gnucash.generated.GncAccount;
 import org.gnucash.generated.ObjectFactory;
+import org.gnucash.numbers.FixedPointNumber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -148,11 +155,17 @@ public class GnucashAccountImpl extends SimpleAccount implements GnucashAccount
 
 	/**
 	 * The splits of this transaction. May not be fully initialized during loading
-	 * of the gnucash-file.
+	 * of the gnucash-file.<br/>
+	 * Kept sorted by date (see {@link GnucashTransactionSplit#compareTo(GnucashTransactionSplit)}).
 	 *
 	 * @see #mySplitsNeedSorting
 	 */
-	private final List<GnucashTransactionSplit> mySplits = new LinkedList<GnucashTransactionSplit>();
+	private final List<GnucashTransactionSplit> mySplits = new ArrayList<GnucashTransactionSplit>();
+
+	/**
+	 * {@link #mySplits} indexed by their id.
+	 */
+	private final Map<String, GnucashTransactionSplit> mySplitsByID = new HashMap<String, GnucashTransactionSplit>();
 
 	/**
 	 * If {@link #mySplits} needs to be sorted because it was modified. Sorting is
@@ -160,6 +173,28 @@ public class GnucashAccountImpl extends SimpleAccount implements GnucashAccount
 	 */
 	private boolean mySplitsNeedSorting = false;
 
+	/**
+	 * The balance of this account after each of the (sorted) {@link #mySplits}.
+	 * Built lazily and thrown away whenever the splits change.
+	 *
+	 * @see #getBalance(GnucashTransactionSplit)
+	 * @see #transactionSplitsChanged()
+	 */
+	private BigDecimal[] myRunningBalances = null;
+
+	/**
+	 * The date-posted (epoch-seconds) of the transaction of each of the (sorted)
+	 * {@link #mySplits}. Built together with {@link #myRunningBalances}.
+	 *
+	 * @see #countSplitsPostedUpTo(long)
+	 */
+	private long[] myPostedSeconds = null;
+
+	/**
+	 * The index of each split in {@link #myRunningBalances}.
+	 */
+	private Map<GnucashTransactionSplit, Integer> mySplitPositions = null;
+
 	/**
 	 * @see GnucashAccount#getTransactionSplits()
 	 */
@@ -173,6 +208,18 @@ public class GnucashAccountImpl extends SimpleAccount implements GnucashAccount
 		return mySplits;
 	}
 
+	/**
+	 * @see GnucashAccount#getTransactionSplitByID(java.lang.String)
+	 */
+	@Override
+	public GnucashTransactionSplit getTransactionSplitByID(final String id) {
+		if (id == null) {
+			throw new IllegalArgumentException("null id given!");
+		}
+
+		return mySplitsByID.get(id);
+	}
+
 	/**
 	 * @see GnucashAccount#addTransactionSplit(GnucashTransactionSplit)
 	 */
@@ -187,8 +234,159 @@ public class GnucashAccountImpl extends SimpleAccount implements GnucashAccount
 			}
 		} else {
 			mySplits.add(split);
-			mySplitsNeedSorting = true;
+			mySplitsByID.put(split.getId(), split);
+			transactionSplitsChanged();
+		}
+	}
+
+	/**
+	 * For internal use only.
+	 *
+	 * @param split the split to remove from this account
+	 */
+	protected void removeSplit(final GnucashTransactionSplit split) {
+		if (mySplits.remove(split)) {
+			mySplitsByID.remove(split.getId());
+			transactionSplitsChanged();
+		}
+	}
+
+	/**
+	 * For internal use only.<br/>
+	 * Has to be called whenever a split was added to or removed from this account,
+	 * its quantity changed or the date of its transaction changed.
+	 * Discards the sort-order and all cached balances
+	 * (including the recursive balances cached by the file).
+	 */
+	public void transactionSplitsChanged() {
+		mySplitsNeedSorting = true;
+		myRunningBalances = null;
+		myPostedSeconds = null;
+		mySplitPositions = null;
+
+		if (getGnucashFile() instanceof GnucashFileImpl) {
+			((GnucashFileImpl) getGnucashFile()).clearBalanceCache();
+		}
+	}
+
+	/**
+	 * Looks up the running balance of the split instead of summing up
+	 * all splits before it.
+	 *
+	 * @see GnucashAccount#getBalance(GnucashTransactionSplit)
+	 */
+	@Override
+	public FixedPointNumber getBalance(final GnucashTransactionSplit lastIncludesSplit) {
+		buildSplitIndex();
+
+		if (myRunningBalances.length == 0) {
+			return new FixedPointNumber();
 		}
+
+		Integer pos = mySplitPositions.get(lastIncludesSplit);
+		if (pos == null) {
+			// not one of our splits: the balance after all splits
+			pos = myRunningBalances.length - 1;
+		}
+
+		return new FixedPointNumber(myRunningBalances[pos]);
+	}
+
+	/**
+	 * Finds the last split up to the date by binary search and returns its
+	 * running balance.
+	 *
+	 * @see GnucashAccount#getBalance(LocalDate, Collection)
+	 */
+	@Override
+	public FixedPointNumber getBalance(final LocalDate date, final Collection<GnucashTransactionSplit> after) {
+		buildSplitIndex();
+
+		int count = countSplitsPostedUpTo(date.atStartOfDay(ZoneId.systemDefault()).toEpochSecond());
+		if (after != null) {
+			after.addAll(mySplits.subList(count, mySplits.size()));
+		}
+
+		if (count == 0) {
+			return new FixedPointNumber();
+		}
+
+		return new FixedPointNumber(myRunningBalances[count - 1]);
+	}
+
+	/**
+	 * @see SimpleAccount#getLastSplitBefore(LocalDate)
+	 */
+	@Override
+	protected GnucashTransactionSplit getLastSplitBefore(final LocalDate date) {
+		buildSplitIndex();
+
+		int count = myPostedSeconds.length;
+		if (date != null) {
+			// splits posted exactly at the start of the day are not "before"
+			count = countSplitsPostedUpTo(date.atStartOfDay(ZoneId.systemDefault()).toEpochSecond() - 1);
+		}
+
+		if (count == 0) {
+			return null;
+		}
+
+		// the first one of the splits posted at that time
+		int pos = count - 1;
+		while (pos > 0 && myPostedSeconds[pos - 1] == myPostedSeconds[pos]) {
+			pos--;
+		}
+
+		return mySplits.get(pos);
+	}
+
+	/**
+	 * @param epochSecond the last point in time to count
+	 * @return the number of splits posted up to and including the given time
+	 */
+	private int countSplitsPostedUpTo(final long epochSecond) {
+		int low = 0;
+		int high = myPostedSeconds.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (myPostedSeconds[mid] <= epochSecond) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Fills {@link #myRunningBalances}, {@link #myPostedSeconds} and
+	 * {@link #mySplitPositions} in one pass over the sorted splits
+	 * (if they are not up to date).
+	 */
+	private void buildSplitIndex() {
+		if (myRunningBalances != null && !mySplitsNeedSorting) {
+			return;
+		}
+
+		List<GnucashTransactionSplit> splits = getTransactionSplits();
+		BigDecimal[] balances = new BigDecimal[splits.size()];
+		long[] posted = new long[splits.size()];
+		Map<GnucashTransactionSplit, Integer> positions = new IdentityHashMap<GnucashTransactionSplit, Integer>(splits.size());
+
+		FixedPointNumber balance = new FixedPointNumber();
+		int i = 0;
+		for (GnucashTransactionSplit split : splits) {
+			balance.add(split.getQuantity());
+			balances[i] = balance.getBigDecimal();
+			posted[i] = split.getTransaction().getDatePosted().toEpochSecond();
+			positions.put(split, i);
+			i++;
+		}
+
+		myRunningBalances = balances;
+		myPostedSeconds = posted;
+		mySplitPositions = positions;
 	}
 
 	/**
@@ -204,6 +402,8 @@ public class GnucashAccountImpl extends SimpleAccount implements GnucashAccount
 		}
 
 		mySplits.add(impl);
+		mySplitsByID.put(impl.getId(), impl);
+		transactionSplitsChanged();
 	}
 
 	/**
@@ -374,7 +374,7 @@ public class GnucashCustomerImpl extends GnucashObjectImpl implements GnucashCus
 
     List<GnucashCustomerJob> retval = new LinkedList<GnucashCustomerJob>();
 
-    for (GnucashGenerJob jobGener : getGnucashFile().getGenerJobs()) {
+    for (GnucashGenerJob jobGener : getGenerJobsOfOwner()) {
       if (jobGener.getOwnerType().equals(GCshOwner.TYPE_CUSTOMER)) {
         GnucashCustomerJob jobSpec = new GnucashCustomerJobImpl(jobGener);
         if (jobSpec.getCustomerId().equals(getId())) {
@@ -386,6 +386,17 @@ public class GnucashCustomerImpl extends GnucashObjectImpl implements GnucashCus
     return retval;
   }
 
+  /**
+   * @return the jobs of this customer, if possible without looking at all jobs
+   */
+  private Collection<GnucashGenerJob> getGenerJobsOfOwner() {
+    if (getGnucashFile() instanceof GnucashFileImpl) {
+      return ((GnucashFileImpl) getGnucashFile()).getGenerJobsByOwnerID(getId());
+    }
+
+    return getGnucashFile().getGenerJobs();
+  }
+
   // -----------------------------------------------------------------
 
   @Override
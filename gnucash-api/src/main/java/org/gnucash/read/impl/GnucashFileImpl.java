@@ -10,23 +10,27 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 import java.text.DateFormat;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.SortedSet;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
+import javax.xml.stream.XMLStreamException;
+
 import org.gnucash.Const;
 import org.gnucash.currency.ComplexCurrencyTable;
 import org.gnucash.generated.GncAccount;
@@ -88,6 +92,18 @@ public class GnucashFileImpl implements GnucashFile {
 
   private static final String PADDING_TEMPLATE = "000000";
 
+  /**
+   * How the file was loaded.
+   */
+  private final LoadOptions loadOptions;
+
+  /**
+   * true if the document was read from the snapshot of the file.
+   *
+   * @see LoadOptions#isSnapshotCache()
+   */
+  private boolean loadedFromSnapshot = false;
+
   // ---------------------------------------------------------------
 
   /**
@@ -96,7 +112,22 @@ public class GnucashFileImpl implements GnucashFile {
    * @see #loadFile(File)
    */
   public GnucashFileImpl(final File pFile) throws IOException {
+    this(pFile, new LoadOptions());
+  }
+
+  /**
+   * @param pFile    the file to load and initialize from
+   * @param pOptions how to load the file
+   * @throws IOException on low level reading-errors (FileNotFoundException if not found)
+   * @see #loadFile(File)
+   */
+  public GnucashFileImpl(final File pFile, final LoadOptions pOptions) throws IOException {
     super();
+    if (pOptions == null) {
+      throw new IllegalArgumentException("null not allowed for field this.loadOptions");
+    }
+    loadOptions = pOptions;
+    listenToCurrencyTable();
     loadFile(pFile);
   }
 
@@ -106,10 +137,34 @@ public class GnucashFileImpl implements GnucashFile {
    * @see #loadFile(File)
    */
   public GnucashFileImpl(final InputStream is) throws IOException {
+    this(is, new LoadOptions());
+  }
+
+  /**
+   * @param is       the (uncompressed) gnucash-xml to load and initialize from
+   * @param pOptions how to load the file
+   * @throws IOException on low level reading-errors
+   * @see #loadInputStream(InputStream)
+   */
+  public GnucashFileImpl(final InputStream is, final LoadOptions pOptions) throws IOException {
     super();
+    if (pOptions == null) {
+      throw new IllegalArgumentException("null not allowed for field this.loadOptions");
+    }
+    loadOptions = pOptions;
+    listenToCurrencyTable();
     loadInputStream(is);
   }
 
+  /**
+   * Discards the cached recursive balances whenever a conversion-factor changes, as balances in another currency
+   * are converted with them. (The table is only cleared by {@link #loadPriceDatabase(List)}, which discards them
+   * itself.)
+   */
+  private void listenToCurrencyTable() {
+    currencyTable.addComplexCurrencyTableChangeListener((namespace, currency, factor) -> clearBalanceCache());
+  }
+
   // ---------------------------------------------------------------
 
   /**
@@ -140,6 +195,13 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GCshTaxTable> taxTablesById = null;
 
+  /**
+   * Filled lazily in getTaxTableByName(), the first tax table of each name.
+   *
+   * @see #getTaxTableByName(String)
+   */
+  private volatile Map<String, GCshTaxTable> taxTablesByName = null;
+
   /**
    * @param id ID of a tax table
    * @return the identified tax table or null
@@ -157,17 +219,16 @@ public class GnucashFileImpl implements GnucashFile {
    * @return the identified tax table or null
    */
   public GCshTaxTable getTaxTableByName(final String name) {
-    if (taxTablesById == null) {
-      getTaxTables();
-    }
-
-    for (GCshTaxTable taxTab : taxTablesById.values()) {
-      if (taxTab.getName().equals(name)) {
-        return taxTab;
+    Map<String, GCshTaxTable> byName = taxTablesByName;
+    if (byName == null) {
+      byName = new HashMap<String, GCshTaxTable>();
+      for (GCshTaxTable taxTab : getTaxTables()) {
+        byName.putIfAbsent(taxTab.getName(), taxTab);
       }
+      taxTablesByName = byName;
     }
 
-    return null;
+    return byName.get(name);
   }
 
   /**
@@ -244,6 +305,14 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GCshBillTerms> billTermsByID = null;
 
+  /**
+   * Filled lazily in getBillTermsByName(), the first bill terms item of each
+   * name.
+   *
+   * @see #getBillTermsByName(String)
+   */
+  private volatile Map<String, GCshBillTerms> billTermsByName = null;
+
   /**
    * @param id ID of a bill terms item
    * @return the identified bill terms item or null
@@ -261,17 +330,16 @@ public class GnucashFileImpl implements GnucashFile {
    * @return the identified bill-terms item or null
    */
   public GCshBillTerms getBillTermsByName(final String name) {
-    if (billTermsByID == null) {
-      getBillTerms();
-    }
-
-    for (GCshBillTerms billTerms : billTermsByID.values()) {
-      if (billTerms.getName().equals(name)) {
-        return billTerms;
+    Map<String, GCshBillTerms> byName = billTermsByName;
+    if (byName == null) {
+      byName = new HashMap<String, GCshBillTerms>();
+      for (GCshBillTerms billTerms : getBillTerms()) {
+        byName.putIfAbsent(billTerms.getName(), billTerms);
       }
+      billTermsByName = byName;
     }
 
-    return null;
+    return byName.get(name);
   }
 
   /**
@@ -299,56 +367,88 @@ public class GnucashFileImpl implements GnucashFile {
   // ---------------------------------------------------------------
 
   /**
-   * @return a read-only collection of all accounts that have no parent (the result is sorted)
+   * @return a collection of all accounts that have no parent (the result is sorted and a copy)
    */
   public Collection<? extends GnucashAccount> getRootAccounts() {
-    try {
-      Collection<GnucashAccount> retval = new TreeSet<GnucashAccount>();
-
-      for (GnucashAccount account : getAccounts()) {
-        if (account.getParentAccountId() == null) {
-          retval.add(account);
-        }
-
-      }
-
-      return retval;
-    } catch (RuntimeException e) {
-      LOGGER.error(bundle.getMessage("FatNoRootAccounts"));
-      throw e;
-    } catch (Throwable e) {
-      LOGGER.error(bundle.getMessage("FatSerRootAccounts"));
-      return new LinkedList<GnucashAccount>();
+    if (rootAccounts == null) {
+      throw new IllegalStateException("no root-element loaded");
     }
+
+    return new TreeSet<GnucashAccount>(rootAccounts);
   }
 
   /**
    * @param id if null, gives all account that have no parent
-   * @return the sorted collection of children of that account
+   * @return the sorted collection of children of that account (a copy)
    */
   public Collection<GnucashAccount> getAccountsByParentID(final String id) {
-    if (accountID2account == null) {
+    if (parentID2children == null) {
       throw new IllegalStateException("no root-element loaded");
     }
 
-    SortedSet<GnucashAccount> retval = new TreeSet<GnucashAccount>();
+    return new TreeSet<GnucashAccount>(getAccountChildren(id));
+  }
 
-    for (Object element : accountID2account.values()) {
-      GnucashAccount account = (GnucashAccount) element;
+  /**
+   * @param parentId the id of the parent-account (null for the top-level
+   *                 accounts)
+   * @return the indexed, sorted list of the children, never null
+   */
+  private List<GnucashAccount> getAccountChildren(final String parentId) {
+    if (parentId == null) {
+      return rootAccounts;
+    }
 
-      String parent = account.getParentAccountId();
-      if (parent == null) {
-        if (id == null) {
-          retval.add((GnucashAccount) account);
-        }
-      } else {
-        if (parent.equals(id)) {
-          retval.add((GnucashAccount) account);
-        }
-      }
+    List<GnucashAccount> children = parentID2children.get(parentId);
+    if (children == null) {
+      return Collections.emptyList();
     }
 
-    return retval;
+    return children;
+  }
+
+  /**
+   * Adds the account to the children of its parent-account.
+   *
+   * @param acct the account to index
+   * @see #parentID2children
+   */
+  protected void addAccountToParent(final GnucashAccount acct) {
+    List<GnucashAccount> children;
+    if (acct.getParentAccountId() == null) {
+      children = rootAccounts;
+    } else {
+      children = parentID2children.computeIfAbsent(acct.getParentAccountId(), k -> new ArrayList<GnucashAccount>());
+    }
+
+    int pos = Collections.binarySearch(children, acct);
+    children.add(pos < 0 ? -pos - 1 : pos, acct);
+  }
+
+  /**
+   * Removes the account from the children of the given parent-account.
+   *
+   * @param acctId   the id of the account
+   * @param parentId the id of the parent-account the account has been indexed
+   *                 for (null for a top-level account)
+   * @see #parentID2children
+   */
+  protected void removeAccountFromParent(final String acctId, final String parentId) {
+    List<GnucashAccount> children = getAccountChildren(parentId);
+    if (children.removeIf(acct -> acct.getId().equals(acctId)) && children.isEmpty() && parentId != null) {
+      parentID2children.remove(parentId);
+    }
+  }
+
+  /**
+   * Sorts the children of the given parent-account again, e.g. because one of
+   * them has been renamed.
+   *
+   * @param parentId the id of the parent-account (null for the top-level
+   *                 accounts)
+   */
+  protected void sortAccountChildren(final String parentId) {
+    Collections.sort(getAccountChildren(parentId));
   }
 
   /**
@@ -360,20 +460,95 @@ public class GnucashFileImpl implements GnucashFile {
       throw new IllegalStateException("no root-element loaded");
     }
 
+    GnucashAccount byName = accountsByName.get(name);
+    if (!name.contains(AccountPathTrie.SEPARATOR)) {
+      // only top-level accounts have a qualified name without separator and
+      // for them it is the name itself
+      return byName;
+    }
+
+    GnucashAccount byQualifiedName = getAccountPathTrie().get(name);
+    if (byName == null || byQualifiedName == null || byName == byQualifiedName) {
+      return byName != null ? byName : byQualifiedName;
+    }
+
+    // the name of one account is the qualified name of another one: like
+    // before the indexes, the first match in the account-map wins
     for (GnucashAccount account : accountID2account.values()) {
-      if (account.getName().equals(name)) {
-        return account;
-      }
-      if (account.getQualifiedName().equals(name)) {
+      if (account.getName().equals(name) || account.getQualifiedName().equals(name)) {
         return account;
       }
     }
+    return byName;
+  }
 
-    return null;
+  /**
+   * @see GnucashFile#getAccountsByQualifiedNamePrefix(java.lang.String)
+   */
+  public Collection<GnucashAccount> getAccountsByQualifiedNamePrefix(final String prefix) {
+    if (accountID2account == null) {
+      throw new IllegalStateException("no root-element loaded");
+    }
+
+    return Collections.unmodifiableCollection(new TreeSet<>(getAccountPathTrie().getByPrefix(prefix)));
+  }
+
+  private AccountPathTrie getAccountPathTrie() {
+    AccountPathTrie trie = accountPathTrie;
+    if (trie == null) {
+      trie = new AccountPathTrie(accountID2account.values());
+      accountPathTrie = trie;
+    }
+    return trie;
+  }
+
+  /**
+   * Adds the account to the indexes by name and qualified name.
+   *
+   * @param acct the account to index
+   * @see #getAccountByName(String)
+   */
+  protected void addAccountToNameIndex(final GnucashAccount acct) {
+    accountsByName.add(acct);
+    qualifiedAccountNamesChanged();
+  }
+
+  /**
+   * @param acctId the id of the account to remove from the indexes by name and qualified name
+   * @see #getAccountByName(String)
+   */
+  protected void removeAccountFromNameIndex(final String acctId) {
+    accountsByName.remove(acctId);
+    qualifiedAccountNamesChanged();
+  }
+
+  /**
+   * Indexes the account under its current name if it has been renamed.
+   *
+   * @param acct the (indexed) account that may have been renamed
+   * @return true if the name has changed
+   * @see #getAccountByName(String)
+   */
+  protected boolean accountNameChanged(final GnucashAccount acct) {
+    if (!accountsByName.update(acct)) {
+      return false;
+    }
+
+    // also the qualified names of all sub-accounts
+    qualifiedAccountNamesChanged();
+    return true;
   }
 
   /**
-   * warning: this function has to traverse all accounts. If it much faster to try getAccountByID first and only call
+   * To be called when the qualified names of accounts may have changed, e.g.
+   * because an account has been moved.
+   */
+  protected void qualifiedAccountNamesChanged() {
+    accountPathTrie = null;
+  }
+
+  /**
+   * warning: unless the name is found as it is, this function has to traverse all accounts. It is much faster to try getAccountByID first and only call
    * this method if the returned account does not have the right name.
    *
    * @param nameRegEx the regular expression of the name to look for
@@ -391,7 +566,10 @@ public class GnucashFileImpl implements GnucashFile {
     if (foundAccount != null) {
       return foundAccount;
     }
-    Pattern pattern = Pattern.compile(nameRegEx);
+    Pattern pattern;
+    synchronized (nameRegEx2pattern) {
+      pattern = nameRegEx2pattern.computeIfAbsent(nameRegEx, Pattern::compile);
+    }
 
     for (GnucashAccount account : accountID2account.values()) {
       Matcher matcher = pattern.matcher(account.getName());
@@ -455,6 +633,17 @@ public class GnucashFileImpl implements GnucashFile {
     return retval;
   }
 
+  /**
+   * @see GnucashFile#getGenerInvoiceByLotID(java.lang.String)
+   */
+  public GnucashGenerInvoice getGenerInvoiceByLotID(final String lotID) {
+    if (lotID2invoice == null) {
+      throw new IllegalStateException("no root-element loaded");
+    }
+
+    return lotID2invoice.get(lotID);
+  }
+
   /**
    * @see GnucashFile#getGenerInvoices()
    */
@@ -469,45 +658,260 @@ public class GnucashFileImpl implements GnucashFile {
   }
 
   /**
-   * @throws WrongInvoiceTypeException
-   * @see GnucashFile#getPaidGenerInvoices()
+   * Adds the invoice to the index of the invoices of its (direct) owner.
+   *
+   * @param invc the invoice to index
+   * @see #ownerID2invoices
    */
-  public Collection<GnucashGenerInvoice> getPaidGenerInvoices() {
-    Collection<GnucashGenerInvoice> retval = new LinkedList<GnucashGenerInvoice>();
-    for (GnucashGenerInvoice invc : getGenerInvoices()) {
-      // ::TODO use methods is[Invc|Bill]FullyPaid
-//            if (!invoice.getInvcAmountUnpaidWithTaxes().isPositive()) {
-//                retval.add(invoice);
-//            }
+  protected void addInvoiceToOwner(final GnucashGenerInvoice invc) {
+    String ownerId;
+    try {
+      ownerId = invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT);
+    } catch (WrongInvoiceTypeException e) {
+      // cannot happen for the direct owner
+      return;
+    }
+    if (ownerId == null) {
+      return;
+    }
+
+    ownerID2invoices.computeIfAbsent(ownerId, k -> new ArrayList<>(2)).add(invc);
+  }
+
+  /**
+   * Removes the invoice from the index of the invoices of the given owner.
+   *
+   * @param invcId  the id of the invoice
+   * @param ownerId the id of the owner the invoice has been indexed for
+   * @see #ownerID2invoices
+   */
+  protected void removeInvoiceFromOwner(final String invcId, final String ownerId) {
+    List<GnucashGenerInvoice> invcs = ownerID2invoices.get(ownerId);
+    if (invcs == null) {
+      return;
+    }
+
+    invcs.removeIf(invc -> invc.getId().equals(invcId));
+    if (invcs.isEmpty()) {
+      ownerID2invoices.remove(ownerId);
+    }
+  }
+
+  /**
+   * @param ownerId the id of a customer, vendor or job
+   * @return the invoices directly owned by it, in the order of
+   *         {@link #getGenerInvoices()}
+   */
+  protected List<GnucashGenerInvoice> getGenerInvoicesForOwner(final String ownerId) {
+    if (ownerID2invoices == null) {
+      throw new IllegalStateException("no root-element loaded");
+    }
+
+    List<GnucashGenerInvoice> invcs = ownerID2invoices.get(ownerId);
+    if (invcs == null) {
+      return Collections.emptyList();
+    }
+
+    // the dates may have changed since the invoices have been indexed
+    ArrayList<GnucashGenerInvoice> retval = new ArrayList<GnucashGenerInvoice>(invcs);
+    Collections.sort(retval);
+
+    return retval;
+  }
+
+  /**
+   * @param invc the invoice to check
+   * @return true if the invoice is fully paid (according to its type)
+   */
+  private boolean isFullyPaid(final GnucashGenerInvoice invc) {
+    try {
       if (invc.getType().equals(GnucashGenerInvoice.TYPE_CUSTOMER)) {
-        try {
-          if (invc.isInvcFullyPaid()) {
-            retval.add(invc);
-          }
-        } catch (WrongInvoiceTypeException e) {
-          // This should not happen
-          LOGGER.error(bundle.getMessage("FatSerPaidInv"));
-        }
+        return invc.isInvcFullyPaid();
       } else if (invc.getType().equals(GnucashGenerInvoice.TYPE_VENDOR)) {
-        try {
-          if (invc.isBillFullyPaid()) {
-            retval.add(invc);
-          }
-        } catch (WrongInvoiceTypeException e) {
-          // This should not happen
-          LOGGER.error(bundle.getMessage("FatSerPaidInv"));
-        }
+        return invc.isBillFullyPaid();
       } else if (invc.getType().equals(GnucashGenerInvoice.TYPE_JOB)) {
-        try {
-          if (invc.isJobFullyPaid()) {
-            retval.add(invc);
-          }
-        } catch (WrongInvoiceTypeException e) {
-          // This should not happen
-          LOGGER.error(bundle.getMessage("FatSerPaidInv"));
+        return invc.isJobFullyPaid();
+      }
+    } catch (WrongInvoiceTypeException e) {
+      // This should not happen
+      LOGGER.error(bundle.getMessage("FatSerPaidInv"));
+    }
+
+    return false;
+  }
+
+  /**
+   * @param invc the invoice to check
+   * @return true if the invoice is not fully paid (according to its type)
+   */
+  private boolean isNotFullyPaid(final GnucashGenerInvoice invc) {
+    try {
+      if (invc.getType().equals(GnucashGenerInvoice.TYPE_CUSTOMER)) {
+        return invc.isNotInvcFullyPaid();
+      } else if (invc.getType().equals(GnucashGenerInvoice.TYPE_VENDOR)) {
+        return invc.isNotBillFullyPaid();
+      } else if (invc.getType().equals(GnucashGenerInvoice.TYPE_JOB)) {
+        return invc.isNotJobFullyPaid();
+      }
+    } catch (WrongInvoiceTypeException e) {
+      // This should not happen
+      LOGGER.error(bundle.getMessage("FatUnpInv"), e);
+    }
+
+    return false;
+  }
+
+  /**
+   * @param invc the invoice to check
+   * @return true if the invoice is fully paid (according to its type)
+   */
+  private boolean isPaidGenerInvoice(final GnucashGenerInvoice invc) {
+    updatePaidStatus();
+    return paidInvoiceIDs.contains(invc.getId());
+  }
+
+  /**
+   * @param invc the invoice to check
+   * @return true if the invoice is not fully paid (according to its type)
+   */
+  private boolean isUnpaidGenerInvoice(final GnucashGenerInvoice invc) {
+    updatePaidStatus();
+    return unpaidInvoiceIDs.contains(invc.getId());
+  }
+
+  /**
+   * Brings {@link #paidInvoiceIDs} and {@link #unpaidInvoiceIDs} up to date by
+   * checking all invoices the first time and the stale ones afterwards.
+   */
+  private void updatePaidStatus() {
+    if (paidInvoiceIDs == null) {
+      paidInvoiceIDs = new HashSet<>();
+      unpaidInvoiceIDs = new HashSet<>();
+      for (GnucashGenerInvoice invc : invoiceID2invoice.values()) {
+        updatePaidStatus(invc);
+      }
+    } else {
+      for (String invcId : staleInvoiceIDs) {
+        paidInvoiceIDs.remove(invcId);
+        unpaidInvoiceIDs.remove(invcId);
+        GnucashGenerInvoice invc = invoiceID2invoice.get(invcId);
+        if (invc != null) {
+          updatePaidStatus(invc);
         }
       }
     }
+    staleInvoiceIDs.clear();
+  }
+
+  private void updatePaidStatus(final GnucashGenerInvoice invc) {
+    if (isFullyPaid(invc)) {
+      paidInvoiceIDs.add(invc.getId());
+    }
+    if (isNotFullyPaid(invc)) {
+      unpaidInvoiceIDs.add(invc.getId());
+    }
+  }
+
+  /**
+   * @param invcId the id of the invoice
+   * @return the memoized amounts of the invoice
+   */
+  GnucashGenerInvoiceImpl.Amounts getInvoiceAmounts(final String invcId) {
+    return invoiceID2amounts.computeIfAbsent(invcId, k -> new GnucashGenerInvoiceImpl.Amounts());
+  }
+
+  /**
+   * Called by the invoices when an entry has been added.
+   *
+   * @param invc the invoice
+   */
+  void invoiceEntryAdded(final GnucashGenerInvoice invc) {
+    // the instances wrapping an invoice add the entries again
+    if (invoiceID2invoice != null && invoiceID2invoice.get(invc.getId()) == invc) {
+      invoiceAmountsChanged(invc.getId());
+    }
+  }
+
+  /**
+   * Called by the invoices when a paying transaction has been added.
+   *
+   * @param invc the invoice
+   * @param trx  the transaction paying for it
+   */
+  void payingTransactionAdded(final GnucashGenerInvoice invc, final GnucashTransaction trx) {
+    // the instances wrapping an invoice add the transactions again
+    if (invoiceID2invoice != null && invoiceID2invoice.get(invc.getId()) == invc) {
+      List<String> invcIds = payingTrxID2invoiceIDs.computeIfAbsent(trx.getId(), k -> new ArrayList<>(1));
+      if (!invcIds.contains(invc.getId())) {
+        invcIds.add(invc.getId());
+      }
+      invoiceAmountsChanged(invc.getId());
+    }
+  }
+
+  /**
+   * The amounts of the given invoice may have changed, they have to be
+   * computed again.
+   *
+   * @param invcId the id of the invoice
+   */
+  protected void invoiceAmountsChanged(final String invcId) {
+    if (invoiceID2amounts == null) {
+      return;
+    }
+
+    invoiceID2amounts.remove(invcId);
+    if (paidInvoiceIDs != null) {
+      staleInvoiceIDs.add(invcId);
+    }
+  }
+
+  /**
+   * The amounts of the invoices paid by the given transaction may have
+   * changed, they have to be computed again.
+   *
+   * @param trxId the id of the transaction
+   */
+  protected void transactionAmountsChanged(final String trxId) {
+    if (payingTrxID2invoiceIDs == null) {
+      return;
+    }
+
+    List<String> invcIds = payingTrxID2invoiceIDs.get(trxId);
+    if (invcIds != null) {
+      for (String invcId : invcIds) {
+        invoiceAmountsChanged(invcId);
+      }
+    }
+  }
+
+  /**
+   * Forgets the amounts and the paid-status of all invoices when the book is
+   * (re-)loaded. Changes made later invalidate only the affected invoices.
+   */
+  private void invoiceAmountsChanged() {
+    if (invoiceID2amounts != null && !invoiceID2amounts.isEmpty()) {
+      invoiceID2amounts = new HashMap<>();
+    }
+    paidInvoiceIDs = null;
+    unpaidInvoiceIDs = null;
+    staleInvoiceIDs.clear();
+  }
+
+  /**
+   * @throws WrongInvoiceTypeException
+   * @see GnucashFile#getPaidGenerInvoices()
+   */
+  public Collection<GnucashGenerInvoice> getPaidGenerInvoices() {
+    updatePaidStatus();
+
+    ArrayList<GnucashGenerInvoice> retval = new ArrayList<GnucashGenerInvoice>(paidInvoiceIDs.size());
+    for (GnucashGenerInvoice invc : invoiceID2invoice.values()) {
+      if (paidInvoiceIDs.contains(invc.getId())) {
+        retval.add(invc);
+      }
+    }
+    Collections.sort(retval);
 
     return retval;
   }
@@ -517,41 +921,15 @@ public class GnucashFileImpl implements GnucashFile {
    * @see GnucashFile#getUnpaidGenerInvoices()
    */
   public Collection<GnucashGenerInvoice> getUnpaidGenerInvoices() {
-    Collection<GnucashGenerInvoice> retval = new LinkedList<GnucashGenerInvoice>();
-    for (GnucashGenerInvoice invc : getGenerInvoices()) {
-      // ::TODO use methods is[Invc|Bill]NotFullyPaid
-//			if (invoice.getInvcAmountUnpaidWithTaxes().isPositive()) {
-//				retval.add(invoice);
-//			}
-      if (invc.getType().equals(GnucashGenerInvoice.TYPE_CUSTOMER)) {
-        try {
-          if (invc.isNotInvcFullyPaid()) {
-            retval.add(invc);
-          }
-        } catch (WrongInvoiceTypeException e) {
-          // This should not happen
-          LOGGER.error(bundle.getMessage("FatUnpInv"), e);
-        }
-      } else if (invc.getType().equals(GnucashGenerInvoice.TYPE_VENDOR)) {
-        try {
-          if (invc.isNotBillFullyPaid()) {
-            retval.add(invc);
-          }
-        } catch (WrongInvoiceTypeException e) {
-          // This should not happen
-          LOGGER.error(bundle.getMessage("FatUnpInv"), e);
-        }
-      } else if (invc.getType().equals(GnucashGenerInvoice.TYPE_JOB)) {
-        try {
-          if (invc.isNotJobFullyPaid()) {
-            retval.add(invc);
-          }
-        } catch (WrongInvoiceTypeException e) {
-          // This should not happen
-          LOGGER.error(bundle.getMessage("FatUnpInv"), e);
-        }
+    updatePaidStatus();
+
+    ArrayList<GnucashGenerInvoice> retval = new ArrayList<GnucashGenerInvoice>(unpaidInvoiceIDs.size());
+    for (GnucashGenerInvoice invc : invoiceID2invoice.values()) {
+      if (unpaidInvoiceIDs.contains(invc.getId())) {
+        retval.add(invc);
       }
     }
+    Collections.sort(retval);
 
     return retval;
   }
@@ -566,15 +944,13 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashCustomerInvoice> retval = new LinkedList<GnucashCustomerInvoice>();
 
-    for (GnucashGenerInvoice invc : getGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(cust.getId())) {
-        try {
-          retval.add(new GnucashCustomerInvoiceImpl(invc));
-        } catch (WrongInvoiceTypeException e) {
-          // This really should not happen, one can almost
-          // throw a fatal log here.
-          LOGGER.error(bundle.getMessage("FatNotInstCustInv", "getInvoicesForCustomer_direct"));
-        }
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(cust.getId())) {
+      try {
+        retval.add(new GnucashCustomerInvoiceImpl(invc));
+      } catch (WrongInvoiceTypeException e) {
+        // This really should not happen, one can almost
+        // throw a fatal log here.
+        LOGGER.error(bundle.getMessage("FatNotInstCustInv", "getInvoicesForCustomer_direct"));
       }
     }
 
@@ -606,8 +982,8 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashCustomerInvoice> retval = new LinkedList<GnucashCustomerInvoice>();
 
-    for (GnucashGenerInvoice invc : getPaidGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(cust.getId())) {
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(cust.getId())) {
+      if (isPaidGenerInvoice(invc)) {
         try {
           retval.add(new GnucashCustomerInvoiceImpl(invc));
         } catch (WrongInvoiceTypeException e) {
@@ -646,8 +1022,8 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashCustomerInvoice> retval = new LinkedList<GnucashCustomerInvoice>();
 
-    for (GnucashGenerInvoice invc : getUnpaidGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(cust.getId())) {
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(cust.getId())) {
+      if (isUnpaidGenerInvoice(invc)) {
         try {
           retval.add(new GnucashCustomerInvoiceImpl(invc));
         } catch (WrongInvoiceTypeException e) {
@@ -688,15 +1064,13 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashVendorBill> retval = new LinkedList<GnucashVendorBill>();
 
-    for (GnucashGenerInvoice invc : getGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(vend.getId())) {
-        try {
-          retval.add(new GnucashVendorBillImpl(invc));
-        } catch (WrongInvoiceTypeException e) {
-          // This really should not happen, one can almost
-          // throw a fatal log here.
-          LOGGER.error(bundle.getMessage("FatNotInstVendBill", "getBillsForVendor"), e);
-        }
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(vend.getId())) {
+      try {
+        retval.add(new GnucashVendorBillImpl(invc));
+      } catch (WrongInvoiceTypeException e) {
+        // This really should not happen, one can almost
+        // throw a fatal log here.
+        LOGGER.error(bundle.getMessage("FatNotInstVendBill", "getBillsForVendor"), e);
       }
     }
 
@@ -728,8 +1102,8 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashVendorBill> retval = new LinkedList<GnucashVendorBill>();
 
-    for (GnucashGenerInvoice invc : getPaidGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(vend.getId())) {
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(vend.getId())) {
+      if (isPaidGenerInvoice(invc)) {
         try {
           retval.add(new GnucashVendorBillImpl(invc));
         } catch (WrongInvoiceTypeException e) {
@@ -768,8 +1142,8 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashVendorBill> retval = new LinkedList<GnucashVendorBill>();
 
-    for (GnucashGenerInvoice invc : getUnpaidGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(vend.getId())) {
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(vend.getId())) {
+      if (isUnpaidGenerInvoice(invc)) {
         try {
           retval.add(new GnucashVendorBillImpl(invc));
         } catch (WrongInvoiceTypeException e) {
@@ -809,15 +1183,13 @@ public class GnucashFileImpl implements GnucashFile {
   public Collection<GnucashJobInvoice> getInvoicesForJob(final GnucashGenerJob job) throws WrongInvoiceTypeException {
     Collection<GnucashJobInvoice> retval = new LinkedList<GnucashJobInvoice>();
 
-    for (GnucashGenerInvoice invc : getGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(job.getId())) {
-        try {
-          retval.add(new GnucashJobInvoiceImpl(invc));
-        } catch (WrongInvoiceTypeException e) {
-          // This really should not happen, one can almost
-          // throw a fatal log here.
-          LOGGER.error(bundle.getMessage("FatNotInstJobInv", "getInvoicesForJob"), e);
-        }
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(job.getId())) {
+      try {
+        retval.add(new GnucashJobInvoiceImpl(invc));
+      } catch (WrongInvoiceTypeException e) {
+        // This really should not happen, one can almost
+        // throw a fatal log here.
+        LOGGER.error(bundle.getMessage("FatNotInstJobInv", "getInvoicesForJob"), e);
       }
     }
 
@@ -832,8 +1204,8 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashJobInvoice> retval = new LinkedList<GnucashJobInvoice>();
 
-    for (GnucashGenerInvoice invc : getPaidGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(job.getId())) {
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(job.getId())) {
+      if (isPaidGenerInvoice(invc)) {
         try {
           retval.add(new GnucashJobInvoiceImpl(invc));
         } catch (WrongInvoiceTypeException e) {
@@ -855,8 +1227,8 @@ public class GnucashFileImpl implements GnucashFile {
       throws WrongInvoiceTypeException {
     Collection<GnucashJobInvoice> retval = new LinkedList<GnucashJobInvoice>();
 
-    for (GnucashGenerInvoice invc : getUnpaidGenerInvoices()) {
-      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(job.getId())) {
+    for (GnucashGenerInvoice invc : getGenerInvoicesForOwner(job.getId())) {
+      if (isUnpaidGenerInvoice(invc)) {
         try {
           retval.add(new GnucashJobInvoiceImpl(invc));
         } catch (WrongInvoiceTypeException e) {
@@ -913,7 +1285,23 @@ public class GnucashFileImpl implements GnucashFile {
    * @see {@link GnucashFile#getLatestPrice(String, String)}
    */
   public FixedPointNumber getLatestPrice(final String pCmdtySpace, final String pCmdtyId) {
-    return getLatestPrice(pCmdtySpace, pCmdtyId, 0);
+    if (pCmdtySpace == null) {
+      throw new IllegalArgumentException("null parameter 'pCmdtySpace' " + "given");
+    }
+    if (pCmdtyId == null) {
+      throw new IllegalArgumentException("null parameter 'pCmdtyId' " + "given");
+    }
+
+    // the default-currency has no price-quote of its own (its factor of 1 is no price)
+    FixedPointNumber factor = null;
+    if (!getConversionGraph().isDefaultCurrency(pCmdtySpace, pCmdtyId)) {
+      factor = getConversionGraph().getFactor(pCmdtySpace, pCmdtyId);
+    }
+
+    LOGGER.debug(getClass().getName() + ".getLatestPrice(pCmdtySpace='" + pCmdtySpace + "', String pCmdtyId='"
+        + pCmdtyId + "')= " + factor);
+
+    return factor;
   }
 
   /**
@@ -929,6 +1317,56 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GnucashAccount> accountID2account;
 
+  /**
+   * The sorted lists of the child-accounts indexed by the id-String of their
+   * parent-account. Queries give copies of them.
+   *
+   * @see #getAccountsByParentID(String)
+   */
+  protected Map<String, List<GnucashAccount>> parentID2children;
+
+  /**
+   * The sorted list of the accounts that have no parent. Queries give copies
+   * of it.
+   *
+   * @see #getRootAccounts()
+   */
+  protected List<GnucashAccount> rootAccounts;
+
+  /**
+   * The accounts indexed by their name.
+   *
+   * @see #getAccountByName(String)
+   */
+  private NameIndex<GnucashAccount> accountsByName;
+
+  /**
+   * The accounts indexed by their qualified name. Built lazily and thrown away whenever accounts are added, removed,
+   * renamed or moved. Queries only read the trie, so it is replaced as a whole.
+   *
+   * @see #getAccountByName(String)
+   * @see #getAccountsByQualifiedNamePrefix(String)
+   * @see #qualifiedAccountNamesChanged()
+   */
+  private volatile AccountPathTrie accountPathTrie = null;
+
+  /**
+   * How many compiled regular expressions of {@link #getAccountByNameEx(String)} are kept.
+   */
+  private static final int MAX_CACHED_PATTERNS = 64;
+
+  /**
+   * The compiled regular expressions of {@link #getAccountByNameEx(String)}, the least recently used ones are
+   * dropped. Even reading changes the order of the entries, so all accesses synchronize on the map.
+   */
+  @SuppressWarnings("serial")
+  private final Map<String, Pattern> nameRegEx2pattern = new LinkedHashMap<String, Pattern>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<String, Pattern> eldest) {
+      return size() > MAX_CACHED_PATTERNS;
+    }
+  };
+
   /**
    * All transactions indexed by their unique id-String.
    *
@@ -953,6 +1391,54 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GnucashGenerInvoice> invoiceID2invoice;
 
+  /**
+   * All posted customer/vendor invoices indexed by the id-String of their post-lot.<br/>
+   * Used to link paying transaction-splits to their invoice while loading.
+   *
+   * @see GnucashGenerInvoice#getLotID()
+   * @see GnucashTransactionSplitImpl
+   */
+  protected Map<String, GnucashGenerInvoice> lotID2invoice;
+
+  /**
+   * All customer/vendor/job invoices indexed by the id-String of their (direct)
+   * owner, i.e. the customer, vendor or job.<br/>
+   *
+   * @see GnucashGenerInvoice#getOwnerId(GnucashGenerInvoice.ReadVariant)
+   */
+  protected Map<String, List<GnucashGenerInvoice>> ownerID2invoices;
+
+  /**
+   * The memoized amounts of the invoices indexed by the invoice-id.
+   *
+   * @see #invoiceAmountsChanged(String)
+   */
+  private Map<String, GnucashGenerInvoiceImpl.Amounts> invoiceID2amounts;
+
+  /**
+   * The ids of the invoices paid by a transaction indexed by the
+   * transaction-id.
+   *
+   * @see GnucashGenerInvoice#getPayingTransactions()
+   */
+  private Map<String, List<String>> payingTrxID2invoiceIDs;
+
+  /**
+   * The ids of the fully paid and of the not fully paid invoices, null until
+   * they are needed.
+   *
+   * @see #getPaidGenerInvoices()
+   * @see #getUnpaidGenerInvoices()
+   */
+  private Set<String> paidInvoiceIDs;
+  private Set<String> unpaidInvoiceIDs;
+
+  /**
+   * The ids of the invoices that have to be checked again before
+   * {@link #paidInvoiceIDs} and {@link #unpaidInvoiceIDs} can be used.
+   */
+  private final Set<String> staleInvoiceIDs = new HashSet<>();
+
   /**
    * All customer/vendor invoice entries indexed by their unique id-String.
    *
@@ -969,6 +1455,14 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GnucashGenerJob> jobID2job;
 
+  /**
+   * All jobs indexed by the id-String of their owner, i.e. the customer or
+   * vendor.
+   *
+   * @see GnucashGenerJob#getOwnerId()
+   */
+  protected Map<String, List<GnucashGenerJob>> ownerID2jobs;
+
   /**
    * All customers indexed by their unique id-String.
    *
@@ -977,6 +1471,13 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GnucashCustomer> customerID2customer;
 
+  /**
+   * The customers indexed by their name.
+   *
+   * @see #getCustomerByName(String)
+   */
+  private NameIndex<GnucashCustomer> customersByName;
+
   /**
    * All vendors indexed by their unique id-String.
    *
@@ -985,20 +1486,88 @@ public class GnucashFileImpl implements GnucashFile {
    */
   protected Map<String, GnucashVendor> vendorID2vendor;
 
+  /**
+   * The vendors indexed by their name.
+   *
+   * @see #getVendorByName(String)
+   */
+  private NameIndex<GnucashVendor> vendorsByName;
+
   /**
    * Helper to implement the {@link GnucashObject}-interface without having the same code twice.
    */
   private GnucashObjectImpl myGnucashObject;
 
   /**
-   * @return the underlying JAXB-element
+   * For how many dates and currencies the recursive balances are kept.
+   */
+  private static final int MAX_CACHED_BALANCE_KEYS = 32;
+
+  /**
+   * Recursive balances of the accounts, indexed by date and currency and then by account-ID. The balances of the
+   * least recently used dates and currencies are dropped.<br/>
+   * Accesses to this map synchronize on it. The balances of one key are a concurrent map, so that threads computing
+   * balances at the same time at worst compute the same balance twice. A thread still computing when the cache is
+   * cleared fills a map that is not reachable any more.
+   *
+   * @see SimpleAccount#getBalanceRecursive(java.time.LocalDate, String, String)
+   * @see #clearBalanceCache()
+   */
+  /**
+   * true while {@link #setRootElement(GncV2)} builds the objects of the file.
+   *
+   * @see #clearBalanceCache()
+   */
+  private volatile boolean loading = false;
+
+  @SuppressWarnings("serial")
+  private final Map<BalanceKey, Map<String, FixedPointNumber>> recursiveBalances = new LinkedHashMap<BalanceKey, Map<String, FixedPointNumber>>(
+      16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(final Map.Entry<BalanceKey, Map<String, FixedPointNumber>> eldest) {
+      return size() > MAX_CACHED_BALANCE_KEYS;
+    }
+  };
+
+  /**
+   * @param key date and currency the balances are computed for
+   * @return the (modifiable) recursive balances for that key, indexed by account-ID
+   */
+  Map<String, FixedPointNumber> getRecursiveBalanceCache(final BalanceKey key) {
+    synchronized (recursiveBalances) {
+      return recursiveBalances.computeIfAbsent(key, k -> new ConcurrentHashMap<String, FixedPointNumber>(
+          BookElementsDispatcher.mapCapacity(getNofEntriesAccountMap())));
+    }
+  }
+
+  /**
+   * For internal use only.<br/>
+   * Discards all cached recursive balances. Has to be called whenever splits, the tree of accounts or their currencies
+   * or the prices and conversion-factors change.<br/>
+   * Does nothing while the file is loaded (every split added to its account would call it), the cache is cleared
+   * once when loading has finished.
+   */
+  public void clearBalanceCache() {
+    if (loading) {
+      return;
+    }
+    synchronized (recursiveBalances) {
+      recursiveBalances.clear();
+    }
+  }
+
+  /**
+   * @return the underlying JAXB-element (without the book-elements no facade wraps if the file was loaded with
+   *         {@link LoadOptions#isStreaming()})
    */
   protected GncV2 getRootElement() {
     return rootElement;
   }
 
   /**
-   * Set the new root-element and load all accounts, transactions,... from it.
+   * Set the new root-element and load all accounts, transactions,... from it.<br/>
+   * The book-elements are walked only once (see {@link BookElementsDispatcher}), all maps are then built from the
+   * dispatched buckets. The time spent in each phase is logged on debug-level.
    *
    * @param pRootElement the new root-element
    */
@@ -1008,99 +1577,71 @@ public class GnucashFileImpl implements GnucashFile {
     }
     rootElement = pRootElement;
 
+    loading = true;
+    try {
+      loadRootElement(pRootElement);
+    }
+    finally {
+      loading = false;
+    }
+    clearBalanceCache();
+  }
+
+  private void loadRootElement(final GncV2 pRootElement) {
+    LoadTimer timer = new LoadTimer();
+
+    // sort the book-elements by type
+    // (this also checks for unknown book-elements)
+    BookElementsDispatcher dispatcher = new BookElementsDispatcher(pRootElement.getGncBook());
+    defaultCurrencyID = dispatcher.getDefaultCurrencyID();
+    timer.phase("dispatch");
+
     // fill prices
 
-    loadPriceDatabase(pRootElement);
+    loadPriceDatabase(dispatcher.priceDBs);
     if (pRootElement.getGncBook().getBookSlots() == null) {
       pRootElement.getGncBook().setBookSlots((new ObjectFactory()).createSlotsType());
     }
     myGnucashObject = new GnucashObjectImpl(pRootElement.getGncBook().getBookSlots(), this);
+    timer.phase("prices");
 
     // fill maps
-    initAccountMap(pRootElement);
+    initAccountMap(dispatcher.accounts);
+    timer.phase("accounts");
 
-    initGenerInvoiceMap(pRootElement);
+    initGenerInvoiceMap(dispatcher.invoices);
+    timer.phase("invoices");
 
     // invoiceEntries refer to invoices, therefore they must be loaded after
     // them
-    initGenerInvoiceEntryMap(pRootElement);
+    initGenerInvoiceEntryMap(dispatcher.invoiceEntries);
+    timer.phase("invoice-entries");
 
     // transactions refer to invoices, therefore they must be loaded after
     // them
-    initTransactionMap(pRootElement);
+    initTransactionMap(dispatcher.transactions, dispatcher.getSplitCount());
+    timer.phase("transactions");
 
-    initCustomerMap(pRootElement);
+    initCustomerMap(dispatcher.customers);
+    timer.phase("customers");
 
-    initVendorMap(pRootElement);
+    initVendorMap(dispatcher.vendors);
+    timer.phase("vendors");
 
-    initJobMap(pRootElement);
+    initJobMap(dispatcher.jobs);
+    timer.phase("jobs");
 
-    // check for unknown book-elements
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (bookElement instanceof GncTransaction) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncSchedxaction) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncTemplateTransactions) {
-        continue;
-      }
-      if (bookElement instanceof GncAccount) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncInvoice) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncEntry) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncJob) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncCustomer) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncVendor) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncCommodity) {
-        continue;
-      }
-      if (bookElement instanceof GncPricedb) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncTaxTable) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncVendor.VendorTerms) {
-        continue;
-      }
-      if (bookElement instanceof GncBudget) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncBillTerm) {
-        continue;
-      }
-      if (bookElement instanceof GncV2.GncBook.GncGncEmployee) {
-        continue; // TODO: create a Java-Class for employees like we have for customers
-      }
-      throw new IllegalArgumentException(
-          "<gnc:book> contains unknown element [" + bookElement.getClass().getName() + "]");
-    }
+    initTaxTableMap(dispatcher.taxTables);
+    initBillTermsMap(dispatcher.billTerms);
+    timer.phase("taxtables/billterms");
+
+    LOGGER.debug("GnucashFileImpl.setRootElement took " + timer);
   }
 
-  private void initAccountMap(final GncV2 pRootElement) {
-    accountID2account = new HashMap<>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncAccount)) {
-        continue;
-      }
-      GncAccount jwsdpAcct = (GncAccount) bookElement;
+  private void initAccountMap(final List<GncAccount> jwsdpAccts) {
+    accountID2account = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpAccts.size()));
 
+    for (GncAccount jwsdpAcct : jwsdpAccts) {
       try {
         GnucashAccount acct = createAccount(jwsdpAcct);
         accountID2account.put(acct.getId(), acct);
@@ -1110,41 +1651,66 @@ public class GnucashFileImpl implements GnucashFile {
       }
     } // for
 
+    // the children of each account
+    Map<String, List<GnucashAccount>> children = new HashMap<>();
+    List<GnucashAccount> roots = new ArrayList<>();
+    for (GnucashAccount acct : accountID2account.values()) {
+      String parentId = acct.getParentAccountId();
+      if (parentId == null) {
+        roots.add(acct);
+      } else {
+        children.computeIfAbsent(parentId, k -> new ArrayList<>()).add(acct);
+      }
+    }
+
+    parentID2children = new HashMap<>(BookElementsDispatcher.mapCapacity(children.size()));
+    for (Map.Entry<String, List<GnucashAccount>> entry : children.entrySet()) {
+      Collections.sort(entry.getValue());
+      parentID2children.put(entry.getKey(), entry.getValue());
+    }
+    Collections.sort(roots);
+    rootAccounts = roots;
+
+    accountsByName = new NameIndex<GnucashAccount>(GnucashAccount::getId, GnucashAccount::getName,
+        accountID2account.values());
+    accountPathTrie = null;
+
     LOGGER.debug("No. of entries in account map: " + accountID2account.size());
   }
 
-  private void initGenerInvoiceMap(final GncV2 pRootElement) {
-    invoiceID2invoice = new HashMap<>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncV2.GncBook.GncGncInvoice)) {
-        continue;
-      }
-      GncV2.GncBook.GncGncInvoice jwsdpInvc = (GncV2.GncBook.GncGncInvoice) bookElement;
+  private void initGenerInvoiceMap(final List<GncV2.GncBook.GncGncInvoice> jwsdpInvcs) {
+    invoiceID2invoice = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpInvcs.size()));
+    lotID2invoice = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpInvcs.size()));
+    ownerID2invoices = new HashMap<>();
+    invoiceID2amounts = new HashMap<>();
+    payingTrxID2invoiceIDs = new HashMap<>();
+    invoiceAmountsChanged();
 
+    for (GncV2.GncBook.GncGncInvoice jwsdpInvc : jwsdpInvcs) {
       try {
         GnucashGenerInvoice invc = createGenerInvoice(jwsdpInvc);
         invoiceID2invoice.put(invc.getId(), invc);
+        if (invc.getLotID() != null) {
+          lotID2invoice.put(invc.getLotID(), invc);
+        }
       } catch (RuntimeException e) {
         LOGGER.error(bundle.getMessage("Err_RuntimeExcpIgn", getClass().getName(), "initInvoiceMap", "Invoice-Entry",
             jwsdpInvc.getInvoiceId()));
       }
     } // for
 
+    // in map-order, so that equally dated invoices are sorted like in getGenerInvoices()
+    for (GnucashGenerInvoice invc : invoiceID2invoice.values()) {
+      addInvoiceToOwner(invc);
+    }
+
     LOGGER.debug("No. of entries in (generic) invoice map: " + invoiceID2invoice.size());
   }
 
-  private void initGenerInvoiceEntryMap(final GncV2 pRootElement) {
-    invoiceEntryID2invoiceEntry = new HashMap<>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncV2.GncBook.GncGncEntry)) {
-        continue;
-      }
-      GncV2.GncBook.GncGncEntry jwsdpInvcEntr = (GncV2.GncBook.GncGncEntry) bookElement;
+  private void initGenerInvoiceEntryMap(final List<GncV2.GncBook.GncGncEntry> jwsdpInvcEntrs) {
+    invoiceEntryID2invoiceEntry = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpInvcEntrs.size()));
 
+    for (GncV2.GncBook.GncGncEntry jwsdpInvcEntr : jwsdpInvcEntrs) {
       try {
         GnucashGenerInvoiceEntry invcEntr = createGenerInvoiceEntry(jwsdpInvcEntr);
         invoiceEntryID2invoiceEntry.put(invcEntr.getId(), invcEntr);
@@ -1157,17 +1723,11 @@ public class GnucashFileImpl implements GnucashFile {
     LOGGER.debug("No. of entries in (generic) invoice-entry map: " + invoiceEntryID2invoiceEntry.size());
   }
 
-  private void initTransactionMap(final GncV2 pRootElement) {
-    transactionID2transaction = new HashMap<>();
-    transactionSplitID2transactionSplit = new HashMap<>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncTransaction)) {
-        continue;
-      }
-      GncTransaction jwsdpTrx = (GncTransaction) bookElement;
+  private void initTransactionMap(final List<GncTransaction> jwsdpTrxs, final int splitCount) {
+    transactionID2transaction = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpTrxs.size()));
+    transactionSplitID2transactionSplit = new HashMap<>(BookElementsDispatcher.mapCapacity(splitCount));
 
+    for (GncTransaction jwsdpTrx : jwsdpTrxs) {
       try {
         GnucashTransactionImpl trx = createTransaction(jwsdpTrx);
         transactionID2transaction.put(trx.getId(), trx);
@@ -1183,16 +1743,10 @@ public class GnucashFileImpl implements GnucashFile {
     LOGGER.debug("No. of entries in transaction map: " + transactionID2transaction.size());
   }
 
-  private void initCustomerMap(final GncV2 pRootElement) {
-    customerID2customer = new HashMap<>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncV2.GncBook.GncGncCustomer)) {
-        continue;
-      }
-      GncV2.GncBook.GncGncCustomer jwsdpCust = (GncV2.GncBook.GncGncCustomer) bookElement;
+  private void initCustomerMap(final List<GncV2.GncBook.GncGncCustomer> jwsdpCusts) {
+    customerID2customer = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpCusts.size()));
 
+    for (GncV2.GncBook.GncGncCustomer jwsdpCust : jwsdpCusts) {
       try {
         GnucashCustomerImpl cust = createCustomer(jwsdpCust);
         customerID2customer.put(cust.getId(), cust);
@@ -1202,19 +1756,16 @@ public class GnucashFileImpl implements GnucashFile {
       }
     } // for
 
+    customersByName = new NameIndex<GnucashCustomer>(GnucashCustomer::getId, GnucashCustomer::getName,
+        customerID2customer.values());
+
     LOGGER.debug("No. of entries in customer map: " + customerID2customer.size());
   }
 
-  private void initVendorMap(final GncV2 pRootElement) {
-    vendorID2vendor = new HashMap<>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncV2.GncBook.GncGncVendor)) {
-        continue;
-      }
-      GncV2.GncBook.GncGncVendor jwsdpVend = (GncV2.GncBook.GncGncVendor) bookElement;
+  private void initVendorMap(final List<GncV2.GncBook.GncGncVendor> jwsdpVends) {
+    vendorID2vendor = new HashMap<>(BookElementsDispatcher.mapCapacity(jwsdpVends.size()));
 
+    for (GncV2.GncBook.GncGncVendor jwsdpVend : jwsdpVends) {
       try {
         GnucashVendorImpl vend = createVendor(jwsdpVend);
         vendorID2vendor.put(vend.getId(), vend);
@@ -1224,19 +1775,16 @@ public class GnucashFileImpl implements GnucashFile {
       }
     } // for
 
+    vendorsByName = new NameIndex<GnucashVendor>(GnucashVendor::getId, GnucashVendor::getName,
+        vendorID2vendor.values());
+
     LOGGER.debug("No. of entries in vendor map: " + vendorID2vendor.size());
   }
 
-  private void initJobMap(final GncV2 pRootElement) {
-    jobID2job = new HashMap<String, GnucashGenerJob>();
-
-    for (Iterator<Object> iter = pRootElement.getGncBook().getBookElements().iterator(); iter.hasNext();) {
-      Object bookElement = iter.next();
-      if (!(bookElement instanceof GncV2.GncBook.GncGncJob)) {
-        continue;
-      }
-      GncV2.GncBook.GncGncJob jwsdpJob = (GncV2.GncBook.GncGncJob) bookElement;
+  private void initJobMap(final List<GncV2.GncBook.GncGncJob> jwsdpJobs) {
+    jobID2job = new HashMap<String, GnucashGenerJob>(BookElementsDispatcher.mapCapacity(jwsdpJobs.size()));
 
+    for (GncV2.GncBook.GncGncJob jwsdpJob : jwsdpJobs) {
       try {
         GnucashGenerJobImpl job = createGenerJob(jwsdpJob);
         String jobID = job.getId();
@@ -1251,9 +1799,64 @@ public class GnucashFileImpl implements GnucashFile {
       }
     } // for
 
+    ownerID2jobs = new HashMap<>();
+    for (GnucashGenerJob job : jobID2job.values()) {
+      addJobToOwner(job);
+    }
+
     LOGGER.debug("No. of entries in (generic) job map: " + jobID2job.size());
   }
 
+  private void initTaxTableMap(final List<GncV2.GncBook.GncGncTaxTable> jwsdpTaxTabs) {
+    taxTablesById = new HashMap<String, GCshTaxTable>(BookElementsDispatcher.mapCapacity(jwsdpTaxTabs.size()));
+    taxTablesByName = null;
+
+    for (GncV2.GncBook.GncGncTaxTable jwsdpTaxTab : jwsdpTaxTabs) {
+      GCshTaxTableImpl taxTab = new GCshTaxTableImpl(jwsdpTaxTab, this);
+      taxTablesById.put(taxTab.getId(), taxTab);
+    }
+
+    LOGGER.debug("No. of entries in tax table map: " + taxTablesById.size());
+  }
+
+  private void initBillTermsMap(final List<GncV2.GncBook.GncGncBillTerm> jwsdpBllTrms) {
+    billTermsByID = new HashMap<String, GCshBillTerms>(BookElementsDispatcher.mapCapacity(jwsdpBllTrms.size()));
+    billTermsByName = null;
+
+    for (GncV2.GncBook.GncGncBillTerm jwsdpBllTrm : jwsdpBllTrms) {
+      GCshBillTermsImpl billTerms = new GCshBillTermsImpl(jwsdpBllTrm);
+      billTermsByID.put(billTerms.getId(), billTerms);
+    }
+
+    LOGGER.debug("No. of entries in bill terms map: " + billTermsByID.size());
+  }
+
+  /**
+   * Collects the time spent in the phases of {@link GnucashFileImpl#setRootElement(GncV2)}.
+   */
+  private static class LoadTimer {
+
+    private final long start = System.currentTimeMillis();
+
+    private long last = start;
+
+    private final StringBuilder phases = new StringBuilder();
+
+    /**
+     * @param name the phase that just ended
+     */
+    void phase(final String name) {
+      long now = System.currentTimeMillis();
+      phases.append(' ').append(name).append('=').append(now - last).append("ms");
+      last = now;
+    }
+
+    @Override
+    public String toString() {
+      return (last - start) + " ms (total):" + phases;
+    }
+  }
+
   // ---------------------------------------------------------------
 
   /**
@@ -1267,6 +1870,9 @@ public class GnucashFileImpl implements GnucashFile {
     if (root == null) {
       return "EUR";
     }
+    if (defaultCurrencyID != null) {
+      return defaultCurrencyID;
+    }
     for (Iterator<Object> iter = getRootElement().getGncBook().getBookElements().iterator(); iter.hasNext();) {
       Object bookElement = iter.next();
       if (!(bookElement instanceof GncAccount)) {
@@ -1274,63 +1880,63 @@ public class GnucashFileImpl implements GnucashFile {
       }
       GncAccount jwsdpAccount = (GncAccount) bookElement;
       if (jwsdpAccount.getActCommodity() != null && jwsdpAccount.getActCommodity().getCmdtySpace().equals("ISO4217")) {
-        return jwsdpAccount.getActCommodity().getCmdtyId();
+        defaultCurrencyID = jwsdpAccount.getActCommodity().getCmdtyId();
+        return defaultCurrencyID;
       }
     }
     return "EUR";
   }
 
+  /**
+   * Currency of the first account that has a currency as commodity, determined while loading (or lazily, if
+   * there was none at that time).
+   *
+   * @see #getDefaultCurrencyID()
+   */
+  protected String defaultCurrencyID = null;
+
   /**
    * priceDB Price database
    */
   GncPricedb priceDB;
 
   /**
-   * @param pRootElement the root-element of the Gnucash-file
+   * All price databases of the book (usually exactly one).
+   */
+  private List<GncPricedb> priceDBs = Collections.emptyList();
+
+  /**
+   * @param pPriceDBs the price databases found in the book
    */
-  private void loadPriceDatabase(final GncV2 pRootElement) {
+  private void loadPriceDatabase(final List<GncPricedb> pPriceDBs) {
+    priceDBs = pPriceDBs;
+    invalidatePriceIndex();
+
     boolean noPriceDB = true;
-    List<Object> bookElements = pRootElement.getGncBook().getBookElements();
-    for (Object bookElement : bookElements) {
-      if (!(bookElement instanceof GncPricedb)) {
-        continue;
-      }
+    boolean validPriceDB = false;
+    for (GncPricedb bookPriceDB : pPriceDBs) {
       noPriceDB = false;
-      priceDB = (GncPricedb) bookElement;
+      priceDB = bookPriceDB;
 
       if (priceDB.getVersion() != 1) {
         LOGGER.warn(bundle.getMessage("Warn_WrgVersPriceDb", priceDB.getVersion()));
       } else {
-        getCurrencyTable().clear();
-        getCurrencyTable().setConversionFactor("ISO4217", getDefaultCurrencyID(), new FixedPointNumber(1));
-
-        for (Iterator<Price> iter = priceDB.getPrice().iterator(); iter.hasNext();) {
-          Price price = iter.next();
-          Price.PriceCommodity comodity = price.getPriceCommodity();
-
-          // check if we already have a latest price for this comodity
-          // (=currency, fund, ...)
-          if (getCurrencyTable().getConversionFactor(comodity.getCmdtySpace(), comodity.getCmdtyId()) != null) {
-            continue;
-          }
-
-          String baseCurrency = getDefaultCurrencyID();
-          if (comodity.getCmdtySpace().equals("ISO4217") && comodity.getCmdtyId().equals(baseCurrency)) {
-            LOGGER.warn(bundle.getMessage("Warn_IgnProiceQuote", baseCurrency, baseCurrency));
-            continue;
-          }
+        validPriceDB = true;
+      }
+    }
 
-          // get the latest price in the file and insert it into
-          // our currency table
-          FixedPointNumber factor = getLatestPrice(comodity.getCmdtySpace(), comodity.getCmdtyId());
+    if (validPriceDB) {
+      getCurrencyTable().clear();
+      getCurrencyTable().setConversionFactor("ISO4217", getDefaultCurrencyID(), new FixedPointNumber(1));
 
-          if (factor != null) {
-            getCurrencyTable().setConversionFactor(comodity.getCmdtySpace(), comodity.getCmdtyId(), factor);
-          } else {
-            LOGGER.warn(bundle.getMessage("Warn_NoFactForCommodity", comodity.getCmdtySpace(), comodity.getCmdtyId()));
-          }
-        }
+      String baseCurrency = getDefaultCurrencyID();
+      if (getPriceIndex().getSeries("ISO4217", baseCurrency) != null) {
+        LOGGER.warn(bundle.getMessage("Warn_IgnProiceQuote", baseCurrency, baseCurrency));
       }
+
+      // the latest price of every commodity that can be converted to the
+      // base-currency
+      getConversionGraph().fillCurrencyTable(getCurrencyTable());
     }
 
     if (noPriceDB) {
@@ -1349,138 +1955,67 @@ public class GnucashFileImpl implements GnucashFile {
 
   /**
    * @see {@link #getLatestPrice(String, String)}
+   * @deprecated not thread-safe, use {@link #PRICE_QUOTE_DATE_FORMATTER}
    */
+  @Deprecated
   protected static final DateFormat PRICE_QUOTE_DATE_FORMAT = new SimpleDateFormat(Const.STANDARD_DATE_FORMAT);
 
   /**
-   * @param pCmdtySpace the namespace for pCmdtyId
-   * @param pCmdtyId    the currency-name
-   * @param depth       used for recursion. Allways call with '0' for aborting recursive quotes (quotes to other then
-   *                    the base- currency) we abort if the depth reached maxRecursionDepth+1.
-   * @return the latest price-quote in the gnucash-file in the default-currency
-   * @see {@link GnucashFile#getLatestPrice(String, String)}
-   * @see #getDefaultCurrencyID()
+   * Format of the time of a price-quote (immutable, so it may be shared between threads).
+   *
+   * @see {@link #getLatestPrice(String, String)}
    */
-  private FixedPointNumber getLatestPrice(final String pCmdtySpace, final String pCmdtyId, final int depth) {
-    if (pCmdtySpace == null) {
-      throw new IllegalArgumentException("null parameter 'pCmdtySpace' " + "given");
-    }
-    if (pCmdtyId == null) {
-      throw new IllegalArgumentException("null parameter 'pCmdtyId' " + "given");
-    }
-
-    Date latestDate = null;
-    FixedPointNumber latestQuote = null;
-    FixedPointNumber factor = new FixedPointNumber(1); // factor is used if the quote is not to our base-currency
-    final int maxRecursionDepth = 5;
-
-    for (Object bookElement : getRootElement().getGncBook().getBookElements()) {
-      if (!(bookElement instanceof GncPricedb)) {
-        continue;
-      }
-      GncPricedb priceDB = (GncPricedb) bookElement;
-      for (Price priceQuote : (List<Price>) priceDB.getPrice()) {
-
-        try {
-          if (priceQuote == null) {
-            LOGGER.warn(bundle.getMessage("Warn_NullPriceQuotes"));
-            continue;
-          }
-          if (priceQuote.getPriceCurrency() == null) {
-            LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "currency", priceQuote.getPriceId().getValue()));
-            continue;
-          }
-          if (priceQuote.getPriceCurrency().getCmdtyId() == null) {
-            LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "currency-id", priceQuote.getPriceId().getValue()));
-            continue;
-          }
-          if (priceQuote.getPriceCurrency().getCmdtySpace() == null) {
-            LOGGER.warn(
-                bundle.getMessage("Warn_PriceQuotesNoId", "currency-namespace", priceQuote.getPriceId().getValue()));
-            continue;
-          }
-          if (priceQuote.getPriceTime() == null) {
-            LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "timestamp", priceQuote.getPriceId().getValue()));
-            continue;
-          }
-          if (priceQuote.getPriceValue() == null) {
-            LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "value", priceQuote.getPriceId().getValue()));
-            continue;
-          }
-          /*
-           * if (priceQuote.getPriceCommodity().getCmdtySpace().equals("FUND") && priceQuote.getPriceType() == null) {
-           * LOGGER.warn("gnucash-file contains FUND-price-quotes" + " with no type id='" +
-           * priceQuote.getPriceId().getValue() + "'"); continue; }
-           */
-          if (!priceQuote.getPriceCommodity().getCmdtySpace().equals(pCmdtySpace)) {
-            continue;
-          }
-          if (!priceQuote.getPriceCommodity().getCmdtyId().equals(pCmdtyId)) {
-            continue;
-          }
-          /*
-           * if (priceQuote.getPriceCommodity().getCmdtySpace().equals("FUND") && (priceQuote.getPriceType() == null ||
-           * !priceQuote.getPriceType().equals("last") )) { LOGGER.warn("ignoring FUND-price-quote of unknown type '" +
-           * priceQuote.getPriceType() + "' expecting 'last' "); continue; }
-           */
-
-          if (!priceQuote.getPriceCurrency().getCmdtySpace().equals("ISO4217")) {
-            if (depth > maxRecursionDepth) {
-              LOGGER
-                  .warn(bundle.getMessage("Err_IgnPriceQuote", "ISO4217", priceQuote.getPriceCurrency().getCmdtyId()));
-              continue;
-            }
-            factor = getLatestPrice(priceQuote.getPriceCurrency().getCmdtySpace(),
-                priceQuote.getPriceCurrency().getCmdtyId(), depth + 1);
-          } else {
-            if (!priceQuote.getPriceCurrency().getCmdtyId().equals(getDefaultCurrencyID())) {
-              if (depth > maxRecursionDepth) {
-                LOGGER.warn(bundle.getMessage("Err_IgnPriceQuote", getDefaultCurrencyID(),
-                    priceQuote.getPriceCurrency().getCmdtyId()));
-                continue;
-              }
-              factor = getLatestPrice(priceQuote.getPriceCurrency().getCmdtySpace(),
-                  priceQuote.getPriceCurrency().getCmdtyId(), depth + 1);
-            }
-          }
-
-          Date date = PRICE_QUOTE_DATE_FORMAT.parse(priceQuote.getPriceTime().getTsDate());
+  protected static final DateTimeFormatter PRICE_QUOTE_DATE_FORMATTER = DateTimeFormatter
+      .ofPattern(Const.STANDARD_DATE_FORMAT);
 
-          if (latestDate == null || latestDate.before(date)) {
-            latestDate = date;
-            latestQuote = new FixedPointNumber(priceQuote.getPriceValue());
-            LOGGER.debug("getLatestPrice(pCmdtySpace='" + pCmdtySpace + "', String pCmdtyId='" + pCmdtyId
-                + "') converted " + latestQuote + " <= " + priceQuote.getPriceValue());
-          }
+  /**
+   * Index over all price-quotes of the book, built on first use.
+   *
+   * @see #invalidatePriceIndex()
+   */
+  private volatile PriceIndex priceIndex = null;
 
-        } catch (NumberFormatException e) {
-          LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "NumberFormatException", getClass().getName(),
-              "getLatestPrice(pCmdtySpace", pCmdtySpace, pCmdtyId));
-        } catch (ParseException e) {
-          LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "ParseException", getClass().getName(),
-              "getLatestPrice(pCmdtySpace", pCmdtySpace, pCmdtyId));
-        } catch (NullPointerException e) {
-          LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "NullPointerException", getClass().getName(),
-              "getLatestPrice(pCmdtySpace", pCmdtySpace, pCmdtyId));
-        } catch (ArithmeticException e) {
-          LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "ArithmeticException", getClass().getName(),
-              "getLatestPrice(pCmdtySpace", pCmdtySpace, pCmdtyId));
-        }
-      }
+  /**
+   * @return the index over all price-quotes of the book
+   */
+  PriceIndex getPriceIndex() {
+    PriceIndex index = priceIndex;
+    if (index == null) {
+      index = new PriceIndex(priceDBs);
+      priceIndex = index;
     }
 
-    LOGGER.debug(getClass().getName() + ".getLatestPrice(pCmdtySpace='" + pCmdtySpace + "', String pCmdtyId='"
-        + pCmdtyId + "')= " + latestQuote + " from " + latestDate);
+    return index;
+  }
 
-    if (latestQuote == null) {
-      return null;
-    }
+  /**
+   * To be called after price-quotes have been added to or removed from the price database.
+   * Also discards the cached balances, which may have been converted with the old prices.
+   */
+  protected void invalidatePriceIndex() {
+    priceIndex = null;
+    conversionGraph = null;
+    clearBalanceCache();
+  }
+
+  /**
+   * Conversion-paths of all commodities to the default-currency, built on first use.
+   *
+   * @see #invalidatePriceIndex()
+   */
+  private volatile CurrencyConversionGraph conversionGraph = null;
 
-    if (factor == null) {
-      factor = new FixedPointNumber(1);
+  /**
+   * @return the conversion-paths of all commodities to the default-currency
+   */
+  CurrencyConversionGraph getConversionGraph() {
+    CurrencyConversionGraph graph = conversionGraph;
+    if (graph == null) {
+      graph = new CurrencyConversionGraph(getPriceIndex(), getDefaultCurrencyID());
+      conversionGraph = graph;
     }
 
-    return factor.multiply(latestQuote);
+    return graph;
   }
 
   // ----------------------------
@@ -1592,54 +2127,159 @@ public class GnucashFileImpl implements GnucashFile {
 
     setFile(pFile);
 
+    BookSnapshot.Key snapshotKey = null;
+    if (loadOptions.isSnapshotCache()) {
+      snapshotKey = BookSnapshot.Key.of(pFile);
+      GncV2 snapshot = BookSnapshot.read(pFile, snapshotKey, needsCompleteRootElement());
+      if (snapshot != null) {
+        loadedFromSnapshot = true;
+        setRootElement(snapshot);
+        LOGGER.debug("GnucashFileImpl.loadFile took " + (System.currentTimeMillis() - start)
+            + " ms (total, from snapshot) ");
+        return;
+      }
+    }
+
+    if (snapshotKey == null) {
+      loadInputStream(openFile(pFile));
+    } else {
+      GncV2 root = parseInputStream(openFile(pFile));
+      // before the facades may change the document, written to the disk in the background
+      byte[] snapshot = BookSnapshot.encode(snapshotKey, root, needsCompleteRootElement());
+      setRootElement(root);
+      if (snapshot != null) {
+        BookSnapshot.writeLater(pFile, snapshotKey, snapshot);
+      }
+    }
+
+    long end = System.currentTimeMillis();
+    LOGGER.debug("GnucashFileImpl.loadFile took " + (end - start) + " ms (total) ");
+
+  }
+
+  /**
+   * @param pFile the gnucash-file, gzip-compressed or not
+   * @return the (uncompressed) gnucash-xml of the file
+   * @throws IOException on low level reading-errors
+   */
+  private InputStream openFile(final File pFile) throws IOException {
     InputStream in = new FileInputStream(pFile);
     if (pFile.getName().endsWith(".gz")) {
       in = new BufferedInputStream(in);
-      in = new GZIPInputStream(in);
-    } else {
-      // determine if it's gzipped by the magic bytes
-      byte[] magic = new byte[2];
-      in.read(magic);
-      in.close();
+      return inflate(in);
+    }
 
-      in = new FileInputStream(pFile);
-      in = new BufferedInputStream(in);
-      if (magic[0] == 31 && magic[1] == -117) {
-        in = new GZIPInputStream(in);
-      }
+    // determine if it's gzipped by the magic bytes
+    byte[] magic = new byte[2];
+    in.read(magic);
+    in.close();
+
+    in = new FileInputStream(pFile);
+    in = new BufferedInputStream(in);
+    if (magic[0] == 31 && magic[1] == -117) {
+      in = inflate(in);
+    }
+    return in;
+  }
+
+  /**
+   * @param in the gzip-compressed file
+   * @return the inflated file, inflated on a thread of its own if so configured
+   * @throws IOException on low level reading-errors
+   * @see LoadOptions#isParallelInflate()
+   */
+  private InputStream inflate(final InputStream in) throws IOException {
+    if (loadOptions.isParallelInflate()) {
+      return new PipelinedGzipInputStream(in, loadOptions.getInflaterBufferSize(), loadOptions.getInflaterQueueDepth());
     }
 
-    loadInputStream(in);
+    return new GZIPInputStream(in);
+  }
 
-    long end = System.currentTimeMillis();
-    LOGGER.debug("GnucashFileImpl.loadFile took " + (end - start) + " ms (total) ");
+  /**
+   * @return true if the document was read from the snapshot of the file instead of the xml
+   * @see LoadOptions#isSnapshotCache()
+   */
+  boolean isLoadedFromSnapshot() {
+    return loadedFromSnapshot;
+  }
 
+  /**
+   * @return how the file was loaded
+   */
+  public LoadOptions getLoadOptions() {
+    return loadOptions;
   }
 
+  /**
+   * loads the gnucash-xml from the stream and calls setRootElement.<br/>
+   * If the complete document is needed (see {@link #needsCompleteRootElement()}) it is unmarshalled in one go,
+   * otherwise it is streamed and only the elements wrapped by facades are unmarshalled (see
+   * {@link StreamingBookLoader}).
+   *
+   * @param in the (uncompressed) gnucash-xml
+   * @throws IOException on low level reading-errors
+   * @see #setRootElement(GncV2)
+   */
   protected void loadInputStream(InputStream in) throws UnsupportedEncodingException, IOException {
     long start = System.currentTimeMillis();
+    GncV2 o = parseInputStream(in);
+    long start2 = System.currentTimeMillis();
+    setRootElement(o);
+    long end = System.currentTimeMillis();
+    LOGGER.debug("GnucashFileImpl.loadFileInputStream took " + (end - start) + " ms (total) " + (start2 - start)
+        + " ms (jaxb-loading)" + (end - start2) + " ms (building facades)");
+  }
 
-    NamespaceRemovererReader reader = new NamespaceRemovererReader(new InputStreamReader(in, "utf-8"));
+  /**
+   * @param in the (uncompressed) gnucash-xml
+   * @return the unmarshalled document
+   * @throws IOException on low level reading-errors
+   * @see #loadInputStream(InputStream)
+   */
+  private GncV2 parseInputStream(final InputStream in) throws UnsupportedEncodingException, IOException {
+    boolean namespaceAware = loadOptions.isNamespaceAware();
+    Reader reader = new InputStreamReader(in, "utf-8");
+    if (!namespaceAware) {
+      reader = new NamespaceRemovererReader(reader);
+    }
     try {
 
       JAXBContext myContext = getJAXBContext();
-      Unmarshaller unmarshaller = myContext.createUnmarshaller();
-
-      GncV2 o = (GncV2) unmarshaller.unmarshal(new InputSource(new BufferedReader(reader)));
-      long start2 = System.currentTimeMillis();
-      setRootElement(o);
-      long end = System.currentTimeMillis();
-      LOGGER.debug("GnucashFileImpl.loadFileInputStream took " + (end - start) + " ms (total) " + (start2 - start)
-          + " ms (jaxb-loading)" + (end - start2) + " ms (building facades)");
+      if (needsCompleteRootElement()) {
+        Unmarshaller unmarshaller = myContext.createUnmarshaller();
+        if (namespaceAware) {
+          return (GncV2) unmarshaller
+              .unmarshal(StreamingBookLoader.createStreamReader(new BufferedReader(reader), true));
+        }
+        return (GncV2) unmarshaller.unmarshal(new InputSource(new BufferedReader(reader)));
+      }
+      return new StreamingBookLoader(myContext)
+          .load(StreamingBookLoader.createStreamReader(new BufferedReader(reader), namespaceAware));
 
     } catch (JAXBException e) {
       LOGGER.error(e.getMessage(), e);
       throw new IllegalStateException(e);
+    } catch (XMLStreamException e) {
+      LOGGER.error(e.getMessage(), e);
+      throw new IllegalStateException(e);
     } finally {
       reader.close();
     }
   }
 
+  /**
+   * A read-only file only needs the book-elements that are wrapped by facades, so it may be loaded by streaming if
+   * so configured. Files that are written back need every element of the document.
+   *
+   * @return true if the whole document has to be unmarshalled on load
+   * @see #loadInputStream(InputStream)
+   * @see LoadOptions#isStreaming()
+   */
+  protected boolean needsCompleteRootElement() {
+    return !loadOptions.isStreaming();
+  }
+
   /**
    * @see #getObjectFactory()
    */
@@ -1737,12 +2377,33 @@ public class GnucashFileImpl implements GnucashFile {
       throw new IllegalStateException("no root-element loaded");
     }
 
-    for (GnucashCustomer customer : getCustomers()) {
-      if (customer.getName().equals(name)) {
-        return customer;
-      }
-    }
-    return null;
+    return customersByName.get(name);
+  }
+
+  /**
+   * @param cust the customer to add to the index by name
+   * @see #getCustomerByName(String)
+   */
+  protected void addCustomerToNameIndex(final GnucashCustomer cust) {
+    customersByName.add(cust);
+  }
+
+  /**
+   * @param custId the id of the customer to remove from the index by name
+   * @see #getCustomerByName(String)
+   */
+  protected void removeCustomerFromNameIndex(final String custId) {
+    customersByName.remove(custId);
+  }
+
+  /**
+   * Indexes the customer under its current name if it has been renamed.
+   *
+   * @param cust the (indexed) customer that may have been renamed
+   * @see #getCustomerByName(String)
+   */
+  protected void customerNameChanged(final GnucashCustomer cust) {
+    customersByName.update(cust);
   }
 
   /**
@@ -1773,12 +2434,33 @@ public class GnucashFileImpl implements GnucashFile {
       throw new IllegalStateException("no root-element loaded");
     }
 
-    for (GnucashVendor vendor : getVendors()) {
-      if (vendor.getName().equals(name)) {
-        return vendor;
-      }
-    }
-    return null;
+    return vendorsByName.get(name);
+  }
+
+  /**
+   * @param vend the vendor to add to the index by name
+   * @see #getVendorByName(String)
+   */
+  protected void addVendorToNameIndex(final GnucashVendor vend) {
+    vendorsByName.add(vend);
+  }
+
+  /**
+   * @param vendId the id of the vendor to remove from the index by name
+   * @see #getVendorByName(String)
+   */
+  protected void removeVendorFromNameIndex(final String vendId) {
+    vendorsByName.remove(vendId);
+  }
+
+  /**
+   * Indexes the vendor under its current name if it has been renamed.
+   *
+   * @param vend the (indexed) vendor that may have been renamed
+   * @see #getVendorByName(String)
+   */
+  protected void vendorNameChanged(final GnucashVendor vend) {
+    vendorsByName.update(vend);
   }
 
   @Override
@@ -1799,11 +2481,8 @@ public class GnucashFileImpl implements GnucashFile {
 
     Collection<GnucashCustomerJob> retval = new LinkedList<GnucashCustomerJob>();
 
-    for (Object element : jobID2job.values()) {
-      GnucashGenerJob job = (GnucashGenerJob) element;
-      if (job.getOwnerId().equals(customer.getId())) {
-        retval.add((GnucashCustomerJob) job);
-      }
+    for (GnucashGenerJob job : getGenerJobsByOwnerID(customer.getId())) {
+      retval.add((GnucashCustomerJob) job);
     }
     return retval;
   }
@@ -1819,15 +2498,64 @@ public class GnucashFileImpl implements GnucashFile {
 
     Collection<GnucashVendorJob> retval = new LinkedList<GnucashVendorJob>();
 
-    for (Object element : jobID2job.values()) {
-      GnucashGenerJob job = (GnucashGenerJob) element;
-      if (job.getOwnerId().equals(vendor.getId())) {
-        retval.add((GnucashVendorJob) job);
-      }
+    for (GnucashGenerJob job : getGenerJobsByOwnerID(vendor.getId())) {
+      retval.add((GnucashVendorJob) job);
     }
     return retval;
   }
 
+  /**
+   * @param ownerId the id of a customer or vendor
+   * @return a copy of all jobs that have this owner, never null
+   */
+  Collection<GnucashGenerJob> getGenerJobsByOwnerID(final String ownerId) {
+    if (ownerID2jobs == null) {
+      throw new IllegalStateException("no root-element loaded");
+    }
+
+    List<GnucashGenerJob> jobs = ownerID2jobs.get(ownerId);
+    if (jobs == null) {
+      return Collections.emptyList();
+    }
+
+    // a copy, so that jobs may be added or moved while iterating the result
+    return new ArrayList<GnucashGenerJob>(jobs);
+  }
+
+  /**
+   * Adds the job to the index of the jobs of its owner.
+   *
+   * @param job the job to index
+   * @see #ownerID2jobs
+   */
+  protected void addJobToOwner(final GnucashGenerJob job) {
+    String ownerId = job.getOwnerId();
+    if (ownerId == null) {
+      return;
+    }
+
+    ownerID2jobs.computeIfAbsent(ownerId, k -> new ArrayList<>(2)).add(job);
+  }
+
+  /**
+   * Removes the job from the index of the jobs of the given owner.
+   *
+   * @param jobId   the id of the job
+   * @param ownerId the id of the owner the job has been indexed for
+   * @see #ownerID2jobs
+   */
+  protected void removeJobFromOwner(final String jobId, final String ownerId) {
+    List<GnucashGenerJob> jobs = ownerID2jobs.get(ownerId);
+    if (jobs == null) {
+      return;
+    }
+
+    jobs.removeIf(job -> job.getId().equals(jobId));
+    if (jobs.isEmpty()) {
+      ownerID2jobs.remove(ownerId);
+    }
+  }
+
   /**
    * @see GnucashFile#getGenerJobByID(java.lang.String)
    */
@@ -1896,6 +2624,18 @@ public class GnucashFileImpl implements GnucashFile {
     return Collections.unmodifiableCollection(transactionID2transaction.values());
   }
 
+  /**
+   * Copies all splits into columns of primitive values (off-heap). Later changes are not seen by the columns.
+   *
+   * @return the splits of all transactions as columns
+   */
+  public SplitColumns createSplitColumns() {
+    if (transactionID2transaction == null) {
+      throw new IllegalStateException("no root-element loaded");
+    }
+    return new SplitColumns(this);
+  }
+
   /**
    * replaces ':' in tag-names and attribute-names by '_' .
    */
@@ -1963,15 +2703,20 @@ public class GnucashFileImpl implements GnucashFile {
     }
 
     /**
-     * For debugging.
+     * For debugging (only filled if debug-logging was enabled when the reader was created).
      */
     public char[] debugLastTeat = new char[255];
 
     /**
-     * For debugging.
+     * For debugging (only filled if debug-logging was enabled when the reader was created).
      */
     public int debugLastReatLength = -1;
 
+    /**
+     * true if {@link #debugLastTeat} is to be filled.
+     */
+    private final boolean debugEnabled = LOGGER.isDebugEnabled();
+
     /**
      * Log the last chunk of bytes reat for debugging-purposes.
      *
@@ -1981,53 +2726,69 @@ public class GnucashFileImpl implements GnucashFile {
      */
     private void logReatBytes(final char[] cbuf, final int off, final int reat) {
       debugLastReatLength = Math.min(debugLastTeat.length, reat);
-      try {
-        System.arraycopy(cbuf, off, debugLastTeat, 0, debugLastTeat.length);
-      } catch (Exception e) {
-        e.printStackTrace();
-        LOGGER.debug("debugLastReatLength=" + debugLastReatLength + "\n" + "off=" + off + "\n" + "reat=" + reat + "\n"
-            + "cbuf.length=" + cbuf.length + "\n" + "debugLastTeat.length=" + debugLastTeat.length + "\n");
+      if (debugLastReatLength > 0) {
+        System.arraycopy(cbuf, off, debugLastTeat, 0, debugLastReatLength);
       }
     }
 
     /**
+     * Scans the chunk in runs: outside of tags only for the next '&lt;', inside of quotations only for the next quote
+     * and inside of tags for ':', quotes and '&gt;'.
+     *
      * @see java.io.Reader#read(char[], int, int)
      */
     @Override
     public int read(final char[] cbuf, final int off, final int len) throws IOException {
 
       int reat = input.read(cbuf, off, len);
+      if (reat <= 0) {
+        return reat;
+      }
+
+      if (debugEnabled) {
+        logReatBytes(cbuf, off, reat);
+      }
 
-      logReatBytes(cbuf, off, reat);
+      position += reat;
 
-      for (int i = off; i < off + reat; i++) {
-        position++;
-
-        if (isInTag && (cbuf[i] == '"' || cbuf[i] == '\'')) {
-          toggleIsInQuotation();
-        } else if (cbuf[i] == '<' && !isInQuotation) {
-          isInTag = true;
-        } else if (cbuf[i] == '>' && !isInQuotation) {
-          isInTag = false;
-        } else if (cbuf[i] == ':' && isInTag && !isInQuotation) {
-          cbuf[i] = '_';
+      final int end = off + reat;
+      int i = off;
+      while (i < end) {
+        if (!isInTag) {
+          // (never in a quotation outside of a tag)
+          while (i < end && cbuf[i] != '<') {
+            i++;
+          }
+          if (i < end) {
+            isInTag = true;
+            i++;
+          }
+        } else if (isInQuotation) {
+          while (i < end && cbuf[i] != '"' && cbuf[i] != '\'') {
+            i++;
+          }
+          if (i < end) {
+            isInQuotation = false;
+            i++;
+          }
+        } else {
+          while (i < end) {
+            char c = cbuf[i++];
+            if (c == ':') {
+              cbuf[i - 1] = '_';
+            } else if (c == '"' || c == '\'') {
+              isInQuotation = true;
+              break;
+            } else if (c == '>') {
+              isInTag = false;
+              break;
+            }
+          }
         }
-
       }
 
       return reat;
     }
-
-    /**
-     *
-     */
-    private void toggleIsInQuotation() {
-      if (isInQuotation) {
-        isInQuotation = false;
-      } else {
-        isInQuotation = true;
-      }
-    }
   }
 
   /**
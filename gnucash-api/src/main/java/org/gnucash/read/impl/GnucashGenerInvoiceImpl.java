@@ -95,6 +95,23 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 	 */
 	private NumberFormat currencyFormat = null;
 
+	/**
+	 * The amounts of an invoice that are expensive to compute, memoized until
+	 * its entries or paying transactions change.<br/>
+	 * They are kept by the file per invoice-id, so that all the instances
+	 * wrapping the same invoice share them.
+	 *
+	 * @see GnucashFileImpl#getInvoiceAmounts(String)
+	 */
+	static final class Amounts {
+		FixedPointNumber invcWithTaxes;
+		FixedPointNumber invcWithoutTaxes;
+		FixedPointNumber invcPaidWithTaxes;
+		FixedPointNumber billWithTaxes;
+		FixedPointNumber billWithoutTaxes;
+		FixedPointNumber billPaidWithTaxes;
+	}
+
 	// -----------------------------------------------------------------
 
 	/**
@@ -177,6 +194,9 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 	 */
 	public void addPayingTransaction(final GnucashTransactionSplit trans) {
 		payingTransactions.add(trans.getTransaction());
+		if (file instanceof GnucashFileImpl) {
+			((GnucashFileImpl) file).payingTransactionAdded(this, trans.getTransaction());
+		}
 	}
 
 	/**
@@ -242,6 +262,18 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 
 	// -----------------------------------------------------------------
 
+	/**
+	 * @return the memoized amounts of this invoice
+	 */
+	private Amounts getAmounts() {
+		if (file instanceof GnucashFileImpl) {
+			return ((GnucashFileImpl) file).getInvoiceAmounts(getId());
+		}
+
+		// nowhere to keep them
+		return new Amounts();
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -265,6 +297,15 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 			throw new WrongInvoiceTypeException();
 		}
 
+		Amounts amounts = getAmounts();
+		if (amounts.invcPaidWithTaxes == null) {
+			amounts.invcPaidWithTaxes = computeInvcAmountPaidWithTaxes();
+		}
+
+		return amounts.invcPaidWithTaxes.copy();
+	}
+
+	private FixedPointNumber computeInvcAmountPaidWithTaxes() {
 		FixedPointNumber takenFromReceivableAccount = new FixedPointNumber();
 		for (GnucashTransaction trx : getPayingTransactions()) {
 			for (GnucashTransactionSplit split : trx.getSplits()) {
@@ -281,21 +322,7 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 
 	@Override
 	public FixedPointNumber getInvcAmountPaidWithoutTaxes() throws WrongInvoiceTypeException {
-
-		if (!getType().equals(GnucashGenerInvoice.TYPE_CUSTOMER) &&
-				!getType().equals(GnucashGenerInvoice.TYPE_JOB)) {
-			throw new WrongInvoiceTypeException();
-		}
-
-		FixedPointNumber retval = new FixedPointNumber();
-
-		for (GnucashGenerInvoiceEntry entry : getGenerEntries()) {
-			if (entry.getType().equals(getType())) {
-				retval.add(entry.getInvcSumExclTaxes());
-			}
-		}
-
-		return retval;
+		return getInvcAmountWithoutTaxes();
 	}
 
 	/**
@@ -308,6 +335,15 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 			throw new WrongInvoiceTypeException();
 		}
 
+		Amounts amounts = getAmounts();
+		if (amounts.invcWithTaxes == null) {
+			amounts.invcWithTaxes = computeInvcAmountWithTaxes();
+		}
+
+		return amounts.invcWithTaxes.copy();
+	}
+
+	private FixedPointNumber computeInvcAmountWithTaxes() throws WrongInvoiceTypeException {
 		FixedPointNumber retval = new FixedPointNumber();
 
 		//TODO: we should sum them without taxes grouped by tax% and
@@ -333,6 +369,15 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 			throw new WrongInvoiceTypeException();
 		}
 
+		Amounts amounts = getAmounts();
+		if (amounts.invcWithoutTaxes == null) {
+			amounts.invcWithoutTaxes = computeInvcAmountWithoutTaxes();
+		}
+
+		return amounts.invcWithoutTaxes.copy();
+	}
+
+	private FixedPointNumber computeInvcAmountWithoutTaxes() throws WrongInvoiceTypeException {
 		FixedPointNumber retval = new FixedPointNumber();
 
 		for (GnucashGenerInvoiceEntry entry : getGenerEntries()) {
@@ -398,7 +443,15 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 	 * {@inheritDoc}
 	 */
 	public FixedPointNumber getBillAmountPaidWithTaxes() throws WrongInvoiceTypeException {
+		Amounts amounts = getAmounts();
+		if (amounts.billPaidWithTaxes == null) {
+			amounts.billPaidWithTaxes = computeBillAmountPaidWithTaxes();
+		}
 
+		return amounts.billPaidWithTaxes.copy();
+	}
+
+	private FixedPointNumber computeBillAmountPaidWithTaxes() {
 		FixedPointNumber takenFromPayableAccount = new FixedPointNumber();
 		for (GnucashTransaction trx : getPayingTransactions()) {
 			for (GnucashTransactionSplit split : trx.getSplits()) {
@@ -416,22 +469,22 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 	}
 
 	public FixedPointNumber getBillAmountPaidWithoutTaxes() throws WrongInvoiceTypeException {
-		FixedPointNumber retval = new FixedPointNumber();
-
-		for (GnucashGenerInvoiceEntry entry : getGenerEntries()) {
-			if (entry.getType().equals(getType())) {
-				retval.add(entry.getBillSumExclTaxes());
-			}
-		}
-
-		return retval;
+		return getBillAmountWithoutTaxes();
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public FixedPointNumber getBillAmountWithTaxes() throws WrongInvoiceTypeException {
+		Amounts amounts = getAmounts();
+		if (amounts.billWithTaxes == null) {
+			amounts.billWithTaxes = computeBillAmountWithTaxes();
+		}
+
+		return amounts.billWithTaxes.copy();
+	}
 
+	private FixedPointNumber computeBillAmountWithTaxes() throws WrongInvoiceTypeException {
 		FixedPointNumber retval = new FixedPointNumber();
 
 		//TODO: we should sum them without taxes grouped by tax% and
@@ -451,7 +504,15 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 	 * {@inheritDoc}
 	 */
 	public FixedPointNumber getBillAmountWithoutTaxes() throws WrongInvoiceTypeException {
+		Amounts amounts = getAmounts();
+		if (amounts.billWithoutTaxes == null) {
+			amounts.billWithoutTaxes = computeBillAmountWithoutTaxes();
+		}
 
+		return amounts.billWithoutTaxes.copy();
+	}
+
+	private FixedPointNumber computeBillAmountWithoutTaxes() throws WrongInvoiceTypeException {
 		FixedPointNumber retval = new FixedPointNumber();
 
 		for (GnucashGenerInvoiceEntry entry : getGenerEntries()) {
@@ -812,6 +873,9 @@ public class GnucashGenerInvoiceImpl implements GnucashGenerInvoice {
 	public void addGenerEntry(final GnucashGenerInvoiceEntry entry) {
 		if (!entries.contains(entry)) {
 			entries.add(new GnucashGenerInvoiceEntryImpl(entry));
+			if (file instanceof GnucashFileImpl) {
+				((GnucashFileImpl) file).invoiceEntryAdded(this);
+			}
 		}
 	}
 
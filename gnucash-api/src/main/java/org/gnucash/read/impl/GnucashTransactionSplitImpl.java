@@ -61,15 +61,11 @@ public class GnucashTransactionSplitImpl extends GnucashObjectImpl implements Gn
 
     String lot = getLotID();
     if (lot != null) {
-      for (GnucashGenerInvoice invc : getTransaction().getGnucashFile().getGenerInvoices()) {
-        String lotID = invc.getLotID();
-        if (lotID != null && lotID.equals(lot)) {
-          // Check if it's a payment transaction.
-          // If so, add it to the invoice's list of payment transactions.
-          if (getAction().equals(bundle.getMessage("ACTION_PAYMENT"))) {
-            invc.addPayingTransaction(this);
-          }
-        }
+      GnucashGenerInvoice invc = getTransaction().getGnucashFile().getGenerInvoiceByLotID(lot);
+      // Check if it's a payment transaction.
+      // If so, add it to the invoice's list of payment transactions.
+      if (invc != null && getAction().equals(bundle.getMessage("ACTION_PAYMENT"))) {
+        invc.addPayingTransaction(this);
       }
     }
 
@@ -337,7 +337,7 @@ public class GnucashVendorImpl extends GnucashObjectImpl implements GnucashVendo
 
     List<GnucashVendorJob> retval = new LinkedList<GnucashVendorJob>();
 
-    for (GnucashGenerJob jobGener : getGnucashFile().getGenerJobs()) {
+    for (GnucashGenerJob jobGener : getGenerJobsOfOwner()) {
       if (jobGener.getOwnerType().equals(GCshOwner.TYPE_VENDOR)) {
         GnucashVendorJob jobSpec = new GnucashVendorJobImpl(jobGener);
         if (jobSpec.getVendorId().equals(getId())) {
@@ -349,6 +349,17 @@ public class GnucashVendorImpl extends GnucashObjectImpl implements GnucashVendo
     return retval;
   }
 
+  /**
+   * @return the jobs of this vendor, if possible without looking at all jobs
+   */
+  private Collection<GnucashGenerJob> getGenerJobsOfOwner() {
+    if (getGnucashFile() instanceof GnucashFileImpl) {
+      return ((GnucashFileImpl) getGnucashFile()).getGenerJobsByOwnerID(getId());
+    }
+
+    return getGnucashFile().getGenerJobs();
+  }
+
   // -----------------------------------------------------------------
 
   @Override
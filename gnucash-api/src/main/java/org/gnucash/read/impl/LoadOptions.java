@@ -0,0 +1,154 @@
+package org.gnucash.read.impl;
+
+/**
+ * Options for loading a gnucash-file.<br/>
+ * The defaults are used by the constructors that take no options.
+ *
+ * @see GnucashFileImpl#GnucashFileImpl(java.io.File, LoadOptions)
+ */
+public class LoadOptions {
+
+  /**
+   * Default size of the buffers handed from the inflater-thread to the parser.
+   */
+  public static final int DEFAULT_INFLATER_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Default number of inflated buffers that may wait for the parser.
+   */
+  public static final int DEFAULT_INFLATER_QUEUE_DEPTH = 8;
+
+  /**
+   * true if compressed files are inflated by a thread of its own while the document is parsed.
+   */
+  private boolean parallelInflate = Runtime.getRuntime().availableProcessors() > 1;
+
+  /**
+   * @see #DEFAULT_INFLATER_BUFFER_SIZE
+   */
+  private int inflaterBufferSize = DEFAULT_INFLATER_BUFFER_SIZE;
+
+  /**
+   * @see #DEFAULT_INFLATER_QUEUE_DEPTH
+   */
+  private int inflaterQueueDepth = DEFAULT_INFLATER_QUEUE_DEPTH;
+
+  /**
+   * true if the gnucash namespaces are bound by a namespace-aware parser instead of rewriting the document.
+   */
+  private boolean namespaceAware = false;
+
+  /**
+   * true if only the book-elements wrapped by facades are unmarshalled.
+   */
+  private boolean streaming = false;
+
+  /**
+   * true if files are loaded from a binary snapshot kept next to them as long as they have not changed.
+   */
+  private boolean snapshotCache = false;
+
+  /**
+   * @return true if a file is loaded from the binary snapshot kept next to it (named like the file with ".snapshot"
+   *         appended) if the file has not changed since the snapshot was written. Whenever the xml has to be
+   *         parsed, the document is encoded right after parsing and the snapshot is written in the background
+   * @see BookSnapshot
+   */
+  public boolean isSnapshotCache() {
+    return snapshotCache;
+  }
+
+  /**
+   * @param snapshotCache true to load files from a binary snapshot kept next to them as long as they have not changed
+   */
+  public void setSnapshotCache(final boolean snapshotCache) {
+    this.snapshotCache = snapshotCache;
+  }
+
+  /**
+   * @return true if a read-only file is streamed and only the book-elements wrapped by facades (accounts,
+   *         transactions, invoices, customers, ...) are unmarshalled. The root-element of such a file lacks the
+   *         commodities, scheduled transactions, templates, budgets and employees. Writable files are always loaded
+   *         completely.
+   * @see StreamingBookLoader
+   */
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  /**
+   * @param streaming true to unmarshal only the book-elements wrapped by facades when loading a read-only file
+   */
+  public void setStreaming(final boolean streaming) {
+    this.streaming = streaming;
+  }
+
+  /**
+   * @return true if the gnucash namespaces are bound by a namespace-aware parser instead of rewriting ':' to '_' in
+   *         all tag-names of the document (and back when writing it)
+   * @see GnucashFileImpl.NamespaceRemovererReader
+   */
+  public boolean isNamespaceAware() {
+    return namespaceAware;
+  }
+
+  /**
+   * @param namespaceAware true to bind the gnucash namespaces by a namespace-aware parser instead of rewriting the
+   *                       document
+   */
+  public void setNamespaceAware(final boolean namespaceAware) {
+    this.namespaceAware = namespaceAware;
+  }
+
+  /**
+   * @return true if compressed files are inflated by a thread of its own while the document is parsed (by default
+   *         only if there is more than one processor)
+   */
+  public boolean isParallelInflate() {
+    return parallelInflate;
+  }
+
+  /**
+   * @param parallelInflate true to inflate compressed files by a thread of its own while the document is parsed
+   */
+  public void setParallelInflate(final boolean parallelInflate) {
+    this.parallelInflate = parallelInflate;
+  }
+
+  /**
+   * @return the size in bytes of the buffers handed from the inflater-thread to the parser
+   */
+  public int getInflaterBufferSize() {
+    return inflaterBufferSize;
+  }
+
+  /**
+   * @param inflaterBufferSize the size in bytes of the buffers handed from the inflater-thread to the parser
+   */
+  public void setInflaterBufferSize(final int inflaterBufferSize) {
+    if (inflaterBufferSize < 1) {
+      throw new IllegalArgumentException("buffer size must be positive: " + inflaterBufferSize);
+    }
+
+    this.inflaterBufferSize = inflaterBufferSize;
+  }
+
+  /**
+   * @return the number of inflated buffers that may wait for the parser
+   */
+  public int getInflaterQueueDepth() {
+    return inflaterQueueDepth;
+  }
+
+  /**
+   * @param inflaterQueueDepth the number of inflated buffers that may wait for the parser
+   */
+  public void setInflaterQueueDepth(final int inflaterQueueDepth) {
+    if (inflaterQueueDepth < 1) {
+      throw new IllegalArgumentException("queue depth must be positive: " + inflaterQueueDepth);
+    }
+
+    this.inflaterQueueDepth = inflaterQueueDepth;
+  }
+
+}
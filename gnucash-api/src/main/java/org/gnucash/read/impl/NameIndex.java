@@ -0,0 +1,117 @@
+package org.gnucash.read.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Index of the objects of a book (accounts, customers, vendors) by their name.<br/>
+ * Several objects may have the same name. They are kept in the order they have been added, so that a lookup gives
+ * the same object as a scan over the map they have been added from.
+ *
+ * @param <T> the type of the indexed objects
+ * @see GnucashFileImpl#getAccountByName(String)
+ * @see GnucashFileImpl#getCustomerByName(String)
+ * @see GnucashFileImpl#getVendorByName(String)
+ */
+class NameIndex<T> {
+
+  private final Function<T, String> idOf;
+  private final Function<T, String> nameOf;
+
+  /**
+   * The objects having each name, in the order they have been added.
+   */
+  private final Map<String, List<T>> name2objects;
+
+  /**
+   * The name each object has been indexed by (null if it had no name), to find it again after it has been renamed.
+   */
+  private final Map<String, String> id2name;
+
+  /**
+   * @param idOf   gives the unique id of an object
+   * @param nameOf gives the (current) name of an object
+   * @param values the objects to index
+   */
+  NameIndex(final Function<T, String> idOf, final Function<T, String> nameOf, final Iterable<? extends T> values) {
+    this.idOf = idOf;
+    this.nameOf = nameOf;
+    name2objects = new HashMap<String, List<T>>();
+    id2name = new HashMap<String, String>();
+
+    for (T obj : values) {
+      add(obj);
+    }
+  }
+
+  /**
+   * @param name the name to look for
+   * @return the first object with that name or null
+   */
+  T get(final String name) {
+    List<T> objects = name2objects.get(name);
+    if (objects == null) {
+      return null;
+    }
+
+    return objects.get(0);
+  }
+
+  /**
+   * @param obj the object to add under its current name
+   */
+  void add(final T obj) {
+    String id = idOf.apply(obj);
+    if (id2name.containsKey(id)) {
+      remove(id);
+    }
+
+    String name = nameOf.apply(obj);
+    id2name.put(id, name);
+    if (name != null) {
+      name2objects.computeIfAbsent(name, k -> new ArrayList<T>(1)).add(obj);
+    }
+  }
+
+  /**
+   * @param id the id of the object to remove
+   */
+  void remove(final String id) {
+    if (!id2name.containsKey(id)) {
+      return;
+    }
+
+    String name = id2name.remove(id);
+    if (name == null) {
+      return;
+    }
+
+    List<T> objects = name2objects.get(name);
+    objects.removeIf(obj -> idOf.apply(obj).equals(id));
+    if (objects.isEmpty()) {
+      name2objects.remove(name);
+    }
+  }
+
+  /**
+   * Indexes the object under its current name if it has been renamed. Objects not in the index are ignored.
+   *
+   * @param obj the indexed object
+   * @return true if the name has changed
+   */
+  boolean update(final T obj) {
+    String id = idOf.apply(obj);
+    if (!id2name.containsKey(id) || Objects.equals(id2name.get(id), nameOf.apply(obj))) {
+      return false;
+    }
+
+    // the object moves to the end of the objects with its new name
+    remove(id);
+    add(obj);
+    return true;
+  }
+}
@@ -0,0 +1,116 @@
+package org.gnucash.read.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+/**
+ * Presents the elements and attributes of a namespace-aware parser the way the generated JAXB-classes are bound:
+ * without a namespace, the namespace-prefix joined to the local name by '_' ("gnc:account" becomes "gnc_account").
+ * <br/>
+ * The prefix is taken from the gnucash namespace-URI ("http://www.gnucash.org/XML/gnc"), so documents that use
+ * other prefixes for the gnucash namespaces are read just the same. Unlike
+ * {@link GnucashFileImpl.NamespaceRemovererReader} this works on the parser-events, the characters of the document
+ * are not touched.
+ *
+ * @see LoadOptions#isNamespaceAware()
+ */
+class NamespacePrefixingStreamReader extends StreamReaderDelegate {
+
+  /**
+   * All gnucash namespace-URIs start with this, followed by the usual prefix.
+   */
+  static final String GNUCASH_NAMESPACE_BASE = "http://www.gnucash.org/XML/";
+
+  /**
+   * The bound names by namespace-URI and local name (there are only a few hundred of them).
+   */
+  private final Map<String, Map<String, String>> names = new HashMap<String, Map<String, String>>();
+
+  /**
+   * @param reader a namespace-aware reader
+   */
+  NamespacePrefixingStreamReader(final XMLStreamReader reader) {
+    super(reader);
+  }
+
+  /**
+   * @return the name the JAXB-classes are bound to
+   */
+  private String bind(final String namespaceURI, final String localName, final String prefix) {
+    if (namespaceURI == null || namespaceURI.isEmpty()) {
+      return localName;
+    }
+
+    Map<String, String> namesOfNamespace = names.get(namespaceURI);
+    if (namesOfNamespace == null) {
+      namesOfNamespace = new HashMap<String, String>();
+      names.put(namespaceURI, namesOfNamespace);
+    }
+
+    String name = namesOfNamespace.get(localName);
+    if (name == null) {
+      String boundPrefix = prefix;
+      if (namespaceURI.startsWith(GNUCASH_NAMESPACE_BASE)) {
+        boundPrefix = namespaceURI.substring(GNUCASH_NAMESPACE_BASE.length());
+      }
+      name = (boundPrefix == null || boundPrefix.isEmpty()) ? localName : boundPrefix + "_" + localName;
+      namesOfNamespace.put(localName, name);
+    }
+
+    return name;
+  }
+
+  @Override
+  public String getLocalName() {
+    return bind(super.getNamespaceURI(), super.getLocalName(), super.getPrefix());
+  }
+
+  @Override
+  public QName getName() {
+    return new QName(getLocalName());
+  }
+
+  @Override
+  public String getNamespaceURI() {
+    return null;
+  }
+
+  @Override
+  public String getPrefix() {
+    return null;
+  }
+
+  /**
+   * The namespace-declarations are consumed here, they are no attributes for the JAXB-classes either.
+   */
+  @Override
+  public int getNamespaceCount() {
+    return 0;
+  }
+
+  @Override
+  public String getAttributeLocalName(final int index) {
+    return bind(super.getAttributeNamespace(index), super.getAttributeLocalName(index),
+        super.getAttributePrefix(index));
+  }
+
+  @Override
+  public QName getAttributeName(final int index) {
+    return new QName(getAttributeLocalName(index));
+  }
+
+  @Override
+  public String getAttributeNamespace(final int index) {
+    return null;
+  }
+
+  @Override
+  public String getAttributePrefix(final int index) {
+    return null;
+  }
+
+}
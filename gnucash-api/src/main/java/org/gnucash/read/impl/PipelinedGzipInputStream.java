@@ -0,0 +1,206 @@
+package org.gnucash.read.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Inflates a gzip-stream on a thread of its own.<br/>
+ * The inflater-thread fills the buffers of a fixed ring and hands them to the reading thread through a bounded
+ * queue, so inflating the next part of the file overlaps with parsing the current one. Once the reader is done with
+ * a buffer it goes back to the inflater.
+ *
+ * @see LoadOptions#isParallelInflate()
+ */
+class PipelinedGzipInputStream extends InputStream {
+
+  /**
+   * One buffer of the ring.
+   */
+  private static final class Chunk {
+    private final byte[] data;
+    private int length;
+
+    /**
+     * the error that ended inflating (handed to the reader instead of data).
+     */
+    private IOException error;
+
+    private Chunk(final int size) {
+      data = new byte[size];
+    }
+  }
+
+  /**
+   * Buffers the inflater may fill.
+   */
+  private final BlockingQueue<Chunk> free;
+
+  /**
+   * Filled buffers waiting for the reader (a length of -1 marks the end of the stream).
+   */
+  private final BlockingQueue<Chunk> filled;
+
+  private final Thread inflater;
+
+  /**
+   * the buffer the reader is reading from.
+   */
+  private Chunk current = null;
+  private int position = 0;
+
+  private boolean eof = false;
+  private volatile boolean closed = false;
+
+  /**
+   * Starts inflating right away.
+   *
+   * @param compressed the gzip-compressed data (closed when done)
+   * @param bufferSize size of each buffer in bytes
+   * @param queueDepth number of filled buffers that may wait for the reader
+   */
+  PipelinedGzipInputStream(final InputStream compressed, final int bufferSize, final int queueDepth) {
+    free = new ArrayBlockingQueue<Chunk>(queueDepth + 1);
+    filled = new ArrayBlockingQueue<Chunk>(queueDepth + 1);
+    for (int i = 0; i <= queueDepth; i++) {
+      free.add(new Chunk(bufferSize));
+    }
+
+    inflater = new Thread(new Runnable() {
+      public void run() {
+        inflate(compressed, bufferSize);
+      }
+    }, "gnucash-inflater");
+    inflater.setDaemon(true);
+    inflater.start();
+  }
+
+  /**
+   * Runs on the inflater-thread.
+   */
+  private void inflate(final InputStream compressed, final int bufferSize) {
+    try {
+      try (compressed; InputStream in = new GZIPInputStream(compressed, bufferSize)) {
+        while (!closed) {
+          Chunk chunk = free.take();
+          chunk.length = readFully(in, chunk.data);
+          filled.put(chunk);
+          if (chunk.length < 0) {
+            return;
+          }
+        }
+      } catch (IOException e) {
+        Chunk chunk = free.take();
+        chunk.length = -1;
+        chunk.error = e;
+        filled.put(chunk);
+      }
+    } catch (InterruptedException e) {
+      // closed by the reader
+    }
+  }
+
+  /**
+   * @return the number of bytes read or -1 at the end of the stream
+   */
+  private static int readFully(final InputStream in, final byte[] data) throws IOException {
+    int total = 0;
+    while (total < data.length) {
+      int reat = in.read(data, total, data.length - total);
+      if (reat < 0) {
+        break;
+      }
+      total += reat;
+    }
+
+    return total == 0 ? -1 : total;
+  }
+
+  /**
+   * @return false at the end of the stream
+   */
+  private boolean fill() throws IOException {
+    if (eof) {
+      return false;
+    }
+    if (closed) {
+      throw new IOException("stream closed");
+    }
+    if (current != null && position < current.length) {
+      return true;
+    }
+
+    try {
+      if (current != null) {
+        free.put(current);
+        current = null;
+      }
+
+      Chunk chunk = filled.take();
+      if (chunk.length < 0) {
+        eof = true;
+        if (chunk.error != null) {
+          throw new IOException("inflating failed", chunk.error);
+        }
+        return false;
+      }
+
+      current = chunk;
+      position = 0;
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting for the inflater");
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (!fill()) {
+      return -1;
+    }
+
+    return current.data[position++] & 0xff;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    if (!fill()) {
+      return -1;
+    }
+
+    int count = Math.min(len, current.length - position);
+    System.arraycopy(current.data, position, b, off, count);
+    position += count;
+    return count;
+  }
+
+  @Override
+  public int available() throws IOException {
+    if (current == null || eof) {
+      return 0;
+    }
+
+    return current.length - position;
+  }
+
+  /**
+   * Stops the inflater-thread (it closes the compressed stream).
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+
+    closed = true;
+    inflater.interrupt();
+  }
+
+}
@@ -0,0 +1,327 @@
+package org.gnucash.read.impl;
+
+import java.math.BigDecimal;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gnucash.generated.GncPricedb;
+import org.gnucash.generated.Price;
+import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.numbers.FixedPointNumber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index over the price-quotes of all price databases of a book.<br/>
+ * For every commodity (namespace and id) its quotes are kept in arrays sorted by time, so the latest quote and the
+ * quote valid at a given point in time are found by binary search instead of scanning the whole price database.<br/>
+ * The index is immutable once built, so it may be queried from several threads at once.
+ *
+ * @see GnucashFileImpl#getLatestPrice(String, String)
+ * @see GnucashPriceDBImpl#getPrice(String, String, java.time.LocalDate, int)
+ */
+class PriceIndex {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PriceIndex.class);
+  private static ApplicationMessages bundle = ApplicationMessages.getInstance();
+
+  /**
+   * The quotes of one commodity, sorted by time.
+   */
+  static final class Series {
+
+    /**
+     * time of each quote in seconds since the epoch.
+     */
+    private final long[] times;
+
+    /**
+     * value of each quote in {@link #currencySpaces}/{@link #currencyIds}.
+     */
+    private final BigDecimal[] values;
+
+    private final String[] currencySpaces;
+    private final String[] currencyIds;
+
+    /**
+     * namespace and id of the commodity (the namespace of the first quote if namespaces are merged).
+     */
+    private final String cmdtySpace;
+    private final String cmdtyId;
+
+    /**
+     * @param quotes the (valid) quotes of one commodity, sorted by time
+     */
+    private Series(final List<Quote> quotes) {
+      int size = quotes.size();
+      cmdtySpace = quotes.get(0).cmdtySpace;
+      cmdtyId = quotes.get(0).cmdtyId;
+      times = new long[size];
+      values = new BigDecimal[size];
+      currencySpaces = new String[size];
+      currencyIds = new String[size];
+
+      for (int i = 0; i < size; i++) {
+        Quote quote = quotes.get(i);
+        times[i] = quote.time;
+        values[i] = quote.value;
+        currencySpaces[i] = quote.currencySpace;
+        currencyIds[i] = quote.currencyId;
+      }
+    }
+
+    /**
+     * @return the position of the latest quote
+     */
+    int indexOfLatest() {
+      return firstOfSameTime(times.length - 1);
+    }
+
+    /**
+     * @param epochSecond the point in time
+     * @return the position of the latest quote not after the given time or -1 if there is none
+     */
+    int indexAtOrBefore(final long epochSecond) {
+      int low = 0;
+      int high = times.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (times[mid] <= epochSecond) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+
+      if (low == 0) {
+        return -1;
+      }
+
+      return firstOfSameTime(low - 1);
+    }
+
+    /**
+     * If several quotes have the same time the one that comes first in the price database wins.
+     *
+     * @param pos a position
+     * @return the first position with the same time
+     */
+    private int firstOfSameTime(final int pos) {
+      int first = pos;
+      while (first > 0 && times[first - 1] == times[first]) {
+        first--;
+      }
+
+      return first;
+    }
+
+    String getCmdtySpace() {
+      return cmdtySpace;
+    }
+
+    String getCmdtyId() {
+      return cmdtyId;
+    }
+
+    long getTime(final int pos) {
+      return times[pos];
+    }
+
+    /**
+     * @param pos the position of the quote
+     * @return a new FixedPointNumber with the value of the quote
+     */
+    FixedPointNumber getValue(final int pos) {
+      return new FixedPointNumber(values[pos]);
+    }
+
+    String getCurrencySpace(final int pos) {
+      return currencySpaces[pos];
+    }
+
+    String getCurrencyId(final int pos) {
+      return currencyIds[pos];
+    }
+  }
+
+  /**
+   * A price-quote while the index is built.
+   */
+  private static final class Quote {
+    private final String cmdtySpace;
+    private final String cmdtyId;
+    private final long time;
+    private final BigDecimal value;
+    private final String currencySpace;
+    private final String currencyId;
+
+    private Quote(final String cmdtySpace, final String cmdtyId, final long time, final BigDecimal value,
+        final String currencySpace, final String currencyId) {
+      this.cmdtySpace = cmdtySpace;
+      this.cmdtyId = cmdtyId;
+      this.time = time;
+      this.value = value;
+      this.currencySpace = currencySpace;
+      this.currencyId = currencyId;
+    }
+  }
+
+  private static final Comparator<Quote> BY_TIME = new Comparator<Quote>() {
+    public int compare(final Quote q1, final Quote q2) {
+      return Long.compare(q1.time, q2.time);
+    }
+  };
+
+  /**
+   * The quotes indexed by commodity-namespace and commodity-id.
+   */
+  private final Map<String, Series> bySpaceAndId;
+
+  /**
+   * The quotes indexed by commodity-id only (all namespaces merged).
+   */
+  private final Map<String, Series> byId;
+
+  /**
+   * Parses every valid quote of the price databases once.
+   *
+   * @param priceDBs the price databases of the book
+   */
+  PriceIndex(final List<GncPricedb> priceDBs) {
+    Map<String, List<Quote>> quotesBySpaceAndId = new HashMap<String, List<Quote>>();
+    Map<String, List<Quote>> quotesById = new HashMap<String, List<Quote>>();
+
+    for (GncPricedb priceDB : priceDBs) {
+      for (Price priceQuote : priceDB.getPrice()) {
+        Quote quote = createQuote(priceQuote);
+        if (quote == null) {
+          continue;
+        }
+
+        add(quotesBySpaceAndId, key(quote.cmdtySpace, quote.cmdtyId), quote);
+        add(quotesById, quote.cmdtyId, quote);
+      }
+    }
+
+    bySpaceAndId = toSeries(quotesBySpaceAndId);
+    byId = toSeries(quotesById);
+  }
+
+  /**
+   * @param priceQuote the JAXB-quote
+   * @return the parsed quote or null if it is not usable
+   */
+  private static Quote createQuote(final Price priceQuote) {
+    if (priceQuote == null) {
+      LOGGER.warn(bundle.getMessage("Warn_NullPriceQuotes"));
+      return null;
+    }
+    if (priceQuote.getPriceCurrency() == null) {
+      LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "currency", priceQuote.getPriceId().getValue()));
+      return null;
+    }
+    if (priceQuote.getPriceCurrency().getCmdtyId() == null) {
+      LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "currency-id", priceQuote.getPriceId().getValue()));
+      return null;
+    }
+    if (priceQuote.getPriceCurrency().getCmdtySpace() == null) {
+      LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "currency-namespace", priceQuote.getPriceId().getValue()));
+      return null;
+    }
+    if (priceQuote.getPriceTime() == null) {
+      LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "timestamp", priceQuote.getPriceId().getValue()));
+      return null;
+    }
+    if (priceQuote.getPriceValue() == null) {
+      LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "value", priceQuote.getPriceId().getValue()));
+      return null;
+    }
+    if (priceQuote.getPriceCommodity() == null || priceQuote.getPriceCommodity().getCmdtySpace() == null
+        || priceQuote.getPriceCommodity().getCmdtyId() == null) {
+      LOGGER.warn(bundle.getMessage("Warn_PriceQuotesNoId", "commodity", priceQuote.getPriceId().getValue()));
+      return null;
+    }
+
+    try {
+      long time = ZonedDateTime.parse(priceQuote.getPriceTime().getTsDate(), GnucashFileImpl.PRICE_QUOTE_DATE_FORMATTER)
+          .toEpochSecond();
+      BigDecimal value = new FixedPointNumber(priceQuote.getPriceValue()).getBigDecimal();
+
+      return new Quote(priceQuote.getPriceCommodity().getCmdtySpace(), priceQuote.getPriceCommodity().getCmdtyId(),
+          time, value, priceQuote.getPriceCurrency().getCmdtySpace(), priceQuote.getPriceCurrency().getCmdtyId());
+    } catch (NumberFormatException e) {
+      LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "NumberFormatException", PriceIndex.class.getName(),
+          "PriceIndex(priceDBs", priceQuote.getPriceCommodity().getCmdtySpace(),
+          priceQuote.getPriceCommodity().getCmdtyId()));
+    } catch (DateTimeParseException e) {
+      LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "DateTimeParseException", PriceIndex.class.getName(),
+          "PriceIndex(priceDBs", priceQuote.getPriceCommodity().getCmdtySpace(),
+          priceQuote.getPriceCommodity().getCmdtyId()));
+    } catch (ArithmeticException e) {
+      LOGGER.error(bundle.getMessage("FatExcpIgnPrcQuote", "ArithmeticException", PriceIndex.class.getName(),
+          "PriceIndex(priceDBs", priceQuote.getPriceCommodity().getCmdtySpace(),
+          priceQuote.getPriceCommodity().getCmdtyId()));
+    }
+
+    return null;
+  }
+
+  private static void add(final Map<String, List<Quote>> quotes, final String key, final Quote quote) {
+    List<Quote> list = quotes.get(key);
+    if (list == null) {
+      list = new ArrayList<Quote>();
+      quotes.put(key, list);
+    }
+    list.add(quote);
+  }
+
+  private static Map<String, Series> toSeries(final Map<String, List<Quote>> quotes) {
+    Map<String, Series> retval = new HashMap<String, Series>(BookElementsDispatcher.mapCapacity(quotes.size()));
+    for (Map.Entry<String, List<Quote>> entry : quotes.entrySet()) {
+      // stable, so quotes of the same time keep the order of the price database
+      Collections.sort(entry.getValue(), BY_TIME);
+      retval.put(entry.getKey(), new Series(entry.getValue()));
+    }
+
+    return retval;
+  }
+
+  /**
+   * @param cmdtySpace the namespace of the commodity
+   * @param cmdtyId    the id of the commodity
+   * @return the key of the commodity in {@link #getAllSeries()}
+   */
+  static String key(final String cmdtySpace, final String cmdtyId) {
+    return cmdtySpace + ":" + cmdtyId;
+  }
+
+  /**
+   * @param cmdtySpace the namespace of the commodity
+   * @param cmdtyId    the id of the commodity
+   * @return the quotes of the commodity or null if there are none
+   */
+  Series getSeries(final String cmdtySpace, final String cmdtyId) {
+    return bySpaceAndId.get(key(cmdtySpace, cmdtyId));
+  }
+
+  /**
+   * @return the quotes of all commodities, indexed by {@link #key(String, String)}
+   */
+  Map<String, Series> getAllSeries() {
+    return Collections.unmodifiableMap(bySpaceAndId);
+  }
+
+  /**
+   * @param cmdtyId the id of the commodity in any namespace
+   * @return the quotes of all commodities with that id or null if there are none
+   */
+  Series getSeries(final String cmdtyId) {
+    return byId.get(cmdtyId);
+  }
+
+}
@@ -15,6 +15,7 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 import org.gnucash.currency.ComplexCurrencyTable;
 import org.gnucash.currency.CurrencyNameSpace;
@@ -235,12 +236,12 @@ public abstract class SimpleAccount implements GnucashAccount {
    */
   public GnucashTransactionSplit getLastSplitBeforeRecursive(final LocalDate date) {
 
-    GnucashTransactionSplit lastSplit = null;
+    GnucashTransactionSplit lastSplit = getLastSplitBefore(date);
 
-    for (Object element : getTransactionSplits()) {
-      GnucashTransactionSplit split = (GnucashTransactionSplit) element;
-      if (date == null
-          || split.getTransaction().getDatePosted().isBefore(ChronoZonedDateTime.from(date.atStartOfDay()))) {
+    for (Iterator iter = getSubAccounts().iterator(); iter.hasNext();) {
+      GnucashAccount account = (GnucashAccount) iter.next();
+      GnucashTransactionSplit split = account.getLastSplitBeforeRecursive(date);
+      if (split != null && split.getTransaction() != null) {
         if (lastSplit == null
             || split.getTransaction().getDatePosted().isAfter(lastSplit.getTransaction().getDatePosted())) {
           lastSplit = split;
@@ -248,10 +249,23 @@ public abstract class SimpleAccount implements GnucashAccount {
       }
     }
 
-    for (Iterator iter = getSubAccounts().iterator(); iter.hasNext();) {
-      GnucashAccount account = (GnucashAccount) iter.next();
-      GnucashTransactionSplit split = account.getLastSplitBeforeRecursive(date);
-      if (split != null && split.getTransaction() != null) {
+    return lastSplit;
+  }
+
+  /**
+   * Gets the last transaction-split of this account (not including sub-accounts) before the given date.
+   *
+   * @param date if null, the last split of all time is returned
+   * @return the last transaction-split before the given date
+   * @see #getLastSplitBeforeRecursive(LocalDate)
+   */
+  protected GnucashTransactionSplit getLastSplitBefore(final LocalDate date) {
+
+    GnucashTransactionSplit lastSplit = null;
+
+    for (GnucashTransactionSplit split : getTransactionSplits()) {
+      if (date == null
+          || split.getTransaction().getDatePosted().isBefore(date.atStartOfDay(ZoneId.systemDefault()))) {
         if (lastSplit == null
             || split.getTransaction().getDatePosted().isAfter(lastSplit.getTransaction().getDatePosted())) {
           lastSplit = split;
@@ -274,14 +288,49 @@ public abstract class SimpleAccount implements GnucashAccount {
   public FixedPointNumber getBalanceRecursive(final LocalDate date, final String currencyNameSpace,
       final String currencyName) {
 
-    FixedPointNumber retval = getBalance(date, currencyNameSpace, currencyName);
+    Map<String, FixedPointNumber> cache = getRecursiveBalanceCache(
+        BalanceKey.of(date, currencyNameSpace, currencyName));
+    if (cache == null) {
+      return computeBalanceRecursive(date, currencyNameSpace, currencyName, null);
+    }
+
+    return computeBalanceRecursive(date, currencyNameSpace, currencyName, cache).copy();
+  }
+
+  /**
+   * Computes the balance in one post-order pass over the sub-tree. Sub-accounts whose balance is already in the cache
+   * are not visited again.
+   *
+   * @param date              ignores transactions after the given date
+   * @param currencyNameSpace the currency the result shall be in
+   * @param currencyName      the currency the result shall be in
+   * @param cache             recursive balances indexed by account-ID (may be null)
+   * @return the balance including all sub-accounts (shared with the cache, do not modify)
+   */
+  private FixedPointNumber computeBalanceRecursive(final LocalDate date, final String currencyNameSpace,
+      final String currencyName, final Map<String, FixedPointNumber> cache) {
+
+    FixedPointNumber retval = (cache == null) ? null : cache.get(getId());
+    if (retval != null) {
+      return retval;
+    }
+
+    retval = getBalance(date, currencyNameSpace, currencyName);
 
     if (retval == null) {
       retval = new FixedPointNumber();
     }
 
     for (GnucashAccount child : getChildren()) {
-      retval.add(child.getBalanceRecursive(date, currencyNameSpace, currencyName));
+      if (child instanceof SimpleAccount) {
+        retval.add(((SimpleAccount) child).computeBalanceRecursive(date, currencyNameSpace, currencyName, cache));
+      } else {
+        retval.add(child.getBalanceRecursive(date, currencyNameSpace, currencyName));
+      }
+    }
+
+    if (cache != null) {
+      cache.put(getId(), retval);
     }
 
     return retval;
@@ -297,20 +346,62 @@ public abstract class SimpleAccount implements GnucashAccount {
    */
   public FixedPointNumber getBalanceRecursive(final LocalDate date, final Currency currency) {
 
-    FixedPointNumber retval = getBalance(date, currency);
+    Map<String, FixedPointNumber> cache = getRecursiveBalanceCache(BalanceKey.of(date, currency));
+    if (cache == null) {
+      return computeBalanceRecursive(date, currency, null);
+    }
+
+    return computeBalanceRecursive(date, currency, cache).copy();
+  }
+
+  /**
+   * @param date     ignores transactions after the given date
+   * @param currency the currency the result shall be in
+   * @param cache    recursive balances indexed by account-ID (may be null)
+   * @return the balance including all sub-accounts (shared with the cache, do not modify)
+   * @see #computeBalanceRecursive(LocalDate, String, String, Map)
+   */
+  private FixedPointNumber computeBalanceRecursive(final LocalDate date, final Currency currency,
+      final Map<String, FixedPointNumber> cache) {
+
+    FixedPointNumber retval = (cache == null) ? null : cache.get(getId());
+    if (retval != null) {
+      return retval;
+    }
+
+    retval = getBalance(date, currency);
 
     if (retval == null) {
       retval = new FixedPointNumber();
     }
 
-    for (Object element : getChildren()) {
-      GnucashAccount child = (GnucashAccount) element;
-      retval.add(child.getBalanceRecursive(date, currency));
+    for (GnucashAccount child : getChildren()) {
+      if (child instanceof SimpleAccount) {
+        retval.add(((SimpleAccount) child).computeBalanceRecursive(date, currency, cache));
+      } else {
+        retval.add(child.getBalanceRecursive(date, currency));
+      }
+    }
+
+    if (cache != null) {
+      cache.put(getId(), retval);
     }
 
     return retval;
   }
 
+  /**
+   * @param key date and currency the balances are computed for
+   * @return the cached recursive balances of our file indexed by account-ID or null if the file does not cache them
+   */
+  private Map<String, FixedPointNumber> getRecursiveBalanceCache(final BalanceKey key) {
+    if (!(getGnucashFile() instanceof GnucashFileImpl)) {
+      return null;
+    }
+
+    return ((GnucashFileImpl) getGnucashFile()).getRecursiveBalanceCache(key);
+  }
+
   /**
    * @return true if ${@link #hasTransactions()} is true for this or any sub-accounts
    */
@@ -0,0 +1,464 @@
+package org.gnucash.read.impl;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+import org.gnucash.generated.GncTransaction;
+import org.gnucash.numbers.FixedPointNumber;
+import org.gnucash.read.GnucashAccount;
+import org.gnucash.read.GnucashTransaction;
+import org.gnucash.read.GnucashTransactionSplit;
+
+/**
+ * The splits of a book in columns of primitive values, for analytics over many
+ * splits without an object (or a parsed amount) per split.<br/>
+ * Each split is a row. Accounts and transactions are numbered (see
+ * {@link #getAccountId(int)} and {@link #getTransactionId(int)}), amounts are
+ * kept as numerator and denominator the way gnucash writes them ("12345/100")
+ * and the date posted as epoch-day. The columns are kept off-heap in direct
+ * buffers.<br/>
+ * The columns are a copy of the splits at the time they were created, later
+ * changes of a writable file are not seen. They are immutable, so they may be
+ * read from several threads at once.
+ *
+ * @see GnucashFileImpl#createSplitColumns()
+ */
+public final class SplitColumns {
+
+  /**
+   * Number of splits (rows).
+   */
+  private final int size;
+
+  /**
+   * The ids of the accounts by their index.
+   */
+  private final String[] accountIds;
+
+  /**
+   * The indices of the accounts by their id.
+   */
+  private final Map<String, Integer> accountIndices;
+
+  /**
+   * The ids of the transactions by their index.
+   */
+  private final String[] transactionIds;
+
+  private final IntBuffer account;
+  private final IntBuffer transaction;
+  private final IntBuffer postDate;
+  private final LongBuffer valueNumerator;
+  private final LongBuffer valueDenominator;
+  private final LongBuffer quantityNumerator;
+  private final LongBuffer quantityDenominator;
+  private final ByteBuffer reconcileState;
+
+  /**
+   * The rows of each account: the rows of account a are
+   * accountRows[accountStart[a]] to accountRows[accountStart[a + 1] - 1].
+   */
+  private final IntBuffer accountStart;
+  private final IntBuffer accountRows;
+
+  /**
+   * @param file the file whose splits to copy
+   */
+  SplitColumns(final GnucashFileImpl file) {
+    accountIndices = new HashMap<String, Integer>(BookElementsDispatcher.mapCapacity(file.getAccounts().size()));
+    accountIds = new String[file.getAccounts().size()];
+    for (GnucashAccount acct : file.getAccounts()) {
+      accountIds[accountIndices.size()] = acct.getId();
+      accountIndices.put(acct.getId(), accountIndices.size());
+    }
+
+    int rows = 0;
+    for (GnucashTransaction trx : file.getTransactions()) {
+      rows = Math.addExact(rows, trx.getSplits().size());
+    }
+    size = rows;
+
+    transactionIds = new String[file.getTransactions().size()];
+    account = allocate(size, Integer.BYTES).asIntBuffer();
+    transaction = allocate(size, Integer.BYTES).asIntBuffer();
+    postDate = allocate(size, Integer.BYTES).asIntBuffer();
+    valueNumerator = allocate(size, Long.BYTES).asLongBuffer();
+    valueDenominator = allocate(size, Long.BYTES).asLongBuffer();
+    quantityNumerator = allocate(size, Long.BYTES).asLongBuffer();
+    quantityDenominator = allocate(size, Long.BYTES).asLongBuffer();
+    reconcileState = allocate(size, 1);
+
+    int[] accountCount = new int[accountIds.length + 1];
+    int trxIndex = 0;
+    int row = 0;
+    for (GnucashTransaction trx : file.getTransactions()) {
+      transactionIds[trxIndex] = trx.getId();
+      int day = (int) trx.getDatePosted().toLocalDate().toEpochDay();
+      for (GnucashTransactionSplit splt : trx.getSplits()) {
+        GncTransaction.TrnSplits.TrnSplit peer = ((GnucashTransactionSplitImpl) splt).getJwsdpPeer();
+        Integer acct = accountIndices.get(splt.getAccountID());
+        int acctIndex = acct == null ? -1 : acct;
+        account.put(row, acctIndex);
+        accountCount[acctIndex + 1]++;
+        transaction.put(row, trxIndex);
+        postDate.put(row, day);
+        valueNumerator.put(row, parseNumerator(peer.getSplitValue()));
+        valueDenominator.put(row, parseDenominator(peer.getSplitValue()));
+        quantityNumerator.put(row, parseNumerator(peer.getSplitQuantity()));
+        quantityDenominator.put(row, parseDenominator(peer.getSplitQuantity()));
+        String state = peer.getSplitReconciledState();
+        reconcileState.put(row, (byte) (state == null || state.isEmpty() ? 'n' : state.charAt(0)));
+        row++;
+      }
+      trxIndex++;
+    }
+
+    // counting sort of the rows by account (rows of unknown accounts are left out)
+    accountStart = allocate(accountIds.length + 1, Integer.BYTES).asIntBuffer();
+    int start = 0;
+    for (int a = 0; a < accountIds.length; a++) {
+      accountStart.put(a, start);
+      start += accountCount[a + 1];
+    }
+    accountStart.put(accountIds.length, start);
+    accountRows = allocate(start, Integer.BYTES).asIntBuffer();
+    int[] next = new int[accountIds.length];
+    for (int a = 0; a < accountIds.length; a++) {
+      next[a] = accountStart.get(a);
+    }
+    for (int r = 0; r < size; r++) {
+      int a = account.get(r);
+      if (a >= 0) {
+        accountRows.put(next[a]++, r);
+      }
+    }
+  }
+
+  /**
+   * @param rows        the number of values
+   * @param bytesPerRow the size of each value
+   * @return a direct buffer for the values
+   * @throws IllegalStateException if the values do not fit into one buffer (2 GB)
+   */
+  static ByteBuffer allocate(final int rows, final int bytesPerRow) {
+    int bytes;
+    try {
+      bytes = Math.multiplyExact(rows, bytesPerRow);
+    } catch (ArithmeticException e) {
+      throw new IllegalStateException(
+          "too many splits for the split-columns: " + rows + " values of " + bytesPerRow + " bytes exceed 2 GB", e);
+    }
+    return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+  }
+
+  /**
+   * @param amount an amount as gnucash writes it ("-12345/100") or a decimal
+   *               number
+   * @return the numerator
+   */
+  static long parseNumerator(final String amount) {
+    int slash = amount.indexOf('/');
+    if (slash < 0) {
+      return parseDecimal(amount).unscaledValue().longValueExact();
+    }
+    return Long.parseLong(amount, 0, slash, 10);
+  }
+
+  /**
+   * @param amount an amount as gnucash writes it ("-12345/100") or a decimal
+   *               number
+   * @return the denominator
+   */
+  static long parseDenominator(final String amount) {
+    int slash = amount.indexOf('/');
+    if (slash < 0) {
+      int scale = parseDecimal(amount).scale();
+      return scale == 0 ? 1 : BigDecimal.ONE.movePointRight(scale).longValueExact();
+    }
+    return Long.parseLong(amount, slash + 1, amount.length(), 10);
+  }
+
+  /**
+   * @return the decimal number (as {@link FixedPointNumber} parses it) with a
+   *         scale of at least 0, so that "1E+3" gives 1000/1 and not 1/1
+   */
+  private static BigDecimal parseDecimal(final String amount) {
+    BigDecimal decimal = new FixedPointNumber(amount, 0, amount.length()).getBigDecimal();
+    return decimal.scale() < 0 ? decimal.setScale(0) : decimal;
+  }
+
+  // ---------------------------------------------------------------
+
+  /**
+   * @return the number of splits (rows)
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the number of accounts
+   */
+  public int getNofAccounts() {
+    return accountIds.length;
+  }
+
+  /**
+   * @param index the index of an account
+   * @return the id of the account
+   */
+  public String getAccountId(final int index) {
+    return accountIds[index];
+  }
+
+  /**
+   * @param id the id of an account
+   * @return the index of the account or -1 if it is not known
+   */
+  public int getAccountIndex(final String id) {
+    Integer index = accountIndices.get(id);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @return the number of transactions
+   */
+  public int getNofTransactions() {
+    return transactionIds.length;
+  }
+
+  /**
+   * @param index the index of a transaction
+   * @return the id of the transaction
+   */
+  public String getTransactionId(final int index) {
+    return transactionIds[index];
+  }
+
+  /**
+   * @param row a split
+   * @return the index of its account (-1 if the account does not exist)
+   */
+  public int getAccount(final int row) {
+    return account.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return the index of its transaction
+   */
+  public int getTransaction(final int row) {
+    return transaction.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return the date its transaction was posted as epoch-day (in the time-zone
+   *         it was written with)
+   * @see java.time.LocalDate#ofEpochDay(long)
+   */
+  public int getPostDate(final int row) {
+    return postDate.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return the numerator of its value (in the currency of the transaction)
+   */
+  public long getValueNumerator(final int row) {
+    return valueNumerator.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return the denominator of its value
+   */
+  public long getValueDenominator(final int row) {
+    return valueDenominator.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return the numerator of its quantity (in the commodity of the account)
+   */
+  public long getQuantityNumerator(final int row) {
+    return quantityNumerator.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return the denominator of its quantity
+   */
+  public long getQuantityDenominator(final int row) {
+    return quantityDenominator.get(row);
+  }
+
+  /**
+   * @param row a split
+   * @return its reconcile-state ('n', 'c', 'y', 'f' or 'v')
+   */
+  public char getReconcileState(final int row) {
+    return (char) reconcileState.get(row);
+  }
+
+  // ---------------------------------------------------------------
+
+  /**
+   * @param action called with each row
+   */
+  public void forEach(final IntConsumer action) {
+    for (int row = 0; row < size; row++) {
+      action.accept(row);
+    }
+  }
+
+  /**
+   * @param acct   the index of an account
+   * @param action called with each row of the account
+   */
+  public void forEachInAccount(final int acct, final IntConsumer action) {
+    int end = accountStart.get(acct + 1);
+    for (int i = accountStart.get(acct); i < end; i++) {
+      action.accept(accountRows.get(i));
+    }
+  }
+
+  /**
+   * @param filter the rows to sum up (null for all)
+   * @return the sum of their values (see {@link Sum} for when it is exact)
+   */
+  public BigDecimal sumValues(final IntPredicate filter) {
+    return sum(filter, valueNumerator, valueDenominator);
+  }
+
+  /**
+   * @param filter the rows to sum up (null for all)
+   * @return the sum of their quantities (see {@link Sum} for when it is exact)
+   */
+  public BigDecimal sumQuantities(final IntPredicate filter) {
+    return sum(filter, quantityNumerator, quantityDenominator);
+  }
+
+  /**
+   * @param filter the rows to sum up (null for all)
+   * @return the sums of their values by the index of the account (see
+   *         {@link Sum} for when they are exact)
+   */
+  public BigDecimal[] sumValuesByAccount(final IntPredicate filter) {
+    return sumByAccount(filter, valueNumerator, valueDenominator);
+  }
+
+  /**
+   * @param filter the rows to sum up (null for all)
+   * @return the sums of their quantities by the index of the account (see
+   *         {@link Sum} for when they are exact)
+   */
+  public BigDecimal[] sumQuantitiesByAccount(final IntPredicate filter) {
+    return sumByAccount(filter, quantityNumerator, quantityDenominator);
+  }
+
+  private BigDecimal sum(final IntPredicate filter, final LongBuffer numerators, final LongBuffer denominators) {
+    Sum sum = new Sum();
+    for (int row = 0; row < size; row++) {
+      if (filter == null || filter.test(row)) {
+        sum.add(numerators.get(row), denominators.get(row));
+      }
+    }
+    return sum.get();
+  }
+
+  private BigDecimal[] sumByAccount(final IntPredicate filter, final LongBuffer numerators,
+      final LongBuffer denominators) {
+    BigDecimal[] sums = new BigDecimal[accountIds.length];
+    Sum sum = new Sum();
+    for (int a = 0; a < accountIds.length; a++) {
+      sum.reset();
+      int end = accountStart.get(a + 1);
+      for (int i = accountStart.get(a); i < end; i++) {
+        int row = accountRows.get(i);
+        if (filter == null || filter.test(row)) {
+          sum.add(numerators.get(row), denominators.get(row));
+        }
+      }
+      sums[a] = sum.get();
+    }
+    return sums;
+  }
+
+  /**
+   * Sums up fractions in a long as long as they have the same denominator (or
+   * one is a multiple of the other) and the sum does not overflow, else as
+   * BigDecimal.<br/>
+   * The sum is exact as long as every denominator gives a finite decimal
+   * fraction, which is true for the powers of ten gnucash writes. Other
+   * fractions (e.g. "1/3") are rounded to {@link MathContext#DECIMAL128}
+   * (34 digits).
+   */
+  private static final class Sum {
+
+    private long numerator;
+
+    private long denominator;
+
+    private BigDecimal big;
+
+    private Sum() {
+      reset();
+    }
+
+    private void reset() {
+      numerator = 0;
+      denominator = 1;
+      big = null;
+    }
+
+    private void add(final long num, final long denom) {
+      if (big == null) {
+        try {
+          if (denom == denominator) {
+            numerator = Math.addExact(numerator, num);
+            return;
+          }
+          if (denom > denominator && denom % denominator == 0) {
+            numerator = Math.addExact(Math.multiplyExact(numerator, denom / denominator), num);
+            denominator = denom;
+            return;
+          }
+          if (denom > 0 && denominator % denom == 0) {
+            numerator = Math.addExact(numerator, Math.multiplyExact(num, denominator / denom));
+            return;
+          }
+        } catch (ArithmeticException e) {
+          // sum it up as BigDecimal
+        }
+        big = toBigDecimal(numerator, denominator);
+      }
+      big = big.add(toBigDecimal(num, denom));
+    }
+
+    private BigDecimal get() {
+      return big == null ? toBigDecimal(numerator, denominator) : big;
+    }
+
+    private static BigDecimal toBigDecimal(final long num, final long denom) {
+      if (denom == 1) {
+        return BigDecimal.valueOf(num);
+      }
+      try {
+        return BigDecimal.valueOf(num).divide(BigDecimal.valueOf(denom));
+      } catch (ArithmeticException e) {
+        // not a finite decimal (or division by zero, which gnucash writes as 0/0)
+        return denom == 0 ? BigDecimal.ZERO : BigDecimal.valueOf(num).divide(BigDecimal.valueOf(denom),
+            MathContext.DECIMAL128);
+      }
+    }
+  }
+}
@@ -0,0 +1,237 @@
+package org.gnucash.read.impl;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.gnucash.generated.GncBudget;
+import org.gnucash.generated.GncCountData;
+import org.gnucash.generated.GncV2;
+import org.gnucash.generated.SlotsType;
+import org.gnucash.messages.ApplicationMessages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.Unmarshaller;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElements;
+
+/**
+ * Loads a gnucash-file with a StAX-parser instead of unmarshalling the whole document in one go.<br/>
+ * Only the book-elements that are wrapped by a facade (accounts, transactions, invoices, customers, ...) are
+ * unmarshalled, one at a time, while walking over the document. Each of them still becomes a complete JAXB-object
+ * (the facades keep it as their peer), only the other book-elements (scheduled transactions, templates, budgets,
+ * commodities, employees) are skipped on the parser level and never become JAXB-objects. Elements the schema does not
+ * know are skipped with a warning.<br/>
+ * The resulting root-element therefore is incomplete and must not be written back, so the writable file keeps
+ * unmarshalling the whole document. Read-only files are only streamed if so configured.
+ *
+ * @see LoadOptions#isStreaming()
+ * @see GnucashFileImpl#loadInputStream(java.io.InputStream)
+ * @see GnucashFileImpl#needsCompleteRootElement()
+ */
+class StreamingBookLoader {
+  private static final Logger LOGGER = LoggerFactory.getLogger(StreamingBookLoader.class);
+  private static ApplicationMessages bundle = ApplicationMessages.getInstance();
+
+  /**
+   * The (namespace-removed) element-names of the book-elements and the JAXB-classes they are bound to.
+   */
+  private static final Map<String, Class<?>> BOOK_ELEMENT_TYPES = createBookElementTypes();
+
+  /**
+   * Book-elements no facade looks at.
+   */
+  private static final Set<Class<?>> SKIPPED_TYPES = new HashSet<Class<?>>(Arrays.<Class<?>>asList(
+      GncV2.GncBook.GncCommodity.class,
+      GncV2.GncBook.GncSchedxaction.class,
+      GncV2.GncBook.GncTemplateTransactions.class,
+      GncV2.GncBook.GncGncEmployee.class,
+      GncBudget.class));
+
+  private final Unmarshaller unmarshaller;
+
+  /**
+   * Number of book-elements skipped in the last load.
+   */
+  private int skipped = 0;
+
+  /**
+   * @param context the JAXB-context of the generated classes
+   * @throws JAXBException if no unmarshaller can be created
+   */
+  StreamingBookLoader(final JAXBContext context) throws JAXBException {
+    unmarshaller = context.createUnmarshaller();
+  }
+
+  /**
+   * Reads the mapping of book-element names to classes from the JAXB-annotations of {@link GncV2.GncBook}, so it can
+   * not get out of sync with the generated code.
+   */
+  private static Map<String, Class<?>> createBookElementTypes() {
+    Map<String, Class<?>> types = new HashMap<String, Class<?>>();
+    try {
+      XmlElements elements = GncV2.GncBook.class.getDeclaredField("bookElements").getAnnotation(XmlElements.class);
+      for (XmlElement element : elements.value()) {
+        types.put(element.name(), element.type());
+      }
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException("generated class GncV2.GncBook has no field 'bookElements'", e);
+    }
+
+    return Collections.unmodifiableMap(types);
+  }
+
+  /**
+   * @param reader the document with namespaces removed
+   * @return the root-element with all book-elements that are wrapped by facades
+   * @throws XMLStreamException on parsing-errors
+   * @throws JAXBException      on errors binding an element
+   */
+  GncV2 load(final Reader reader) throws XMLStreamException, JAXBException {
+    return load(createStreamReader(reader, false));
+  }
+
+  /**
+   * @param reader         the document
+   * @param namespaceAware false if the namespaces have been removed from the document already, true to bind the
+   *                       gnucash namespaces on the parser level (see {@link NamespacePrefixingStreamReader})
+   * @return a StAX-reader presenting the names the way the JAXB-classes are bound
+   * @throws XMLStreamException if the reader can not be created
+   */
+  static XMLStreamReader createStreamReader(final Reader reader, final boolean namespaceAware)
+      throws XMLStreamException {
+    XMLInputFactory factory = XMLInputFactory.newFactory();
+    factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+    factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+    XMLStreamReader xsr = factory.createXMLStreamReader(reader);
+    if (namespaceAware) {
+      return new NamespacePrefixingStreamReader(xsr);
+    }
+
+    return xsr;
+  }
+
+  /**
+   * @param xsr the document (closed when done)
+   * @return the root-element with all book-elements that are wrapped by facades
+   * @throws XMLStreamException on parsing-errors
+   * @throws JAXBException      on errors binding an element
+   */
+  GncV2 load(final XMLStreamReader xsr) throws XMLStreamException, JAXBException {
+    try {
+      skipped = 0;
+
+      xsr.nextTag();
+      if (!"gnc-v2".equals(xsr.getLocalName())) {
+        throw new IllegalArgumentException("not a gnucash-file, root-element is <" + xsr.getLocalName() + ">");
+      }
+
+      GncV2 root = new GncV2();
+      xsr.next();
+      while (moveToChild(xsr)) {
+        String name = xsr.getLocalName();
+        if (name.equals("gnc_count-data")) {
+          root.setGncCountData(unmarshaller.unmarshal(xsr, GncCountData.class).getValue());
+        } else if (name.equals("gnc_book")) {
+          root.setGncBook(loadBook(xsr));
+        } else {
+          LOGGER.warn("load: " + bundle.getMessage("Warn_UnknownElement", name, "gnc-v2"));
+          skipElement(xsr);
+        }
+      }
+
+      LOGGER.debug("load: skipped " + skipped + " book-elements that are not wrapped by a facade");
+      return root;
+    } finally {
+      xsr.close();
+    }
+  }
+
+  /**
+   * @param xsr positioned on the &lt;gnc:book&gt; start-element, afterwards positioned behind its end-element
+   */
+  private GncV2.GncBook loadBook(final XMLStreamReader xsr) throws XMLStreamException, JAXBException {
+    GncV2.GncBook book = new GncV2.GncBook();
+    book.setVersion(xsr.getAttributeValue(null, "version"));
+
+    xsr.next();
+    while (moveToChild(xsr)) {
+      String name = xsr.getLocalName();
+      if (name.equals("book_id")) {
+        book.setBookId(unmarshaller.unmarshal(xsr, GncV2.GncBook.BookId.class).getValue());
+      } else if (name.equals("book_slots")) {
+        book.setBookSlots(unmarshaller.unmarshal(xsr, SlotsType.class).getValue());
+      } else if (name.equals("gnc_count-data")) {
+        book.getGncCountData().add(unmarshaller.unmarshal(xsr, GncCountData.class).getValue());
+      } else {
+        Class<?> type = BOOK_ELEMENT_TYPES.get(name);
+        if (type == null) {
+          LOGGER.warn("loadBook: " + bundle.getMessage("Warn_UnknownElement", name, "gnc:book"));
+          skipElement(xsr);
+        } else if (SKIPPED_TYPES.contains(type)) {
+          skipped++;
+          skipElement(xsr);
+        } else {
+          book.getBookElements().add(unmarshaller.unmarshal(xsr, type).getValue());
+        }
+      }
+    }
+
+    return book;
+  }
+
+  /**
+   * Moves to the start-element of the next child of the current element. If there is none, moves behind the
+   * end-element of the current element.
+   *
+   * @return true if positioned on the start-element of a child
+   */
+  private static boolean moveToChild(final XMLStreamReader xsr) throws XMLStreamException {
+    while (true) {
+      int event = xsr.getEventType();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        return true;
+      }
+      if (event == XMLStreamConstants.END_ELEMENT || event == XMLStreamConstants.END_DOCUMENT) {
+        if (xsr.hasNext()) {
+          xsr.next();
+        }
+        return false;
+      }
+      xsr.next();
+    }
+  }
+
+  /**
+   * @param xsr positioned on a start-element, afterwards positioned behind the matching end-element
+   */
+  private static void skipElement(final XMLStreamReader xsr) throws XMLStreamException {
+    int depth = 0;
+    while (true) {
+      int event = xsr.next();
+      if (event == XMLStreamConstants.START_ELEMENT) {
+        depth++;
+      } else if (event == XMLStreamConstants.END_ELEMENT) {
+        if (depth == 0) {
+          xsr.next();
+          return;
+        }
+        depth--;
+      }
+    }
+  }
+
+}
@@ -47,16 +47,12 @@ public class GnucashCustomerInvoiceImpl extends GnucashGenerInvoiceImpl
       for (GnucashTransactionSplit splt : trx.getSplits()) {
         String lot = splt.getLotID();
         if (lot != null) {
-          for (GnucashGenerInvoice invc1 : splt.getTransaction().getGnucashFile().getGenerInvoices()) {
-            String lotID = invc1.getLotID();
-            if (lotID != null && lotID.equals(lot)) {
-              // Check if it's a payment transaction.
-              // If so, add it to the invoice's list of payment transactions.
-              if (splt.getAction().equals(bundle.getMessage("ACTION_PAYMENT"))) {
-                addPayingTransaction(splt);
-              }
-            } // if lotID
-          } // for invc
+          GnucashGenerInvoice invc1 = splt.getTransaction().getGnucashFile().getGenerInvoiceByLotID(lot);
+          // Check if it's a payment transaction.
+          // If so, add it to the invoice's list of payment transactions.
+          if (invc1 != null && splt.getAction().equals(bundle.getMessage("ACTION_PAYMENT"))) {
+            addPayingTransaction(splt);
+          }
         } // if lot
       } // for splt
     } // for trx
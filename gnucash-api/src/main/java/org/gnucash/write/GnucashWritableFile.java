@@ -61,6 +61,17 @@ public interface GnucashWritableFile extends GnucashFile, GnucashWritableObject
 	 */
 	void writeFile(File file) throws IOException;
 
+	/**
+	 * Write the data to the given file, replacing it if it exists. The data is
+	 * written to a temporary file in the same directory, forced to the disk and
+	 * then renamed to the given file, so the file is never left half-written.
+	 * That file becomes the new file returned by {@link GnucashFile#getFile()}
+	 *
+	 * @param file the file to write to
+	 * @throws IOException on io-problems
+	 */
+	void saveFile(File file) throws IOException;
+
 	/**
 	 * @return the underlying JAXB-element
 	 */
@@ -0,0 +1,385 @@
+package org.gnucash.write.impl;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.datatype.DatatypeConstants;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+import org.gnucash.generated.GncV2;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import jakarta.xml.bind.JAXBElement;
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.MarshalException;
+import jakarta.xml.bind.annotation.XmlAttribute;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElementRef;
+import jakarta.xml.bind.annotation.XmlElementRefs;
+import jakarta.xml.bind.annotation.XmlElements;
+import jakarta.xml.bind.annotation.XmlRootElement;
+import jakarta.xml.bind.annotation.XmlSchemaType;
+import jakarta.xml.bind.annotation.XmlTransient;
+import jakarta.xml.bind.annotation.XmlType;
+import jakarta.xml.bind.annotation.XmlValue;
+
+/**
+ * Gives the events JAXB gives when marshalling a {@link GncV2}-document to a
+ * content-handler, without the JAXB-marshaller.<br/>
+ * For each generated class the properties are read once from the
+ * JAXB-annotations (in the order of {@link XmlType#propOrder()}, the names
+ * interned), so writing a document is a walk over its fields. The generated
+ * classes only use elements, element-references (mixed or not), attributes and
+ * values of strings, numbers and dates; other annotations (adapters for
+ * anything but strings, nil-elements) are not supported.
+ *
+ * @see WritingContentHandler
+ */
+class BookSerializer {
+
+	/**
+	 * The properties of each class (in the order they are written).
+	 */
+	private static final Map<Class<?>, Property[]> PROPERTIES = new ConcurrentHashMap<Class<?>, Property[]>();
+
+	/**
+	 * What a property is mapped to.
+	 */
+	private enum Kind {
+		ATTRIBUTE, VALUE, ELEMENT, ELEMENTS, ELEMENT_REF
+	}
+
+	/**
+	 * A field of a generated class and how it is written.
+	 */
+	private static final class Property {
+
+		private final Field field;
+
+		private final Kind kind;
+
+		/**
+		 * The name of the attribute or element (null for values and references).
+		 */
+		private final String name;
+
+		/**
+		 * The element-names by the classes of the values ({@link Kind#ELEMENTS}).
+		 */
+		private final Map<Class<?>, String> names;
+
+		/**
+		 * true for a date written without the time.
+		 */
+		private final boolean date;
+
+		private Property(final Field pfield, final Kind pkind, final String pname, final Map<Class<?>, String> pnames) {
+			field = pfield;
+			kind = pkind;
+			name = pname == null ? null : pname.intern();
+			names = pnames;
+			XmlSchemaType schemaType = field.getAnnotation(XmlSchemaType.class);
+			date = schemaType != null && schemaType.name().equals("date");
+			field.setAccessible(true);
+		}
+	}
+
+	/**
+	 * Where the events go to.
+	 */
+	private final ContentHandler handler;
+
+	private final AttributesImpl attributes = new AttributesImpl();
+
+	private char[] chars = new char[256];
+
+	/**
+	 * @param phandler where the events go to
+	 */
+	BookSerializer(final ContentHandler phandler) {
+		handler = phandler;
+	}
+
+	/**
+	 * Writes the document, like {@link jakarta.xml.bind.Marshaller#marshal(Object, ContentHandler)}.
+	 *
+	 * @param root the document
+	 * @throws JAXBException if the handler fails
+	 */
+	void write(final GncV2 root) throws JAXBException {
+		try {
+			handler.startDocument();
+			writeElement(getRootElementName(GncV2.class), root);
+			handler.endDocument();
+		}
+		catch (SAXException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	/**
+	 * Writes one element, like a marshaller with
+	 * {@link jakarta.xml.bind.Marshaller#JAXB_FRAGMENT} set does.
+	 *
+	 * @param name  the name of the element
+	 * @param value the JAXB-object written as the element
+	 * @throws JAXBException if the handler fails
+	 */
+	void writeFragment(final String name, final Object value) throws JAXBException {
+		try {
+			writeElement(name, value);
+		}
+		catch (SAXException e) {
+			throw new MarshalException(e);
+		}
+	}
+
+	private void writeElement(final String name, final Object element) throws SAXException {
+		Object value = element instanceof JAXBElement ? ((JAXBElement<?>) element).getValue() : element;
+
+		attributes.clear();
+		if (value != null && !isLeaf(value)) {
+			for (Property property : getProperties(value.getClass())) {
+				if (property.kind == Kind.ATTRIBUTE) {
+					Object attribute = get(property, value);
+					if (attribute != null) {
+						attributes.addAttribute("", property.name, property.name, "CDATA", print(attribute, property.date));
+					}
+				}
+			}
+		}
+
+		handler.startElement("", name, name, attributes);
+		if (value != null) {
+			if (isLeaf(value)) {
+				text(print(value, false));
+			} else {
+				writeContent(value);
+			}
+		}
+		handler.endElement("", name, name);
+	}
+
+	private void writeContent(final Object bean) throws SAXException {
+		for (Property property : getProperties(bean.getClass())) {
+			if (property.kind == Kind.ATTRIBUTE) {
+				continue;
+			}
+
+			Object value = get(property, bean);
+			if (value == null) {
+				continue;
+			}
+			if (property.kind == Kind.VALUE) {
+				text(print(value, property.date));
+			} else if (value instanceof List) {
+				for (Object item : (List<?>) value) {
+					if (item != null) {
+						writeValue(property, item);
+					}
+				}
+			} else {
+				writeValue(property, value);
+			}
+		}
+	}
+
+	/**
+	 * @param value a value (an item of the list) of an element-property
+	 */
+	private void writeValue(final Property property, final Object value) throws SAXException {
+		switch (property.kind) {
+		case ELEMENT:
+			if (isLeaf(value)) {
+				handler.startElement("", property.name, property.name, clearedAttributes());
+				text(print(value, property.date));
+				handler.endElement("", property.name, property.name);
+			} else {
+				writeElement(property.name, value);
+			}
+			break;
+		case ELEMENTS:
+			String name = property.names.get(value.getClass());
+			if (name == null) {
+				throw new IllegalStateException("no element for " + value.getClass().getName() + " in " + property.field);
+			}
+			writeElement(name, value);
+			break;
+		case ELEMENT_REF:
+			if (value instanceof String) {
+				// mixed content
+				text((String) value);
+			} else if (value instanceof JAXBElement) {
+				JAXBElement<?> element = (JAXBElement<?>) value;
+				writeElement(element.getName().getLocalPart().intern(), element);
+			} else {
+				writeElement(getRootElementName(value.getClass()), value);
+			}
+			break;
+		default:
+			throw new IllegalStateException(property.kind.toString());
+		}
+	}
+
+	private AttributesImpl clearedAttributes() {
+		attributes.clear();
+		return attributes;
+	}
+
+	private void text(final String text) throws SAXException {
+		int length = text.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
+		}
+		text.getChars(0, length, chars, 0);
+		handler.characters(chars, 0, length);
+	}
+
+	private static Object get(final Property property, final Object bean) {
+		try {
+			return property.field.get(bean);
+		}
+		catch (IllegalAccessException e) {
+			throw new IllegalStateException("cannot read " + property.field, e);
+		}
+	}
+
+	private static boolean isLeaf(final Object value) {
+		return value instanceof String || value instanceof Number || value instanceof Boolean
+				|| value instanceof XMLGregorianCalendar;
+	}
+
+	/**
+	 * @param date true for a date written without the time
+	 * @return the text JAXB writes for the value
+	 */
+	private static String print(final Object value, final boolean date) {
+		if (value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).toPlainString();
+		}
+		if (value instanceof XMLGregorianCalendar) {
+			XMLGregorianCalendar cal = (XMLGregorianCalendar) value;
+			if (date) {
+				cal = (XMLGregorianCalendar) cal.clone();
+				cal.setTime(DatatypeConstants.FIELD_UNDEFINED, DatatypeConstants.FIELD_UNDEFINED,
+						DatatypeConstants.FIELD_UNDEFINED, null);
+			}
+			return cal.toXMLFormat();
+		}
+
+		return value.toString();
+	}
+
+	private static String getRootElementName(final Class<?> clazz) {
+		XmlRootElement root = clazz.getAnnotation(XmlRootElement.class);
+		if (root == null) {
+			throw new IllegalStateException(clazz.getName() + " is no root-element");
+		}
+		return root.name();
+	}
+
+	/**
+	 * @return the properties of the class and its super-classes in the order
+	 *         JAXB writes them
+	 */
+	private static Property[] getProperties(final Class<?> clazz) {
+		Property[] properties = PROPERTIES.get(clazz);
+		if (properties == null) {
+			properties = createProperties(clazz);
+			PROPERTIES.put(clazz, properties);
+		}
+		return properties;
+	}
+
+	private static Property[] createProperties(final Class<?> clazz) {
+		List<Property> properties = new ArrayList<Property>();
+		if (clazz.getSuperclass() != null && clazz.getSuperclass() != Object.class) {
+			properties.addAll(Arrays.asList(getProperties(clazz.getSuperclass())));
+		}
+
+		List<Field> fields = new ArrayList<Field>();
+		for (Field field : clazz.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers()) && !Modifier.isTransient(field.getModifiers())
+					&& !field.isAnnotationPresent(XmlTransient.class) && !field.isSynthetic()) {
+				fields.add(field);
+			}
+		}
+
+		// (no propOrder or an empty one: in the order the fields are declared)
+		XmlType type = clazz.getAnnotation(XmlType.class);
+		if (type != null && type.propOrder().length > 0
+				&& !(type.propOrder().length == 1 && type.propOrder()[0].isEmpty())) {
+			// the attributes (not in the propOrder) first, then the rest in the propOrder
+			List<Field> ordered = new ArrayList<Field>();
+			for (Field field : fields) {
+				if (field.isAnnotationPresent(XmlAttribute.class)) {
+					ordered.add(field);
+				}
+			}
+			for (String name : type.propOrder()) {
+				ordered.add(getField(fields, name));
+			}
+			fields = ordered;
+		}
+
+		for (Field field : fields) {
+			properties.add(createProperty(field));
+		}
+
+		return properties.toArray(new Property[properties.size()]);
+	}
+
+	private static Field getField(final List<Field> fields, final String name) {
+		for (Field field : fields) {
+			if (field.getName().equals(name)) {
+				return field;
+			}
+		}
+		throw new IllegalStateException("no field '" + name + "' in the propOrder");
+	}
+
+	private static Property createProperty(final Field field) {
+		XmlAttribute attribute = field.getAnnotation(XmlAttribute.class);
+		if (attribute != null) {
+			return new Property(field, Kind.ATTRIBUTE, getName(attribute.name(), field), null);
+		}
+
+		if (field.isAnnotationPresent(XmlValue.class)) {
+			return new Property(field, Kind.VALUE, null, null);
+		}
+
+		XmlElements elements = field.getAnnotation(XmlElements.class);
+		if (elements != null) {
+			Map<Class<?>, String> names = new HashMap<Class<?>, String>();
+			for (XmlElement element : elements.value()) {
+				names.put(element.type(), element.name().intern());
+			}
+			return new Property(field, Kind.ELEMENTS, null, Collections.unmodifiableMap(names));
+		}
+
+		if (field.isAnnotationPresent(XmlElementRef.class) || field.isAnnotationPresent(XmlElementRefs.class)) {
+			return new Property(field, Kind.ELEMENT_REF, null, null);
+		}
+
+		XmlElement element = field.getAnnotation(XmlElement.class);
+		return new Property(field, Kind.ELEMENT, getName(element == null ? "##default" : element.name(), field),
+				null);
+	}
+
+	private static String getName(final String name, final Field field) {
+		return name.equals("##default") ? field.getName() : name;
+	}
+}
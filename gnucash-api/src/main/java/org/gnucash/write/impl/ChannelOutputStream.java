@@ -0,0 +1,98 @@
+package org.gnucash.write.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Writes to a FileChannel through a direct buffer, so the data is copied to
+ * the file without going through a heap-buffer of the channel.<br/>
+ * {@link #close()} forces the data to the disk before the channel is closed.
+ *
+ * @see GnucashWritableFileImpl#saveFile(java.io.File)
+ */
+class ChannelOutputStream extends OutputStream {
+
+	/**
+	 * Default size of the direct buffer.
+	 */
+	static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+	/**
+	 * where to write to.
+	 */
+	private final FileChannel channel;
+
+	private ByteBuffer buffer;
+
+	/**
+	 * @param pchannel   where to write to
+	 * @param bufferSize the size of the direct buffer
+	 */
+	ChannelOutputStream(final FileChannel pchannel, final int bufferSize) {
+		channel = pchannel;
+		buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		if (!buffer.hasRemaining()) {
+			flushBuffer();
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		int done = 0;
+		while (done < len) {
+			if (!buffer.hasRemaining()) {
+				flushBuffer();
+			}
+			int n = Math.min(len - done, buffer.remaining());
+			buffer.put(b, off + done, n);
+			done += n;
+		}
+	}
+
+	private void flushBuffer() throws IOException {
+		buffer.flip();
+		try {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		finally {
+			// back to filling it, keeping what has not been written
+			buffer.compact();
+		}
+	}
+
+	@Override
+	public void flush() throws IOException {
+		flushBuffer();
+	}
+
+	/**
+	 * Writes the buffer, forces the file (data and meta-data) to the disk and
+	 * closes the channel.
+	 *
+	 * @see FileChannel#force(boolean)
+	 */
+	@Override
+	public void close() throws IOException {
+		if (buffer == null) {
+			return;
+		}
+
+		try {
+			flushBuffer();
+			channel.force(true);
+		}
+		finally {
+			buffer = null;
+			channel.close();
+		}
+	}
+}
@@ -145,7 +145,7 @@ public class GnucashWritableAccountImpl extends GnucashAccountImpl implements Gn
 		}
 
 		file.getRootElement().getGncBook().getBookElements().add(account);
-		file.setModified(true);
+		file.setBookElementModified(account);
 		return account;
 	}
 
@@ -184,7 +184,8 @@ public class GnucashWritableAccountImpl extends GnucashAccountImpl implements Gn
 		setIsModified();
 		// <<insert code to react further to this change here
 		PropertyChangeSupport propertyChangeFirer = getPropertyChangeSupport();
-		if (propertyChangeFirer != null) {
+		if (propertyChangeFirer != null && propertyChangeFirer.hasListeners("transactionSplits")) {
+			// do not sort the splits for nobody
 			propertyChangeFirer.firePropertyChange("transactionSplits", null, getTransactionSplits());
 		}
 	}
@@ -193,8 +194,8 @@ public class GnucashWritableAccountImpl extends GnucashAccountImpl implements Gn
 	 * @param impl the split to remove
 	 */
 	protected void removeTransactionSplit(final GnucashWritableTransactionSplit impl) {
+		removeSplit(impl);
 		List transactionSplits = getTransactionSplits();
-		transactionSplits.remove(impl);
 
 		setIsModified();
 		// <<insert code to react further to this change here
@@ -292,11 +293,11 @@ public class GnucashWritableAccountImpl extends GnucashAccountImpl implements Gn
 	}
 
 	/**
-	 * set getWritableFile().setModified(true).
+	 * set getWritableFile().setBookElementModified(getJwsdpPeer()).
 	 */
 	protected void setIsModified() {
-		GnucashWritableFile writableFile = getWritableGnucashFile();
-		writableFile.setModified(true);
+		GnucashWritableFileImpl writableFile = (GnucashWritableFileImpl) getWritableGnucashFile();
+		writableFile.setBookElementModified(getJwsdpPeer());
 	}
 
 	/**
@@ -439,8 +440,15 @@ public class GnucashWritableAccountImpl extends GnucashAccountImpl implements Gn
 	 */
 	public void setParentAccount(final GnucashAccount prntAcct) {
 
+		String oldPrntAcctId = getParentAccountId();
 		if (prntAcct == null) {
+			GnucashAccount oldPrntAcct = getParentAccount();
 			this.getJwsdpPeer().setActParent(null);
+			((GnucashWritableFileImpl) getWritableGnucashFile()).accountParentChanged(this, oldPrntAcctId);
+			setIsModified();
+			if (oldPrntAcct != null && getPropertyChangeSupport() != null) {
+				getPropertyChangeSupport().firePropertyChange("parentAccount", oldPrntAcct, null);
+			}
 			return;
 		}
 
@@ -466,6 +474,7 @@ public class GnucashWritableAccountImpl extends GnucashAccountImpl implements Gn
 			oldPrntAcct = getParentAccount();
 			parent.setValue(prntAcct.getId());
 		}
+		((GnucashWritableFileImpl) getWritableGnucashFile()).accountParentChanged(this, oldPrntAcctId);
 		setIsModified();
 
 		// <<insert code to react further to this change here
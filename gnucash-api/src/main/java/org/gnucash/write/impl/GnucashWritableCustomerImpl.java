@@ -142,7 +142,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 		cust.setCustActive(1);
 
 		file.getRootElement().getGncBook().getBookElements().add(cust);
-		file.setModified(true);
+		file.setBookElementModified(cust);
 
 		return cust;
 	}
@@ -172,7 +172,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 	public void setNumber(final String number) {
 		String oldNumber = getNumber();
 		getJwsdpPeer().setCustId(number);
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -186,7 +186,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 	public void setDiscount(final FixedPointNumber discount) {
 		FixedPointNumber oldDiscount = getDiscount();
 		getJwsdpPeer().setCustDiscount(discount.toGnucashString());
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -200,7 +200,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 	public void setCredit(final FixedPointNumber credit) {
 		FixedPointNumber oldCredit = getDiscount();
 		getJwsdpPeer().setCustCredit(credit.toGnucashString());
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -215,7 +215,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 	public void setNotes(final String notes) {
 		String oldNotes = getNotes();
 		getJwsdpPeer().setCustNotes(notes);
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -229,7 +229,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 	public void setName(final String name) {
 		String oldName = getName();
 		getJwsdpPeer().setCustName(name);
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -295,7 +295,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 			getJwsdpPeer().getCustAddr().setAddrPhone(adr.getTel());
 		}
 
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 	}
 
 	/**
@@ -321,7 +321,7 @@ public class GnucashWritableCustomerImpl extends GnucashCustomerImpl implements
 			getJwsdpPeer().getCustShipaddr().setAddrFax(adr.getFax());
 			getJwsdpPeer().getCustShipaddr().setAddrPhone(adr.getTel());
 		}
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 	}
 
 }
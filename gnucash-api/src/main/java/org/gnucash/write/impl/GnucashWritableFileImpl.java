@@ -1,22 +1,39 @@
 package org.gnucash.write.impl;
 
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.AclFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Date;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
 import java.util.zip.GZIPOutputStream;
 
 import org.gnucash.Const;
@@ -44,6 +61,7 @@ import org.gnucash.read.impl.GnucashCustomerImpl;
 import org.gnucash.read.impl.GnucashFileImpl;
 import org.gnucash.read.impl.GnucashTransactionImpl;
 import org.gnucash.read.impl.GnucashVendorImpl;
+import org.gnucash.read.impl.LoadOptions;
 import org.gnucash.read.impl.auxiliary.GCshTaxTableImpl;
 import org.gnucash.read.impl.auxiliary.WrongOwnerTypeException;
 import org.gnucash.read.impl.spec.GnucashCustomerJobImpl;
@@ -69,9 +87,7 @@ import org.gnucash.write.spec.GnucashWritableVendorJob;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import jakarta.xml.bind.JAXBContext;
 import jakarta.xml.bind.JAXBException;
-import jakarta.xml.bind.Marshaller;
 
 /**
  * Implementation of GnucashWritableFile based on GnucashFileImpl.
@@ -93,6 +109,40 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	 */
 	private long lastWriteTime = 0;
 
+	/**
+	 * @see {@link #isNamespaceAware()}
+	 */
+	private boolean namespaceAware = getLoadOptions().isNamespaceAware();
+
+	/**
+	 * Remembers the written text of the book-elements if saving incrementally,
+	 * else null.
+	 *
+	 * @see #setIncrementalSave(boolean)
+	 */
+	private IncrementalBookWriter incrementalWriter = null;
+
+	/**
+	 * The pool compressing the blocks of compressed files, null to compress them
+	 * in the writing thread.
+	 *
+	 * @see #setParallelCompression(boolean)
+	 */
+	private ForkJoinPool compressionPool = null;
+
+	/**
+	 * @see #getNofBackups()
+	 */
+	private int nofBackups = 0;
+
+	/**
+	 * The suffix of the backups kept by {@link #saveFile(File)}: the time of the
+	 * save as ".YYYYMMDDHHMMSS", like GnuCash names its backups.
+	 */
+	private static final Pattern BACKUP_SUFFIX = Pattern.compile("\\.[0-9]{14}");
+
+	private static final DateTimeFormatter BACKUP_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
 	// ---------------------------------------------------------------
 
 	/**
@@ -101,11 +151,77 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	 */
 	public GnucashWritableFileImpl(final File file) throws IOException {
 		super(file);
+		listenToAccounts();
+		setModified(false);
+	}
+
+	/**
+	 * @param file    the file to load
+	 * @param options how to load the file
+	 * @throws IOException on bsic io-problems such as a FileNotFoundException
+	 */
+	public GnucashWritableFileImpl(final File file, final LoadOptions options) throws IOException {
+		super(file, options);
+		listenToAccounts();
 		setModified(false);
 	}
 
 	public GnucashWritableFileImpl(final InputStream is) throws IOException {
 		super(is);
+		listenToAccounts();
+	}
+
+	/**
+	 * @param is      the (uncompressed) gnucash-xml to load
+	 * @param options how to load the file
+	 * @throws IOException on low level reading-errors
+	 */
+	public GnucashWritableFileImpl(final InputStream is, final LoadOptions options) throws IOException {
+		super(is, options);
+		listenToAccounts();
+	}
+
+	/**
+	 * We write the whole document back, so every element of it has to be loaded.
+	 *
+	 * @see GnucashFileImpl#needsCompleteRootElement()
+	 */
+	@Override
+	protected boolean needsCompleteRootElement() {
+		return true;
+	}
+
+	// ---------------------------------------------------------------
+
+	/**
+	 * Discards the cached recursive balances whenever an account changes
+	 * in a way that affects its own balance or the ones of its ancestors.
+	 * (Changes of the splits themselves are reported by
+	 * {@link GnucashAccountImpl#transactionSplitsChanged()}.)
+	 */
+	private final PropertyChangeListener balanceCacheInvalidator = new PropertyChangeListener() {
+		public void propertyChange(final PropertyChangeEvent evt) {
+			clearBalanceCache();
+		}
+	};
+
+	/**
+	 * Registers our listeners at all accounts. Done after loading, so
+	 * that building up the accounts does not fire any events.
+	 */
+	private void listenToAccounts() {
+		for (GnucashAccount account : getAccounts()) {
+			listenToAccount((GnucashWritableAccount) account);
+		}
+	}
+
+	/**
+	 * @param account the account to register our listeners at
+	 */
+	private void listenToAccount(final GnucashWritableAccount account) {
+		account.addPropertyChangeListener("parentAccount", balanceCacheInvalidator);
+		account.addPropertyChangeListener("currencyID", balanceCacheInvalidator);
+		account.addPropertyChangeListener("currencyNameSpace", balanceCacheInvalidator);
 	}
 
 	// ---------------------------------------------------------------
@@ -134,16 +250,194 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		return lastWriteTime;
 	}
 
+	/**
+	 * @return true if the namespace-prefixes are written by the content-handler
+	 *         instead of rewriting the written text (by default the way the file
+	 *         was loaded)
+	 * @see LoadOptions#isNamespaceAware()
+	 */
+	public boolean isNamespaceAware() {
+		return namespaceAware;
+	}
+
+	/**
+	 * @param pNamespaceAware true to write the namespace-prefixes by the
+	 *                        content-handler instead of rewriting the written
+	 *                        text
+	 */
+	public void setNamespaceAware(final boolean pNamespaceAware) {
+		namespaceAware = pNamespaceAware;
+	}
+
 	/**
 	 * @param pModified true if this file has been modified false after save, load or undo of changes
 	 */
 	public void setModified(final boolean pModified) {
 		// boolean old = this.modified;
 		modified = pModified;
+		if (pModified) {
+			// we do not know what changed
+			if (incrementalWriter != null) {
+				incrementalWriter.setAllModified();
+			}
+		}
 		// if (propertyChange != null)
 		// propertyChange.firePropertyChange("modified", old, pModified);
 	}
 
+	/**
+	 * Like {@link #setModified(boolean)} but only this book-element has to be
+	 * written again by an incremental save.
+	 *
+	 * @param bookElement the book-element (JAXB-object) that was added, modified
+	 *                    or removed
+	 * @see #setIncrementalSave(boolean)
+	 */
+	public void setBookElementModified(final Object bookElement) {
+		modified = true;
+		if (incrementalWriter != null) {
+			incrementalWriter.setModified(bookElement);
+		}
+
+		if (bookElement instanceof GncAccount) {
+			// the name may have changed
+			GnucashAccount acct = accountID2account.get(((GncAccount) bookElement).getActId().getValue());
+			if (acct != null && accountNameChanged(acct)) {
+				// keep the siblings sorted by name
+				sortAccountChildren(acct.getParentAccountId());
+			}
+		} else if (bookElement instanceof GncV2.GncBook.GncGncCustomer) {
+			GnucashCustomer cust = customerID2customer
+					.get(((GncV2.GncBook.GncGncCustomer) bookElement).getCustGuid().getValue());
+			if (cust != null) {
+				customerNameChanged(cust);
+			}
+		} else if (bookElement instanceof GncV2.GncBook.GncGncVendor) {
+			GnucashVendor vend = vendorID2vendor
+					.get(((GncV2.GncBook.GncGncVendor) bookElement).getVendorGuid().getValue());
+			if (vend != null) {
+				vendorNameChanged(vend);
+			}
+		}
+
+		// only the invoices whose amounts may have changed
+		if (bookElement instanceof GncTransaction) {
+			transactionAmountsChanged(((GncTransaction) bookElement).getTrnId().getValue());
+		} else if (bookElement instanceof GncV2.GncBook.GncGncInvoice) {
+			invoiceAmountsChanged(((GncV2.GncBook.GncGncInvoice) bookElement).getInvoiceGuid().getValue());
+		} else if (bookElement instanceof GncV2.GncBook.GncGncEntry) {
+			GncV2.GncBook.GncGncEntry entry = (GncV2.GncBook.GncGncEntry) bookElement;
+			if (entry.getEntryInvoice() != null) {
+				invoiceAmountsChanged(entry.getEntryInvoice().getValue());
+			}
+			if (entry.getEntryBill() != null) {
+				invoiceAmountsChanged(entry.getEntryBill().getValue());
+			}
+		}
+	}
+
+	/**
+	 * Indexes the invoice by the lot it has been posted to. Has to be called
+	 * whenever the post-lot of an invoice is set or changed, so that payments
+	 * find their invoice.
+	 *
+	 * @param invcId   the id of the invoice
+	 * @param oldLotID the post-lot the invoice had before (null if none)
+	 * @see #getGenerInvoiceByLotID(String)
+	 */
+	protected void invoicePostLotChanged(final String invcId, final String oldLotID) {
+		if (oldLotID != null) {
+			GnucashGenerInvoice old = lotID2invoice.get(oldLotID);
+			if (old != null && old.getId().equals(invcId)) {
+				lotID2invoice.remove(oldLotID);
+			}
+		}
+
+		// invoices being created are indexed when they are complete
+		GnucashGenerInvoice invc = invoiceID2invoice.get(invcId);
+		if (invc != null && invc.getLotID() != null) {
+			lotID2invoice.put(invc.getLotID(), invc);
+		}
+	}
+
+	/**
+	 * @return true if saving writes only the book-elements modified since the
+	 *         last save and copies the text of the others
+	 */
+	public boolean isIncrementalSave() {
+		return incrementalWriter != null;
+	}
+
+	/**
+	 * Saving incrementally keeps where the text of each book-element is in the
+	 * file written last and copies the text of the unmodified ones from there.
+	 * The first save after switching it on writes all of them, and so does a
+	 * save after the file written last has been changed by someone else. Changes to the
+	 * JAXB-objects that are not made by the writable objects of this file have
+	 * to be reported by {@link #setBookElementModified(Object)} or
+	 * {@link #setModified(boolean)}.
+	 *
+	 * @param incrementalSave true to write only the book-elements modified since
+	 *                        the last save
+	 */
+	public void setIncrementalSave(final boolean incrementalSave) {
+		if (!incrementalSave) {
+			incrementalWriter = null;
+		} else if (incrementalWriter == null) {
+			incrementalWriter = new IncrementalBookWriter();
+		}
+	}
+
+	/**
+	 * @return true if compressed files (name ending in ".gz") are compressed in
+	 *         blocks by the common ForkJoinPool
+	 */
+	public boolean isParallelCompression() {
+		return compressionPool != null;
+	}
+
+	/**
+	 * The blocks are compressed independently and concatenated into one
+	 * standard gzip-stream, so the file can be read by any gzip-reader and by
+	 * gnucash itself. It is a little bigger than when compressed in one go.
+	 *
+	 * @param parallelCompression true to compress in blocks by the common
+	 *                            ForkJoinPool
+	 * @see ParallelGzipOutputStream
+	 */
+	public void setParallelCompression(final boolean parallelCompression) {
+		compressionPool = parallelCompression ? ForkJoinPool.commonPool() : null;
+	}
+
+	/**
+	 * @return the number of backups {@link #saveFile(File)} keeps of the file it
+	 *         replaces (one per save, named like the file with
+	 *         ".YYYYMMDDHHMMSS" appended), 0 for none
+	 */
+	public int getNofBackups() {
+		return nofBackups;
+	}
+
+	/**
+	 * @param pNofBackups the number of backups {@link #saveFile(File)} keeps, 0
+	 *                    for none
+	 * @see #getNofBackups()
+	 */
+	public void setNofBackups(final int pNofBackups) {
+		if (pNofBackups < 0) {
+			throw new IllegalArgumentException("number of backups must not be negative: " + pNofBackups);
+		}
+
+		nofBackups = pNofBackups;
+	}
+
+	/**
+	 * @return the number of book-elements marshalled by the last incremental save
+	 */
+	int getNofBookElementsWritten() {
+		return incrementalWriter == null ? 0 : incrementalWriter.getMarshalled();
+	}
+
 	/**
 	 * Keep the count-data up to date. The count-data is re-calculated on the fly before writing but we like to keep our
 	 * internal model up-to-date just to be defensive. <gnc:count-data cd:type="commodity">2</gnc:count-data>
@@ -169,7 +463,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 
 			if (type.equals(gncCountData.getCdType())) {
 				gncCountData.setValue(gncCountData.getValue() + 1);
-				setModified(true);
+				modified = true; // the count-data is always written again
 			}
 		}
 	}
@@ -199,7 +493,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 
 			if (type.equals(gncCountData.getCdType())) {
 				gncCountData.setValue(gncCountData.getValue() - 1);
-				setModified(true);
+				modified = true; // the count-data is always written again
 			}
 		}
 	}
@@ -227,7 +521,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		for (GncCountData gncCountData : l) {
 			if (type.equals(gncCountData.getCdType())) {
 				gncCountData.setValue(count);
-				setModified(true);
+				modified = true; // the count-data is always written again
 			}
 		}
 	}
@@ -370,31 +664,224 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 
 		OutputStream out = new FileOutputStream(file);
 		out = new BufferedOutputStream(out);
-		if (file.getName().endsWith(".gz")) {
-			out = new GZIPOutputStream(out);
+		try {
+			writeDocument(compress(out, file));
+			if (incrementalWriter != null) {
+				incrementalWriter.setWritten(file);
+			}
+			setModified(false);
 		}
+		catch (JAXBException e) {
+			LOGGER.error(e.getMessage(), e);
+		}
+
+		lastWriteTime = Math.max(file.lastModified(), System.currentTimeMillis());
+	}
+
+	/**
+	 * @see GnucashWritableFile#saveFile(java.io.File)
+	 */
+	public void saveFile(final File file) throws IOException {
+
+		if (file == null) {
+			throw new IllegalArgumentException("null not allowed for field this file");
+		}
+
+		checkAllCountData();
 
-		Writer writer = new NamespaceAdderWriter(new OutputStreamWriter(out, Const.CODEPAGE));
+		Path target = file.getAbsoluteFile().toPath();
+		Path dir = target.getParent();
+		Path temp = createTempFile(dir, target.getFileName().toString());
+		boolean done = false;
 		try {
-			JAXBContext context = getJAXBContext();
-			Marshaller marsh = context.createMarshaller();
+			if (Files.exists(target)) {
+				copyPermissions(target, temp);
+			}
+
+			FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				// closing forces the data to the disk
+				writeDocument(compress(new ChannelOutputStream(channel, ChannelOutputStream.DEFAULT_BUFFER_SIZE), file));
+			}
+			catch (JAXBException e) {
+				throw new IOException("cannot write '" + file.getAbsolutePath() + "'", e);
+			}
+			finally {
+				channel.close();
+			}
+
+			if (nofBackups > 0 && Files.exists(target)) {
+				backup(target);
+			}
+
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException e) {
+				LOGGER.warn("saveFile: cannot replace '" + target + "' atomically", e);
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			syncDirectory(dir);
+			done = true;
+			if (incrementalWriter != null) {
+				incrementalWriter.setWritten(target.toFile());
+			}
+		}
+		finally {
+			if (!done) {
+				Files.deleteIfExists(temp);
+			}
+		}
+
+		setFile(file);
+		setModified(false);
+		lastWriteTime = Math.max(file.lastModified(), System.currentTimeMillis());
+	}
+
+	/**
+	 * Creates an empty file next to the target to write to. Unlike
+	 * {@link Files#createTempFile(Path, String, String, java.nio.file.attribute.FileAttribute...)}
+	 * the file gets the default permissions of the platform (the umask), not
+	 * only read and write for the owner, as a new book would get.
+	 */
+	private static Path createTempFile(final Path dir, final String name) throws IOException {
+		while (true) {
+			Path temp = dir.resolve("." + name + "." + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+			try {
+				return Files.createFile(temp);
+			}
+			catch (FileAlreadyExistsException e) {
+				// try the next name
+			}
+		}
+	}
+
+	/**
+	 * Gives the new file the permissions, owner and group of the file it
+	 * replaces, so that a save does not change who may read the book. The owner
+	 * and group can only be kept if the process may change them, else the file
+	 * belongs to the user saving it.
+	 */
+	private static void copyPermissions(final Path target, final Path temp) {
+		PosixFileAttributeView targetView = Files.getFileAttributeView(target, PosixFileAttributeView.class);
+		PosixFileAttributeView tempView = Files.getFileAttributeView(temp, PosixFileAttributeView.class);
+		if (targetView != null && tempView != null) {
+			try {
+				PosixFileAttributes attrs = targetView.readAttributes();
+				try {
+					tempView.setGroup(attrs.group());
+					tempView.setOwner(attrs.owner());
+				}
+				catch (IOException e) {
+					LOGGER.debug("copyPermissions: cannot keep owner and group of '" + target + "'", e);
+				}
+				// after changing the owner, which may clear some bits
+				tempView.setPermissions(attrs.permissions());
+			}
+			catch (IOException e) {
+				LOGGER.warn("copyPermissions: cannot keep the permissions of '" + target + "'", e);
+			}
+		}
+
+		AclFileAttributeView targetAcl = Files.getFileAttributeView(target, AclFileAttributeView.class);
+		AclFileAttributeView tempAcl = Files.getFileAttributeView(temp, AclFileAttributeView.class);
+		if (targetAcl != null && tempAcl != null) {
+			try {
+				tempAcl.setAcl(targetAcl.getAcl());
+			}
+			catch (IOException e) {
+				LOGGER.warn("copyPermissions: cannot keep the access control list of '" + target + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * @return the stream compressing what is written to out if the name of the
+	 *         file ends with ".gz", else out
+	 */
+	OutputStream compress(final OutputStream out, final File file) throws IOException {
+		if (!file.getName().endsWith(".gz")) {
+			return out;
+		}
+
+		if (compressionPool != null) {
+			return new ParallelGzipOutputStream(out, compressionPool);
+		}
+
+		return new GZIPOutputStream(out);
+	}
 
+	/**
+	 * Writes the document and closes the stream.
+	 */
+	private void writeDocument(final OutputStream out) throws IOException, JAXBException {
+		long start = System.nanoTime();
+		Utf8XmlOutput xmlOut = new Utf8XmlOutput(out);
+		try {
 			// marsh.marshal(getRootElement(), writer);
 			// marsh.marshal(getRootElement(), new PrintWriter( System.out ) );
-			marsh.marshal(getRootElement(), new WritingContentHandler(writer));
+			if (incrementalWriter != null) {
+				incrementalWriter.write(getRootElement(), xmlOut, namespaceAware);
+			} else {
+				new BookSerializer(new WritingContentHandler(xmlOut, namespaceAware)).write(getRootElement());
+			}
+		}
+		finally {
+			xmlOut.close();
+		}
 
-			setModified(false);
+		if (LOGGER.isTraceEnabled()) {
+			long nanos = Math.max(1, System.nanoTime() - start);
+			LOGGER.trace("writeDocument: wrote " + xmlOut.getBytesWritten() + " bytes of xml in " + (nanos / 1000000)
+					+ " ms (" + (xmlOut.getBytesWritten() * 1000 / nanos) + " MB/s)");
 		}
-		catch (JAXBException e) {
-			LOGGER.error(e.getMessage(), e);
+	}
+
+	/**
+	 * Keeps the file as it is now as a backup named after the current time
+	 * (replacing a backup made in the same second) and deletes the oldest backups
+	 * if there are more than {@link #getNofBackups()}.
+	 */
+	private void backup(final Path target) throws IOException {
+		String name = target.getFileName().toString();
+		Path backup = target.resolveSibling(name + "." + LocalDateTime.now().format(BACKUP_TIMESTAMP));
+		Files.deleteIfExists(backup);
+		try {
+			// the original stays in place until it is replaced
+			Files.createLink(backup, target);
 		}
-		finally {
-			writer.close();
+		catch (IOException | UnsupportedOperationException e) {
+			Files.copy(target, backup, StandardCopyOption.COPY_ATTRIBUTES);
+		}
+
+		List<Path> backups = new ArrayList<Path>();
+		try (DirectoryStream<Path> siblings = Files.newDirectoryStream(target.getParent(), name + ".*")) {
+			for (Path sibling : siblings) {
+				if (BACKUP_SUFFIX.matcher(sibling.getFileName().toString().substring(name.length())).matches()) {
+					backups.add(sibling);
+				}
+			}
 		}
 
-		out.close();
+		// the times sort like the names
+		Collections.sort(backups, Collections.reverseOrder());
+		for (Path old : backups.subList(Math.min(nofBackups, backups.size()), backups.size())) {
+			LOGGER.debug("backup: deleting old backup '" + old + "'");
+			Files.deleteIfExists(old);
+		}
+	}
 
-		lastWriteTime = Math.max(file.lastModified(), System.currentTimeMillis());
+	/**
+	 * Makes the rename durable. Not all platforms can open a directory, then the
+	 * file-system has to do it.
+	 */
+	private static void syncDirectory(final Path dir) {
+		try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+			channel.force(true);
+		}
+		catch (IOException e) {
+			LOGGER.debug("syncDirectory: cannot sync '" + dir + "'", e);
+		}
 	}
 
 	// ---------------------------------------------------------------
@@ -624,7 +1111,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		incrementCountDataFor("transaction");
 
 		getRootElement().getGncBook().getBookElements().add(impl.getJwsdpPeer());
-		setModified(true);
+		setBookElementModified(impl.getJwsdpPeer());
 		transactionID2transaction.put(impl.getId(), impl);
 
 	}
@@ -641,7 +1128,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		}
 
 		getRootElement().getGncBook().getBookElements().remove(((GnucashWritableTransactionImpl) impl).getJwsdpPeer());
-		setModified(true);
+		setBookElementModified(((GnucashWritableTransactionImpl) impl).getJwsdpPeer());
 		transactionID2transaction.remove(impl.getId());
 
 	}
@@ -799,7 +1286,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		newQuote.setPriceCommodity(currency);
 		newQuote.setPriceCurrency(baseCurrency);
 		newQuote.setPriceTime(getObjectFactory().createPricePriceTime());
-		newQuote.getPriceTime().setTsDate(PRICE_QUOTE_DATE_FORMAT.format(new Date()));
+		newQuote.getPriceTime().setTsDate(ZonedDateTime.now().format(PRICE_QUOTE_DATE_FORMATTER));
 		newQuote.setPriceType("last");
 		newQuote.setPriceValue(conversionFactor.toGnucashString());
 
@@ -808,6 +1295,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 			if (element instanceof GncPricedb) {
 				GncPricedb prices = (GncPricedb) element;
 				prices.getPrice().add(newQuote);
+				invalidatePriceIndex();
 				getCurrencyTable().setConversionFactor(pCmdtySpace, pCmdtyId, conversionFactor);
 				return;
 			}
@@ -849,6 +1337,11 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 				(GnucashAccountImpl) incomeAcct, (GnucashAccountImpl) receivableAcct, openedDate, postDate, dueDate);
 
 		invoiceID2invoice.put(retval.getId(), retval);
+		if (retval.getLotID() != null) {
+			lotID2invoice.put(retval.getLotID(), retval);
+		}
+		addInvoiceToOwner(retval);
+		invoiceAmountsChanged(retval.getId());
 		return retval;
 	}
 
@@ -868,6 +1361,11 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 				(GnucashAccountImpl) expensesAcct, (GnucashAccountImpl) payableAcct, openedDate, postDate, dueDate);
 
 		invoiceID2invoice.put(retval.getId(), retval);
+		if (retval.getLotID() != null) {
+			lotID2invoice.put(retval.getLotID(), retval);
+		}
+		addInvoiceToOwner(retval);
+		invoiceAmountsChanged(retval.getId());
 		return retval;
 	}
 
@@ -887,6 +1385,11 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 				(GnucashAccountImpl) incExpAcct, (GnucashAccountImpl) recvblPayblAcct, openedDate, postDate, dueDate);
 
 		invoiceID2invoice.put(retval.getId(), retval);
+		if (retval.getLotID() != null) {
+			lotID2invoice.put(retval.getLotID(), retval);
+		}
+		addInvoiceToOwner(retval);
+		invoiceAmountsChanged(retval.getId());
 		return retval;
 	}
 
@@ -898,6 +1401,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	public GnucashWritableCustomer createWritableCustomer() {
 		GnucashWritableCustomerImpl cust = new GnucashWritableCustomerImpl(this);
 		super.customerID2customer.put(cust.getId(), cust);
+		addCustomerToNameIndex(cust);
 		return cust;
 	}
 
@@ -906,8 +1410,9 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	 */
 	public void removeCustomer(final GnucashWritableCustomer impl) {
 		customerID2customer.remove(impl.getId());
+		removeCustomerFromNameIndex(impl.getId());
 		getRootElement().getGncBook().getBookElements().remove(((GnucashWritableCustomerImpl) impl).getJwsdpPeer());
-		setModified(true);
+		setBookElementModified(((GnucashWritableCustomerImpl) impl).getJwsdpPeer());
 	}
 
 	// ----------------------------
@@ -918,6 +1423,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	public GnucashWritableVendor createWritableVendor() {
 		GnucashWritableVendorImpl vend = new GnucashWritableVendorImpl(this);
 		super.vendorID2vendor.put(vend.getId(), vend);
+		addVendorToNameIndex(vend);
 		return vend;
 	}
 
@@ -926,8 +1432,9 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	 */
 	public void removeVendor(final GnucashWritableVendor impl) {
 		vendorID2vendor.remove(impl.getId());
+		removeVendorFromNameIndex(impl.getId());
 		getRootElement().getGncBook().getBookElements().remove(((GnucashWritableVendorImpl) impl).getJwsdpPeer());
-		setModified(true);
+		setBookElementModified(((GnucashWritableVendorImpl) impl).getJwsdpPeer());
 	}
 
 	// ----------------------------
@@ -943,6 +1450,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 
 		GnucashWritableCustomerJobImpl job = new GnucashWritableCustomerJobImpl(this, cust, number, name);
 		super.jobID2job.put(job.getId(), job);
+		addJobToOwner(job);
 		return job;
 	}
 
@@ -957,6 +1465,7 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 
 		GnucashWritableVendorJobImpl job = new GnucashWritableVendorJobImpl(this, vend, number, name);
 		super.jobID2job.put(job.getId(), job);
+		addJobToOwner(job);
 		return job;
 	}
 
@@ -965,8 +1474,10 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	 */
 	public void removeGenerJob(final GnucashWritableGenerJob impl) {
 		jobID2job.remove(impl.getId());
-		getRootElement().getGncBook().getBookElements().remove(((GnucashWritableCustomerJobImpl) impl).getJwsdpPeer());
-		setModified(true);
+		removeJobFromOwner(impl.getId(), impl.getOwnerId());
+		// (customer- and vendor-jobs)
+		getRootElement().getGncBook().getBookElements().remove(impl.getJwsdpPeer());
+		setBookElementModified(impl.getJwsdpPeer());
 	}
 
 	// ----------------------------
@@ -977,6 +1488,10 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 	public GnucashWritableAccount createWritableAccount() {
 		GnucashWritableAccount acct = new GnucashWritableAccountImpl(this);
 		super.accountID2account.put(acct.getId(), acct);
+		addAccountToParent(acct);
+		addAccountToNameIndex(acct);
+		listenToAccount(acct);
+		clearBalanceCache();
 		return acct;
 	}
 
@@ -989,8 +1504,11 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		}
 
 		getRootElement().getGncBook().getBookElements().remove(((GnucashWritableAccountImpl) impl).getJwsdpPeer());
-		setModified(true);
+		setBookElementModified(((GnucashWritableAccountImpl) impl).getJwsdpPeer());
 		super.accountID2account.remove(impl.getId());
+		removeAccountFromParent(impl.getId(), impl.getParentAccountId());
+		removeAccountFromNameIndex(impl.getId());
+		clearBalanceCache();
 	}
 
 	/**
@@ -1048,9 +1566,70 @@ public class GnucashWritableFileImpl extends GnucashFileImpl implements GnucashW
 		}
 
 		invoiceID2invoice.remove(impl.getId());
+		if (impl.getLotID() != null) {
+			lotID2invoice.remove(impl.getLotID());
+		}
+		removeInvoiceFromOwner(impl.getId(), impl.getOwnerId());
+		invoiceAmountsChanged(impl.getId());
 		getRootElement().getGncBook().getBookElements().remove(impl.getJwsdpPeer());
 		this.decrementCountDataFor("gnc:GncInvoice");
-		setModified(true);
+		setBookElementModified(impl.getJwsdpPeer());
+	}
+
+	/**
+	 * To be called by the accounts after their parent-account has been changed,
+	 * to keep the index of the child-accounts and the qualified names up to
+	 * date.
+	 *
+	 * @param acct        the account that has got a new parent
+	 * @param oldParentId the id of the previous parent-account (null for a
+	 *                    top-level account)
+	 */
+	public void accountParentChanged(final GnucashAccount acct, final String oldParentId) {
+		removeAccountFromParent(acct.getId(), oldParentId);
+		qualifiedAccountNamesChanged();
+
+		GnucashAccount indexed = accountID2account.get(acct.getId());
+		if (indexed != null) {
+			addAccountToParent(indexed);
+		}
+	}
+
+	/**
+	 * To be called by the jobs after their owner (customer or vendor) has been
+	 * changed, to keep the index of the jobs per owner up to date.
+	 *
+	 * @param job        the job that has got a new owner
+	 * @param oldOwnerId the id of the previous owner
+	 */
+	public void jobOwnerChanged(final GnucashGenerJob job, final String oldOwnerId) {
+		if (oldOwnerId != null) {
+			removeJobFromOwner(job.getId(), oldOwnerId);
+		}
+
+		GnucashGenerJob indexed = jobID2job.get(job.getId());
+		if (indexed != null) {
+			addJobToOwner(indexed);
+		}
+	}
+
+	/**
+	 * To be called by the invoices after their owner (customer, vendor or job)
+	 * has been changed, to keep the index of the invoices per owner up to date.
+	 *
+	 * @param invc       the invoice that has got a new owner
+	 * @param oldOwnerId the id of the previous owner
+	 */
+	public void invoiceOwnerChanged(final GnucashGenerInvoice invc, final String oldOwnerId) {
+		if (oldOwnerId != null) {
+			removeInvoiceFromOwner(invc.getId(), oldOwnerId);
+		}
+
+		// the invoice may be a wrapper of the one in the map
+		GnucashGenerInvoice indexed = invoiceID2invoice.get(invc.getId());
+		if (indexed != null) {
+			addInvoiceToOwner(indexed);
+		}
 	}
 
 	/**
@@ -136,7 +136,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     entry.setVersion(Const.XML_FORMAT_VERSION);
 
     invc.getFile().getRootElement().getGncBook().getBookElements().add(entry);
-    invc.getFile().setModified(true);
+    ((GnucashWritableFileImpl) invc.getFile()).setBookElementModified(entry);
 
     return entry;
   }
@@ -217,7 +217,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     entry.setVersion(Const.XML_FORMAT_VERSION);
 
     invc.getFile().getRootElement().getGncBook().getBookElements().add(entry);
-    invc.getFile().setModified(true);
+    ((GnucashWritableFileImpl) invc.getFile()).setBookElementModified(entry);
 
     return entry;
   }
@@ -344,6 +344,14 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
 
   // -----------------------------------------------------------
 
+  /**
+   * Reports the change of this entry to the file, so that it is saved and the
+   * amounts of its invoice are computed again.
+   */
+  private void setIsModified() {
+    ((GnucashWritableFileImpl) getGenerInvoice().getFile()).setBookElementModified(getJwsdpPeer());
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -377,6 +385,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     ZonedDateTime dateTime = ZonedDateTime.of(LocalDateTime.of(date, LocalTime.MIN), ZoneId.systemDefault());
     String dateTimeStr = dateTime.format(DATE_FORMAT_BOOK);
     getJwsdpPeer().getEntryDate().setTsDate(dateTimeStr);
+    setIsModified();
 
     PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
     if (propertyChangeSupport != null) {
@@ -397,6 +406,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     }
     String oldDescr = getDescription();
     getJwsdpPeer().setEntryDescription(descr);
+    setIsModified();
 
     PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
     if (propertyChangeSupport != null) {
@@ -419,6 +429,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).subtractInvcEntry(this);
 
     setInvcTaxable_core(val);
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addInvcEntry(this);
 
@@ -448,6 +459,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
 
     super.setInvcTaxTable(taxTab);
     setInvcTaxTable_core(taxTab);
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addInvcEntry(this);
 
@@ -486,6 +498,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).subtractBillEntry(this);
 
     setBillTaxable_core(val);
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addBillEntry(this);
 
@@ -515,6 +528,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
 
     super.setBillTaxTable(taxTab);
     setBillTaxTable_core(taxTab);
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addBillEntry(this);
 
@@ -554,6 +568,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).subtractJobEntry(this);
 
     setJobTaxable_core(val);
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addJobEntry(this);
 
@@ -586,6 +601,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
 
     super.setJobTaxTable(taxTab);
     setJobTaxTable_core(taxTab);
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addJobEntry(this);
 
@@ -633,6 +649,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).subtractInvcEntry(this);
 
     getJwsdpPeer().setEntryIPrice(price.toGnucashString());
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addInvcEntry(this);
 
@@ -678,6 +695,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).subtractBillEntry(this);
 
     getJwsdpPeer().setEntryBPrice(price.toGnucashString());
+    setIsModified();
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addBillEntry(this);
 
@@ -762,6 +780,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
 
     String oldAction = getAction();
     getJwsdpPeer().setEntryAction(action);
+    setIsModified();
 
     PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
     if (propertyChangeSupport != null) {
@@ -800,6 +819,7 @@ public class GnucashWritableGenerInvoiceEntryImpl extends GnucashGenerInvoiceEnt
 
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).subtractInvcEntry(this);
     getJwsdpPeer().setEntryQty(qty.toGnucashString());
+    setIsModified();
     ((GnucashWritableGenerInvoiceImpl) getGenerInvoice()).addInvcEntry(this);
 
     PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
@@ -423,7 +423,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     invc.setVersion(Const.XML_FORMAT_VERSION);
 
     file.getRootElement().getGncBook().getBookElements().add(invc);
-    file.setModified(true);
+    file.setBookElementModified(invc);
 
     return invc;
   }
@@ -502,7 +502,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     invc.setVersion(Const.XML_FORMAT_VERSION);
 
     file.getRootElement().getGncBook().getBookElements().add(invc);
-    file.setModified(true);
+    file.setBookElementModified(invc);
 
     return invc;
   }
@@ -582,7 +582,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     invc.setVersion(Const.XML_FORMAT_VERSION);
 
     file.getRootElement().getGncBook().getBookElements().add(invc);
-    file.setModified(true);
+    file.setBookElementModified(invc);
 
     return invc;
   }
@@ -603,6 +603,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
         invc.getNumber(), cust, (GnucashAccountImpl) incomeAcct, (GnucashAccountImpl) receivableAcct, amount, postDate,
         dueDate);
     LOGGER.info("postCustomerInvoice: Customer invoice " + invc.getId() + " posted with Tranaction ID " + postTrxID);
+    setIsModified();
   }
 
   public void postVendorBill(final GnucashWritableFile file, GnucashWritableVendorBill bll, final GnucashVendor vend,
@@ -619,6 +620,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
         bll.getNumber(), vend, (GnucashAccountImpl) expensesAcct, (GnucashAccountImpl) payableAcct, amount, postDate,
         dueDate);
     LOGGER.info("postVendorBill: Vendor bill " + bll.getId() + " posted with Tranaction ID " + postTrxID);
+    setIsModified();
   }
 
   public void postJobInvoice(final GnucashWritableFile file, GnucashWritableJobInvoice invc, final GnucashGenerJob job,
@@ -635,6 +637,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
         invc.getNumber(), job, (GnucashAccountImpl) incomeAcct, (GnucashAccountImpl) receivableAcct, amount, postDate,
         dueDate);
     LOGGER.info("postJobInvoice: Job invoice " + invc.getId() + " posted with Tranaction ID " + postTrxID);
+    setIsModified();
   }
 
   // ----------------------------
@@ -672,7 +675,9 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
       acctLotID = newLot.getLotId().getValue();
       postLotRef.setValue(acctLotID);
 
+      String oldLotID = (invcRef.getInvoicePostlot() == null) ? null : invcRef.getInvoicePostlot().getValue();
       invcRef.setInvoicePostlot(postLotRef);
+      file.invoicePostLotChanged(invcGUID, oldLotID);
     }
 
     // post transaction
@@ -724,7 +729,9 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
 
       acctLotID = newLot.getLotId().getValue();
       postLotRef.setValue(acctLotID);
+      String oldLotID = (invcRef.getInvoicePostlot() == null) ? null : invcRef.getInvoicePostlot().getValue();
       invcRef.setInvoicePostlot(postLotRef);
+      file.invoicePostLotChanged(invcGUID, oldLotID);
     }
 
     // post transaction
@@ -775,7 +782,9 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
 
       acctLotID = newLot.getLotId().getValue();
       postLotRef.setValue(acctLotID);
+      String oldLotID = (invcRef.getInvoicePostlot() == null) ? null : invcRef.getInvoicePostlot().getValue();
       invcRef.setInvoicePostlot(postLotRef);
+      file.invoicePostLotChanged(invcGUID, oldLotID);
     }
 
     // post transaction
@@ -1135,7 +1144,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateEntry(taxTab, isTaxable, sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   /**
@@ -1176,7 +1185,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateEntry(taxTab, isTaxable, sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   /**
@@ -1217,7 +1226,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateEntry(taxTab, isTaxable, sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   // ---------------------------------------------------------------
@@ -1251,7 +1260,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateEntry(taxTab, isTaxable, sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   protected void subtractBillEntry(final GnucashGenerInvoiceEntryImpl entry)
@@ -1283,7 +1292,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateEntry(taxTab, isTaxable, sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   protected void subtractJobEntry(final GnucashGenerInvoiceEntryImpl entry)
@@ -1321,7 +1330,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateEntry(taxTab, isTaxable, sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   // ---------------------------------------------------------------
@@ -1386,7 +1395,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     updateNonTaxableEntry(sumExclTaxes, sumInclTaxes, postAcctID);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   private void updateEntry_taxStuff(final GCshTaxTable taxtable, final FixedPointNumber sumExclTaxes,
@@ -1524,7 +1533,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     assert postTransaction.isBalanced();
-    getFile().setModified(true);
+    setIsModified();
   }
 
   /**
@@ -1534,6 +1543,14 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     return getPayingTransactions().size() == 0;
   }
 
+  /**
+   * Reports the change of this invoice to the file, so that it is saved and
+   * its amounts are computed again.
+   */
+  protected void setIsModified() {
+    ((GnucashWritableFileImpl) getFile()).setBookElementModified(getJwsdpPeer());
+  }
+
   /**
    * Throw an IllegalStateException if we are not modifiable.
    *
@@ -1559,7 +1576,9 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
       throw new WrongOwnerJITypeException();
     }
 
+    String oldOwnerId = getJwsdpPeer().getInvoiceOwner() == null ? null : getOwnerId();
     getJwsdpPeer().setInvoiceOwner(owner.getInvcOwner());
+    ((GnucashWritableFileImpl) getFile()).invoiceOwnerChanged(this, oldOwnerId);
   }
 
   // ------------------------
@@ -1573,8 +1592,10 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     attemptChange();
+    String oldOwnerId = getOwnerId();
     getJwsdpPeer().getInvoiceOwner().getOwnerId().setValue(cust.getId());
-    getFile().setModified(true);
+    ((GnucashWritableFileImpl) getFile()).invoiceOwnerChanged(this, oldOwnerId);
+    setIsModified();
   }
 
   /**
@@ -1586,8 +1607,10 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     attemptChange();
+    String oldOwnerId = getOwnerId();
     getJwsdpPeer().getInvoiceOwner().getOwnerId().setValue(vend.getId());
-    getFile().setModified(true);
+    ((GnucashWritableFileImpl) getFile()).invoiceOwnerChanged(this, oldOwnerId);
+    setIsModified();
   }
 
   /**
@@ -1599,8 +1622,10 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     }
 
     attemptChange();
+    String oldOwnerId = getOwnerId();
     getJwsdpPeer().getInvoiceOwner().getOwnerId().setValue(job.getId());
-    getFile().setModified(true);
+    ((GnucashWritableFileImpl) getFile()).invoiceOwnerChanged(this, oldOwnerId);
+    setIsModified();
   }
 
   // -----------------------------------------------------------
@@ -1613,7 +1638,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     dateOpened = ZonedDateTime.of(d, LocalTime.MIN, ZoneId.systemDefault());
     String dateOpenedStr = dateOpened.format(DATE_OPENED_FORMAT_BOOK);
     getJwsdpPeer().getInvoiceOpened().setTsDate(dateOpenedStr);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   /**
@@ -1622,7 +1647,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
   public void setDateOpened(final String d) throws java.text.ParseException {
     attemptChange();
     setDateOpened(LocalDate.parse(d, DATE_OPENED_FORMAT));
-    getFile().setModified(true);
+    setIsModified();
   }
 
   /**
@@ -1632,7 +1657,7 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
     attemptChange();
     datePosted = ZonedDateTime.of(d, LocalTime.MIN, ZoneId.systemDefault());
     getJwsdpPeer().getInvoicePosted().setTsDate(DATE_OPENED_FORMAT.format(d));
-    getFile().setModified(true);
+    setIsModified();
 
     // change the date of the transaction too
     GnucashWritableTransaction postTr = getWritingPostTransaction();
@@ -1653,13 +1678,13 @@ public class GnucashWritableGenerInvoiceImpl extends GnucashGenerInvoiceImpl imp
   public void setNumber(final String number) {
     attemptChange();
     getJwsdpPeer().setInvoiceId(number);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   public void setDescription(final String descr) {
     attemptChange();
     getJwsdpPeer().setInvoiceNotes(descr);
-    getFile().setModified(true);
+    setIsModified();
   }
 
   // ---------------------------------------------------------------
@@ -16,6 +16,7 @@ import org.gnucash.generated.ObjectFactory;
 import org.gnucash.read.GnucashAccount;
 import org.gnucash.read.GnucashTransaction;
 import org.gnucash.read.GnucashTransactionSplit;
+import org.gnucash.read.impl.GnucashAccountImpl;
 import org.gnucash.read.impl.GnucashFileImpl;
 import org.gnucash.read.impl.GnucashTransactionImpl;
 import org.gnucash.read.impl.GnucashTransactionSplitImpl;
@@ -188,7 +189,7 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 	 */
 	public void remove(final GnucashWritableTransactionSplit impl) {
 		getJwsdpPeer().getTrnSplits().getTrnSplit().remove(((GnucashWritableTransactionSplitImpl) impl).getJwsdpPeer());
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 		if (mySplits != null) {
 			mySplits.remove(impl);
 		}
@@ -261,6 +262,7 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 	 */
 	protected void addSplit(final GnucashWritableTransactionSplitImpl impl) {
 		super.addSplit(impl);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 	}
 
 	/**
@@ -283,6 +285,7 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 	 */
 	public void setCurrencyID(final String id) {
 		this.getJwsdpPeer().getTrnCurrency().setCmdtyId(id);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 	}
 
 	/**
@@ -291,6 +294,7 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 	 */
 	public void setCurrencyNameSpace(final String id) {
 		this.getJwsdpPeer().getTrnCurrency().setCmdtySpace(id);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 	}
 
 	/**
@@ -300,7 +304,8 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 		this.dateEntered = dateEntered;
 		String dateEnteredStr = this.dateEntered.format(DATE_ENTERED_FORMAT);
 		getJwsdpPeer().getTrnDateEntered().setTsDate(dateEnteredStr);
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
+		notifyAccounts();
 	}
 
 	@Override
@@ -315,7 +320,25 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 		this.datePosted = ZonedDateTime.of(datePosted, LocalTime.MIN, ZoneId.systemDefault());
 		String datePostedStr = this.datePosted.format(DATE_POSTED_FORMAT);
 		getJwsdpPeer().getTrnDatePosted().setTsDate(datePostedStr);
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
+		notifyAccounts();
+	}
+
+	/**
+	 * Tell the accounts of our splits that their sort-order
+	 * and cached balances are no longer valid.
+	 */
+	private void notifyAccounts() {
+		if (mySplits == null) {
+			return; // no splits created yet
+		}
+
+		for (GnucashTransactionSplit split : mySplits) {
+			GnucashAccount account = split.getAccount();
+			if (account instanceof GnucashAccountImpl) {
+				((GnucashAccountImpl) account).transactionSplitsChanged();
+			}
+		}
 	}
 
 	/**
@@ -329,7 +352,7 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 
 		String old = getJwsdpPeer().getTrnDescription();
 		getJwsdpPeer().setTrnDescription(desc);
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 
 		if (old == null || !old.equals(desc)) {
 			if (getPropertyChangeSupport() != null) {
@@ -350,7 +373,7 @@ public class GnucashWritableTransactionImpl extends GnucashTransactionImpl imple
 
 		String old = getJwsdpPeer().getTrnNum();
 		getJwsdpPeer().setTrnNum(tnum);
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 
 		if (old == null || !old.equals(tnum)) {
 			if (getPropertyChangeSupport() != null) {
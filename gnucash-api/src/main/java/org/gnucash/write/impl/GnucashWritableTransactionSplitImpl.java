@@ -5,10 +5,13 @@ import java.text.ParseException;
 import org.gnucash.Const;
 import org.gnucash.generated.GncTransaction;
 import org.gnucash.generated.ObjectFactory;
+import org.gnucash.messages.ApplicationMessages;
 import org.gnucash.numbers.FixedPointNumber;
 import org.gnucash.read.GnucashAccount;
+import org.gnucash.read.GnucashGenerInvoice;
 import org.gnucash.read.GnucashTransactionSplit;
 import org.gnucash.read.IllegalTransactionSplitActionException;
+import org.gnucash.read.impl.GnucashAccountImpl;
 import org.gnucash.read.impl.GnucashTransactionSplitImpl;
 import org.gnucash.write.GnucashWritableFile;
 import org.gnucash.write.GnucashWritableObject;
@@ -23,6 +26,8 @@ import org.slf4j.LoggerFactory;
 public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplitImpl implements GnucashWritableTransactionSplit {
 	private static final Logger LOGGER = LoggerFactory.getLogger(GnucashWritableTransactionSplitImpl.class);
 
+	private static ApplicationMessages bundle = ApplicationMessages.getInstance();
+
 	/**
 	 * Our helper to implement the GnucashWritableObject-interface.
 	 */
@@ -139,6 +144,14 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 		return split;
 	}
 
+	/**
+	 * Our data is part of the transaction, so it is the transaction that has been modified.
+	 */
+	private void setTransactionModified() {
+		GnucashWritableTransactionImpl trx = (GnucashWritableTransactionImpl) getTransaction();
+		trx.getWritingFile().setBookElementModified(trx.getJwsdpPeer());
+	}
+
 	/**
 	 * remove this split from it's transaction.
 	 */
@@ -164,8 +177,13 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 				:
 						getJwsdpPeer().getSplitAccount().getValue());
 		getJwsdpPeer().getSplitAccount().setType(Const.XML_DATA_TYPE_GUID);
+		GnucashAccount oldAccount = getAccount();
 		getJwsdpPeer().getSplitAccount().setValue(account.getId());
-		((GnucashWritableFile) getGnucashFile()).setModified(true);
+		setTransactionModified();
+		if (oldAccount instanceof GnucashAccountImpl) {
+			((GnucashAccountImpl) oldAccount).transactionSplitsChanged();
+		}
+		notifyAccount();
 
 		if (old == null || !old.equals(account.getId())) {
 			if (getPropertyChangeSupport() != null) {
@@ -180,7 +198,7 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 	 */
 	public void setQuantity(final String n) {
 		try {
-			this.setQuantity(new FixedPointNumber(n.toLowerCase().replaceAll("&euro;", "").replaceAll("&pound;", "")));
+			this.setQuantity(new FixedPointNumber(n));
 		}
 		catch (NumberFormatException e) {
 			try {
@@ -232,7 +250,8 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 
 		String old = getJwsdpPeer().getSplitQuantity();
 		getJwsdpPeer().setSplitQuantity(n.toGnucashString());
-		((GnucashWritableFile) getGnucashFile()).setModified(true);
+		setTransactionModified();
+		notifyAccount();
 		if (isCurrencyMatching()) {
 			String oldvalue = getJwsdpPeer().getSplitValue();
 			getJwsdpPeer().setSplitValue(n.toGnucashString());
@@ -250,12 +269,22 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 		}
 	}
 
+	/**
+	 * Tell our account that its cached balances are no longer valid.
+	 */
+	private void notifyAccount() {
+		GnucashAccount account = getAccount();
+		if (account instanceof GnucashAccountImpl) {
+			((GnucashAccountImpl) account).transactionSplitsChanged();
+		}
+	}
+
 	/**
 	 * @see GnucashWritableTransactionSplit#setValue(FixedPointNumber)
 	 */
 	public void setValue(final String n) {
 		try {
-			this.setValue(new FixedPointNumber(n.toLowerCase().replaceAll("&euro;", "").replaceAll("&pound;", "")));
+			this.setValue(new FixedPointNumber(n));
 		}
 		catch (NumberFormatException e) {
 			try {
@@ -280,10 +309,11 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 		}
 		String old = getJwsdpPeer().getSplitValue();
 		getJwsdpPeer().setSplitValue(n.toGnucashString());
-		((GnucashWritableFile) getGnucashFile()).setModified(true);
+		setTransactionModified();
 		if (isCurrencyMatching()) {
 			String oldquantity = getJwsdpPeer().getSplitQuantity();
 			getJwsdpPeer().setSplitQuantity(n.toGnucashString());
+			notifyAccount();
 			if (old == null || !old.equals(n.toGnucashString())) {
 				if (getPropertyChangeSupport() != null) {
 					getPropertyChangeSupport().firePropertyChange("quantity", new FixedPointNumber(oldquantity), n);
@@ -310,7 +340,7 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 
 		String old = getJwsdpPeer().getSplitMemo();
 		getJwsdpPeer().setSplitMemo(desc);
-		((GnucashWritableFile) getGnucashFile()).setModified(true);
+		setTransactionModified();
 
 		if (old == null || !old.equals(desc)) {
 			if (getPropertyChangeSupport() != null) {
@@ -337,7 +367,8 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 
 		String old = getJwsdpPeer().getSplitAction();
 		getJwsdpPeer().setSplitAction(action);
-		((GnucashWritableFile) getGnucashFile()).setModified(true);
+		setTransactionModified();
+		addToPaidInvoice();
 
 		if (old == null || !old.equals(action)) {
 			if (getPropertyChangeSupport() != null) {
@@ -346,6 +377,22 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 		}
 	}
 
+	/**
+	 * If we are a payment for the invoice posted to our lot, adds our
+	 * transaction to its paying transactions, as loading the file does.
+	 */
+	private void addToPaidInvoice() {
+		String lot = getLotID();
+		if (lot == null || !bundle.getMessage("ACTION_PAYMENT").equals(getAction())) {
+			return;
+		}
+
+		GnucashGenerInvoice invc = getTransaction().getGnucashFile().getGenerInvoiceByLotID(lot);
+		if (invc != null && !invc.getPayingTransactions().contains(getTransaction())) {
+			invc.addPayingTransaction(this);
+		}
+	}
+
 	public void setLotID(final String lotID) {
 
 		GnucashWritableTransactionImpl trx = (GnucashWritableTransactionImpl) getTransaction();
@@ -358,6 +405,8 @@ public class GnucashWritableTransactionSplitImpl extends GnucashTransactionSplit
 		}
 		getJwsdpPeer().getSplitLot().setValue(lotID);
 		getJwsdpPeer().getSplitLot().setType(Const.XML_DATA_TYPE_GUID);
+		setTransactionModified();
+		addToPaidInvoice();
 
 		// if we have a lot, and if we are a paying transaction, then check the slots
 		// ::TODO ::CHECK
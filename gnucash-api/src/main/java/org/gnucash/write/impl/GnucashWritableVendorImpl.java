@@ -124,7 +124,7 @@ public class GnucashWritableVendorImpl extends GnucashVendorImpl implements Gnuc
 		vend.setVendorActive(1);
 
 		file.getRootElement().getGncBook().getBookElements().add(vend);
-		file.setModified(true);
+		file.setBookElementModified(vend);
 
 		return vend;
 	}
@@ -154,7 +154,7 @@ public class GnucashWritableVendorImpl extends GnucashVendorImpl implements Gnuc
 	public void setNumber(final String number) {
 		String oldNumber = getNumber();
 		getJwsdpPeer().setVendorId(number);
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -168,7 +168,7 @@ public class GnucashWritableVendorImpl extends GnucashVendorImpl implements Gnuc
 	public void setName(final String name) {
 		String oldName = getName();
 		getJwsdpPeer().setVendorName(name);
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 
 		PropertyChangeSupport propertyChangeSupport = getPropertyChangeSupport();
 		if (propertyChangeSupport != null) {
@@ -217,6 +217,6 @@ public class GnucashWritableVendorImpl extends GnucashVendorImpl implements Gnuc
 			getJwsdpPeer().getVendorAddr().setAddrPhone(adr.getTel());
 		}
 
-		getGnucashFile().setModified(true);
+		getGnucashFile().setBookElementModified(getJwsdpPeer());
 	}
 }
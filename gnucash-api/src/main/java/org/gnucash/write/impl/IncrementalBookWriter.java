@@ -0,0 +1,363 @@
+package org.gnucash.write.impl;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import org.gnucash.generated.GncV2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.SAXException;
+
+import jakarta.xml.bind.JAXBException;
+import jakarta.xml.bind.annotation.XmlElement;
+import jakarta.xml.bind.annotation.XmlElements;
+
+/**
+ * Writes a gnucash-file re-using the text written for the book-elements that
+ * have not been modified since the last write.<br/>
+ * Only the count-data, the book-header and the modified or new book-elements
+ * are marshalled, the text of all other book-elements is copied from the file
+ * written last. Only where the text of each book-element starts and ends in
+ * that file is kept in memory; the file is read once from the beginning to the
+ * end (inflated if it is compressed), so an element that has moved before the
+ * one copied last is marshalled again. If the file has been changed since it
+ * was written (size, modification-time or file-key) all book-elements are
+ * marshalled. The result is the same as if the whole document was marshalled.
+ * <br/>
+ * Modifications are reported by
+ * {@link GnucashWritableFileImpl#setBookElementModified(Object)} (only this
+ * element) and {@link GnucashWritableFileImpl#setModified(boolean)} (any
+ * element may have changed).
+ *
+ * @see GnucashWritableFileImpl#setIncrementalSave(boolean)
+ */
+class IncrementalBookWriter {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalBookWriter.class);
+
+	/**
+	 * The element-names of the book-elements by the JAXB-classes they are bound
+	 * to.
+	 */
+	private static final Map<Class<?>, String> BOOK_ELEMENT_NAMES = createBookElementNames();
+
+	/**
+	 * Size of the buffer text is copied from the file written last with.
+	 */
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Where the text written for each book-element in the last write starts and
+	 * ends in the (uncompressed) xml (by identity of the JAXB-object).
+	 */
+	private Map<Object, long[]> ranges = new IdentityHashMap<Object, long[]>();
+
+	/**
+	 * The file the last write went to, null if not known (or not written
+	 * completely).
+	 */
+	private File writtenFile = null;
+
+	/**
+	 * The attributes of {@link #writtenFile} just after it was written.
+	 */
+	private BasicFileAttributes writtenAttributes = null;
+
+	/**
+	 * How the names were written in the last write.
+	 */
+	private boolean writtenNamespaceAware = false;
+
+	/**
+	 * The book-elements modified since the last write.
+	 */
+	private final Set<Object> modifiedElements = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>());
+
+	/**
+	 * true if any book-element may have been modified since the last write.
+	 */
+	private boolean allModified = true;
+
+	/**
+	 * Number of book-elements marshalled in the last write.
+	 */
+	private int marshalled = 0;
+
+	private static Map<Class<?>, String> createBookElementNames() {
+		Map<Class<?>, String> names = new HashMap<Class<?>, String>();
+		try {
+			XmlElements elements = GncV2.GncBook.class.getDeclaredField("bookElements").getAnnotation(XmlElements.class);
+			for (XmlElement element : elements.value()) {
+				names.put(element.type(), element.name());
+			}
+		}
+		catch (NoSuchFieldException e) {
+			throw new IllegalStateException("generated class GncV2.GncBook has no field 'bookElements'", e);
+		}
+
+		return Collections.unmodifiableMap(names);
+	}
+
+	/**
+	 * @param bookElement the book-element (JAXB-object) that was added, modified
+	 *                    or removed
+	 */
+	void setModified(final Object bookElement) {
+		if (!allModified) {
+			modifiedElements.add(bookElement);
+		}
+	}
+
+	/**
+	 * Any book-element may have been modified, the next write marshals them all.
+	 */
+	void setAllModified() {
+		allModified = true;
+		modifiedElements.clear();
+	}
+
+	/**
+	 * To be called when the last write has been completed and its result is in
+	 * the file (under its final name).
+	 *
+	 * @param file the file written to
+	 */
+	void setWritten(final File file) {
+		try {
+			writtenAttributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			writtenFile = file;
+		}
+		catch (IOException e) {
+			LOGGER.warn("setWritten: cannot read the attributes of '" + file + "', the next write marshals all book-elements", e);
+			writtenFile = null;
+		}
+	}
+
+	/**
+	 * @return the number of book-elements marshalled in the last write
+	 */
+	int getMarshalled() {
+		return marshalled;
+	}
+
+	/**
+	 * @param root           the document to write
+	 * @param out            where to write it to
+	 * @param namespaceAware see {@link WritingContentHandler#WritingContentHandler(Utf8XmlOutput, boolean)}
+	 * @throws JAXBException on marshalling-errors
+	 */
+	void write(final GncV2 root, final Utf8XmlOutput out, final boolean namespaceAware) throws JAXBException {
+
+		final List<Object> bookElements = root.getGncBook().getBookElements();
+		final Map<Object, long[]> newRanges = new IdentityHashMap<Object, long[]>(bookElements.size());
+		final PreviousFile previous = openWrittenFile(namespaceAware);
+		marshalled = 0;
+
+		// the book-elements are the last children of the book, so they are
+		// written just before it is closed
+		WritingContentHandler handler = new WritingContentHandler(out, namespaceAware) {
+			@Override
+			public void endElement(final String namespaceURI, final String localName, final String qName)
+					throws SAXException {
+				if (qName.equals("gnc_book")) {
+					try {
+						for (Object bookElement : bookElements) {
+							writeBookElement(this, out, bookElement, previous, newRanges);
+						}
+					}
+					catch (JAXBException | IOException e) {
+						throw new SAXException(e);
+					}
+				}
+				super.endElement(namespaceURI, localName, qName);
+			}
+		};
+
+		boolean done = false;
+		try {
+			new BookSerializer(handler).write(withoutBookElements(root));
+			done = true;
+		}
+		finally {
+			if (previous != null) {
+				try {
+					previous.close();
+				}
+				catch (IOException e) {
+					LOGGER.debug("write: cannot close '" + writtenFile + "'", e);
+				}
+			}
+
+			// not to be read from until it is known where the text went to
+			writtenFile = null;
+			if (done) {
+				ranges = newRanges;
+				writtenNamespaceAware = namespaceAware;
+				modifiedElements.clear();
+				allModified = false;
+			} else {
+				setAllModified();
+			}
+		}
+
+		LOGGER.debug("write: marshalled " + marshalled + " of " + bookElements.size() + " book-elements");
+	}
+
+	/**
+	 * @return the file written last, ready to copy the text of the book-elements
+	 *         from, or null if nothing can be copied
+	 */
+	private PreviousFile openWrittenFile(final boolean namespaceAware) {
+		if (allModified || writtenFile == null || namespaceAware != writtenNamespaceAware) {
+			return null;
+		}
+
+		try {
+			BasicFileAttributes attrs = Files.readAttributes(writtenFile.toPath(), BasicFileAttributes.class);
+			if (attrs.size() != writtenAttributes.size()
+					|| !attrs.lastModifiedTime().equals(writtenAttributes.lastModifiedTime())
+					|| !Objects.equals(attrs.fileKey(), writtenAttributes.fileKey())) {
+				LOGGER.debug("openWrittenFile: '" + writtenFile + "' has been changed, marshalling all book-elements");
+				return null;
+			}
+
+			InputStream in = new FileInputStream(writtenFile);
+			if (writtenFile.getName().endsWith(".gz")) {
+				in = new GZIPInputStream(in, COPY_BUFFER_SIZE);
+			}
+			return new PreviousFile(in);
+		}
+		catch (IOException e) {
+			LOGGER.warn("openWrittenFile: cannot read '" + writtenFile + "', marshalling all book-elements", e);
+			return null;
+		}
+	}
+
+	/**
+	 * @return a copy of the document without the book-elements (sharing all
+	 *         other objects)
+	 */
+	private static GncV2 withoutBookElements(final GncV2 root) {
+		GncV2.GncBook book = new GncV2.GncBook();
+		book.setVersion(root.getGncBook().getVersion());
+		book.setBookId(root.getGncBook().getBookId());
+		book.setBookSlots(root.getGncBook().getBookSlots());
+		book.getGncCountData().addAll(root.getGncBook().getGncCountData());
+
+		GncV2 head = new GncV2();
+		head.setGncCountData(root.getGncCountData());
+		head.setGncBook(book);
+		return head;
+	}
+
+	/**
+	 * Copies the text of the last write if the element was not modified, else
+	 * marshals it.
+	 */
+	private void writeBookElement(final WritingContentHandler handler, final Utf8XmlOutput out,
+			final Object bookElement, final PreviousFile previous, final Map<Object, long[]> newRanges)
+			throws JAXBException, IOException {
+
+		String name = BOOK_ELEMENT_NAMES.get(bookElement.getClass());
+		if (name == null) {
+			throw new IllegalStateException("Unexpected element in GNC:Book found! <" + bookElement.toString() + ">");
+		}
+
+		if (!handler.isBehindElement()) {
+			// the text written would depend on what came before, do not remember it
+			new BookSerializer(handler).writeFragment(name, bookElement);
+			marshalled++;
+			return;
+		}
+
+		// (the text of an element starts behind the end of the element before)
+		long start = out.getBytesWritten();
+		long[] range = null;
+		if (previous != null && !modifiedElements.contains(bookElement)) {
+			range = ranges.get(bookElement);
+		}
+
+		if (range == null || !previous.copy(range[0], range[1] - range[0], out)) {
+			new BookSerializer(handler).writeFragment(name, bookElement);
+			marshalled++;
+		}
+
+		newRanges.put(bookElement, new long[] { start, out.getBytesWritten() });
+	}
+
+	/**
+	 * The (uncompressed) xml of the file written last, read once from the
+	 * beginning to the end.
+	 */
+	private static final class PreviousFile implements Closeable {
+
+		private final InputStream in;
+
+		/**
+		 * Where in the xml the next byte read is.
+		 */
+		private long position = 0;
+
+		private final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+
+		private PreviousFile(final InputStream pin) {
+			in = pin;
+		}
+
+		/**
+		 * @param start  where the text starts in the xml
+		 * @param length the length of the text
+		 * @param out    where to copy it to
+		 * @return false if the text is before what has been read already
+		 * @throws IOException on io-errors (an EOFException if the file is too
+		 *                     short)
+		 */
+		private boolean copy(final long start, final long length, final Utf8XmlOutput out) throws IOException {
+			if (start < position) {
+				return false;
+			}
+
+			while (position < start) {
+				long skipped = in.skip(start - position);
+				if (skipped <= 0) {
+					if (in.read() < 0) {
+						throw new EOFException("the file written last ends at " + position);
+					}
+					skipped = 1;
+				}
+				position += skipped;
+			}
+
+			long left = length;
+			while (left > 0) {
+				int n = in.read(buffer, 0, (int) Math.min(left, buffer.length));
+				if (n < 0) {
+					throw new EOFException("the file written last ends at " + position);
+				}
+				out.write(buffer, 0, n);
+				position += n;
+				left -= n;
+			}
+			return true;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
@@ -7,12 +7,64 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * replaces ':' in tag-names and attribute-names by '_'
+ * replaces ':' in tag-names and attribute-names by '_'<br/>
+ * (The files are written by {@link WritingContentHandler}, which adds the
+ * namespaces to the names by {@link #addNamespaces(String)} itself.)
  */
 class NamespaceAdderWriter extends Writer {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(NamespaceAdderWriter.class);
 
+	/**
+	 * The prefixes of the gnucash namespaces in the order gnucash declares them.
+	 */
+	static final String[] NAMESPACE_PREFIXES = { "gnc", "act", "book", "cd", "cmdty", "price", "slot", "split", "sx",
+			"trn", "ts", "fs", "bgt", "recurrence", "lot", "cust", "job", "addr", "owner", "taxtable", "tte", "employee",
+			"order", "billterm", "bt-days", "bt-prox", "invoice", "entry", "vendor" };
+
+	/**
+	 * The xmlns-declarations written behind "&lt;gnc-v2".
+	 */
+	static final String XMLNS_DECLARATIONS = createXmlnsDeclarations();
+
+	private static String createXmlnsDeclarations() {
+		StringBuilder declarations = new StringBuilder();
+		for (String prefix : NAMESPACE_PREFIXES) {
+			declarations.append("\n     xmlns:").append(prefix).append("=\"http://www.gnucash.org/XML/").append(prefix)
+					.append("\"");
+		}
+		return declarations.toString();
+	}
+
+	/**
+	 * The '_' behind these are no namespace-separators.
+	 */
+	private static final String[] NO_SEPARATOR_BEHIND = { "fs:ui", "cmdty:get", "cmdty:quote", "invoice:billing",
+			"recurrence:period" };
+
+	/**
+	 * @param name a tag- or attribute-name
+	 * @return the name the way {@link #write(char[], int, int)} writes it
+	 */
+	static String addNamespaces(final String name) {
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			if (chars[i] == '_' && !isBehindAny(chars, i)) {
+				chars[i] = ':';
+			}
+		}
+		return new String(chars);
+	}
+
+	private static boolean isBehindAny(final char[] chars, final int i) {
+		for (String before : NO_SEPARATOR_BEHIND) {
+			if (i >= before.length() && new String(chars, i - before.length(), before.length()).equals(before)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * @param input where to write to
 	 */
@@ -100,35 +152,7 @@ class NamespaceAdderWriter extends Writer {
 
 		// this is a quick hack to add the missing xmlns-declarations
 		if (len == 7 && new String(cbuf, off, len).equals("<gnc-v2")) {
-			output.write("\n" + "     xmlns:gnc=\"http://www.gnucash.org/XML/gnc\"\n"
-					+ "     xmlns:act=\"http://www.gnucash.org/XML/act\"\n"
-					+ "     xmlns:book=\"http://www.gnucash.org/XML/book\"\n"
-					+ "     xmlns:cd=\"http://www.gnucash.org/XML/cd\"\n"
-					+ "     xmlns:cmdty=\"http://www.gnucash.org/XML/cmdty\"\n"
-					+ "     xmlns:price=\"http://www.gnucash.org/XML/price\"\n"
-					+ "     xmlns:slot=\"http://www.gnucash.org/XML/slot\"\n"
-					+ "     xmlns:split=\"http://www.gnucash.org/XML/split\"\n"
-					+ "     xmlns:sx=\"http://www.gnucash.org/XML/sx\"\n"
-					+ "     xmlns:trn=\"http://www.gnucash.org/XML/trn\"\n"
-					+ "     xmlns:ts=\"http://www.gnucash.org/XML/ts\"\n"
-					+ "     xmlns:fs=\"http://www.gnucash.org/XML/fs\"\n"
-					+ "     xmlns:bgt=\"http://www.gnucash.org/XML/bgt\"\n"
-					+ "     xmlns:recurrence=\"http://www.gnucash.org/XML/recurrence\"\n"
-					+ "     xmlns:lot=\"http://www.gnucash.org/XML/lot\"\n"
-					+ "     xmlns:cust=\"http://www.gnucash.org/XML/cust\"\n"
-					+ "     xmlns:job=\"http://www.gnucash.org/XML/job\"\n"
-					+ "     xmlns:addr=\"http://www.gnucash.org/XML/addr\"\n"
-					+ "     xmlns:owner=\"http://www.gnucash.org/XML/owner\"\n"
-					+ "     xmlns:taxtable=\"http://www.gnucash.org/XML/taxtable\"\n"
-					+ "     xmlns:tte=\"http://www.gnucash.org/XML/tte\"\n"
-					+ "     xmlns:employee=\"http://www.gnucash.org/XML/employee\"\n"
-					+ "     xmlns:order=\"http://www.gnucash.org/XML/order\"\n"
-					+ "     xmlns:billterm=\"http://www.gnucash.org/XML/billterm\"\n"
-					+ "     xmlns:bt-days=\"http://www.gnucash.org/XML/bt-days\"\n"
-					+ "     xmlns:bt-prox=\"http://www.gnucash.org/XML/bt-prox\"\n"
-					+ "     xmlns:invoice=\"http://www.gnucash.org/XML/invoice\"\n"
-					+ "     xmlns:entry=\"http://www.gnucash.org/XML/entry\"\n"
-					+ "     xmlns:vendor=\"http://www.gnucash.org/XML/vendor\"");
+			output.write(XMLNS_DECLARATIONS);
 		}
 
 	}
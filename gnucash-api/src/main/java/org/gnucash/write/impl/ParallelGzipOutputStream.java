@@ -0,0 +1,274 @@
+package org.gnucash.write.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A gzip-stream whose blocks are compressed in parallel.<br/>
+ * The data is cut into blocks which are deflated by the tasks of a
+ * ForkJoinPool. Every block but the last ends with a sync-flush, so the
+ * compressed blocks simply follow each other in one deflate-stream, and each
+ * block is primed with the last 32 KB of the block before, so the compression
+ * is nearly as good as compressing it in one go (this is how pigz does it).
+ * The result is a single standard gzip-member that every gzip-reader (and
+ * GnuCash itself) reads.<br/>
+ * The checksum is calculated by the writing thread while handing out the
+ * blocks.
+ *
+ * @see GnucashWritableFileImpl#setParallelCompression(boolean)
+ */
+class ParallelGzipOutputStream extends OutputStream {
+
+	/**
+	 * Default size of the blocks compressed by one task.
+	 */
+	static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+	/**
+	 * Size of the window of the deflate-algorithm.
+	 */
+	private static final int DICTIONARY_SIZE = 32 * 1024;
+
+	/**
+	 * The header GZIPOutputStream writes (no name, no time).
+	 */
+	private static final byte[] HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+	/**
+	 * where to write to.
+	 */
+	private final OutputStream out;
+
+	private final ForkJoinPool pool;
+
+	private final int level;
+
+	/**
+	 * The compressed blocks not yet written, in order.
+	 */
+	private final Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<ForkJoinTask<byte[]>>();
+
+	/**
+	 * Number of blocks compressed at the same time (more wait for the writer).
+	 */
+	private final int maxPending;
+
+	private final CRC32 crc = new CRC32();
+
+	/**
+	 * The block being filled.
+	 */
+	private byte[] block;
+
+	/**
+	 * Number of bytes in the block.
+	 */
+	private int count = 0;
+
+	/**
+	 * The end of the block before (null for the first one).
+	 */
+	private byte[] dictionary = null;
+
+	/**
+	 * Number of uncompressed bytes.
+	 */
+	private long size = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * @param pout where to write the gzip-stream to
+	 * @param ppool where to compress the blocks
+	 * @throws IOException if the header can not be written
+	 */
+	ParallelGzipOutputStream(final OutputStream pout, final ForkJoinPool ppool) throws IOException {
+		this(pout, ppool, DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+	}
+
+	/**
+	 * @param pout       where to write the gzip-stream to
+	 * @param ppool      where to compress the blocks
+	 * @param pblockSize the number of bytes compressed by one task
+	 * @param plevel     the compression-level of the Deflater
+	 * @throws IOException if the header can not be written
+	 */
+	ParallelGzipOutputStream(final OutputStream pout, final ForkJoinPool ppool, final int pblockSize,
+			final int plevel) throws IOException {
+		if (pblockSize < 1) {
+			throw new IllegalArgumentException("block size must be positive: " + pblockSize);
+		}
+
+		out = pout;
+		pool = ppool;
+		level = plevel;
+		block = new byte[pblockSize];
+		maxPending = 2 * pool.getParallelism();
+		out.write(HEADER);
+	}
+
+	@Override
+	public void write(final int b) throws IOException {
+		write(new byte[] { (byte) b }, 0, 1);
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException {
+		if (closed) {
+			throw new IOException("stream closed");
+		}
+
+		int done = 0;
+		while (done < len) {
+			int n = Math.min(len - done, block.length - count);
+			System.arraycopy(b, off + done, block, count, n);
+			count += n;
+			done += n;
+			if (count == block.length) {
+				submit(false);
+			}
+		}
+	}
+
+	/**
+	 * Hands the block to the pool and writes the blocks that are done if too many
+	 * are waiting.
+	 */
+	private void submit(final boolean last) throws IOException {
+		final byte[] input = block;
+		final int length = count;
+		final byte[] dict = dictionary;
+
+		crc.update(input, 0, length);
+		size += length;
+
+		if (length >= DICTIONARY_SIZE) {
+			dictionary = Arrays.copyOfRange(input, length - DICTIONARY_SIZE, length);
+		} else if (length > 0) {
+			// a smaller dictionary only costs some compression
+			dictionary = Arrays.copyOfRange(input, 0, length);
+		}
+
+		pending.add(pool.submit(new Callable<byte[]>() {
+			public byte[] call() {
+				return deflate(input, length, dict, last);
+			}
+		}));
+
+		block = new byte[input.length];
+		count = 0;
+
+		while (pending.size() > maxPending) {
+			writeCompressed(pending.poll());
+		}
+	}
+
+	/**
+	 * @return the compressed block, ending with a sync-flush unless it is the last
+	 */
+	private byte[] deflate(final byte[] input, final int length, final byte[] dict, final boolean last) {
+		Deflater deflater = new Deflater(level, true);
+		try {
+			if (dict != null) {
+				deflater.setDictionary(dict);
+			}
+			deflater.setInput(input, 0, length);
+
+			byte[] buffer = new byte[length + length / 8 + 64];
+			int n = 0;
+			if (last) {
+				deflater.finish();
+				while (!deflater.finished()) {
+					if (n == buffer.length) {
+						buffer = Arrays.copyOf(buffer, buffer.length * 2);
+					}
+					n += deflater.deflate(buffer, n, buffer.length - n);
+				}
+			} else {
+				while (true) {
+					int free = buffer.length - n;
+					int deflated = deflater.deflate(buffer, n, free, Deflater.SYNC_FLUSH);
+					n += deflated;
+					if (deflated < free) {
+						break;
+					}
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				}
+			}
+
+			return Arrays.copyOf(buffer, n);
+		}
+		finally {
+			deflater.end();
+		}
+	}
+
+	private void writeCompressed(final ForkJoinTask<byte[]> task) throws IOException {
+		try {
+			out.write(task.join());
+		}
+		catch (RuntimeException e) {
+			throw new IOException("compressing a block failed", e);
+		}
+	}
+
+	/**
+	 * Compresses the rest and writes the gzip-trailer without closing the
+	 * underlying stream.
+	 *
+	 * @throws IOException on io-errors
+	 */
+	public void finish() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+
+		try {
+			submit(true);
+			while (!pending.isEmpty()) {
+				writeCompressed(pending.poll());
+			}
+		}
+		finally {
+			for (ForkJoinTask<byte[]> task : pending) {
+				task.cancel(false);
+			}
+			pending.clear();
+		}
+
+		writeIntLE((int) crc.getValue());
+		writeIntLE((int) size);
+	}
+
+	private void writeIntLE(final int i) throws IOException {
+		out.write(i & 0xff);
+		out.write((i >> 8) & 0xff);
+		out.write((i >> 16) & 0xff);
+		out.write((i >> 24) & 0xff);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		// blocks are only written when complete
+		out.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			finish();
+		}
+		finally {
+			out.close();
+		}
+	}
+}
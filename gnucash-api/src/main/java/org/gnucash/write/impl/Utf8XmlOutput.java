@@ -0,0 +1,252 @@
+package org.gnucash.write.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Buffered output of UTF-8 encoded xml-text, replacing a BufferedWriter on an
+ * OutputStreamWriter for the content-handler.<br/>
+ * Characters are encoded directly into a byte-buffer (like the UTF-8 encoder of
+ * the OutputStreamWriter, unpaired surrogates become '?'), names and other
+ * constant text are written as pre-encoded byte-arrays. The buffer is taken
+ * from a per-thread pool and given back on {@link #close()}.
+ *
+ * @see WritingContentHandler
+ */
+class Utf8XmlOutput {
+
+	/**
+	 * Size of the buffer.
+	 */
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * The buffers of outputs that have been closed (one per thread).
+	 */
+	private static final ThreadLocal<byte[]> POOL = new ThreadLocal<byte[]>();
+
+	/**
+	 * Enough spaces for the usual indentation.
+	 */
+	private static final byte[] SPACES = new byte[128];
+
+	static {
+		Arrays.fill(SPACES, (byte) ' ');
+	}
+
+	/**
+	 * where to write to.
+	 */
+	private final OutputStream out;
+
+	private byte[] buffer;
+
+	/**
+	 * Number of bytes in the buffer.
+	 */
+	private int count = 0;
+
+	/**
+	 * Number of bytes given to the output-stream.
+	 */
+	private long flushed = 0;
+
+	/**
+	 * @param pout where to write to
+	 */
+	Utf8XmlOutput(final OutputStream pout) {
+		out = pout;
+		buffer = POOL.get();
+		if (buffer == null) {
+			buffer = new byte[BUFFER_SIZE];
+		} else {
+			// in use now, an output created while this one is open gets a new one
+			POOL.remove();
+		}
+	}
+
+	/**
+	 * @return the number of bytes written so far
+	 */
+	long getBytesWritten() {
+		return flushed + count;
+	}
+
+	/**
+	 * @param bytes pre-encoded text
+	 * @throws IOException on io-errors
+	 */
+	void write(final byte[] bytes) throws IOException {
+		write(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * @param bytes pre-encoded text
+	 * @param off   where the text starts
+	 * @param len   the length of the text
+	 * @throws IOException on io-errors
+	 */
+	void write(final byte[] bytes, final int off, final int len) throws IOException {
+		if (len > buffer.length - count) {
+			flushBuffer();
+			if (len > buffer.length) {
+				out.write(bytes, off, len);
+				flushed += len;
+				return;
+			}
+		}
+		System.arraycopy(bytes, off, buffer, count, len);
+		count += len;
+	}
+
+	/**
+	 * @param n the number of spaces to write
+	 * @throws IOException on io-errors
+	 */
+	void writeSpaces(final int n) throws IOException {
+		int left = n;
+		while (left > 0) {
+			int len = Math.min(left, SPACES.length);
+			write(SPACES, 0, len);
+			left -= len;
+		}
+	}
+
+	/**
+	 * @param text the text to write as it is
+	 * @throws IOException on io-errors
+	 */
+	void write(final String text) throws IOException {
+		int len = text.length();
+		for (int i = 0; i < len; i++) {
+			i = writeChar(text, i);
+		}
+	}
+
+	/**
+	 * @param ch     the characters
+	 * @param start  the first character to write
+	 * @param length the number of characters
+	 * @param escape true to write '&amp;', '&lt;' and '&gt;' as entities
+	 * @throws IOException on io-errors
+	 */
+	void write(final char[] ch, final int start, final int length, final boolean escape) throws IOException {
+		int end = start + length;
+		for (int i = start; i < end; i++) {
+			char c = ch[i];
+			if (c < 0x80) {
+				if (count + 5 > buffer.length) {
+					flushBuffer();
+				}
+				if (escape && c == '&') {
+					buffer[count++] = '&';
+					buffer[count++] = 'a';
+					buffer[count++] = 'm';
+					buffer[count++] = 'p';
+					buffer[count++] = ';';
+				} else if (escape && c == '<') {
+					buffer[count++] = '&';
+					buffer[count++] = 'l';
+					buffer[count++] = 't';
+					buffer[count++] = ';';
+				} else if (escape && c == '>') {
+					buffer[count++] = '&';
+					buffer[count++] = 'g';
+					buffer[count++] = 't';
+					buffer[count++] = ';';
+				} else {
+					buffer[count++] = (byte) c;
+				}
+			} else {
+				i = writeNonAscii(c, i + 1 < end ? ch[i + 1] : 0, i);
+			}
+		}
+	}
+
+	/**
+	 * @return the index of the last character written
+	 */
+	private int writeChar(final String text, final int i) throws IOException {
+		char c = text.charAt(i);
+		if (c < 0x80) {
+			if (count == buffer.length) {
+				flushBuffer();
+			}
+			buffer[count++] = (byte) c;
+			return i;
+		}
+		return writeNonAscii(c, i + 1 < text.length() ? text.charAt(i + 1) : 0, i);
+	}
+
+	/**
+	 * @param c    a character that is no ascii-character
+	 * @param next the character after it (0 if there is none)
+	 * @param i    the index of c
+	 * @return the index of the last character written
+	 */
+	private int writeNonAscii(final char c, final char next, final int i) throws IOException {
+		if (count + 4 > buffer.length) {
+			flushBuffer();
+		}
+
+		if (c < 0x800) {
+			buffer[count++] = (byte) (0xC0 | (c >> 6));
+			buffer[count++] = (byte) (0x80 | (c & 0x3F));
+			return i;
+		}
+
+		if (Character.isHighSurrogate(c) && Character.isLowSurrogate(next)) {
+			int codePoint = Character.toCodePoint(c, next);
+			buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+			buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+			buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+			buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+			return i + 1;
+		}
+
+		if (Character.isSurrogate(c)) {
+			buffer[count++] = '?';
+			return i;
+		}
+
+		buffer[count++] = (byte) (0xE0 | (c >> 12));
+		buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+		buffer[count++] = (byte) (0x80 | (c & 0x3F));
+		return i;
+	}
+
+	private void flushBuffer() throws IOException {
+		if (count > 0) {
+			out.write(buffer, 0, count);
+			flushed += count;
+			count = 0;
+		}
+	}
+
+	/**
+	 * @throws IOException on io-errors
+	 */
+	void flush() throws IOException {
+		flushBuffer();
+		out.flush();
+	}
+
+	/**
+	 * Flushes, closes the output-stream and gives the buffer back to the pool.
+	 *
+	 * @throws IOException on io-errors
+	 */
+	void close() throws IOException {
+		try {
+			flushBuffer();
+			out.close();
+		}
+		finally {
+			if (buffer != null) {
+				POOL.set(buffer);
+				buffer = null;
+			}
+		}
+	}
+}
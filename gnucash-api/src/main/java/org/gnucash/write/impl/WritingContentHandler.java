@@ -1,8 +1,12 @@
 package org.gnucash.write.impl;
 
 import java.io.IOException;
-import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.gnucash.Const;
 import org.slf4j.Logger;
@@ -14,7 +18,9 @@ import org.xml.sax.SAXException;
 
 /**
  * Helper-Class needed for writing Gnucash-Files that are binary-identical to
- * what gnucash itself writes.
+ * what gnucash itself writes.<br/>
+ * The text is written UTF-8 encoded to a {@link Utf8XmlOutput}, the names
+ * (with their namespace-prefixes) are encoded only once.
  */
 class WritingContentHandler implements ContentHandler {
 
@@ -23,16 +29,142 @@ class WritingContentHandler implements ContentHandler {
 	 */
 	private static final Logger LOGGER = LoggerFactory.getLogger(WritingContentHandler.class);
 
+	private static final Set<String> NAMESPACE_PREFIXES = new HashSet<String>(
+			Arrays.asList(NamespaceAdderWriter.NAMESPACE_PREFIXES));
+
+	private static final byte[] XML_DECLARATION = bytes("<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n");
+
+	private static final byte[] TRAILER = bytes("\n\n" + "<!-- Local variables: -->\n" + "<!-- mode: xml        -->\n"
+			+ "<!-- End:             -->\n");
+
+	private static final byte[] XMLNS_DECLARATIONS = bytes(NamespaceAdderWriter.XMLNS_DECLARATIONS);
+
+	private static final byte[] GT = bytes(">");
+
+	private static final byte[] GT_NEWLINE = bytes(">\n");
+
+	private static final byte[] NEWLINE = bytes("\n");
+
+	private static final byte[] EMPTY_ELEMENT_END = bytes("/>");
+
+	private static final byte[] QUOTE = bytes("\"");
+
+	/**
+	 * The encoded names as written with the namespace-prefixes added by
+	 * {@link NamespaceAdderWriter#addNamespaces(String)}.
+	 */
+	private static final Map<String, Name> NAMES = new ConcurrentHashMap<String, Name>();
+
+	/**
+	 * The encoded names as written with the namespace-prefixes added by
+	 * {@link #toWrittenName(String)}.
+	 */
+	private static final Map<String, Name> NAMESPACE_AWARE_NAMES = new ConcurrentHashMap<String, Name>();
+
+	/**
+	 * A name the way it is written.
+	 */
+	private static final class Name {
+
+		/**
+		 * "&lt;name".
+		 */
+		private final byte[] start;
+
+		/**
+		 * "&lt;/name&gt;".
+		 */
+		private final byte[] end;
+
+		/**
+		 * " name=\"".
+		 */
+		private final byte[] attribute;
+
+		private Name(final String name) {
+			start = bytes("<" + name);
+			end = bytes("</" + name + ">");
+			attribute = bytes(" " + name + "=\"");
+		}
+	}
+
+	private static byte[] bytes(final String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+
 	/**
 	 * where to write it to.
 	 */
-	private final Writer writer;
+	private Utf8XmlOutput out;
+
+	/**
+	 * true if the namespace-prefixes are added by {@link #toWrittenName(String)}
+	 * (else like {@link NamespaceAdderWriter} does).
+	 */
+	private final boolean namespaceAware;
+
+	/**
+	 * @see #NAMES
+	 * @see #NAMESPACE_AWARE_NAMES
+	 */
+	private final Map<String, Name> names;
 
 	/**
-	 * @param pwriter where to write it to
+	 * @param pout where to write it to
 	 */
-	public WritingContentHandler(final Writer pwriter) {
-		writer = pwriter;
+	public WritingContentHandler(final Utf8XmlOutput pout) {
+		this(pout, false);
+	}
+
+	/**
+	 * @param pout            where to write it to
+	 * @param pnamespaceAware true to write "gnc:account" for "gnc_account"
+	 *                        replacing only the '_' behind a namespace-prefix
+	 */
+	public WritingContentHandler(final Utf8XmlOutput pout, final boolean pnamespaceAware) {
+		out = pout;
+		namespaceAware = pnamespaceAware;
+		names = namespaceAware ? NAMESPACE_AWARE_NAMES : NAMES;
+	}
+
+	/**
+	 * @return true if the last thing written was the end of an element, so the
+	 *         text written for the next element does not depend on what came
+	 *         before
+	 * @see IncrementalBookWriter
+	 */
+	boolean isBehindElement() {
+		return last_was == LAST_WAS_CLOSE_ELEMENT;
+	}
+
+	/**
+	 * Only the '_' behind a known namespace-prefix is replaced, so names like
+	 * "cmdty_quote_tz" become "cmdty:quote_tz".
+	 *
+	 * @param qName the name the JAXB-classes are bound to
+	 * @return the name to write
+	 */
+	private static String toWrittenName(final String qName) {
+		int index = qName.indexOf('_');
+		if (index > 0 && NAMESPACE_PREFIXES.contains(qName.substring(0, index))) {
+			return qName.substring(0, index) + ":" + qName.substring(index + 1);
+		}
+
+		return qName;
+	}
+
+	/**
+	 * @param qName the name the JAXB-classes are bound to
+	 * @return the name to write
+	 */
+	private Name getName(final String qName) {
+		Name name = names.get(qName);
+		if (name == null) {
+			name = new Name(namespaceAware ? toWrittenName(qName) : NamespaceAdderWriter.addNamespaces(qName));
+			names.put(qName, name);
+		}
+
+		return name;
 	}
 
 	/**
@@ -41,11 +173,11 @@ class WritingContentHandler implements ContentHandler {
 	public void endDocument() throws SAXException {
 
 		try {
-			writer.write("\n\n" + "<!-- Local variables: -->\n" + "<!-- mode: xml        -->\n"
-					+ "<!-- End:             -->\n");
+			out.write(TRAILER);
 		}
 		catch (IOException e) {
-			LOGGER.error("Problem in WritingContentHandler", e);
+			// the marshalling has to fail, not write an incomplete file
+			throw new SAXException("Problem in WritingContentHandler", e);
 		}
 
 	}
@@ -57,23 +189,20 @@ class WritingContentHandler implements ContentHandler {
 
 		try {
 			// old gnucash-version writer.write("<?xml version=\"1.0\"?>\n");
-			writer.write("<?xml version=\"1.0\" encoding=\"utf-8\" ?>\n");
+			out.write(XML_DECLARATION);
 		}
 		catch (IOException e) {
-			LOGGER.error("Problem in WritingContentHandler", e);
+			throw new SAXException("Problem in WritingContentHandler", e);
 		}
 	}
 
-	private final String encodeme[] = new String[] {"&", ">", "<"};
-	private final String encoded[] = new String[] {"&amp;", "&gt;", "&lt;"};
-
 	/**
 	 * @see org.xml.sax.ContentHandler#characters(char[], int, int)
 	 */
 	public void characters(char[] ch, int start, int length) throws SAXException {
 		try {
 			if (last_was == LAST_WAS_OPEN_ELEMENT) {
-				writer.write(">");
+				out.write(GT);
 			}
 
 			if (last_was == LAST_WAS_CLOSE_ELEMENT) {
@@ -83,33 +212,16 @@ class WritingContentHandler implements ContentHandler {
 			// make shure GUIDs are written with non-capital letters
 			if (isGUID) {
 				String s = new String(ch, start, length);
-				writer.write(s.toLowerCase());
+				out.write(s.toLowerCase());
 			} else {
-
-				StringBuffer sb = new StringBuffer();
-				sb.append(ch, start, length);
-
-				for (int j = 0; j < encodeme.length; j++) {
-					int index = 0;
-					while ((index = sb.indexOf(encodeme[j], index)) != -1) {
-						sb.replace(index, index + encodeme[j].length(), encoded[j]);
-						index += encoded[j].length() - encodeme[j].length() + 1;
-					}
-
-				}
-
-				// String s = sb.toString();
-				// if(s.indexOf("bis 410") != -1) {
-				// System.err.println(s+"---"+Integer.toHexString(s.charAt(s.length()-1)));
-				// }
-
-				writer.write(sb.toString());
+				// '&', '>' and '<' as entities
+				out.write(ch, start, length, true);
 			}
 
 			last_was = LAST_WAS_CHARACTER_DATA;
 		}
 		catch (IOException e) {
-			LOGGER.error("Problem in WritingContentHandler", e);
+			throw new SAXException("Problem in WritingContentHandler", e);
 		}
 
 	}
@@ -152,15 +264,15 @@ class WritingContentHandler implements ContentHandler {
 	 */
 	public void processingInstruction(final String target, final String data) throws SAXException {
 		try {
-			writer.write("<?" + target);
+			out.write("<?" + target);
 			if (data != null) {
-				writer.write(data);
+				out.write(data);
 			}
 
-			writer.write("?>\n");
+			out.write("?>\n");
 		}
 		catch (IOException e) {
-			e.printStackTrace();
+			throw new SAXException("Problem in WritingContentHandler", e);
 		}
 
 	}
@@ -188,23 +300,23 @@ class WritingContentHandler implements ContentHandler {
 			depth -= 2;
 
 			if (last_was == LAST_WAS_CLOSE_ELEMENT) {
-				writer.write("\n");
+				out.write(NEWLINE);
 				writeSpaces();
-				writer.write("</" + qName + ">");
+				out.write(getName(qName).end);
 			}
 
 			if (last_was == LAST_WAS_OPEN_ELEMENT) {
-				writer.write("/>");
+				out.write(EMPTY_ELEMENT_END);
 			}
 
 			if (last_was == LAST_WAS_CHARACTER_DATA) {
-				writer.write("</" + qName + ">");
+				out.write(getName(qName).end);
 			}
 
 			last_was = LAST_WAS_CLOSE_ELEMENT;
 		}
 		catch (IOException e) {
-			LOGGER.error("Problem in WritingContentHandler", e);
+			throw new SAXException("Problem in WritingContentHandler", e);
 		}
 
 	}
@@ -222,17 +334,20 @@ class WritingContentHandler implements ContentHandler {
 			final Attributes atts) throws SAXException {
 		try {
 			if (last_was == LAST_WAS_OPEN_ELEMENT) {
-				writer.write(">\n");
+				out.write(GT_NEWLINE);
 				writeSpaces();
 
 			}
 
 			if (last_was == LAST_WAS_CLOSE_ELEMENT) {
-				writer.write("\n");
+				out.write(NEWLINE);
 				writeSpaces();
 			}
 
-			writer.write("<" + qName);
+			out.write(getName(qName).start);
+			if (qName.equals("gnc-v2")) {
+				out.write(XMLNS_DECLARATIONS);
+			}
 
 			if (qName.equals("gnc_template-transactions")) {
 				insideGncTemplateTransactions = true;
@@ -242,7 +357,9 @@ class WritingContentHandler implements ContentHandler {
 			isGUID = false;
 			isSlotvalueTypeString = false;
 			for (int i = 0; i < atts.getLength(); i++) {
-				writer.write(" " + atts.getQName(i) + "=\"" + atts.getValue(i) + "\"");
+				out.write(getName(atts.getQName(i)).attribute);
+				out.write(atts.getValue(i));
+				out.write(QUOTE);
 
 				if (atts.getQName(i).equals("type") &&
 						atts.getValue(i).equals(Const.XML_DATA_TYPE_GUID)) {
@@ -260,7 +377,7 @@ class WritingContentHandler implements ContentHandler {
 			last_was = LAST_WAS_OPEN_ELEMENT;
 		}
 		catch (IOException e) {
-			LOGGER.error("Problem in WritingContentHandler", e);
+			throw new SAXException("Problem in WritingContentHandler", e);
 		}
 
 	}
@@ -275,7 +392,7 @@ class WritingContentHandler implements ContentHandler {
 				return;
 			}
 
-			writer.write(getSpaces(), 0, depth - 6);
+			out.writeSpaces(depth - 6);
 			return;
 		}
 
@@ -283,7 +400,7 @@ class WritingContentHandler implements ContentHandler {
 			return;
 		}
 
-		writer.write(getSpaces(), 0, depth - 4);
+		out.writeSpaces(depth - 4);
 	}
 
 	int depth = 0;
@@ -292,15 +409,4 @@ class WritingContentHandler implements ContentHandler {
 	private static final int LAST_WAS_OPEN_ELEMENT = 1;
 	private static final int LAST_WAS_CLOSE_ELEMENT = 2;
 	private static final int LAST_WAS_CHARACTER_DATA = 3;
-
-	private char[] spaces;
-
-	protected char[] getSpaces() {
-		if (spaces == null || spaces.length < depth) {
-			spaces = new char[depth];
-			Arrays.fill(spaces, ' ');
-		}
-
-		return spaces;
-	}
 }
@@ -120,7 +120,7 @@ public class GnucashWritableVendorJobImpl extends GnucashVendorJobImpl implement
 		}
 
 		file.getRootElement().getGncBook().getBookElements().add(job);
-		file.setModified(true);
+		file.setBookElementModified(job);
 		return job;
 
 	}
@@ -171,8 +171,10 @@ public class GnucashWritableVendorJobImpl extends GnucashVendorJobImpl implement
 		if (oldVend == vend) {
 			return; // nothing has changed
 		}
+		String oldOwnerId = getOwnerId();
 		getJwsdpPeer().getJobOwner().getOwnerId().setValue(vend.getId());
-		getWritingFile().setModified(true);
+		getWritingFile().jobOwnerChanged(this, oldOwnerId);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 		// <<insert code to react further to this change here
 		PropertyChangeSupport propertyChangeFirer = getPropertyChangeSupport();
 		if (propertyChangeFirer != null) {
@@ -198,7 +200,7 @@ public class GnucashWritableVendorJobImpl extends GnucashVendorJobImpl implement
 			return; // nothing has changed
 		}
 		getJwsdpPeer().setJobId(jobId);
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 		// <<insert code to react further to this change here
 		PropertyChangeSupport propertyChangeFirer = getPropertyChangeSupport();
 		if (propertyChangeFirer != null) {
@@ -220,7 +222,7 @@ public class GnucashWritableVendorJobImpl extends GnucashVendorJobImpl implement
 			return; // nothing has changed
 		}
 		getJwsdpPeer().setJobName(jobName);
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 		// <<insert code to react further to this change here
 		PropertyChangeSupport propertyChangeFirer = getPropertyChangeSupport();
 		if (propertyChangeFirer != null) {
@@ -242,7 +244,7 @@ public class GnucashWritableVendorJobImpl extends GnucashVendorJobImpl implement
 		} else {
 			getJwsdpPeer().setJobActive(0);
 		}
-		getWritingFile().setModified(true);
+		getWritingFile().setBookElementModified(getJwsdpPeer());
 		// <<insert code to react further to this change here
 		PropertyChangeSupport propertyChangeFirer = getPropertyChangeSupport();
 		if (propertyChangeFirer != null) {
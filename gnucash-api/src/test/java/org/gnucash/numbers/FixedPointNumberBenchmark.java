@@ -0,0 +1,93 @@
+package org.gnucash.numbers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+/**
+ * Time per operation of {@link FixedPointNumber} (add, multiply, parse and
+ * compare over values with up to 6 digits behind the comma, as in a book) and
+ * of the same operations on BigDecimal, which FixedPointNumber used for all of
+ * them before. FixedPointNumber is mutable, so multiplying two values without
+ * changing them includes a copy. Not a test, run it with
+ *
+ * <pre>
+ * mvn test-compile
+ * java -cp target/classes:target/test-classes org.gnucash.numbers.FixedPointNumberBenchmark [operations]
+ * </pre>
+ */
+public class FixedPointNumberBenchmark {
+
+  private static final int VALUES = 1024;
+
+  private interface Operation {
+    /**
+     * @return something computed, so the work is not optimized away
+     */
+    long run(int i);
+  }
+
+  public static void main(final String[] args) {
+    int operations = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+
+    Random random = new Random(42);
+    final BigDecimal[] decimals = new BigDecimal[VALUES];
+    final FixedPointNumber[] numbers = new FixedPointNumber[VALUES];
+    final String[] texts = new String[VALUES];
+    for (int i = 0; i < VALUES; i++) {
+      decimals[i] = BigDecimal.valueOf(random.nextInt(2000001) - 1000000, random.nextInt(7));
+      numbers[i] = new FixedPointNumber(decimals[i]);
+      texts[i] = numbers[i].toGnucashString();
+    }
+
+    final FixedPointNumber sum = new FixedPointNumber();
+    final BigDecimal[] decimalSum = { BigDecimal.ZERO };
+
+    // (the sign as the result, hashCode() would give the value as a BigDecimal)
+    Operation fixedAdd = i -> sign(sum.add(numbers[i % VALUES]));
+    Operation decimalAdd = i -> (decimalSum[0] = decimalSum[0].add(decimals[i % VALUES])).signum();
+    Operation fixedMultiply = i -> sign(numbers[i % VALUES].copy().multiply(numbers[(i + 1) % VALUES]));
+    Operation decimalMultiply = i -> decimals[i % VALUES].multiply(decimals[(i + 1) % VALUES]).signum();
+    Operation fixedParse = i -> sign(new FixedPointNumber(texts[i % VALUES]));
+    Operation decimalParse = i -> parse(texts[i % VALUES]).signum();
+    Operation fixedCompare = i -> numbers[i % VALUES].isGreaterThan(numbers[(i + 1) % VALUES]) ? 1 : 0;
+    Operation decimalCompare = i -> decimals[i % VALUES].compareTo(decimals[(i + 1) % VALUES]);
+
+    for (int round = 0; round < 3; round++) {
+      run("add        FixedPointNumber", fixedAdd, operations);
+      run("add        BigDecimal      ", decimalAdd, operations);
+      run("multiply   FixedPointNumber", fixedMultiply, operations);
+      run("multiply   BigDecimal      ", decimalMultiply, operations);
+      run("parse      FixedPointNumber", fixedParse, operations);
+      run("parse      BigDecimal      ", decimalParse, operations);
+      run("compare    FixedPointNumber", fixedCompare, operations);
+      run("compare    BigDecimal      ", decimalCompare, operations);
+      System.out.println();
+    }
+  }
+
+  private static long sign(final FixedPointNumber number) {
+    return number.isPositive() ? 1 : -1;
+  }
+
+  /**
+   * "num/denom" the way FixedPointNumber parsed it before.
+   */
+  private static BigDecimal parse(final String text) {
+    int slash = text.indexOf('/');
+    BigDecimal value = new BigDecimal(text.substring(0, slash));
+    BigDecimal denom = new BigDecimal(text.substring(slash + 1));
+    return value.divide(denom, Math.max(5, value.scale()), RoundingMode.HALF_UP);
+  }
+
+  private static void run(final String name, final Operation operation, final int operations) {
+    long sink = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < operations; i++) {
+      sink += operation.run(i);
+    }
+    long nanos = System.nanoTime() - start;
+    System.out.println(
+        name + ": " + String.format("%6.1f", (double) nanos / operations) + " ns/op (" + (sink & 1) + ")");
+  }
+}
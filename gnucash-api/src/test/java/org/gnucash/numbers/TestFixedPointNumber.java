@@ -0,0 +1,152 @@
+package org.gnucash.numbers;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestFixedPointNumber {
+
+  /**
+   * Values around the limits of the long-representation.
+   */
+  private static final BigDecimal[] VALUES = { new BigDecimal("0"), new BigDecimal("0.00"), new BigDecimal("-0.5"),
+      new BigDecimal("12.34"), new BigDecimal("-12345.678"), new BigDecimal("1E+3"),
+      new BigDecimal("999999999999999999"), new BigDecimal("-999999999999999999"),
+      new BigDecimal("9223372036854775807"), new BigDecimal("-9223372036854775808"),
+      new BigDecimal("0.000000000000000001"), new BigDecimal("123456789012345678901234567890.12") };
+
+  private static BigDecimal random(final Random random) {
+    if (random.nextInt(10) == 0) {
+      return VALUES[random.nextInt(VALUES.length)];
+    }
+    return BigDecimal.valueOf(random.nextInt(2000001) - 1000000, random.nextInt(7));
+  }
+
+  /**
+   * The result has to be the same BigDecimal (including the scale).
+   */
+  private static void assertSame(final FixedPointNumber actual, final BigDecimal expected) {
+    Assert.assertEquals(actual.getBigDecimal(), expected);
+    Assert.assertEquals(actual.getBigDecimal().scale(), expected.scale());
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    // the long-representation computes what BigDecimal computes
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      BigDecimal a = random(random);
+      BigDecimal b = random(random);
+      int n = random.nextInt(2001) - 1000;
+
+      assertSame(new FixedPointNumber(a).add(new FixedPointNumber(b)), a.add(b));
+      assertSame(new FixedPointNumber(a).subtract(new FixedPointNumber(b)), a.subtract(b));
+      assertSame(new FixedPointNumber(a).multiply(new FixedPointNumber(b)), a.multiply(b));
+      assertSame(new FixedPointNumber(a).add(n), a.add(new BigDecimal(n)));
+      assertSame(new FixedPointNumber(a).subtract(n), a.subtract(new BigDecimal(n)));
+      assertSame(new FixedPointNumber(a).multiply(n), a.multiply(new BigDecimal(n)));
+      assertSame(new FixedPointNumber(a).negate(), a.negate());
+
+      FixedPointNumber fa = new FixedPointNumber(a);
+      FixedPointNumber fb = new FixedPointNumber(b);
+      Assert.assertEquals(fa.equals(fb), a.compareTo(b) == 0);
+      Assert.assertEquals(fa.isGreaterThan(fb), a.compareTo(b) > 0);
+      Assert.assertEquals(fa.isLessThan(fb), a.compareTo(b) < 0);
+      Assert.assertEquals(fa.isPositive(), a.signum() >= 0);
+      Assert.assertEquals(fa.hashCode(), a.hashCode());
+      Assert.assertEquals(FixedPointNumber.max(fa, fb).getBigDecimal(), a.compareTo(b) < 0 ? b : a);
+    }
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // chains of operations switching between both representations
+    FixedPointNumber sum = new FixedPointNumber();
+    BigDecimal expected = BigDecimal.ZERO;
+    for (BigDecimal value : VALUES) {
+      sum.add(new FixedPointNumber(value)).multiply(3).subtract(new FixedPointNumber("7/100"));
+      expected = expected.add(value).multiply(new BigDecimal(3)).subtract(new BigDecimal("0.07"));
+      assertSame(sum, expected);
+    }
+    sum.divideBy(7);
+    expected = expected.divide(new BigDecimal(7), RoundingMode.HALF_UP);
+    assertSame(sum.add(1), expected.add(BigDecimal.ONE));
+
+    FixedPointNumber copy = sum.copy();
+    sum.add(1);
+    assertSame(copy, expected.add(BigDecimal.ONE));
+  }
+
+  @Test
+  public void test03() throws Exception {
+    // what gnucash writes
+    assertSame(new FixedPointNumber("12345/100"), new BigDecimal("123.45"));
+    assertSame(new FixedPointNumber("-12345/100"), new BigDecimal("-123.45"));
+    assertSame(new FixedPointNumber("-0/100"), new BigDecimal("0.00"));
+    assertSame(new FixedPointNumber("42/1"), new BigDecimal("42"));
+    assertSame(new FixedPointNumber("+5/1000"), new BigDecimal("0.005"));
+    assertSame(new FixedPointNumber("123456789012345678901/100"), new BigDecimal("1234567890123456789.01"));
+    // other formats
+    assertSame(new FixedPointNumber("1/3"), new BigDecimal("0.33333"));
+    assertSame(new FixedPointNumber(" 12345 / 100"), new BigDecimal("123.45"));
+    assertSame(new FixedPointNumber("0,5"), new BigDecimal("0.5"));
+    assertSame(new FixedPointNumber("123"), new BigDecimal("123"));
+
+    Assert.assertEquals(new FixedPointNumber("12345/100").toGnucashString(), "12345/100");
+    Assert.assertEquals(new FixedPointNumber("5/1").toGnucashString(), "500/100");
+    Assert.assertEquals(new FixedPointNumber("12345/100000").toGnucashString(), "12345/100000");
+    Assert.assertEquals(new FixedPointNumber("1/3").toGnucashString(), "33333/100000");
+    Assert.assertEquals(new FixedPointNumber(new BigDecimal("1.0000049")).toGnucashString(), "100000/100000");
+    Assert.assertEquals(new FixedPointNumber(new BigDecimal("123456789012345678901234567890.12")).toGnucashString(),
+        "12345678901234567890123456789012/100");
+  }
+
+  @Test
+  public void test04() throws Exception {
+    // decimals give what the BigDecimal-parsing gave
+    assertSame(new FixedPointNumber("-123.45"), new BigDecimal("-123.45"));
+    assertSame(new FixedPointNumber("0.50"), new BigDecimal("0.50"));
+    assertSame(new FixedPointNumber(".5"), new BigDecimal("0.5"));
+    assertSame(new FixedPointNumber("5."), new BigDecimal("5"));
+    assertSame(new FixedPointNumber("1,234"), new BigDecimal("1.234"));
+    assertSame(new FixedPointNumber("1.234,5"), new BigDecimal("1234.5"));
+    assertSame(new FixedPointNumber("12.50 €"), new BigDecimal("12.50"));
+    assertSame(new FixedPointNumber("1234567890123456789.5"), new BigDecimal("1234567890123456789.5"));
+
+    // what only the fallback parses
+    assertSame(new FixedPointNumber("1'234,50"), new BigDecimal("1234.50"));
+    assertSame(new FixedPointNumber("$ 5"), new BigDecimal("5"));
+    assertSame(new FixedPointNumber("12,50 &euro;"), new BigDecimal("12.50"));
+    assertSame(new FixedPointNumber("12,50&EURO;"), new BigDecimal("12.50"));
+    assertSame(new FixedPointNumber("3 &pound;"), new BigDecimal("3"));
+    assertSame(new FixedPointNumber("&euro;12,50"), new BigDecimal("12.50"));
+    assertSame(new FixedPointNumber("&euro;12.50"), new BigDecimal("12.50"));
+    assertSame(new FixedPointNumber("&pound; 3"), new BigDecimal("3"));
+    assertSame(new FixedPointNumber("€1.234,50"), new BigDecimal("1234.50"));
+    assertSame(new FixedPointNumber("1E+3"), new BigDecimal("1E+3"));
+
+    // parts of a buffer
+    String buffer = "<split:value>-12345/100</split:value><split:quantity>7.25</split:quantity>";
+    assertSame(new FixedPointNumber(buffer, 13, 23), new BigDecimal("-123.45"));
+    assertSame(new FixedPointNumber(new StringBuilder(buffer), 53, 57), new BigDecimal("7.25"));
+    assertSame(new FixedPointNumber("x1/3x", 1, 4), new BigDecimal("0.33333"));
+
+    try {
+      new FixedPointNumber(buffer, 13, buffer.length() + 1);
+      Assert.fail("no exception");
+    } catch (IndexOutOfBoundsException e) {
+      // expected
+    }
+    try {
+      new FixedPointNumber("abc");
+      Assert.fail("no exception");
+    } catch (NumberFormatException e) {
+      // expected
+    }
+  }
+}
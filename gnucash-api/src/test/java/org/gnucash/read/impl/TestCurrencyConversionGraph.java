@@ -0,0 +1,86 @@
+package org.gnucash.read.impl;
+
+import java.util.Collections;
+
+import org.gnucash.generated.GncPricedb;
+import org.gnucash.generated.ObjectFactory;
+import org.gnucash.generated.Price;
+import org.gnucash.messages.ApplicationMessages;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestCurrencyConversionGraph {
+  private final ObjectFactory factory = new ObjectFactory();
+  private GncPricedb priceDB;
+
+  @BeforeMethod
+  public void initialize() throws Exception {
+    ApplicationMessages.setup();
+    priceDB = factory.createGncPricedb();
+    priceDB.setVersion(1);
+  }
+
+  private void addQuote(final String cmdtySpace, final String cmdtyId, final String currencySpace,
+      final String currencyId, final String date, final String value) {
+    Price quote = factory.createPrice();
+    quote.setPriceId(factory.createPricePriceId());
+    quote.getPriceId().setValue(Integer.toString(priceDB.getPrice().size()));
+    quote.setPriceCommodity(factory.createPricePriceCommodity());
+    quote.getPriceCommodity().setCmdtySpace(cmdtySpace);
+    quote.getPriceCommodity().setCmdtyId(cmdtyId);
+    quote.setPriceCurrency(factory.createPricePriceCurrency());
+    quote.getPriceCurrency().setCmdtySpace(currencySpace);
+    quote.getPriceCurrency().setCmdtyId(currencyId);
+    quote.setPriceTime(factory.createPricePriceTime());
+    quote.getPriceTime().setTsDate(date + " 10:59:00 +0000");
+    quote.setPriceValue(value);
+    priceDB.getPrice().add(quote);
+  }
+
+  private CurrencyConversionGraph createGraph() {
+    return new CurrencyConversionGraph(new PriceIndex(Collections.singletonList(priceDB)), "EUR");
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    addQuote("ISO4217", "USD", "ISO4217", "EUR", "2023-07-01", "9/10");
+    addQuote("ISO4217", "USD", "ISO4217", "EUR", "2023-07-02", "4/5");
+    addQuote("NASDAQ", "AAPL", "ISO4217", "USD", "2023-07-02", "200");
+    addQuote("FUND", "XYZ", "NASDAQ", "AAPL", "2023-07-02", "1/2");
+
+    CurrencyConversionGraph graph = createGraph();
+
+    // latest quote only
+    Assert.assertEquals(graph.getFactor("ISO4217", "USD").doubleValue(), 0.8);
+    Assert.assertEquals(graph.getFactor("NASDAQ", "AAPL").doubleValue(), 160.0);
+    Assert.assertEquals(graph.getFactor("FUND", "XYZ").doubleValue(), 80.0);
+    Assert.assertEquals(graph.getFactor("ISO4217", "EUR").doubleValue(), 1.0);
+    Assert.assertNull(graph.getFactor("ISO4217", "JPY"));
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // base-currency quoted in another currency: use the inverse
+    addQuote("ISO4217", "EUR", "ISO4217", "CHF", "2023-07-02", "2");
+    addQuote("AMEX", "ABC", "ISO4217", "CHF", "2023-07-02", "10");
+
+    CurrencyConversionGraph graph = createGraph();
+
+    Assert.assertEquals(graph.getFactor("ISO4217", "CHF").doubleValue(), 0.5);
+    Assert.assertEquals(graph.getFactor("AMEX", "ABC").doubleValue(), 5.0);
+    Assert.assertEquals(graph.getFactor("ISO4217", "EUR").doubleValue(), 1.0);
+  }
+
+  @Test
+  public void test03() throws Exception {
+    // no path to the base-currency: the quote is taken as is
+    addQuote("NYSE", "IBM", "ISO4217", "USD", "2023-07-02", "140");
+
+    CurrencyConversionGraph graph = createGraph();
+
+    Assert.assertEquals(graph.getFactor("NYSE", "IBM").doubleValue(), 140.0);
+  }
+}
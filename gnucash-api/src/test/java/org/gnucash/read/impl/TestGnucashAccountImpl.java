@@ -1,10 +1,14 @@
 package org.gnucash.read.impl;
 
 import java.io.InputStream;
+import java.time.LocalDate;
+import java.time.ZoneId;
 
 import org.gnucash.ConstTest;
+import org.gnucash.numbers.FixedPointNumber;
 import org.gnucash.read.GnucashAccount;
 import org.gnucash.read.GnucashFile;
+import org.gnucash.read.GnucashTransactionSplit;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -203,4 +207,42 @@ public class TestGnucashAccountImpl {
 		Assert.assertEquals(acct.getTransactions().size(), 1);
 		Assert.assertEquals(acct.getTransactions().get(0).getId(), "cc9fe6a245df45ba9b494660732a7755");
 	}
+
+	// -----------------------------------------------------------------
+
+	@Test
+	public void test02_1() throws Exception {
+		acct = gcshFile.getAccountByID(ACCT_1_ID);
+
+		FixedPointNumber balance = new FixedPointNumber();
+		for (GnucashTransactionSplit splt : acct.getTransactionSplits()) {
+			balance.add(splt.getQuantity());
+			Assert.assertEquals(splt.getAccountBalance(), balance);
+		}
+
+		Assert.assertEquals(balance.doubleValue(), 3560.46, ConstTest.DIFF_TOLERANCE);
+	}
+
+	@Test
+	public void test02_2() throws Exception {
+		acct = gcshFile.getAccountByID(ACCT_1_ID);
+
+		LocalDate date = LocalDate.of(2023, 8, 20);
+		FixedPointNumber balance = new FixedPointNumber();
+		for (GnucashTransactionSplit splt : acct.getTransactionSplits()) {
+			if (splt.getTransaction().getDatePosted().isBefore(date.atStartOfDay(ZoneId.systemDefault()))) {
+				balance.add(splt.getQuantity());
+			}
+		}
+
+		Assert.assertEquals(acct.getBalance(date), balance);
+		Assert.assertEquals(acct.getBalance(LocalDate.of(2000, 1, 1)).doubleValue(), 0.00, ConstTest.DIFF_TOLERANCE);
+		Assert.assertEquals(acct.getBalance(LocalDate.of(2100, 1, 1)).doubleValue(), 3560.46, ConstTest.DIFF_TOLERANCE);
+
+		Assert.assertEquals(acct.getLastSplitBeforeRecursive(date).getTransaction().getId(),
+				"67796d4f7c924c1da38f7813dbc3a99d");
+		Assert.assertEquals(acct.getLastSplitBeforeRecursive(null).getTransaction().getId(),
+				"ccff780b18294435bf03c6cb1ac325c1");
+		Assert.assertNull(acct.getLastSplitBeforeRecursive(LocalDate.of(2000, 1, 1)));
+	}
 }
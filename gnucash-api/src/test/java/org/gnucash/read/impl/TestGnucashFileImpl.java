@@ -1,10 +1,27 @@
 package org.gnucash.read.impl;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.gnucash.ConstTest;
+import org.gnucash.generated.GncV2;
 import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.read.GnucashAccount;
+import org.gnucash.read.GnucashCustomer;
 import org.gnucash.read.GnucashFile;
+import org.gnucash.read.GnucashVendor;
+import org.gnucash.read.auxiliary.GCshBillTerms;
+import org.gnucash.read.auxiliary.GCshTaxTable;
+import org.gnucash.write.GnucashWritableAccount;
+import org.gnucash.write.impl.GnucashWritableFileImpl;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -83,4 +100,304 @@ public class TestGnucashFileImpl {
     Assert.assertEquals(gcshFile.getNofEntriesPricesInDB(), 6);
   }
 
+  @Test
+  public void test10() throws Exception {
+    // read-only files may be streamed, writable files are unmarshalled completely
+    LoadOptions streamingOptions = new LoadOptions();
+    streamingOptions.setStreaming(true);
+    GnucashFileImpl streamed = new GnucashFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME), streamingOptions);
+    GnucashWritableFileImpl complete = new GnucashWritableFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME));
+
+    Assert.assertEquals(streamed.getNofEntriesAccountMap(), complete.getNofEntriesAccountMap());
+    Assert.assertEquals(streamed.getNofEntriesTransactionSplitsMap(), complete.getNofEntriesTransactionSplitsMap());
+    Assert.assertEquals(streamed.getNofEntriesGenerInvoiceEntriesMap(), complete.getNofEntriesGenerInvoiceEntriesMap());
+    Assert.assertEquals(streamed.getRootElement().getGncBook().getGncCountData().size(),
+        complete.getRootElement().getGncBook().getGncCountData().size());
+
+    Assert.assertFalse(containsCommodities(streamed.getRootElement()));
+    Assert.assertTrue(containsCommodities(complete.getRootElement()));
+    // not streamed by default
+    Assert.assertTrue(containsCommodities(((GnucashFileImpl) gcshFile).getRootElement()));
+  }
+
+  @Test
+  public void test11() throws Exception {
+    // binding the namespaces on the parser level instead of rewriting the document
+    LoadOptions options = new LoadOptions();
+    options.setNamespaceAware(true);
+    options.setStreaming(true);
+    GnucashFileImpl streamed = new GnucashFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME), options);
+
+    Assert.assertEquals(streamed.getNofEntriesAccountMap(), gcshFile.getNofEntriesAccountMap());
+    Assert.assertEquals(streamed.getNofEntriesTransactionSplitsMap(),
+        ((GnucashFileImpl) gcshFile).getNofEntriesTransactionSplitsMap());
+    Assert.assertEquals(streamed.getNofEntriesCustomerMap(), ((GnucashFileImpl) gcshFile).getNofEntriesCustomerMap());
+    Assert.assertEquals(streamed.getNofEntriesPricesInDB(), ((GnucashFileImpl) gcshFile).getNofEntriesPricesInDB());
+    for (GnucashAccount account : gcshFile.getAccounts()) {
+      Assert.assertEquals(streamed.getAccountByID(account.getId()).getQualifiedName(), account.getQualifiedName());
+      Assert.assertEquals(streamed.getAccountByID(account.getId()).getBalance(), account.getBalance());
+    }
+
+    GnucashWritableFileImpl complete = new GnucashWritableFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME), options);
+    Assert.assertEquals(complete.getNofEntriesAccountMap(), gcshFile.getNofEntriesAccountMap());
+    Assert.assertTrue(containsCommodities(complete.getRootElement()));
+  }
+
+  @Test
+  public void test12() throws Exception {
+    // loading from the snapshot of an unchanged file
+    File dir = Files.createTempDirectory("gc").toFile();
+    File file = new File(dir, ConstTest.GCSH_FILENAME);
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME)) {
+      Files.copy(in, file.toPath());
+    }
+    LoadOptions options = new LoadOptions();
+    options.setSnapshotCache(true);
+    options.setStreaming(true);
+
+    GnucashFileImpl parsed = new GnucashFileImpl(file, options);
+    Assert.assertFalse(parsed.isLoadedFromSnapshot());
+    BookSnapshot.awaitWrites();
+    Assert.assertTrue(BookSnapshot.getSnapshotFile(file).exists());
+
+    GnucashFileImpl cached = new GnucashFileImpl(file, options);
+    Assert.assertTrue(cached.isLoadedFromSnapshot());
+    Assert.assertEquals(cached.getNofEntriesAccountMap(), gcshFile.getNofEntriesAccountMap());
+    Assert.assertEquals(cached.getNofEntriesTransactionSplitsMap(),
+        ((GnucashFileImpl) gcshFile).getNofEntriesTransactionSplitsMap());
+    Assert.assertEquals(cached.getNofEntriesGenerInvoiceEntriesMap(),
+        ((GnucashFileImpl) gcshFile).getNofEntriesGenerInvoiceEntriesMap());
+    Assert.assertEquals(cached.getNofEntriesPricesInDB(), ((GnucashFileImpl) gcshFile).getNofEntriesPricesInDB());
+    for (GnucashAccount account : gcshFile.getAccounts()) {
+      Assert.assertEquals(cached.getAccountByID(account.getId()).getQualifiedName(), account.getQualifiedName());
+      Assert.assertEquals(cached.getAccountByID(account.getId()).getBalance(), account.getBalance());
+    }
+
+    // the snapshot of the streamed document is not enough for a writable file
+    GnucashWritableFileImpl complete = new GnucashWritableFileImpl(file, options);
+    Assert.assertFalse(((GnucashFileImpl) complete).isLoadedFromSnapshot());
+    BookSnapshot.awaitWrites();
+    GnucashWritableFileImpl completeCached = new GnucashWritableFileImpl(file, options);
+    Assert.assertTrue(((GnucashFileImpl) completeCached).isLoadedFromSnapshot());
+    Assert.assertTrue(new GnucashFileImpl(file, options).isLoadedFromSnapshot());
+
+    File written1 = new File(dir, "written1.gnucash");
+    File written2 = new File(dir, "written2.gnucash");
+    complete.writeFile(written1);
+    completeCached.writeFile(written2);
+    Assert.assertEquals(Files.readAllBytes(written2.toPath()), Files.readAllBytes(written1.toPath()));
+
+    // a changed file is parsed again
+    Files.write(file.toPath(), "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    Assert.assertFalse(new GnucashFileImpl(file, options).isLoadedFromSnapshot());
+    BookSnapshot.awaitWrites();
+    Assert.assertTrue(new GnucashFileImpl(file, options).isLoadedFromSnapshot());
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void test13() throws Exception {
+    // the indexes give the first match of a scan
+    for (GnucashAccount acct : gcshFile.getAccounts()) {
+      Assert.assertEquals(gcshFile.getAccountByName(acct.getName()).getName(), acct.getName());
+      Assert.assertEquals(gcshFile.getAccountByName(acct.getQualifiedName()).getQualifiedName(),
+          acct.getQualifiedName());
+      Assert.assertEquals(gcshFile.getAccountByNameEx(acct.getName()).getName(), acct.getName());
+    }
+    Assert.assertNull(gcshFile.getAccountByName("no such account"));
+    Assert.assertNull(gcshFile.getAccountByNameEx("no such .*"));
+    for (int i = 0; i < 2; i++) {
+      // compiled once, found again from the cache
+      Assert.assertEquals(gcshFile.getAccountByNameEx("Aktiv.*").getName(), "Aktiva");
+    }
+
+    for (GnucashCustomer cust : gcshFile.getCustomers()) {
+      Assert.assertEquals(gcshFile.getCustomerByName(cust.getName()), cust);
+    }
+    for (GnucashVendor vend : gcshFile.getVendors()) {
+      Assert.assertEquals(gcshFile.getVendorByName(vend.getName()), vend);
+    }
+    for (GCshTaxTable taxTab : gcshFile.getTaxTables()) {
+      Assert.assertEquals(gcshFile.getTaxTableByName(taxTab.getName()), taxTab);
+    }
+    for (GCshBillTerms billTerms : gcshFile.getBillTerms()) {
+      Assert.assertEquals(gcshFile.getBillTermsByName(billTerms.getName()), billTerms);
+    }
+    Assert.assertNull(gcshFile.getCustomerByName("no such customer"));
+    Assert.assertNull(gcshFile.getVendorByName("no such vendor"));
+    Assert.assertNull(gcshFile.getTaxTableByName("no such tax table"));
+    Assert.assertNull(gcshFile.getBillTermsByName("no such bill terms"));
+  }
+
+  @Test
+  public void test14() throws Exception {
+    // the trie gives what comparing all qualified names gives
+    List<String> prefixes = new ArrayList<String>(Arrays.asList("", "A", "Akt", "Aktiva:", "Aktiva::", "x"));
+    for (GnucashAccount acct : gcshFile.getAccounts()) {
+      prefixes.add(acct.getQualifiedName());
+      prefixes.add(acct.getQualifiedName() + "::");
+      prefixes.add(acct.getQualifiedName().substring(0, acct.getQualifiedName().length() - 1));
+    }
+
+    for (String prefix : prefixes) {
+      List<GnucashAccount> expected = new ArrayList<GnucashAccount>();
+      for (GnucashAccount acct : gcshFile.getAccounts()) {
+        if (acct.getQualifiedName().startsWith(prefix)) {
+          expected.add(acct);
+        }
+      }
+      Assert.assertEquals(new ArrayList<GnucashAccount>(gcshFile.getAccountsByQualifiedNamePrefix(prefix)), expected,
+          prefix);
+    }
+    Assert.assertEquals(gcshFile.getAccountsByQualifiedNamePrefix("").size(), gcshFile.getAccounts().size());
+  }
+
+  @Test
+  public void test15() throws Exception {
+    // the name of an account is the qualified name of another one: like
+    // scanning all accounts, the one first in the account-map is found
+    GnucashWritableFileImpl writable = new GnucashWritableFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME));
+    GnucashAccount sub = null;
+    for (GnucashAccount acct : writable.getAccounts()) {
+      if (acct.getParentAccountId() != null) {
+        sub = acct;
+        break;
+      }
+    }
+    String qualifiedName = sub.getQualifiedName();
+
+    for (int i = 0; i < 20; i++) {
+      GnucashWritableAccount twin = writable.createWritableAccount();
+      twin.setName(qualifiedName);
+      twin.setParentAccount(sub);
+
+      GnucashAccount expected = null;
+      for (GnucashAccount acct : writable.accountID2account.values()) {
+        if (acct.getName().equals(qualifiedName) || acct.getQualifiedName().equals(qualifiedName)) {
+          expected = acct;
+          break;
+        }
+      }
+      Assert.assertEquals(writable.getAccountByName(qualifiedName), expected);
+    }
+  }
+
+  @Test
+  public void test16() throws Exception {
+    // a snapshot naming a class that is not generated is not used
+    File dir = Files.createTempDirectory("gc").toFile();
+    File file = new File(dir, ConstTest.GCSH_FILENAME);
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME)) {
+      Files.copy(in, file.toPath());
+    }
+    LoadOptions options = new LoadOptions();
+    options.setSnapshotCache(true);
+
+    new GnucashFileImpl(file, options);
+    BookSnapshot.awaitWrites();
+    File snapshot = BookSnapshot.getSnapshotFile(file);
+    String snapshotText = new String(Files.readAllBytes(snapshot.toPath()), StandardCharsets.ISO_8859_1);
+    String className = GncV2.class.getName();
+    Assert.assertTrue(snapshotText.contains(className));
+    // (same length, so the rest of the snapshot stays readable)
+    String otherClassName = "java.util.PriorityQueue$Itr";
+    Assert.assertEquals(otherClassName.length(), className.length());
+    Files.write(snapshot.toPath(),
+        snapshotText.replace(className, otherClassName).getBytes(StandardCharsets.ISO_8859_1));
+
+    GnucashFileImpl parsed = new GnucashFileImpl(file, options);
+    Assert.assertFalse(parsed.isLoadedFromSnapshot());
+    Assert.assertEquals(parsed.getNofEntriesAccountMap(), gcshFile.getNofEntriesAccountMap());
+
+    BookSnapshot.awaitWrites();
+    Assert.assertTrue(new GnucashFileImpl(file, options).isLoadedFromSnapshot());
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void test17() throws Exception {
+    // an edit that keeps the size and the modification-time changes the key
+    File dir = Files.createTempDirectory("gc").toFile();
+    File file = new File(dir, ConstTest.GCSH_FILENAME);
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME)) {
+      Files.copy(in, file.toPath());
+    }
+    byte[] bytes = Files.readAllBytes(file.toPath());
+
+    // in the first block
+    FileTime fineTime = FileTime.from(1700000000123456789L, TimeUnit.NANOSECONDS);
+    Files.setLastModifiedTime(file.toPath(), fineTime);
+    BookSnapshot.Key key = BookSnapshot.Key.of(file);
+    bytes[10] ^= 1;
+    Files.write(file.toPath(), bytes);
+    Files.setLastModifiedTime(file.toPath(), fineTime);
+    Assert.assertNotEquals(BookSnapshot.Key.of(file), key);
+
+    // anywhere, if the file-system keeps whole seconds only
+    FileTime coarseTime = FileTime.from(1700000000L, TimeUnit.SECONDS);
+    Files.setLastModifiedTime(file.toPath(), coarseTime);
+    key = BookSnapshot.Key.of(file);
+    bytes[bytes.length / 2] ^= 1;
+    Files.write(file.toPath(), bytes);
+    Files.setLastModifiedTime(file.toPath(), coarseTime);
+    Assert.assertNotEquals(BookSnapshot.Key.of(file), key);
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void test18() throws Exception {
+    // temporary files of writes that did not finish are deleted
+    File dir = Files.createTempDirectory("gc").toFile();
+    File file = new File(dir, ConstTest.GCSH_FILENAME);
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME)) {
+      Files.copy(in, file.toPath());
+    }
+    String tempPrefix = "." + BookSnapshot.getSnapshotFile(file).getName();
+    File stale = new File(dir, tempPrefix + "123.tmp");
+    File recent = new File(dir, tempPrefix + "456.tmp");
+    Files.write(stale.toPath(), new byte[] { 1 });
+    Files.write(recent.toPath(), new byte[] { 1 });
+    Files.setLastModifiedTime(stale.toPath(), FileTime.fromMillis(System.currentTimeMillis() - 3600 * 1000L));
+    LoadOptions options = new LoadOptions();
+    options.setSnapshotCache(true);
+
+    new GnucashFileImpl(file, options);
+    BookSnapshot.awaitWrites();
+    Assert.assertFalse(stale.exists());
+    // (might still be written to)
+    Assert.assertTrue(recent.exists());
+    Assert.assertTrue(BookSnapshot.getSnapshotFile(file).exists());
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  private static boolean containsCommodities(final GncV2 root) {
+    for (Object bookElement : root.getGncBook().getBookElements()) {
+      if (bookElement instanceof GncV2.GncBook.GncCommodity) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 }
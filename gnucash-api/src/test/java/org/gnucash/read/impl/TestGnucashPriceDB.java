@@ -4,6 +4,8 @@ import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.gnucash.Const;
 import org.gnucash.ConstTest;
@@ -168,4 +170,38 @@ public class TestGnucashPriceDB {
 
     Assert.assertEquals(pr.toString(), "125.000000");
   }
+
+  @Test
+  public void testPriceDB02_1() throws Exception {
+    GnucashPriceDBImpl pdb = new GnucashPriceDBImpl(gcshFile);
+
+    // no quote up to that day
+    Assert.assertEquals(pdb.getPrice("SAP", LocalDate.of(2012, 2, 29)).toString(), "1");
+    Assert.assertEquals(pdb.getPrice("EUREX", "SAP", LocalDate.of(2023, 7, 19), 0).toString(), "125.000000");
+    Assert.assertEquals(pdb.getPrice("EUREX", "SAP", LocalDate.of(2030, 1, 1), 0).toString(), "145");
+  }
+
+  @Test
+  public void testPriceDB02_2() throws Exception {
+    Assert.assertEquals(gcshFile.getLatestPrice("EUREX", "SAP").toString(), "145");
+    Assert.assertNull(gcshFile.getLatestPrice("NASDAQ", "SAP"));
+    // the default-currency has no price
+    Assert.assertNull(gcshFile.getLatestPrice("CURRENCY", gcshFile.getDefaultCurrencyID()));
+    Assert.assertNull(gcshFile.getLatestPrice("ISO4217", gcshFile.getDefaultCurrencyID()));
+  }
+
+  @Test
+  public void testPriceDB02_3() throws Exception {
+    GnucashPriceDBImpl pdb = new GnucashPriceDBImpl(gcshFile);
+
+    // the price database may be queried from several threads
+    List<String> prices = IntStream.range(0, 400).parallel()
+        .mapToObj(i -> pdb.getPrice("SAP", i % 2 == 0 ? LocalDate.of(2012, 3, 2) : LocalDate.of(2023, 7, 18))
+            .toString())
+        .collect(Collectors.toList());
+
+    for (int i = 0; i < prices.size(); i++) {
+      Assert.assertEquals(prices.get(i), i % 2 == 0 ? "51200000.000000" : "125.000000");
+    }
+  }
 }
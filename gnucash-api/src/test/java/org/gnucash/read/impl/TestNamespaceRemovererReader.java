@@ -0,0 +1,96 @@
+package org.gnucash.read.impl;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestNamespaceRemovererReader {
+
+  /**
+   * The character-by-character state machine the reader used to have, as reference.
+   */
+  private static String removeNamespaces(final String xml) {
+    char[] chars = xml.toCharArray();
+    boolean isInTag = false;
+    boolean isInQuotation = false;
+    for (int i = 0; i < chars.length; i++) {
+      if (isInTag && (chars[i] == '"' || chars[i] == '\'')) {
+        isInQuotation = !isInQuotation;
+      } else if (chars[i] == '<' && !isInQuotation) {
+        isInTag = true;
+      } else if (chars[i] == '>' && !isInQuotation) {
+        isInTag = false;
+      } else if (chars[i] == ':' && isInTag && !isInQuotation) {
+        chars[i] = '_';
+      }
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Reads in chunks of random size, so state has to be carried over between calls.
+   */
+  private static String read(final Reader reader, final Random random) throws Exception {
+    StringBuilder result = new StringBuilder();
+    char[] buffer = new char[1024];
+    while (true) {
+      int off = random.nextInt(16);
+      int reat = reader.read(buffer, off, 1 + random.nextInt(buffer.length - off - 1));
+      if (reat < 0) {
+        break;
+      }
+      result.append(buffer, off, reat);
+    }
+    reader.close();
+    return result.toString();
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    String xml = "<gnc:account version=\"2.0.0\">\n  <act:name>a:b 'c'</act:name>\n"
+        + "  <slot:value type=\"string\">x:y</slot:value>\n</gnc:account>";
+    String expected = "<gnc_account version=\"2.0.0\">\n  <act_name>a:b 'c'</act_name>\n"
+        + "  <slot_value type=\"string\">x:y</slot_value>\n</gnc_account>";
+
+    Reader reader = new GnucashFileImpl.NamespaceRemovererReader(new StringReader(xml));
+    Assert.assertEquals(read(reader, new Random(1)), expected);
+    Assert.assertEquals(removeNamespaces(xml), expected);
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // synthetic documents with all the characters that change the state
+    char[] alphabet = "<>:\"' ab\n".toCharArray();
+    Random random = new Random(4711);
+    for (int n = 0; n < 50; n++) {
+      StringBuilder xml = new StringBuilder();
+      int length = random.nextInt(20000);
+      for (int i = 0; i < length; i++) {
+        xml.append(alphabet[random.nextInt(alphabet.length)]);
+      }
+
+      Reader reader = new GnucashFileImpl.NamespaceRemovererReader(new StringReader(xml.toString()));
+      Assert.assertEquals(read(reader, random), removeNamespaces(xml.toString()));
+    }
+  }
+
+  @Test
+  public void test03() throws Exception {
+    StringBuilder xml = new StringBuilder("<gnc-v2 xmlns:gnc=\"http://www.gnucash.org/XML/gnc\">\n");
+    for (int i = 0; i < 20000; i++) {
+      xml.append("<gnc:transaction version=\"2.0.0\"><trn:id type=\"guid\">").append(i)
+          .append("</trn:id><trn:description>Invoice 'A:").append(i).append("'</trn:description></gnc:transaction>\n");
+    }
+    xml.append("</gnc-v2>\n");
+
+    GnucashFileImpl.NamespaceRemovererReader reader = new GnucashFileImpl.NamespaceRemovererReader(
+        new StringReader(xml.toString()));
+    Assert.assertEquals(read(reader, new Random(2)), removeNamespaces(xml.toString()));
+    Assert.assertEquals(reader.getPosition(), xml.length());
+  }
+}
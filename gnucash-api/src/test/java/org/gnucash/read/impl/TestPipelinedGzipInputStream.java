@@ -0,0 +1,91 @@
+package org.gnucash.read.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import org.gnucash.ConstTest;
+import org.gnucash.messages.ApplicationMessages;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestPipelinedGzipInputStream {
+
+  @BeforeMethod
+  public void initialize() throws Exception {
+    ApplicationMessages.setup();
+  }
+
+  private static byte[] gzip(final byte[] data) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+      gz.write(data);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] readAll(final InputStream in) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[1000];
+    int reat;
+    while ((reat = in.read(buffer)) >= 0) {
+      out.write(buffer, 0, reat);
+    }
+    in.close();
+    return out.toByteArray();
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    byte[] data = new byte[300000];
+    new Random(42).nextBytes(data);
+
+    // small buffers and a short queue, so the inflater has to wait for the reader
+    InputStream in = new PipelinedGzipInputStream(new ByteArrayInputStream(gzip(data)), 4096, 2);
+    Assert.assertEquals(readAll(in), data);
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // concatenated gzip-members are one stream
+    ByteArrayOutputStream members = new ByteArrayOutputStream();
+    members.write(gzip("<gnc-v2>".getBytes("UTF-8")));
+    members.write(gzip("</gnc-v2>".getBytes("UTF-8")));
+
+    InputStream in = new PipelinedGzipInputStream(new ByteArrayInputStream(members.toByteArray()), 16, 1);
+    Assert.assertEquals(new String(readAll(in), "UTF-8"), "<gnc-v2></gnc-v2>");
+  }
+
+  @Test(expectedExceptions = java.io.IOException.class)
+  public void test03() throws Exception {
+    InputStream in = new PipelinedGzipInputStream(new ByteArrayInputStream(new byte[] { 1, 2, 3 }), 16, 1);
+    readAll(in);
+  }
+
+  @Test
+  public void test04() throws Exception {
+    File gzipped = File.createTempFile("test", ".gnucash");
+    gzipped.deleteOnExit();
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME);
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipped))) {
+      in.transferTo(out);
+    }
+
+    LoadOptions options = new LoadOptions();
+    options.setParallelInflate(true);
+    options.setInflaterBufferSize(8192);
+    options.setInflaterQueueDepth(2);
+    GnucashFileImpl gcshFile = new GnucashFileImpl(gzipped, options);
+
+    Assert.assertEquals(gcshFile.getNofEntriesAccountMap(), 91);
+    Assert.assertEquals(gcshFile.getNofEntriesTransactionSplitsMap(), 29);
+  }
+}
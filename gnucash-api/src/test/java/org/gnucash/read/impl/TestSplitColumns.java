@@ -0,0 +1,119 @@
+package org.gnucash.read.impl;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gnucash.ConstTest;
+import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.read.GnucashAccount;
+import org.gnucash.read.GnucashTransaction;
+import org.gnucash.read.GnucashTransactionSplit;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestSplitColumns {
+  private GnucashFileImpl gcshFile = null;
+
+  private SplitColumns columns = null;
+
+  // -----------------------------------------------------------------
+
+  @BeforeMethod
+  public void initialize() throws Exception {
+    ApplicationMessages.setup();
+    gcshFile = new GnucashFileImpl(getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME));
+    columns = gcshFile.createSplitColumns();
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    Assert.assertEquals(columns.size(), gcshFile.getNofEntriesTransactionSplitsMap());
+    Assert.assertEquals(columns.getNofAccounts(), gcshFile.getNofEntriesAccountMap());
+    Assert.assertEquals(columns.getNofTransactions(), gcshFile.getNofEntriesTransactionMap());
+
+    // the rows are the splits of the transactions in turn
+    int row = 0;
+    for (int t = 0; t < columns.getNofTransactions(); t++) {
+      GnucashTransaction trx = gcshFile.getTransactionByID(columns.getTransactionId(t));
+      for (GnucashTransactionSplit splt : trx.getSplits()) {
+        Assert.assertEquals(columns.getTransaction(row), t);
+        Assert.assertEquals(columns.getAccountId(columns.getAccount(row)), splt.getAccountID());
+        Assert.assertEquals(columns.getPostDate(row), trx.getDatePosted().toLocalDate().toEpochDay());
+        Assert.assertEquals(BigDecimal.valueOf(columns.getValueNumerator(row))
+            .divide(BigDecimal.valueOf(columns.getValueDenominator(row))).compareTo(splt.getValue().getBigDecimal()),
+            0);
+        Assert.assertEquals(BigDecimal.valueOf(columns.getQuantityNumerator(row))
+            .divide(BigDecimal.valueOf(columns.getQuantityDenominator(row)))
+            .compareTo(splt.getQuantity().getBigDecimal()), 0);
+        Assert.assertEquals(String.valueOf(columns.getReconcileState(row)),
+            ((GnucashTransactionSplitImpl) splt).getJwsdpPeer().getSplitReconciledState());
+        row++;
+      }
+    }
+    Assert.assertEquals(row, columns.size());
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // group-by account
+    BigDecimal[] sums = columns.sumQuantitiesByAccount(null);
+    BigDecimal total = BigDecimal.ZERO;
+    for (GnucashAccount acct : gcshFile.getAccounts()) {
+      BigDecimal expected = BigDecimal.ZERO;
+      for (GnucashTransactionSplit splt : acct.getTransactionSplits()) {
+        expected = expected.add(splt.getQuantity().getBigDecimal());
+      }
+
+      int index = columns.getAccountIndex(acct.getId());
+      Assert.assertEquals(sums[index].compareTo(expected), 0, acct.getQualifiedName());
+
+      AtomicInteger count = new AtomicInteger();
+      columns.forEachInAccount(index, r -> {
+        Assert.assertEquals(columns.getAccount(r), index);
+        count.incrementAndGet();
+      });
+      Assert.assertEquals(count.get(), acct.getTransactionSplits().size());
+      total = total.add(expected);
+    }
+    Assert.assertEquals(columns.sumQuantities(null).compareTo(total), 0);
+    Assert.assertEquals(columns.getAccountIndex("no such account"), -1);
+
+    // the values of each transaction balance
+    for (int t = 0; t < columns.getNofTransactions(); t++) {
+      final int trx = t;
+      Assert.assertEquals(columns.sumValues(r -> columns.getTransaction(r) == trx).signum(), 0);
+    }
+  }
+
+  @Test
+  public void test03() throws Exception {
+    Assert.assertEquals(SplitColumns.parseNumerator("-12345/100"), -12345);
+    Assert.assertEquals(SplitColumns.parseDenominator("-12345/100"), 100);
+    Assert.assertEquals(SplitColumns.parseNumerator("-123.45"), -12345);
+    Assert.assertEquals(SplitColumns.parseDenominator("-123.45"), 100);
+    Assert.assertEquals(SplitColumns.parseNumerator("42"), 42);
+    Assert.assertEquals(SplitColumns.parseDenominator("42"), 1);
+    // exponents
+    Assert.assertEquals(SplitColumns.parseNumerator("1E+3"), 1000);
+    Assert.assertEquals(SplitColumns.parseDenominator("1E+3"), 1);
+    Assert.assertEquals(SplitColumns.parseNumerator("-1.5E+2"), -150);
+    Assert.assertEquals(SplitColumns.parseDenominator("-1.5E+2"), 1);
+    Assert.assertEquals(SplitColumns.parseNumerator("25E-3"), 25);
+    Assert.assertEquals(SplitColumns.parseDenominator("25E-3"), 1000);
+  }
+
+  @Test
+  public void test04() throws Exception {
+    // more than 2 GB for a column is an error, not a buffer of the wrong size
+    Assert.assertEquals(SplitColumns.allocate(3, Long.BYTES).capacity(), 24);
+    try {
+      SplitColumns.allocate(Integer.MAX_VALUE / 4 + 1, Long.BYTES);
+      Assert.fail("the size of the column overflows");
+    } catch (IllegalStateException e) {
+      Assert.assertTrue(e.getMessage().contains("too many splits"), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,642 @@
+package org.gnucash.write.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+import org.gnucash.ConstTest;
+import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.numbers.FixedPointNumber;
+import org.gnucash.read.GnucashAccount;
+import org.gnucash.read.GnucashCustomer;
+import org.gnucash.read.GnucashGenerInvoice;
+import org.gnucash.read.GnucashGenerJob;
+import org.gnucash.read.GnucashVendor;
+import org.gnucash.read.auxiliary.GCshOwner;
+import org.gnucash.read.impl.TestGnucashCustomerImpl;
+import org.gnucash.read.impl.TestGnucashGenerInvoiceImpl;
+import org.gnucash.read.impl.TestGnucashTransactionImpl;
+import org.gnucash.read.impl.GnucashFileImpl;
+import org.gnucash.read.impl.LoadOptions;
+import org.gnucash.write.GnucashWritableAccount;
+import org.gnucash.write.GnucashWritableCustomer;
+import org.gnucash.write.GnucashWritableTransaction;
+import org.gnucash.write.GnucashWritableTransactionSplit;
+import org.gnucash.write.GnucashWritableVendor;
+import org.gnucash.write.spec.GnucashWritableCustomerInvoice;
+import org.gnucash.write.spec.GnucashWritableCustomerInvoiceEntry;
+import org.gnucash.write.spec.GnucashWritableCustomerJob;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TestGnucashWritableFileImpl {
+
+  @BeforeMethod
+  public void initialize() throws Exception {
+    ApplicationMessages.setup();
+  }
+
+  private GnucashWritableFileImpl load(final boolean namespaceAware) throws Exception {
+    LoadOptions options = new LoadOptions();
+    options.setNamespaceAware(namespaceAware);
+    return new GnucashWritableFileImpl(getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME_IN),
+        options);
+  }
+
+  private static File write(final GnucashWritableFileImpl gcshFile) throws Exception {
+    File outFile = Files.createTempFile("gc", ConstTest.GCSH_FILENAME_OUT).toFile();
+    outFile.delete(); // the writer does not overwrite existing files
+    outFile.deleteOnExit();
+    gcshFile.writeFile(outFile);
+    return outFile;
+  }
+
+  private static List<String> ids(final Collection<? extends GnucashGenerInvoice> invcs) {
+    List<String> retval = new ArrayList<String>();
+    for (GnucashGenerInvoice invc : invcs) {
+      retval.add(invc.getId());
+    }
+    return retval;
+  }
+
+  private static void assertChildren(final GnucashWritableFileImpl gcshFile) {
+    // what scanning all accounts gives
+    for (GnucashAccount parent : gcshFile.getAccounts()) {
+      TreeSet<GnucashAccount> expected = new TreeSet<GnucashAccount>();
+      for (GnucashAccount acct : gcshFile.getAccounts()) {
+        if (parent.getId().equals(acct.getParentAccountId())) {
+          expected.add(acct);
+        }
+      }
+      Assert.assertEquals(new ArrayList<GnucashAccount>(parent.getChildren()), new ArrayList<GnucashAccount>(expected));
+    }
+
+    TreeSet<GnucashAccount> expected = new TreeSet<GnucashAccount>();
+    for (GnucashAccount acct : gcshFile.getAccounts()) {
+      if (acct.getParentAccountId() == null) {
+        expected.add(acct);
+      }
+    }
+    Assert.assertEquals(new ArrayList<GnucashAccount>(gcshFile.getAccountsByParentID(null)),
+        new ArrayList<GnucashAccount>(expected));
+  }
+
+  private static List<String> jobIds(final Collection<? extends GnucashGenerJob> jobs) {
+    List<String> retval = new ArrayList<String>();
+    for (GnucashGenerJob job : jobs) {
+      retval.add(job.getId());
+    }
+    return retval;
+  }
+
+  private static List<String> idsForOwner(final Collection<GnucashGenerInvoice> invcs, final String ownerId)
+      throws Exception {
+    List<String> retval = new ArrayList<String>();
+    for (GnucashGenerInvoice invc : invcs) {
+      if (invc.getOwnerId(GnucashGenerInvoice.ReadVariant.DIRECT).equals(ownerId)) {
+        retval.add(invc.getId());
+      }
+    }
+    return retval;
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    GnucashWritableFileImpl gcshFile = load(true);
+    Assert.assertTrue(gcshFile.isNamespaceAware());
+    String written = new String(Files.readAllBytes(write(gcshFile).toPath()), StandardCharsets.UTF_8);
+
+    Assert.assertTrue(written.contains("xmlns:gnc=\"http://www.gnucash.org/XML/gnc\""));
+    // only the '_' behind the prefix is a namespace-separator
+    Assert.assertTrue(written.contains("<cmdty:quote_tz>"));
+    Assert.assertTrue(written.contains("<cmdty:quote_source>"));
+    Assert.assertFalse(written.contains("<gnc_"));
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // both modes write the same document (apart from the names the text-rewriting gets wrong)
+    GnucashWritableFileImpl rewriting = load(false);
+    GnucashWritableFileImpl namespaceAware = load(false);
+    namespaceAware.setNamespaceAware(true);
+
+    String written1 = new String(Files.readAllBytes(write(rewriting).toPath()), StandardCharsets.UTF_8);
+    String written2 = new String(Files.readAllBytes(write(namespaceAware).toPath()), StandardCharsets.UTF_8);
+    Assert.assertEquals(written2, written1.replace("cmdty:quote:tz", "cmdty:quote_tz"));
+  }
+
+  @Test
+  public void test03() throws Exception {
+    File outFile = write(load(true));
+
+    LoadOptions options = new LoadOptions();
+    options.setNamespaceAware(true);
+    GnucashFileImpl reread = new GnucashFileImpl(outFile, options);
+    GnucashFileImpl original = new GnucashFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME_IN));
+
+    Assert.assertEquals(reread.getNofEntriesAccountMap(), original.getNofEntriesAccountMap());
+    Assert.assertEquals(reread.getNofEntriesTransactionSplitsMap(), original.getNofEntriesTransactionSplitsMap());
+    Assert.assertEquals(reread.getNofEntriesGenerInvoiceMap(), original.getNofEntriesGenerInvoiceMap());
+  }
+
+  @Test
+  public void test04() throws Exception {
+    GnucashWritableFileImpl gcshFile = load(false);
+    gcshFile.setIncrementalSave(true);
+    int nofBookElements = gcshFile.getRootElement().getGncBook().getBookElements().size();
+    write(gcshFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), nofBookElements);
+
+    // nothing changed
+    File unchanged = write(gcshFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), 0);
+
+    Iterator<? extends GnucashAccount> accounts = gcshFile.getAccounts().iterator();
+    GnucashWritableAccount acct1 = (GnucashWritableAccount) accounts.next();
+    GnucashWritableAccount acct2 = (GnucashWritableAccount) accounts.next();
+    GnucashWritableTransaction trx = gcshFile.createWritableTransaction();
+    trx.setDescription("incremental");
+    GnucashWritableTransactionSplit split1 = trx.createWritingSplit(acct1);
+    split1.setValue(new FixedPointNumber("12.34"));
+    split1.setQuantity(new FixedPointNumber("12.34"));
+    GnucashWritableTransactionSplit split2 = trx.createWritingSplit(acct2);
+    split2.setValue(new FixedPointNumber("-12.34"));
+    split2.setQuantity(new FixedPointNumber("-12.34"));
+    gcshFile.getTransactionByID(TestGnucashTransactionImpl.TRX_1_ID).setDescription("changed");
+    acct2.setName("renamed");
+
+    File incremental = write(gcshFile);
+    // the new and the changed transaction and both accounts the splits were added to
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), 4);
+    gcshFile.setIncrementalSave(false);
+    File full = write(gcshFile);
+
+    Assert.assertEquals(Files.readAllBytes(incremental.toPath()), Files.readAllBytes(full.toPath()));
+    Assert.assertNotEquals(Files.readAllBytes(unchanged.toPath()), Files.readAllBytes(full.toPath()));
+  }
+
+  @Test
+  public void test05() throws Exception {
+    // changes we can not attribute to a book-element mean writing all of them
+    GnucashWritableFileImpl gcshFile = load(true);
+    gcshFile.setIncrementalSave(true);
+    write(gcshFile);
+
+    GnucashWritableCustomer cust = (GnucashWritableCustomer) gcshFile.getCustomers().iterator().next();
+    cust.setName("renamed");
+    File incremental = write(gcshFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), 1);
+
+    cust.setUserDefinedAttribute("test", "value");
+    File incremental2 = write(gcshFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(),
+        gcshFile.getRootElement().getGncBook().getBookElements().size());
+
+    gcshFile.setIncrementalSave(false);
+    File full = write(gcshFile);
+    Assert.assertEquals(Files.readAllBytes(incremental2.toPath()), Files.readAllBytes(full.toPath()));
+    Assert.assertNotEquals(Files.readAllBytes(incremental.toPath()), Files.readAllBytes(full.toPath()));
+  }
+
+  @Test
+  public void test06() throws Exception {
+    GnucashWritableFileImpl gcshFile = load(false);
+    gcshFile.setParallelCompression(true);
+    File outFile = Files.createTempFile("gc", ConstTest.GCSH_FILENAME_OUT + ".gz").toFile();
+    outFile.delete(); // the writer does not overwrite existing files
+    outFile.deleteOnExit();
+    gcshFile.writeFile(outFile);
+
+    gcshFile.setParallelCompression(false);
+    File uncompressed = write(gcshFile);
+    Assert.assertTrue(outFile.length() < uncompressed.length());
+
+    byte[] inflated;
+    try (InputStream in = new GZIPInputStream(new FileInputStream(outFile))) {
+      inflated = in.readAllBytes();
+    }
+    Assert.assertEquals(inflated, Files.readAllBytes(uncompressed.toPath()));
+
+    GnucashFileImpl reread = new GnucashFileImpl(outFile);
+    Assert.assertEquals(reread.getNofEntriesAccountMap(), gcshFile.getNofEntriesAccountMap());
+    Assert.assertEquals(reread.getNofEntriesTransactionSplitsMap(), gcshFile.getNofEntriesTransactionSplitsMap());
+  }
+
+  @Test
+  public void test07() throws Exception {
+    File dir = Files.createTempDirectory("gc").toFile();
+    File outFile = new File(dir, ConstTest.GCSH_FILENAME_OUT);
+
+    GnucashWritableFileImpl gcshFile = load(false);
+    gcshFile.setNofBackups(2);
+    gcshFile.saveFile(outFile);
+    Assert.assertEquals(gcshFile.getFile(), outFile);
+    Assert.assertFalse(gcshFile.isModified());
+    // nothing to keep a backup of yet
+    Assert.assertEquals(dir.list().length, 1);
+
+    File written = write(gcshFile);
+    Assert.assertEquals(Files.readAllBytes(outFile.toPath()), Files.readAllBytes(written.toPath()));
+    byte[] before = Files.readAllBytes(outFile.toPath());
+
+    // old backups, the oldest one is deleted
+    new File(dir, outFile.getName() + ".20200101000000").createNewFile();
+    new File(dir, outFile.getName() + ".20200102000000").createNewFile();
+    File unrelated = new File(dir, outFile.getName() + ".old");
+    unrelated.createNewFile();
+
+    // a save keeps the permissions of the book
+    Set<PosixFilePermission> perms = PosixFilePermissions.fromString("rw-rw----");
+    Files.setPosixFilePermissions(outFile.toPath(), perms);
+
+    gcshFile.getTransactionByID(TestGnucashTransactionImpl.TRX_1_ID).setDescription("saved");
+    gcshFile.saveFile(outFile);
+
+    Assert.assertTrue(new String(Files.readAllBytes(outFile.toPath()), StandardCharsets.UTF_8).contains("saved"));
+    Assert.assertEquals(Files.getPosixFilePermissions(outFile.toPath()), perms);
+    List<File> backups = newBackups(dir, outFile);
+    Assert.assertEquals(backups.size(), 1);
+    Assert.assertEquals(Files.readAllBytes(backups.get(0).toPath()), before);
+    Assert.assertTrue(new File(dir, outFile.getName() + ".20200102000000").exists());
+    Assert.assertFalse(new File(dir, outFile.getName() + ".20200101000000").exists());
+    Assert.assertTrue(unrelated.exists());
+    // no temporary files left behind
+    Assert.assertEquals(dir.list().length, 4);
+
+    // each save of the same day gets its own backup
+    byte[] saved = Files.readAllBytes(outFile.toPath());
+    Thread.sleep(1100);
+    gcshFile.getTransactionByID(TestGnucashTransactionImpl.TRX_1_ID).setDescription("saved again");
+    gcshFile.saveFile(outFile);
+
+    Assert.assertEquals(Files.getPosixFilePermissions(outFile.toPath()), perms);
+    backups = newBackups(dir, outFile);
+    Assert.assertEquals(backups.size(), 2);
+    Assert.assertEquals(Files.readAllBytes(backups.get(0).toPath()), before);
+    Assert.assertEquals(Files.readAllBytes(backups.get(1).toPath()), saved);
+    Assert.assertFalse(new File(dir, outFile.getName() + ".20200102000000").exists());
+    Assert.assertEquals(dir.list().length, 4);
+
+    for (File file : dir.listFiles()) {
+      file.delete();
+    }
+    dir.delete();
+  }
+
+  /**
+   * @return the backups of the file made by the test, oldest first
+   */
+  private static List<File> newBackups(final File dir, final File file) {
+    List<File> backups = new ArrayList<File>();
+    for (File sibling : dir.listFiles()) {
+      String suffix = sibling.getName().substring(Math.min(file.getName().length(), sibling.getName().length()));
+      if (sibling.getName().startsWith(file.getName()) && suffix.matches("\\.[0-9]{14}")
+          && !suffix.startsWith(".2020")) {
+        backups.add(sibling);
+      }
+    }
+    Collections.sort(backups);
+    return backups;
+  }
+
+  @Test
+  public void test08() throws Exception {
+    // the invoices per owner are what scanning all invoices gives
+    GnucashWritableFileImpl gcshFile = load(false);
+    for (GnucashCustomer cust : gcshFile.getCustomers()) {
+      Assert.assertEquals(ids(gcshFile.getInvoicesForCustomer_direct(cust)),
+          idsForOwner(gcshFile.getGenerInvoices(), cust.getId()));
+      Assert.assertEquals(ids(gcshFile.getPaidInvoicesForCustomer_direct(cust)),
+          idsForOwner(gcshFile.getPaidGenerInvoices(), cust.getId()));
+      Assert.assertEquals(ids(gcshFile.getUnpaidInvoicesForCustomer_direct(cust)),
+          idsForOwner(gcshFile.getUnpaidGenerInvoices(), cust.getId()));
+    }
+    for (GnucashVendor vend : gcshFile.getVendors()) {
+      Assert.assertEquals(ids(gcshFile.getBillsForVendor_direct(vend)),
+          idsForOwner(gcshFile.getGenerInvoices(), vend.getId()));
+      Assert.assertEquals(ids(gcshFile.getPaidBillsForVendor_direct(vend)),
+          idsForOwner(gcshFile.getPaidGenerInvoices(), vend.getId()));
+      Assert.assertEquals(ids(gcshFile.getUnpaidBillsForVendor_direct(vend)),
+          idsForOwner(gcshFile.getUnpaidGenerInvoices(), vend.getId()));
+    }
+    for (GnucashGenerJob job : gcshFile.getGenerJobs()) {
+      Assert.assertEquals(ids(gcshFile.getInvoicesForJob(job)), idsForOwner(gcshFile.getGenerInvoices(), job.getId()));
+      Assert.assertEquals(ids(gcshFile.getPaidInvoicesForJob(job)),
+          idsForOwner(gcshFile.getPaidGenerInvoices(), job.getId()));
+      Assert.assertEquals(ids(gcshFile.getUnpaidInvoicesForJob(job)),
+          idsForOwner(gcshFile.getUnpaidGenerInvoices(), job.getId()));
+    }
+
+    // maintained when creating, re-assigning and removing invoices
+    GnucashCustomer cust1 = gcshFile.getCustomerByID(TestGnucashCustomerImpl.CUST_1_ID);
+    GnucashCustomer cust2 = gcshFile.getCustomerByID(TestGnucashCustomerImpl.CUST_2_ID);
+    int nofInvcs1 = gcshFile.getInvoicesForCustomer_direct(cust1).size();
+    int nofInvcs2 = gcshFile.getInvoicesForCustomer_direct(cust2).size();
+
+    GnucashWritableCustomerInvoice invc = gcshFile.createWritableCustomerInvoice("19328", cust1,
+        gcshFile.getAccountByID("fed745c4da5c49ebb0fde0f47222b35b"),
+        gcshFile.getAccountByID("7e223ee2260d4ba28e8e9e19ce291f43"), LocalDate.of(2023, 8, 3),
+        LocalDate.of(2023, 8, 1), LocalDate.of(2023, 8, 10));
+    Assert.assertTrue(ids(gcshFile.getInvoicesForCustomer_direct(cust1)).contains(invc.getId()));
+    Assert.assertEquals(gcshFile.getInvoicesForCustomer_direct(cust1).size(), nofInvcs1 + 1);
+
+    invc.setCustomer(cust2);
+    Assert.assertEquals(gcshFile.getInvoicesForCustomer_direct(cust1).size(), nofInvcs1);
+    Assert.assertTrue(ids(gcshFile.getInvoicesForCustomer_direct(cust2)).contains(invc.getId()));
+
+    invc.remove();
+    Assert.assertEquals(gcshFile.getInvoicesForCustomer_direct(cust2).size(), nofInvcs2);
+  }
+
+  @Test
+  public void test09() throws Exception {
+    // the paid and unpaid invoices are what checking all invoices gives
+    GnucashWritableFileImpl gcshFile = load(false);
+    List<String> paid = ids(gcshFile.getPaidGenerInvoices());
+    List<String> unpaid = ids(gcshFile.getUnpaidGenerInvoices());
+    for (GnucashGenerInvoice invc : gcshFile.getGenerInvoices()) {
+      boolean notFullyPaid = invc.getType().equals(GCshOwner.TYPE_CUSTOMER) ? invc.isNotInvcFullyPaid()
+          : invc.getType().equals(GCshOwner.TYPE_VENDOR) ? invc.isNotBillFullyPaid()
+              : invc.isNotJobFullyPaid();
+      Assert.assertEquals(paid.contains(invc.getId()), !notFullyPaid, invc.getId());
+      Assert.assertEquals(unpaid.contains(invc.getId()), notFullyPaid, invc.getId());
+    }
+
+    // the memoized amounts cannot be changed by the caller
+    GnucashGenerInvoice invc1 = gcshFile.getGenerInvoiceByID(TestGnucashGenerInvoiceImpl.INVC_1_ID);
+    FixedPointNumber amount = invc1.getInvcAmountWithTaxes();
+    FixedPointNumber expected = amount.copy();
+    amount.add(100);
+    Assert.assertEquals(invc1.getInvcAmountWithTaxes(), expected);
+
+    // updated when an entry is added
+    GnucashCustomer cust1 = gcshFile.getCustomerByID(TestGnucashCustomerImpl.CUST_1_ID);
+    GnucashAccount incomeAcct = gcshFile.getAccountByID("fed745c4da5c49ebb0fde0f47222b35b");
+    GnucashWritableCustomerInvoice invc = gcshFile.createWritableCustomerInvoice("19329", cust1, incomeAcct,
+        gcshFile.getAccountByID("7e223ee2260d4ba28e8e9e19ce291f43"), LocalDate.of(2023, 8, 3),
+        LocalDate.of(2023, 8, 1), LocalDate.of(2023, 8, 10));
+    Assert.assertEquals(invc.getInvcAmountWithTaxes(), new FixedPointNumber(0));
+    Assert.assertTrue(ids(gcshFile.getPaidGenerInvoices()).contains(invc.getId()));
+
+    GnucashWritableCustomerInvoiceEntry entry = invc.createEntry(incomeAcct, new FixedPointNumber(10),
+        new FixedPointNumber(2));
+    Assert.assertTrue(invc.getInvcAmountWithoutTaxes().isGreaterThan(new FixedPointNumber(19)));
+    Assert.assertEquals(gcshFile.getGenerInvoiceByID(invc.getId()).getInvcAmountWithoutTaxes(),
+        invc.getInvcAmountWithoutTaxes());
+    Assert.assertFalse(ids(gcshFile.getPaidGenerInvoices()).contains(invc.getId()));
+    Assert.assertTrue(ids(gcshFile.getUnpaidGenerInvoices()).contains(invc.getId()));
+
+    // updated when an entry is changed, only this invoice is affected
+    FixedPointNumber before = invc.getInvcAmountWithoutTaxes();
+    entry.setQuantity(new FixedPointNumber(4));
+    Assert.assertEquals(invc.getInvcAmountWithoutTaxes(), before.copy().multiply(2));
+    Assert.assertEquals(invc1.getInvcAmountWithTaxes(), expected);
+
+    // changing other book-elements does not change the result
+    ((GnucashWritableAccount) incomeAcct).setDescription("Index");
+    Assert.assertTrue(ids(gcshFile.getUnpaidGenerInvoices()).contains(invc.getId()));
+    Assert.assertEquals(invc.getInvcAmountWithoutTaxes(), before.copy().multiply(2));
+  }
+
+  @Test
+  public void test10() throws Exception {
+    // the jobs per owner are what scanning all jobs gives
+    GnucashWritableFileImpl gcshFile = load(false);
+    for (GnucashCustomer cust : gcshFile.getCustomers()) {
+      List<String> expected = new ArrayList<String>();
+      for (GnucashGenerJob job : gcshFile.getGenerJobs()) {
+        if (job.getOwnerId().equals(cust.getId())) {
+          expected.add(job.getId());
+        }
+      }
+      Assert.assertEquals(jobIds(cust.getJobs()), expected);
+    }
+    for (GnucashVendor vend : gcshFile.getVendors()) {
+      List<String> expected = new ArrayList<String>();
+      for (GnucashGenerJob job : gcshFile.getGenerJobs()) {
+        if (job.getOwnerId().equals(vend.getId())) {
+          expected.add(job.getId());
+        }
+      }
+      Assert.assertEquals(jobIds(vend.getJobs()), expected);
+    }
+
+    // maintained when creating, re-assigning and removing jobs
+    GnucashCustomer cust1 = gcshFile.getCustomerByID(TestGnucashCustomerImpl.CUST_1_ID);
+    GnucashCustomer cust2 = gcshFile.getCustomerByID(TestGnucashCustomerImpl.CUST_2_ID);
+    int nofJobs1 = cust1.getJobs().size();
+    int nofJobs2 = cust2.getJobs().size();
+
+    GnucashWritableCustomerJob job = gcshFile.createWritableCustomerJob(cust1, "J4711", "Index");
+    Assert.assertTrue(jobIds(cust1.getJobs()).contains(job.getId()));
+    Assert.assertEquals(cust1.getJobs().size(), nofJobs1 + 1);
+
+    job.setCustomer(cust2);
+    Assert.assertEquals(cust1.getJobs().size(), nofJobs1);
+    Assert.assertTrue(jobIds(cust2.getJobs()).contains(job.getId()));
+
+    gcshFile.removeGenerJob(job);
+    Assert.assertEquals(cust2.getJobs().size(), nofJobs2);
+
+    // the results are copies, jobs may be added while iterating them
+    for (GnucashGenerJob other : cust2.getJobs()) {
+      gcshFile.removeGenerJob(gcshFile.createWritableCustomerJob(cust2, "J" + other.getNumber(), "Copy"));
+    }
+    Assert.assertEquals(cust2.getJobs().size(), nofJobs2);
+  }
+
+  @Test
+  public void test11() throws Exception {
+    GnucashWritableFileImpl gcshFile = load(false);
+    assertChildren(gcshFile);
+
+    GnucashAccount root = gcshFile.getRootAccounts().iterator().next();
+    // the results are copies, like before the index
+    int nofChildren = root.getChildren().size();
+    root.getChildren().clear();
+    gcshFile.getRootAccounts().clear();
+    Assert.assertEquals(root.getChildren().size(), nofChildren);
+    Assert.assertFalse(gcshFile.getRootAccounts().isEmpty());
+
+    // maintained when creating, moving, renaming and removing accounts
+    GnucashWritableAccount acct = gcshFile.createWritableAccount();
+    acct.setName("AAA first");
+    Assert.assertTrue(gcshFile.getAccountsByParentID(null).contains(acct));
+    assertChildren(gcshFile);
+
+    acct.setParentAccount(root);
+    Assert.assertFalse(gcshFile.getAccountsByParentID(null).contains(acct));
+    Assert.assertEquals(root.getChildren().iterator().next(), acct);
+    assertChildren(gcshFile);
+
+    acct.setName("zzz last");
+    Assert.assertNotEquals(root.getChildren().iterator().next(), acct);
+    assertChildren(gcshFile);
+
+    gcshFile.removeAccount(acct);
+    Assert.assertFalse(root.getChildren().contains(acct));
+    assertChildren(gcshFile);
+  }
+
+  @Test
+  public void test12() throws Exception {
+    GnucashWritableFileImpl gcshFile = load(false);
+
+    // accounts: renaming and moving also change the qualified names of the sub-accounts
+    GnucashAccount root = gcshFile.getRootAccounts().iterator().next();
+    GnucashWritableAccount acct = gcshFile.createWritableAccount();
+    acct.setName("Index parent");
+    GnucashWritableAccount child = gcshFile.createWritableAccount();
+    child.setName("Index child");
+    child.setParentAccount(acct);
+    Assert.assertEquals(gcshFile.getAccountByName("Index parent"), acct);
+    Assert.assertEquals(gcshFile.getAccountByName("Index parent::Index child"), child);
+
+    acct.setName("Index renamed");
+    Assert.assertNull(gcshFile.getAccountByName("Index parent"));
+    Assert.assertNull(gcshFile.getAccountByName("Index parent::Index child"));
+    Assert.assertEquals(gcshFile.getAccountByName("Index renamed"), acct);
+    Assert.assertEquals(gcshFile.getAccountByName("Index renamed::Index child"), child);
+    Assert.assertEquals(gcshFile.getAccountByNameEx("Index ren.*"), acct);
+
+    acct.setParentAccount(root);
+    Assert.assertNull(gcshFile.getAccountByName("Index renamed::Index child"));
+    Assert.assertEquals(gcshFile.getAccountByName(root.getQualifiedName() + "::Index renamed::Index child"), child);
+
+    Assert.assertEquals(gcshFile.getAccountsByQualifiedNamePrefix(root.getQualifiedName() + "::Index ren").size(), 2);
+    Assert.assertTrue(gcshFile.getAccountsByQualifiedNamePrefix("Index renamed").isEmpty());
+
+    gcshFile.removeAccount(child);
+    Assert.assertNull(gcshFile.getAccountByName("Index child"));
+    Assert.assertNull(gcshFile.getAccountByName(child.getQualifiedName()));
+
+    // customers and vendors
+    GnucashWritableCustomer cust = gcshFile.createWritableCustomer();
+    cust.setName("Index customer");
+    Assert.assertEquals(gcshFile.getCustomerByName("Index customer"), cust);
+    cust.setName("Index customer renamed");
+    Assert.assertNull(gcshFile.getCustomerByName("Index customer"));
+    Assert.assertEquals(gcshFile.getCustomerByName("Index customer renamed"), cust);
+    gcshFile.removeCustomer(cust);
+    Assert.assertNull(gcshFile.getCustomerByName("Index customer renamed"));
+
+    GnucashWritableVendor vend = gcshFile.createWritableVendor();
+    vend.setName("Index vendor");
+    Assert.assertEquals(gcshFile.getVendorByName("Index vendor"), vend);
+    vend.setName("Index vendor renamed");
+    Assert.assertNull(gcshFile.getVendorByName("Index vendor"));
+    Assert.assertEquals(gcshFile.getVendorByName("Index vendor renamed"), vend);
+    gcshFile.removeVendor(vend);
+    Assert.assertNull(gcshFile.getVendorByName("Index vendor renamed"));
+  }
+
+  @Test
+  public void test13() throws Exception {
+    // incremental saves of a compressed file copy from the file saved last
+    File dir = Files.createTempDirectory("gc").toFile();
+    File outFile = new File(dir, ConstTest.GCSH_FILENAME_OUT + ".gz");
+    GnucashWritableFileImpl gcshFile = load(false);
+    gcshFile.setIncrementalSave(true);
+    int nofBookElements = gcshFile.getRootElement().getGncBook().getBookElements().size();
+    gcshFile.saveFile(outFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), nofBookElements);
+
+    GnucashCustomer cust = gcshFile.getCustomers().iterator().next();
+    GnucashWritableCustomerJob job = gcshFile.createWritableCustomerJob(cust, "J0815", "Incremental");
+    gcshFile.saveFile(outFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), 1);
+
+    job.setName("Incremental renamed");
+    gcshFile.saveFile(outFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), 1);
+    byte[] incremental = inflate(outFile);
+
+    // a file changed by someone else is not copied from
+    Assert.assertTrue(outFile.setLastModified(outFile.lastModified() - 60000));
+    gcshFile.saveFile(outFile);
+    Assert.assertEquals(gcshFile.getNofBookElementsWritten(), nofBookElements + 1);
+    Assert.assertEquals(inflate(outFile), incremental);
+
+    gcshFile.setIncrementalSave(false);
+    Assert.assertEquals(inflate(write(gcshFile)), incremental);
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void test14() throws Exception {
+    // an io-error while saving leaves the book as it was
+    File dir = Files.createTempDirectory("gc").toFile();
+    File outFile = new File(dir, ConstTest.GCSH_FILENAME_OUT);
+    load(false).saveFile(outFile);
+    byte[] before = Files.readAllBytes(outFile.toPath());
+
+    GnucashWritableFileImpl gcshFile = new GnucashWritableFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME_IN)) {
+      @Override
+      OutputStream compress(final OutputStream out, final File file) throws IOException {
+        // a disk that fails once, while the document is marshalled
+        return new FilterOutputStream(out) {
+          private boolean failed = false;
+
+          @Override
+          public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (!failed) {
+              failed = true;
+              throw new IOException("disk full");
+            }
+            out.write(b, off, len);
+          }
+        };
+      }
+    };
+    gcshFile.getTransactionByID(TestGnucashTransactionImpl.TRX_1_ID).setDescription("not saved");
+
+    try {
+      gcshFile.saveFile(outFile);
+      Assert.fail("no exception");
+    } catch (IOException e) {
+      // expected
+    }
+    Assert.assertEquals(Files.readAllBytes(outFile.toPath()), before);
+    Assert.assertEquals(dir.list(), new String[] { outFile.getName() });
+    Assert.assertTrue(gcshFile.isModified());
+
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  private static byte[] inflate(final File file) throws Exception {
+    if (!file.getName().endsWith(".gz")) {
+      return Files.readAllBytes(file.toPath());
+    }
+    try (InputStream in = new GZIPInputStream(new FileInputStream(file))) {
+      return in.readAllBytes();
+    }
+  }
+}
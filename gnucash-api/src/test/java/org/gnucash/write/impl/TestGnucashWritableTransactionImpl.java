@@ -5,14 +5,19 @@ import java.io.InputStream;
 import java.net.URL;
 import java.nio.file.Files;
 import java.time.LocalDate;
+import java.util.Currency;
 import java.util.TimeZone;
 
 import org.gnucash.ConstTest;
+import org.gnucash.currency.CurrencyNameSpace;
 import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.numbers.FixedPointNumber;
+import org.gnucash.read.GnucashAccount;
 import org.gnucash.read.GnucashTransaction;
 import org.gnucash.read.impl.GnucashFileImpl;
 import org.gnucash.read.impl.TestGnucashTransactionImpl;
 import org.gnucash.write.GnucashWritableTransaction;
+import org.gnucash.write.GnucashWritableTransactionSplit;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -178,4 +183,62 @@ public class TestGnucashWritableTransactionImpl {
     Assert.assertEquals(trx.getSplits().get(2).getId(), "5c5fa881869843d090a932f8e6b15af2"); // unchanged
   }
 
+  @Test
+  public void test02_2() throws Exception {
+    GnucashWritableTransaction trx = gcshInFile.getTransactionByID(TRX_1_ID);
+    GnucashWritableTransactionSplit splt = trx.getWritingFirstSplit();
+    GnucashAccount prntAcct = splt.getAccount().getParentAccount();
+
+    // fill the cache of recursive balances
+    FixedPointNumber balanceBefore = prntAcct.getBalanceRecursive();
+    balanceBefore.add(new FixedPointNumber(1000)); // must not affect the cache
+    balanceBefore = prntAcct.getBalanceRecursive();
+
+    splt.setQuantity(splt.getQuantity().add(new FixedPointNumber(10)));
+
+    Assert.assertEquals(prntAcct.getBalanceRecursive().doubleValue(), balanceBefore.doubleValue() + 10.0,
+        ConstTest.DIFF_TOLERANCE);
+  }
+
+  @Test
+  public void test02_3() throws Exception {
+    GnucashAccount acct = gcshInFile.getTransactionByID(TRX_1_ID).getFirstSplit().getAccount();
+    Currency usd = Currency.getInstance("USD");
+    LocalDate date = LocalDate.now();
+
+    // the account is in "CURRENCY"-"EUR", the base-currency
+    gcshInFile.getCurrencyTable().setConversionFactor(acct.getCurrencyNameSpace(), acct.getCurrencyID(),
+        new FixedPointNumber(1));
+    gcshInFile.addCurrency(CurrencyNameSpace.NAMESPACE_CURRENCY, "USD", new FixedPointNumber(2), 2, "US Dollar");
+    FixedPointNumber balance2 = acct.getBalanceRecursive(date, usd);
+    Assert.assertNotEquals(balance2.doubleValue(), 0.0, ConstTest.DIFF_TOLERANCE);
+
+    // a new price-quote
+    gcshInFile.addCurrency(CurrencyNameSpace.NAMESPACE_CURRENCY, "USD", new FixedPointNumber(4), 2, "US Dollar");
+    FixedPointNumber balance4 = acct.getBalanceRecursive(date, usd);
+    Assert.assertNotEquals(balance4.doubleValue(), balance2.doubleValue(), ConstTest.DIFF_TOLERANCE);
+    gcshInFile.clearBalanceCache();
+    Assert.assertEquals(acct.getBalanceRecursive(date, usd), balance4);
+
+    // a conversion-factor changed directly
+    gcshInFile.getCurrencyTable().setConversionFactor(CurrencyNameSpace.NAMESPACE_CURRENCY, "USD", new FixedPointNumber(8));
+    FixedPointNumber balance8 = acct.getBalanceRecursive(date, usd);
+    Assert.assertNotEquals(balance8.doubleValue(), balance4.doubleValue(), ConstTest.DIFF_TOLERANCE);
+    gcshInFile.clearBalanceCache();
+    Assert.assertEquals(acct.getBalanceRecursive(date, usd), balance8);
+  }
+
+  @Test
+  public void test02_4() throws Exception {
+    // amounts with a currency-entity in front of them
+    GnucashWritableTransactionSplit splt = gcshInFile.getTransactionByID(TRX_1_ID).getWritingFirstSplit();
+
+    splt.setValue("&euro;12,50");
+    Assert.assertEquals(splt.getValue(), new FixedPointNumber("12.50"));
+    splt.setValue("&EURO;12.50");
+    Assert.assertEquals(splt.getValue(), new FixedPointNumber("12.50"));
+    splt.setQuantity("&pound;7,25");
+    Assert.assertEquals(splt.getQuantity(), new FixedPointNumber("7.25"));
+  }
+
 }
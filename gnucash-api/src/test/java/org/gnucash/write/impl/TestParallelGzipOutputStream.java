@@ -0,0 +1,73 @@
+package org.gnucash.write.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestParallelGzipOutputStream {
+
+  private static byte[] compress(final byte[] data, final int blockSize, final int chunkSize) throws Exception {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, ForkJoinPool.commonPool(), blockSize,
+        Deflater.DEFAULT_COMPRESSION);
+    for (int i = 0; i < data.length; i += chunkSize) {
+      out.write(data, i, Math.min(chunkSize, data.length - i));
+    }
+    out.close();
+    return compressed.toByteArray();
+  }
+
+  private static byte[] inflate(final byte[] compressed) throws Exception {
+    ByteArrayOutputStream inflated = new ByteArrayOutputStream();
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+      byte[] buffer = new byte[4096];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        inflated.write(buffer, 0, n);
+      }
+    }
+    return inflated.toByteArray();
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    // repetitive text (so the dictionaries matter) mixed with random bytes
+    Random random = new Random(4711);
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    for (int i = 0; i < 5000; i++) {
+      data.write(("<gnc:account version=\"2.0.0\">" + i + "</gnc:account>\n").getBytes("UTF-8"));
+      byte[] noise = new byte[random.nextInt(64)];
+      random.nextBytes(noise);
+      data.write(noise);
+    }
+    byte[] original = data.toByteArray();
+
+    Assert.assertEquals(inflate(compress(original, 1000, 777)), original);
+    Assert.assertEquals(inflate(compress(original, ParallelGzipOutputStream.DEFAULT_BLOCK_SIZE, 8192)), original);
+    // one block exactly
+    Assert.assertEquals(inflate(compress(original, original.length, original.length)), original);
+  }
+
+  @Test
+  public void test02() throws Exception {
+    Assert.assertEquals(inflate(compress(new byte[0], 1000, 1)), new byte[0]);
+
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    ParallelGzipOutputStream out = new ParallelGzipOutputStream(compressed, ForkJoinPool.commonPool(), 3,
+        Deflater.BEST_SPEED);
+    for (byte b : "single bytes".getBytes("UTF-8")) {
+      out.write(b);
+    }
+    out.close();
+    Assert.assertEquals(new String(inflate(compressed.toByteArray()), "UTF-8"), "single bytes");
+  }
+}
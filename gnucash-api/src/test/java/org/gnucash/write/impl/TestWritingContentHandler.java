@@ -0,0 +1,158 @@
+package org.gnucash.write.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gnucash.ConstTest;
+import org.gnucash.generated.GncV2;
+import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.read.impl.TestGnucashTransactionImpl;
+import org.gnucash.write.GnucashWritableAccount;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.Marshaller;
+
+public class TestWritingContentHandler {
+  /**
+   * A small book in the format the writer writes (written by hand, not by the writer).
+   */
+  private static final String FIXTURE_FILENAME = "writer.gnucash";
+
+  private GnucashWritableFileImpl gcshFile = null;
+
+  private Marshaller marshaller = null;
+
+  /**
+   * The events given to a content-handler.
+   */
+  private static final class RecordingHandler extends DefaultHandler {
+    private final List<String> events = new ArrayList<String>();
+
+    @Override
+    public void startDocument() {
+      events.add("startDocument");
+    }
+
+    @Override
+    public void endDocument() {
+      events.add("endDocument");
+    }
+
+    @Override
+    public void startElement(final String uri, final String localName, final String qName,
+        final Attributes atts) {
+      StringBuilder event = new StringBuilder("<" + qName);
+      for (int i = 0; i < atts.getLength(); i++) {
+        event.append(" " + atts.getQName(i) + "=" + atts.getValue(i));
+      }
+      events.add(event.toString());
+    }
+
+    @Override
+    public void endElement(final String uri, final String localName, final String qName) {
+      events.add("</" + qName);
+    }
+
+    @Override
+    public void characters(final char[] ch, final int start, final int length) {
+      events.add("text " + new String(ch, start, length));
+    }
+  }
+
+  @BeforeMethod
+  public void initialize() throws Exception {
+    ApplicationMessages.setup();
+    gcshFile = new GnucashWritableFileImpl(
+        getClass().getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME_IN));
+    marshaller = JAXBContext.newInstance("org.gnucash.generated", getClass().getClassLoader()).createMarshaller();
+  }
+
+  private byte[] write(final GncV2 root, final boolean namespaceAware) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8XmlOutput out = new Utf8XmlOutput(bytes);
+    new BookSerializer(new WritingContentHandler(out, namespaceAware)).write(root);
+    out.close();
+    Assert.assertEquals(out.getBytesWritten(), bytes.size());
+    return bytes.toByteArray();
+  }
+
+  private byte[] marshal(final GncV2 root, final boolean namespaceAware) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    Utf8XmlOutput out = new Utf8XmlOutput(bytes);
+    marshaller.marshal(root, new WritingContentHandler(out, namespaceAware));
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * The serializer has to give the events the JAXB-marshaller gives.
+   */
+  private void assertWrittenLikeMarshalled(final GncV2 root) throws Exception {
+    RecordingHandler marshalled = new RecordingHandler();
+    marshaller.marshal(root, marshalled);
+    RecordingHandler written = new RecordingHandler();
+    new BookSerializer(written).write(root);
+    Assert.assertEquals(written.events, marshalled.events);
+
+    Assert.assertEquals(write(root, false), marshal(root, false));
+    Assert.assertEquals(write(root, true), marshal(root, false));
+  }
+
+  // -----------------------------------------------------------------
+
+  @Test
+  public void test01() throws Exception {
+    assertWrittenLikeMarshalled(gcshFile.getRootElement());
+  }
+
+  @Test
+  public void test02() throws Exception {
+    // entities, all lengths of UTF-8 sequences, an unpaired surrogate and empty texts
+    gcshFile.getTransactionByID(TestGnucashTransactionImpl.TRX_1_ID)
+        .setDescription("Ä & <b> € 😀 'x' \"y\" \uD800x");
+    GnucashWritableAccount account = (GnucashWritableAccount) gcshFile.getAccounts().iterator().next();
+    account.setName("Ü_ber:💰");
+    account.setDescription("");
+
+    assertWrittenLikeMarshalled(gcshFile.getRootElement());
+  }
+
+  @Test
+  public void test03() throws Exception {
+    String[] names = { "gnc_account", "fs_ui_type", "cmdty_get_quotes", "cmdty_quote_source", "cmdty_quote_tz",
+        "invoice_billing_id", "recurrence_period_type", "recurrence_weekend_adj", "bt-days_due-days", "gnc-v2" };
+    for (String name : names) {
+      StringWriter text = new StringWriter();
+      Writer writer = new NamespaceAdderWriter(text);
+      writer.write("<" + name + " " + name + "=\"a_b\">");
+      writer.close();
+
+      String written = NamespaceAdderWriter.addNamespaces(name);
+      Assert.assertEquals(text.toString(), "<" + written + " " + written + "=\"a_b\">");
+    }
+  }
+
+  @Test
+  public void test04() throws Exception {
+    // the book is written back byte by byte
+    byte[] fixture;
+    try (InputStream in = getClass().getClassLoader().getResourceAsStream(FIXTURE_FILENAME)) {
+      fixture = in.readAllBytes();
+    }
+    GnucashWritableFileImpl small = new GnucashWritableFileImpl(
+        getClass().getClassLoader().getResourceAsStream(FIXTURE_FILENAME));
+
+    Assert.assertEquals(write(small.getRootElement(), false), fixture);
+    Assert.assertEquals(write(small.getRootElement(), true), fixture);
+    assertWrittenLikeMarshalled(small.getRootElement());
+  }
+}
@@ -0,0 +1,84 @@
+package org.gnucash.write.impl;
+
+import java.io.OutputStream;
+
+import org.gnucash.ConstTest;
+import org.gnucash.generated.GncV2;
+import org.gnucash.messages.ApplicationMessages;
+
+import jakarta.xml.bind.JAXBContext;
+import jakarta.xml.bind.Marshaller;
+
+/**
+ * Save throughput (MB/s of xml) of the JAXB-marshaller and of the
+ * {@link BookSerializer}, both writing through a {@link WritingContentHandler}
+ * into an output that discards the bytes. Not a test, run it with
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt
+ * java -cp target/classes:target/test-classes:$(cat target/cp.txt) org.gnucash.write.impl.WriteBenchmark [rounds]
+ * </pre>
+ */
+public class WriteBenchmark {
+
+  /**
+   * Discards what is written.
+   */
+  private static final class NullOutputStream extends OutputStream {
+    @Override
+    public void write(final int b) {
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+    }
+  }
+
+  private interface Writing {
+    long write(GncV2 root) throws Exception;
+  }
+
+  public static void main(final String[] args) throws Exception {
+    int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+
+    ApplicationMessages.setup();
+    GnucashWritableFileImpl gcshFile = new GnucashWritableFileImpl(
+        WriteBenchmark.class.getClassLoader().getResourceAsStream(ConstTest.GCSH_FILENAME_IN));
+    final Marshaller marshaller = JAXBContext
+        .newInstance("org.gnucash.generated", WriteBenchmark.class.getClassLoader()).createMarshaller();
+
+    Writing marshalling = new Writing() {
+      public long write(final GncV2 root) throws Exception {
+        Utf8XmlOutput out = new Utf8XmlOutput(new NullOutputStream());
+        marshaller.marshal(root, new WritingContentHandler(out));
+        out.close();
+        return out.getBytesWritten();
+      }
+    };
+    Writing serializing = new Writing() {
+      public long write(final GncV2 root) throws Exception {
+        Utf8XmlOutput out = new Utf8XmlOutput(new NullOutputStream());
+        new BookSerializer(new WritingContentHandler(out)).write(root);
+        out.close();
+        return out.getBytesWritten();
+      }
+    };
+
+    for (int i = 0; i < 3; i++) {
+      run("marshaller", marshalling, gcshFile.getRootElement(), rounds);
+      run("serializer", serializing, gcshFile.getRootElement(), rounds);
+    }
+  }
+
+  private static void run(final String name, final Writing writing, final GncV2 root, final int rounds)
+      throws Exception {
+    long bytes = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < rounds; i++) {
+      bytes += writing.write(root);
+    }
+    long nanos = System.nanoTime() - start;
+    System.out.println(name + ": " + (bytes * 1000 / nanos) + " MB/s (" + rounds + " writes of "
+        + (bytes / rounds) + " bytes, " + (nanos / rounds / 1000) + " us each)");
+  }
+}
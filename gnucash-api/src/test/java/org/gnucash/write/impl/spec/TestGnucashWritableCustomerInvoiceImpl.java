@@ -12,6 +12,7 @@ import javax.xml.parsers.ParserConfigurationException;
 
 import org.gnucash.ConstTest;
 import org.gnucash.messages.ApplicationMessages;
+import org.gnucash.numbers.FixedPointNumber;
 import org.gnucash.read.GnucashAccount;
 import org.gnucash.read.GnucashCustomer;
 import org.gnucash.read.GnucashGenerInvoice;
@@ -22,6 +23,8 @@ import org.gnucash.read.impl.TestGnucashGenerJobImpl;
 import org.gnucash.read.impl.TestGnucashVendorImpl;
 import org.gnucash.read.impl.spec.GnucashCustomerInvoiceImpl;
 import org.gnucash.read.spec.GnucashCustomerInvoice;
+import org.gnucash.write.GnucashWritableTransaction;
+import org.gnucash.write.GnucashWritableTransactionSplit;
 import org.gnucash.write.impl.GnucashWritableFileImpl;
 import org.gnucash.write.spec.GnucashWritableCustomerInvoice;
 import org.testng.Assert;
@@ -46,6 +49,7 @@ public class TestGnucashWritableCustomerInvoiceImpl {
   private static final String JOB_2_ID = TestGnucashGenerJobImpl.JOB_2_ID;
 
   static final String INCOME_ACCT_ID = "fed745c4da5c49ebb0fde0f47222b35b"; // Root Account::Erträge::Sonstiges
+  static final String BANK_ACCT_ID = "bbf77a599bd24a3dbfec3dd1d0bb9f5c"; // Giro RaiBa
   static final String RECEIVABLE_ACCT_ID = "7e223ee2260d4ba28e8e9e19ce291f43"; // Root
                                                                                // Account::Aktiva::Forderungen::Unfug_Quatsch
 
@@ -125,6 +129,45 @@ public class TestGnucashWritableCustomerInvoiceImpl {
     test01_5(outFile, newInvcID);
   }
 
+  @Test
+  public void test02() throws Exception {
+    // post an invoice, then pay it
+    LocalDate postDate = LocalDate.of(2023, 8, 1);
+    LocalDate openedDate = LocalDate.of(2023, 8, 3);
+    LocalDate dueDate = LocalDate.of(2023, 8, 10);
+    GnucashWritableCustomerInvoice invc = gcshInFile.createWritableCustomerInvoice("19328", cust1, incomeAcct,
+        receivableAcct, openedDate, postDate, dueDate);
+    invc.createEntry(incomeAcct, new FixedPointNumber(10), new FixedPointNumber(3));
+    Assert.assertNull(invc.getLotID());
+
+    invc.post(incomeAcct, receivableAcct, postDate, dueDate);
+
+    String lotID = invc.getLotID();
+    Assert.assertNotNull(lotID);
+    Assert.assertEquals(gcshInFile.getGenerInvoiceByLotID(lotID).getId(), invc.getId());
+    FixedPointNumber amount = invc.getInvcAmountWithTaxes();
+    Assert.assertTrue(amount.isPositive());
+    Assert.assertEquals(invc.getInvcAmountPaidWithTaxes(), new FixedPointNumber(0));
+    Assert.assertFalse(invc.isInvcFullyPaid());
+
+    GnucashWritableTransaction trx = gcshInFile.createWritableTransaction();
+    trx.setDatePosted(LocalDate.of(2023, 8, 8));
+    GnucashWritableTransactionSplit bankSplt = trx.createWritingSplit(gcshInFile.getAccountByID(BANK_ACCT_ID));
+    bankSplt.setValue(amount);
+    bankSplt.setQuantity(amount);
+    GnucashWritableTransactionSplit paySplt = trx.createWritingSplit(receivableAcct);
+    paySplt.setValue(amount.copy().negate());
+    paySplt.setQuantity(amount.copy().negate());
+    paySplt.setAction(ApplicationMessages.getInstance().getMessage("ACTION_PAYMENT"));
+    paySplt.setLotID(lotID);
+
+    Assert.assertEquals(invc.getPayingTransactions().size(), 1);
+    Assert.assertEquals(invc.getPayingTransactions().iterator().next().getId(), trx.getId());
+    Assert.assertEquals(invc.getInvcAmountPaidWithTaxes(), amount);
+    Assert.assertTrue(invc.isInvcFullyPaid());
+    Assert.assertFalse(gcshInFile.getUnpaidGenerInvoices().contains(invc));
+  }
+
   private void test01_2(File outFile, String newInvcID) throws ParserConfigurationException, SAXException, IOException {
     // ::TODO
     // Check if generated XML file is valid